@@ -7,9 +7,10 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
-import java.util.stream.Collectors;
+import java.util.function.Consumer;
 import java.util.stream.LongStream;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public interface Container<K, V> extends Streamable<Pair<K, V>> {
     void put(K key, V value);
@@ -227,14 +228,116 @@ public interface Container<K, V> extends Streamable<Pair<K, V>> {
             return gen.getN(n);
         }
 
+        /**
+         * @return the keys as a primitive stream, i.e., without boxing them.
+         */
+        public LongStream keyStream() {
+            return LongStream.range(0L, size()).filter(this::containsKey);
+        }
+
+        /**
+         * Containers that remove keys override this together with get.
+         * @param key a key in [0, size()).
+         * @return true if the key is present.
+         */
+        protected boolean containsKey(long key) {
+            return true;
+        }
+
+        /**
+         * Returns a lazy stream of the pairs of keys and values whose keys are in [fromKey, toKey). Keys without a value are skipped.
+         * The stream's Spliterator splits the key range in halves, so that a parallel stream processes disjoint key ranges.
+         * @param fromKey the first key (inclusive).
+         * @param toKey the last key (exclusive).
+         * @return the stream.
+         */
+        public Stream<Pair<Long, V>> stream(long fromKey, long toKey) {
+            return StreamSupport.stream(new KeyRangeSpliterator(Math.max(0L, fromKey), Math.min(size(), toKey)), false);
+        }
+
+        @Override
+        public Stream<Pair<Long, V>> stream() {
+            return stream(0L, size());
+        }
+
+        /**
+         * @return a view of the values that is computed lazily by stream() on each traversal.
+         */
         @Override
         public Collection<V> values() {
-            return LongStream.range(0L, size()).mapToObj(this::get).toList();
+            return FuncUtils.lazyCollection(() -> stream().map(Pair::getT2));
         }
 
+        /**
+         * @return a view of the keys that is computed lazily by keyStream() on each traversal.
+         */
         @Override
         public Set<Long> keys() {
-            return LongStream.range(0L, size()).boxed().collect(Collectors.toSet());
+            return new AbstractSet<>() {
+                @Override
+                public Iterator<Long> iterator() {
+                    return keyStream().iterator();
+                }
+
+                @Override
+                public Spliterator<Long> spliterator() {
+                    return keyStream().spliterator();
+                }
+
+                @Override
+                public int size() {
+                    return Math.toIntExact(keyStream().count());
+                }
+
+                @Override
+                public boolean contains(Object o) {
+                    return o instanceof Long key && key >= 0L && key < LinearLongContainer.this.size() && containsKey(key);
+                }
+            };
+        }
+
+        private final class KeyRangeSpliterator implements Spliterator<Pair<Long, V>> {
+            private long from;
+            private final long to;
+
+            KeyRangeSpliterator(long from, long to) {
+                this.from = from;
+                this.to = to;
+            }
+
+            @Override
+            public boolean tryAdvance(Consumer<? super Pair<Long, V>> action) {
+                while (from < to) {
+                    long key = from++;
+                    V value = containsKey(key) ? get(key) : null;
+                    if (value != null) {
+                        action.accept(new Pair<>(key, value));
+                        return true;
+                    }
+                }
+                return false;
+            }
+
+            @Override
+            public Spliterator<Pair<Long, V>> trySplit() {
+                long mid = (from + to) >>> 1;
+                if (mid <= from)
+                    return null;
+
+                KeyRangeSpliterator prefix = new KeyRangeSpliterator(from, mid);
+                from = mid;
+                return prefix;
+            }
+
+            @Override
+            public long estimateSize() {
+                return Math.max(0L, to - from);
+            }
+
+            @Override
+            public int characteristics() {
+                return ORDERED | DISTINCT | NONNULL;
+            }
         }
     }
 }
@@ -1,17 +1,22 @@
 package datastructures.container;
 
 import core.BaseSequence;
+import datastructures.container.impl.ContainerScan;
 import datastructures.container.impl.RichDNAContainer;
 import datastructures.container.impl.SizedDNAContainer;
 import datastructures.container.translation.AddressManager;
 import utils.AddressedDNA;
 import utils.Coder;
+import utils.FuncUtils;
+import utils.Pair;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 import java.util.Set;
+import java.util.function.BiConsumer;
 import java.util.stream.Collectors;
 import java.util.stream.LongStream;
+import java.util.stream.Stream;
 
 public interface DNAContainer extends Container<Long, BaseSequence> {
     DNAStorage getOligoStore();
@@ -37,8 +42,7 @@ public interface DNAContainer extends Container<Long, BaseSequence> {
     }
     default List<AddressManager.ManagedAddress<Long, BaseSequence>> registerManagedIds(int n) {
         long[] ids = registerIds(n);
-        var am = getAddressManager();
-        return LongStream.of(ids).mapToObj(am::routeAndTranslate).toList();
+        return getAddressManager().routeAndTranslateAll(LongStream.of(ids).boxed().toList());
     }
 
     @Override
@@ -50,9 +54,19 @@ public interface DNAContainer extends Container<Long, BaseSequence> {
         int addrSize = getAddressSize();
         return assembleFromOligos(Arrays.stream(oligos).map(o -> AddressedDNA.of(o, addrSize)).toArray(AddressedDNA[]::new));
     }
+    /**
+     * @return the ids as a primitive stream, i.e., without boxing them.
+     */
+    default LongStream keyStream() {
+        return keys().stream().mapToLong(Long::longValue);
+    }
+
+    /**
+     * @return a view of the joined oligos of all objects that is computed lazily on each traversal.
+     */
     @Override
     default Collection<BaseSequence> values() {
-        return getSegmentedOligos().stream().flatMap(a -> Arrays.stream(a).map(AddressedDNA::join)).toList();
+        return FuncUtils.lazyCollection(() -> segmentedOligosStream().flatMap(a -> Arrays.stream(a).map(AddressedDNA::join)));
     }
 
     default BaseSequence[] getAddresses(Long id) {
@@ -68,8 +82,39 @@ public interface DNAContainer extends Container<Long, BaseSequence> {
         return Arrays.stream(getOligos(id)).map(AddressedDNA::payload).toArray(BaseSequence[]::new);
     }
 
+    /**
+     * @return a view of the oligos of all objects that is computed lazily on each traversal.
+     */
     default Collection<AddressedDNA[]> getSegmentedOligos() {
-        return keys().stream().map(this::getOligos).toList();
+        return FuncUtils.lazyCollection(this::segmentedOligosStream);
+    }
+
+    /**
+     * @return a lazy stream of the oligos of all objects.
+     */
+    default Stream<AddressedDNA[]> segmentedOligosStream() {
+        return keyStream().mapToObj(this::getOligos);
+    }
+
+    /**
+     * Scans the objects by ranges of ids that are decoded in parallel. The returned stream is sequential and should be closed if it is not fully consumed.
+     * This default decodes chunks of keyStream() with get. SizedDNAContainer reads the oligos of each range contiguously.
+     * @param options the options.
+     * @return the objects by their ids, ordered by their ids if options.ordered() is true.
+     */
+    default Stream<Pair<Long, BaseSequence>> scan(ScanOptions options) {
+        return ContainerScan.scanKeys(this, options);
+    }
+
+    /**
+     * Scans the objects and passes each to consumer on the calling thread.
+     * @param options the options.
+     * @param consumer the consumer of the ids and objects.
+     */
+    default void scan(ScanOptions options, BiConsumer<Long, BaseSequence> consumer) {
+        try (Stream<Pair<Long, BaseSequence>> objects = scan(options)) {
+            objects.forEach(p -> consumer.accept(p.getT1(), p.getT2()));
+        }
     }
 
     @Override
@@ -94,6 +139,10 @@ public interface DNAContainer extends Container<Long, BaseSequence> {
             this.am = am;
         }
 
+        public AddressManager<Long, BaseSequence> addressManager() {
+            return am;
+        }
+
         public void put(List<AddressManager.ManagedAddress<Long, Long>> managedAddresses, List<AddressedDNA> oligos) {
             int size = oligos.size();
             if (managedAddresses.size() != size)
@@ -103,10 +152,38 @@ public interface DNAContainer extends Container<Long, BaseSequence> {
                 put(managedAddresses.get(i).routed(), oligos.get(i));
         }
 
+        /**
+         * Puts the oligos of an object. Implementations can override this to write the oligos in a single batch.
+         * @param keys the managed addresses of the oligos.
+         * @param oligos the oligos.
+         */
+        public void putAll(List<AddressManager.ManagedAddress<Long, BaseSequence>> keys, List<AddressedDNA> oligos) {
+            int size = oligos.size();
+            if (keys.size() != size)
+                throw new RuntimeException("keys.size() != oligos.size()");
+
+            for (int i = 0; i < size; i++)
+                put(keys.get(i), oligos.get(i));
+        }
+
         public abstract void put(long key, AddressedDNA value);
         public abstract boolean remove(long key);
         public abstract AddressedDNA get(long key);
 
+        /**
+         * Returns the oligos of the contiguous ids startId, startId + 1, ..., startId + count - 1. Implementations can override this to read oligos that are contiguous on their storage with a single range read.
+         * @param startId the first id.
+         * @param count the number of ids.
+         * @return the oligos, with null for ids that are not present.
+         */
+        public AddressedDNA[] getAll(long startId, int count) {
+            AddressedDNA[] oligos = new AddressedDNA[count];
+            for (int i = 0; i < count; i++)
+                oligos[i] = get(startId + i);
+
+            return oligos;
+        }
+
 
         @Override
         public Set<AddressManager.ManagedAddress<Long, BaseSequence>> keys() {
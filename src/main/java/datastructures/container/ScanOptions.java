@@ -0,0 +1,142 @@
+package datastructures.container;
+
+import utils.FuncUtils;
+
+/**
+ * The options of DNAContainer.scan, i.e., the scanned ids, the number of ids per range, the number of threads that decode the ranges, and whether the objects are returned in the order of their ids.
+ */
+public class ScanOptions {
+    public static final long DEFAULT_FROM_ID = 0L;
+    public static final long DEFAULT_TO_ID = Long.MAX_VALUE;
+    public static final int DEFAULT_RANGE_SIZE = 1024;
+    public static final int DEFAULT_PARALLELISM = Math.max(1, Runtime.getRuntime().availableProcessors());
+    public static final boolean DEFAULT_ORDERED = true;
+
+    private final long fromId;
+    private final long toId;
+    private final int rangeSize;
+    private final int parallelism;
+    private final int maxRangesInFlight;
+    private final boolean ordered;
+
+    private ScanOptions(long fromId, long toId, int rangeSize, int parallelism, int maxRangesInFlight, boolean ordered) {
+        this.fromId = fromId;
+        this.toId = toId;
+        this.rangeSize = rangeSize;
+        this.parallelism = parallelism;
+        this.maxRangesInFlight = maxRangesInFlight;
+        this.ordered = ordered;
+    }
+
+    /**
+     * @return the default options, i.e., an ordered scan of all ids.
+     */
+    public static ScanOptions defaults() {
+        return builder().build();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public long fromId() {
+        return fromId;
+    }
+
+    public long toId() {
+        return toId;
+    }
+
+    public int rangeSize() {
+        return rangeSize;
+    }
+
+    public int parallelism() {
+        return parallelism;
+    }
+
+    public int maxRangesInFlight() {
+        return maxRangesInFlight;
+    }
+
+    public boolean ordered() {
+        return ordered;
+    }
+
+    @Override
+    public String toString() {
+        return "ScanOptions{fromId=" + fromId + ", toId=" + toId + ", rangeSize=" + rangeSize + ", parallelism=" + parallelism + ", maxRangesInFlight=" + maxRangesInFlight + ", ordered=" + ordered + "}";
+    }
+
+    public static class Builder {
+        private Long fromId;
+        private Long toId;
+        private Integer rangeSize;
+        private Integer parallelism;
+        private Integer maxRangesInFlight;
+        private Boolean ordered;
+
+        public ScanOptions build() {
+            this.fromId = FuncUtils.conditionOrElse(x -> x != null && x >= 0L, fromId, () -> DEFAULT_FROM_ID);
+            this.toId = FuncUtils.nullEscape(toId, DEFAULT_TO_ID);
+            if (toId < fromId)
+                throw new RuntimeException("toId (" + toId + ") < fromId (" + fromId + ")");
+
+            this.rangeSize = FuncUtils.conditionOrElse(x -> x != null && x > 0, rangeSize, () -> DEFAULT_RANGE_SIZE);
+            this.parallelism = FuncUtils.conditionOrElse(x -> x != null && x > 0, parallelism, () -> DEFAULT_PARALLELISM);
+            this.maxRangesInFlight = FuncUtils.conditionOrElse(x -> x != null && x > 0, maxRangesInFlight, () -> 2 * parallelism);
+            this.ordered = FuncUtils.nullEscape(ordered, DEFAULT_ORDERED);
+
+            return new ScanOptions(fromId, toId, rangeSize, parallelism, maxRangesInFlight, ordered);
+        }
+
+        /**
+         * Sets the scanned ids to [fromId, toId).
+         * @param fromId the first id.
+         * @param toId the id after the last id.
+         * @return this builder.
+         */
+        public Builder setIdRange(long fromId, long toId) {
+            this.fromId = fromId;
+            this.toId = toId;
+            return this;
+        }
+
+        /**
+         * @param rangeSize the number of contiguous ids that are read and decoded together.
+         * @return this builder.
+         */
+        public Builder setRangeSize(int rangeSize) {
+            this.rangeSize = rangeSize;
+            return this;
+        }
+
+        /**
+         * @param parallelism the number of threads that decode the ranges.
+         * @return this builder.
+         */
+        public Builder setParallelism(int parallelism) {
+            this.parallelism = parallelism;
+            return this;
+        }
+
+        /**
+         * Bounds the memory of a scan. The default is twice the parallelism.
+         * @param maxRangesInFlight the maximum number of ranges that are read or decoded ahead of the consumer.
+         * @return this builder.
+         */
+        public Builder setMaxRangesInFlight(int maxRangesInFlight) {
+            this.maxRangesInFlight = maxRangesInFlight;
+            return this;
+        }
+
+        /**
+         * @param ordered true to return the objects in the order of their ids, or false to return them as soon as they are decoded.
+         * @return this builder.
+         */
+        public Builder setOrdered(boolean ordered) {
+            this.ordered = ordered;
+            return this;
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package datastructures.container.impl;
+
+import core.BaseSequence;
+import datastructures.container.Container;
+import datastructures.container.translation.DNAAddrManager;
+import utils.FuncUtils;
+import utils.serializers.PackedSeqSerializer;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.stream.LongStream;
+
+/**
+ * A read-only, memory-mapped file of fixed-size barcodes that are addressed by their index. Each barcode is packed with 2 bits per base.
+ * The file starts with a header containing the address size (int) and the number of barcodes (long).
+ */
+public class BarcodeCodebook extends Container.LinearLongContainer<BaseSequence> implements AutoCloseable {
+
+    private static final int HEADER_SIZE = Integer.BYTES + Long.BYTES;
+
+    private final String filePath;
+    private final FileChannel fc;
+    private final int addrSize;
+    private final int recordSize;
+    private final PackedSeqSerializer serializer;
+    private final long size;
+    private final int recordsPerSegment;
+    private final MappedByteBuffer[] segments;
+
+    private BarcodeCodebook(String filePath) {
+        this.filePath = filePath;
+        this.fc = FuncUtils.safeCall(() -> FileChannel.open(Path.of(filePath), StandardOpenOption.READ));
+        try {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            FuncUtils.safeRun(() -> fc.read(header, 0L));
+            header.flip();
+            if (header.remaining() < HEADER_SIZE)
+                throw new RuntimeException("failed loading codebook from " + filePath);
+
+            this.addrSize = header.getInt();
+            this.size = header.getLong();
+            if (addrSize <= 0 || size < 0L)
+                throw new RuntimeException("failed loading codebook from " + filePath);
+
+            this.recordSize = packedSize(addrSize);
+            this.serializer = new PackedSeqSerializer(addrSize);
+            if (FuncUtils.safeCall(fc::size) < HEADER_SIZE + size * recordSize)
+                throw new RuntimeException("failed loading codebook from " + filePath);
+
+            this.recordsPerSegment = Integer.MAX_VALUE / recordSize;
+            int numSegments = (int) ((size + recordsPerSegment - 1) / recordsPerSegment);
+            this.segments = new MappedByteBuffer[numSegments];
+            for (int i = 0; i < numSegments; i++) {
+                long first = (long) i * recordsPerSegment;
+                long pos = HEADER_SIZE + first * recordSize;
+                long len = Math.min(recordsPerSegment, size - first) * recordSize;
+                segments[i] = FuncUtils.safeCall(() -> fc.map(FileChannel.MapMode.READ_ONLY, pos, len));
+            }
+        }
+        catch (RuntimeException e) {
+            FuncUtils.safeRun(fc::close);
+            throw e;
+        }
+        if (size > 0L)
+            this.gen.sync(size - 1);
+    }
+
+    /**
+     * Memory-maps an existing codebook file.
+     * @param filePath the path of the codebook file.
+     * @return the codebook.
+     */
+    public static BarcodeCodebook open(String filePath) {
+        return new BarcodeCodebook(filePath);
+    }
+
+    /**
+     * Builds a codebook file in parallel from barcodes generated by the given DNAAddrManager. Each barcode has a sufficient distance to the previously generated ones with respect to the DNAAddrManager's LSH and minimum distance.
+     * The build fails if no such barcode is found within the DNAAddrManager's translation trials. The header is written last, so that a partially written file cannot be opened.
+     * @param filePath the path of the codebook file. An existing file is overwritten.
+     * @param addressManager the DNAAddrManager that generates the barcodes.
+     * @param count the number of barcodes.
+     * @return the memory-mapped codebook.
+     */
+    public static BarcodeCodebook build(String filePath, DNAAddrManager addressManager, long count) {
+        if (!addressManager.addressIsFixedSize())
+            throw new RuntimeException("the provided AddressManager does not support fixed address size");
+
+        int addrSize = addressManager.addressSize();
+        int recordSize = packedSize(addrSize);
+        try (FileChannel out = FileChannel.open(Path.of(filePath), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            LongStream.range(0L, count).parallel().forEach(i -> {
+                BaseSequence barcode = addressManager.generateDistantBarcode();
+                if (barcode == null)
+                    throw new RuntimeException("failed building codebook " + filePath + ": no barcode with sufficient distance found within " + addressManager.getAddressTranslationTrials() + " trials");
+
+                ByteBuffer record = ByteBuffer.wrap(pack(barcode, addrSize));
+                FuncUtils.safeRun(() -> out.write(record, HEADER_SIZE + i * recordSize));
+            });
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putInt(addrSize).putLong(count).flip();
+            out.write(header, 0L);
+            out.force(true);
+        }
+        catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+
+        return open(filePath);
+    }
+
+    public static int packedSize(int addrSize) {
+        return PackedSeqSerializer.packedSize(addrSize);
+    }
+
+    public static byte[] pack(BaseSequence seq, int addrSize) {
+        if (seq.length() != addrSize)
+            throw new RuntimeException("barcode length " + seq.length() + " != address size " + addrSize);
+
+        return new PackedSeqSerializer(addrSize).serialize(seq);
+    }
+
+    public static BaseSequence unpack(byte[] bytes, int addrSize) {
+        return new PackedSeqSerializer(addrSize).deserialize(bytes);
+    }
+
+    @Override
+    public BaseSequence get(Long index) {
+        if (index < 0L || index >= size)
+            return null;
+
+        return serializer.deserialize(segments[(int) (index / recordsPerSegment)], (int) (index % recordsPerSegment) * recordSize);
+    }
+
+    @Override
+    public void put(Long key, BaseSequence value) {
+        throw new UnsupportedOperationException("cannot put into a codebook");
+    }
+
+    @Override
+    public boolean remove(Long key) {
+        throw new UnsupportedOperationException("cannot remove from a codebook");
+    }
+
+    @Override
+    public long size() {
+        return size;
+    }
+
+    @Override
+    public boolean isPersistent() {
+        return true;
+    }
+
+    public int getAddressSize() {
+        return addrSize;
+    }
+
+    public String getFilePath() {
+        return filePath;
+    }
+
+    @Override
+    public void close() {
+        FuncUtils.safeRun(fc::close);
+    }
+}
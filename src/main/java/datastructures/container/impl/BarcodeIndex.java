@@ -0,0 +1,420 @@
+package datastructures.container.impl;
+
+import core.Base;
+import core.BaseSequence;
+import datastructures.container.Container;
+import utils.FuncUtils;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+/**
+ * A reverse index that maps fixed-size barcodes to ids. The barcodes are keyed by their packed 2-bit representation.
+ */
+public abstract class BarcodeIndex implements Container<BaseSequence, Long> {
+
+    protected final int addrSize;
+
+    protected BarcodeIndex(int addrSize) {
+        this.addrSize = addrSize;
+    }
+
+    public int getAddressSize() {
+        return addrSize;
+    }
+
+    protected void checkLength(BaseSequence barcode) {
+        if (barcode.length() != addrSize)
+            throw new RuntimeException("barcode length " + barcode.length() + " != address size " + addrSize);
+    }
+
+    /**
+     * A barcode packed into longs with 2 bits per base.
+     */
+    public record Key(long[] words) {
+
+        public static Key of(BaseSequence seq) {
+            int len = seq.length();
+            long[] words = new long[(len + 31) >>> 5];
+            for (int i = 0; i < len; i++)
+                words[i >>> 5] |= (long) seq.get(i).ordinal() << ((i & 31) << 1);
+
+            return new Key(words);
+        }
+
+        public BaseSequence toBaseSequence(int len) {
+            Base[] bases = Base.values();
+            List<Base> result = new ArrayList<>(len);
+            for (int i = 0; i < len; i++)
+                result.add(bases[(int) (words[i >>> 5] >>> ((i & 31) << 1)) & 3]);
+
+            return new BaseSequence(result);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key that && Arrays.equals(words, that.words);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(words);
+        }
+
+        @Override
+        public String toString() {
+            return "Key" + Arrays.toString(words);
+        }
+    }
+
+    /**
+     * An in-memory BarcodeIndex backed by a ConcurrentHashMap.
+     */
+    public static class InMemory extends BarcodeIndex {
+        private final ConcurrentHashMap<Key, Long> map;
+
+        public InMemory(int addrSize) {
+            super(addrSize);
+            this.map = new ConcurrentHashMap<>();
+        }
+
+        @Override
+        public void put(BaseSequence barcode, Long id) {
+            checkLength(barcode);
+            map.put(Key.of(barcode), id);
+        }
+
+        @Override
+        public boolean remove(BaseSequence barcode) {
+            return map.remove(Key.of(barcode)) != null;
+        }
+
+        @Override
+        public Long get(BaseSequence barcode) {
+            return barcode.length() != addrSize ? null : map.get(Key.of(barcode));
+        }
+
+        @Override
+        public long size() {
+            return map.size();
+        }
+
+        @Override
+        public Collection<Long> values() {
+            return map.values();
+        }
+
+        @Override
+        public Set<BaseSequence> keys() {
+            return map.keySet().stream().map(k -> k.toBaseSequence(addrSize)).collect(Collectors.toSet());
+        }
+
+        @Override
+        public boolean isPersistent() {
+            return false;
+        }
+    }
+
+    /**
+     * A persistent BarcodeIndex that stores an open addressing hash table with linear probing in a memory-mapped file.
+     * Each slot holds the barcode packed with 2 bits per base followed by the id + 1, i.e., a slot with the value 0 is empty. The table is rehashed into a new file that replaces the old one when it becomes half full.
+     */
+    public static class Persistent extends BarcodeIndex implements AutoCloseable {
+        public static final long DEFAULT_INITIAL_CAPACITY = 1L << 16;
+        private static final int HEADER_SIZE = Integer.BYTES + Long.BYTES + Long.BYTES;
+        private static final int SIZE_POS = Integer.BYTES + Long.BYTES;
+        private static final double MAX_LOAD_FACTOR = 0.5d;
+
+        private final String filePath;
+        private final int keySize;
+        private final int slotSize;
+        private final ReadWriteLock lock;
+        private Table table;
+
+        private Persistent(String filePath, int addrSize, long initialCapacity) {
+            super(addrSize);
+            this.filePath = filePath;
+            this.keySize = BarcodeCodebook.packedSize(addrSize);
+            this.slotSize = keySize + Long.BYTES;
+            this.lock = new ReentrantReadWriteLock();
+            this.table = new Table(Path.of(filePath), Long.highestOneBit(Math.max(2L, initialCapacity - 1L) << 1));
+        }
+
+        /**
+         * Opens the persistent index stored at filePath, or creates it if the file does not exist.
+         * @param filePath the path of the index file.
+         * @param addrSize the size of the barcodes.
+         * @return the persistent index.
+         */
+        public static Persistent open(String filePath, int addrSize) {
+            return new Persistent(filePath, addrSize, DEFAULT_INITIAL_CAPACITY);
+        }
+
+        /**
+         * Creates an empty persistent index at filePath. An existing index file is deleted.
+         * @param filePath the path of the index file.
+         * @param addrSize the size of the barcodes.
+         * @return the empty persistent index.
+         */
+        public static Persistent create(String filePath, int addrSize) {
+            FuncUtils.safeRun(() -> Files.deleteIfExists(Path.of(filePath)));
+            return open(filePath, addrSize);
+        }
+
+        @Override
+        public void put(BaseSequence barcode, Long id) {
+            checkLength(barcode);
+            byte[] key = BarcodeCodebook.pack(barcode, addrSize);
+            lock.writeLock().lock();
+            try {
+                if (table.size + 1 > table.capacity * MAX_LOAD_FACTOR)
+                    grow();
+                table.put(key, id);
+            }
+            finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        @Override
+        public Long get(BaseSequence barcode) {
+            if (barcode.length() != addrSize)
+                return null;
+
+            byte[] key = BarcodeCodebook.pack(barcode, addrSize);
+            lock.readLock().lock();
+            try {
+                long slot = table.find(key);
+                return slot < 0L ? null : table.value(slot) - 1L;
+            }
+            finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        @Override
+        public boolean remove(BaseSequence barcode) {
+            if (barcode.length() != addrSize)
+                return false;
+
+            byte[] key = BarcodeCodebook.pack(barcode, addrSize);
+            lock.writeLock().lock();
+            try {
+                return table.remove(key);
+            }
+            finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        @Override
+        public long size() {
+            lock.readLock().lock();
+            try {
+                return table.size;
+            }
+            finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        @Override
+        public Collection<Long> values() {
+            lock.readLock().lock();
+            try {
+                return table.occupiedSlots().mapToObj(slot -> table.value(slot) - 1L).toList();
+            }
+            finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        @Override
+        public Set<BaseSequence> keys() {
+            lock.readLock().lock();
+            try {
+                return table.occupiedSlots().mapToObj(slot -> BarcodeCodebook.unpack(table.key(slot), addrSize)).collect(Collectors.toSet());
+            }
+            finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        @Override
+        public boolean isPersistent() {
+            return true;
+        }
+
+        public String getFilePath() {
+            return filePath;
+        }
+
+        /**
+         * Writes all changes of the memory-mapped file to the storage device.
+         */
+        public void force() {
+            lock.readLock().lock();
+            try {
+                table.force();
+            }
+            finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        @Override
+        public void close() {
+            lock.writeLock().lock();
+            try {
+                table.force();
+                table.close();
+            }
+            finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        private void grow() {
+            Path path = Path.of(filePath);
+            Path resizePath = Path.of(filePath + ".resize");
+            FuncUtils.safeRun(() -> Files.deleteIfExists(resizePath));
+            Table resized = new Table(resizePath, table.capacity << 1);
+            table.occupiedSlots().forEach(slot -> resized.put(table.key(slot), table.value(slot) - 1L));
+            resized.force();
+            resized.close();
+            table.close();
+            FuncUtils.safeRun(() -> Files.move(resizePath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE));
+            table = new Table(path, resized.capacity);
+        }
+
+        private class Table {
+            final FileChannel fc;
+            final MappedByteBuffer header;
+            final MappedByteBuffer[] segments;
+            final long capacity;
+            final long mask;
+            final int slotsPerSegment;
+            long size;
+
+            Table(Path path, long initialCapacity) {
+                this.fc = FuncUtils.safeCall(() -> FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE));
+                boolean exists = FuncUtils.safeCall(fc::size) >= HEADER_SIZE;
+                this.header = FuncUtils.safeCall(() -> fc.map(FileChannel.MapMode.READ_WRITE, 0L, HEADER_SIZE));
+                if (exists) {
+                    if (header.getInt(0) != addrSize)
+                        throw new RuntimeException("index " + path + " has address size " + header.getInt(0) + " != " + addrSize);
+                    this.capacity = header.getLong(Integer.BYTES);
+                    this.size = header.getLong(SIZE_POS);
+                }
+                else {
+                    this.capacity = initialCapacity;
+                    this.size = 0L;
+                    header.putInt(0, addrSize).putLong(Integer.BYTES, capacity).putLong(SIZE_POS, 0L);
+                }
+
+                this.mask = capacity - 1L;
+                this.slotsPerSegment = Integer.highestOneBit(Integer.MAX_VALUE / slotSize);
+                int numSegments = (int) ((capacity + slotsPerSegment - 1) / slotsPerSegment);
+                this.segments = new MappedByteBuffer[numSegments];
+                for (int i = 0; i < numSegments; i++) {
+                    long pos = HEADER_SIZE + (long) i * slotsPerSegment * slotSize;
+                    long len = Math.min(slotsPerSegment, capacity - (long) i * slotsPerSegment) * slotSize;
+                    segments[i] = FuncUtils.safeCall(() -> fc.map(FileChannel.MapMode.READ_WRITE, pos, len));
+                }
+            }
+
+            long home(byte[] key) {
+                long h = Arrays.hashCode(key) * 0x9e3779b97f4a7c15L;
+                return (h ^ (h >>> 32)) & mask;
+            }
+
+            MappedByteBuffer segment(long slot) {
+                return segments[(int) (slot / slotsPerSegment)];
+            }
+
+            int offset(long slot) {
+                return (int) (slot % slotsPerSegment) * slotSize;
+            }
+
+            long value(long slot) {
+                return segment(slot).getLong(offset(slot) + keySize);
+            }
+
+            byte[] key(long slot) {
+                byte[] key = new byte[keySize];
+                segment(slot).get(offset(slot), key);
+                return key;
+            }
+
+            void write(long slot, byte[] key, long value) {
+                MappedByteBuffer segment = segment(slot);
+                int offset = offset(slot);
+                segment.put(offset, key);
+                segment.putLong(offset + keySize, value);
+            }
+
+            long find(byte[] key) {
+                for (long slot = home(key); ; slot = (slot + 1L) & mask) {
+                    if (value(slot) == 0L)
+                        return -1L;
+                    if (Arrays.equals(key(slot), key))
+                        return slot;
+                }
+            }
+
+            void put(byte[] key, long id) {
+                long slot = home(key);
+                while (value(slot) != 0L && !Arrays.equals(key(slot), key))
+                    slot = (slot + 1L) & mask;
+
+                if (value(slot) == 0L)
+                    header.putLong(SIZE_POS, ++size);
+                write(slot, key, id + 1L);
+            }
+
+            boolean remove(byte[] key) {
+                long slot = find(key);
+                if (slot < 0L)
+                    return false;
+
+                // backward shift deletion keeps the probe sequences of the following entries intact
+                long free = slot;
+                for (long next = (free + 1L) & mask; value(next) != 0L; next = (next + 1L) & mask) {
+                    byte[] nextKey = key(next);
+                    long h = home(nextKey);
+                    if (((next - h) & mask) >= ((next - free) & mask)) {
+                        write(free, nextKey, value(next));
+                        free = next;
+                    }
+                }
+                write(free, new byte[keySize], 0L);
+                header.putLong(SIZE_POS, --size);
+                return true;
+            }
+
+            LongStream occupiedSlots() {
+                return LongStream.range(0L, capacity).filter(slot -> value(slot) != 0L);
+            }
+
+            void force() {
+                header.force();
+                for (MappedByteBuffer segment : segments)
+                    segment.force();
+            }
+
+            void close() {
+                FuncUtils.safeRun(fc::close);
+            }
+        }
+    }
+}
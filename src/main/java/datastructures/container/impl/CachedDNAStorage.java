@@ -0,0 +1,227 @@
+package datastructures.container.impl;
+
+import core.BaseSequence;
+import datastructures.container.DNAContainer;
+import datastructures.container.translation.AddressManager;
+import utils.AddressedDNA;
+import utils.cache.WTinyLFUCache;
+import java.util.*;
+
+/**
+ * A DNAStorage decorator that caches the oligos of another DNAStorage in a WTinyLFUCache with a byte budget.
+ * Oligos are cached by their routed ids, so that changes of the routing, e.g., by ContainerList.insert, do not return stale oligos.
+ * Reads of cached oligos are lock-free and return copies, so that callers cannot change the cached oligos. Writes go through to the decorated store and invalidate the cached oligos.
+ */
+public class CachedDNAStorage extends DNAContainer.DNAStorage {
+    public static final double DEFAULT_WINDOW_RATIO = WTinyLFUCache.DEFAULT_WINDOW_RATIO;
+    public static final double DEFAULT_PROTECTED_RATIO = WTinyLFUCache.DEFAULT_PROTECTED_RATIO;
+    // the estimated heap size of a cached oligo: a fixed overhead for the entry and the sequences plus a reference per base
+    private static final int ENTRY_OVERHEAD = 128;
+    private static final int BYTES_PER_BASE = 4;
+
+    private final DNAContainer.DNAStorage store;
+    private final WTinyLFUCache<AddressedDNA> cache;
+
+    /**
+     * Creates a cache with the default window and protected ratios.
+     * @param store the decorated store.
+     * @param maxBytes the byte budget of the cached oligos.
+     * @param payloadSize the payload size of the stored oligos, which sizes the frequency sketch.
+     */
+    public CachedDNAStorage(DNAContainer.DNAStorage store, long maxBytes, int payloadSize) {
+        this(store, maxBytes, payloadSize, DEFAULT_WINDOW_RATIO, DEFAULT_PROTECTED_RATIO);
+    }
+
+    /**
+     * Creates a cache.
+     * @param store the decorated store.
+     * @param maxBytes the byte budget of the cached oligos.
+     * @param payloadSize the payload size of the stored oligos, which sizes the frequency sketch.
+     * @param windowRatio the fraction of the budget for the LRU window that admits new oligos.
+     * @param protectedRatio the fraction of the main budget for oligos that were accessed again after their admission.
+     */
+    public CachedDNAStorage(DNAContainer.DNAStorage store, long maxBytes, int payloadSize, double windowRatio, double protectedRatio) {
+        super(store.addressManager());
+        this.store = store;
+        this.cache = new WTinyLFUCache<>(
+                maxBytes,
+                CachedDNAStorage::weigh,
+                maxBytes / (ENTRY_OVERHEAD + (long) BYTES_PER_BASE * payloadSize),
+                windowRatio,
+                protectedRatio
+        );
+    }
+
+    @Override
+    public AddressedDNA get(long key) {
+        Long routed = am.addressRoutingManager().get(key).routed();
+        if (routed == null)
+            return store.get(key);
+
+        AddressedDNA cached = cache.get(routed);
+        if (cached != null)
+            return copy(cached);
+
+        long stamp = cache.stamp();
+        AddressedDNA value = store.get(key);
+        if (value == null)
+            return null;
+
+        cache.put(routed, value, stamp);
+        return copy(value);
+    }
+
+    @Override
+    public AddressedDNA get(AddressManager.ManagedAddress<Long, BaseSequence> key) {
+        AddressedDNA cached = cache.get(key.routed());
+        if (cached != null)
+            return copy(cached);
+
+        long stamp = cache.stamp();
+        AddressedDNA value = store.get(key);
+        if (value == null)
+            return null;
+
+        cache.put(key.routed(), value, stamp);
+        return copy(value);
+    }
+
+    /**
+     * Returns the oligos of the contiguous ids startId, ..., startId + count - 1. If any of them is not cached, all of them are read with a single getAll of the decorated store.
+     * @param startId the first id.
+     * @param count the number of ids.
+     * @return the oligos, with null for ids that are not present.
+     */
+    @Override
+    public AddressedDNA[] getAll(long startId, int count) {
+        AddressedDNA[] oligos = new AddressedDNA[count];
+        Long[] routedIds = new Long[count];
+        boolean complete = true;
+        for (int i = 0; i < count; i++) {
+            routedIds[i] = am.addressRoutingManager().get(startId + i).routed();
+            oligos[i] = routedIds[i] == null ? null : cache.get(routedIds[i]);
+            complete &= oligos[i] != null;
+        }
+        if (complete) {
+            for (int i = 0; i < count; i++)
+                oligos[i] = copy(oligos[i]);
+            return oligos;
+        }
+
+        long stamp = cache.stamp();
+        oligos = store.getAll(startId, count);
+        for (int i = 0; i < count; i++) {
+            if (routedIds[i] != null && oligos[i] != null) {
+                cache.put(routedIds[i], oligos[i], stamp);
+                oligos[i] = copy(oligos[i]);
+            }
+        }
+
+        return oligos;
+    }
+
+    @Override
+    public void put(long key, AddressedDNA value) {
+        store.put(key, value);
+        invalidate(am.addressRoutingManager().get(key).routed());
+    }
+
+    @Override
+    public void put(AddressManager.ManagedAddress<Long, BaseSequence> key, AddressedDNA value) {
+        store.put(key, value);
+        invalidate(key.routed());
+    }
+
+    @Override
+    public void putAll(List<AddressManager.ManagedAddress<Long, BaseSequence>> keys, List<AddressedDNA> oligos) {
+        store.putAll(keys, oligos);
+        keys.forEach(key -> invalidate(key.routed()));
+    }
+
+    @Override
+    public boolean remove(long key) {
+        Long routed = am.addressRoutingManager().get(key).routed();
+        boolean removed = store.remove(key);
+        invalidate(routed);
+        return removed;
+    }
+
+    @Override
+    public boolean remove(AddressManager.ManagedAddress<Long, BaseSequence> key) {
+        boolean removed = store.remove(key);
+        invalidate(key.routed());
+        return removed;
+    }
+
+    @Override
+    public long size() {
+        return store.size();
+    }
+
+    @Override
+    public Collection<AddressedDNA> values() {
+        return store.values();
+    }
+
+    @Override
+    public Set<AddressManager.ManagedAddress<Long, BaseSequence>> keys() {
+        return store.keys();
+    }
+
+    @Override
+    public boolean isPersistent() {
+        return store.isPersistent();
+    }
+
+    public DNAContainer.DNAStorage getStore() {
+        return store;
+    }
+
+    public WTinyLFUCache<AddressedDNA> getCache() {
+        return cache;
+    }
+
+    public long hitCount() {
+        return cache.hitCount();
+    }
+
+    public long missCount() {
+        return cache.missCount();
+    }
+
+    public long evictionCount() {
+        return cache.evictionCount();
+    }
+
+    /**
+     * @return the fraction of reads that were served from the cache, or 0 if nothing was read.
+     */
+    public double hitRatio() {
+        return cache.hitRatio();
+    }
+
+    /**
+     * Removes all cached oligos.
+     */
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    @Override
+    public String toString() {
+        return "CachedDNAStorage{hits=" + hitCount() + ", misses=" + missCount() + ", evictions=" + evictionCount() + ", hitRatio=" + hitRatio() + "}";
+    }
+
+    private static long weigh(AddressedDNA value) {
+        return ENTRY_OVERHEAD + (long) BYTES_PER_BASE * value.length();
+    }
+
+    private static AddressedDNA copy(AddressedDNA value) {
+        return new AddressedDNA(new BaseSequence(value.address()), new BaseSequence(value.payload()));
+    }
+
+    private void invalidate(Long routed) {
+        if (routed != null)
+            cache.invalidate(routed);
+    }
+}
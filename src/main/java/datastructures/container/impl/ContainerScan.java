@@ -0,0 +1,406 @@
+package datastructures.container.impl;
+
+import core.BaseSequence;
+import datastructures.container.DNAContainer;
+import datastructures.container.ScanOptions;
+import utils.AddressedDNA;
+import utils.FuncUtils;
+import utils.Pair;
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Scans the objects of a DNAContainer by ranges of ids. The ranges are read and decoded on a ForkJoinPool with at most ScanOptions.maxRangesInFlight ranges ahead of the consumer, and the objects are returned as a sequential stream.
+ * The pool is shut down when the stream is exhausted or closed.
+ */
+public final class ContainerScan {
+
+    private ContainerScan() {
+    }
+
+    /**
+     * Scans the ids of container.keyStream() in chunks of ScanOptions.rangeSize ids and decodes each chunk with get. This is the scan for containers that cannot read contiguous ids.
+     * @param container the container.
+     * @param options the options.
+     * @return the objects by their ids.
+     */
+    public static Stream<Pair<Long, BaseSequence>> scanKeys(DNAContainer container, ScanOptions options) {
+        PrimitiveIterator.OfLong keys = container.keyStream().filter(id -> id >= options.fromId() && id < options.toId()).iterator();
+        Iterator<Supplier<List<Pair<Long, BaseSequence>>>> tasks = new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return keys.hasNext();
+            }
+
+            @Override
+            public Supplier<List<Pair<Long, BaseSequence>>> next() {
+                long[] ids = new long[options.rangeSize()];
+                int count = 0;
+                while (count < ids.length && keys.hasNext())
+                    ids[count++] = keys.nextLong();
+
+                int n = count;
+                return () -> {
+                    List<Pair<Long, BaseSequence>> objects = new ArrayList<>(n);
+                    for (int i = 0; i < n; i++) {
+                        BaseSequence seq = container.get(ids[i]);
+                        if (seq != null)
+                            objects.add(new Pair<>(ids[i], seq));
+                    }
+                    return objects;
+                };
+            }
+        };
+
+        RangeExecutor<List<Pair<Long, BaseSequence>>> executor = new RangeExecutor<>(options, options.ordered(), tasks);
+        return toStream(executor::next, executor, options.ordered());
+    }
+
+    /**
+     * Scans a SizedDNAContainer with contiguous reads of its oligos. The oligos of each range of ids are read with a single DNAStorage.getAll and their payloads are decoded on the pool.
+     * The decoded ranges are then swept in the order of their ids: an id whose oligo is a segment of an earlier root oligo is added to that object, and any id that the container did not register for segments starts a new object.
+     * An object is returned once all its segments are swept. Segments that lie before their root, e.g., after ContainerList.insert re-routed the root, or after the scanned ids are read separately.
+     * Segment oligos that do not belong to a swept object, e.g., the segments of a removed object, are skipped.
+     * @param container the container.
+     * @param options the options.
+     * @return the objects by their ids.
+     */
+    public static Stream<Pair<Long, BaseSequence>> scan(SizedDNAContainer container, ScanOptions options) {
+        Sweep sweep = new Sweep(container, options);
+        return toStream(sweep::next, sweep.executor, options.ordered());
+    }
+
+    private static Stream<Pair<Long, BaseSequence>> toStream(Supplier<List<Pair<Long, BaseSequence>>> batches, RangeExecutor<?> executor, boolean ordered) {
+        Iterator<Pair<Long, BaseSequence>> it = new Iterator<>() {
+            private Iterator<Pair<Long, BaseSequence>> batch = Collections.emptyIterator();
+            private boolean exhausted;
+
+            @Override
+            public boolean hasNext() {
+                while (!batch.hasNext() && !exhausted) {
+                    List<Pair<Long, BaseSequence>> next = batches.get();
+                    if (next == null)
+                        exhausted = true;
+                    else
+                        batch = next.iterator();
+                }
+                return batch.hasNext();
+            }
+
+            @Override
+            public Pair<Long, BaseSequence> next() {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+
+                return batch.next();
+            }
+        };
+
+        int characteristics = Spliterator.NONNULL | Spliterator.DISTINCT | (ordered ? Spliterator.ORDERED : 0);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(it, characteristics), false).onClose(executor::close);
+    }
+
+    /**
+     * Runs the tasks of a scan on a ForkJoinPool, with at most maxRangesInFlight tasks that were submitted but not yet returned, and returns their results either in the order of the tasks or in the order of their completion.
+     */
+    private static final class RangeExecutor<R> implements AutoCloseable {
+        private final ForkJoinPool pool;
+        private final Iterator<Supplier<R>> tasks;
+        private final int maxRangesInFlight;
+        private final boolean ordered;
+        private final Deque<CompletableFuture<R>> submitted;
+        private final BlockingQueue<CompletableFuture<R>> completed;
+        private int inFlight;
+
+        RangeExecutor(ScanOptions options, boolean ordered, Iterator<Supplier<R>> tasks) {
+            this.pool = new ForkJoinPool(options.parallelism());
+            this.tasks = tasks;
+            this.maxRangesInFlight = options.maxRangesInFlight();
+            this.ordered = ordered;
+            this.submitted = new ArrayDeque<>();
+            this.completed = new LinkedBlockingQueue<>();
+        }
+
+        /**
+         * @return the result of the next task, or null if all tasks were returned.
+         */
+        R next() {
+            while (inFlight < maxRangesInFlight && tasks.hasNext()) {
+                CompletableFuture<R> future = CompletableFuture.supplyAsync(tasks.next(), pool);
+                if (ordered)
+                    submitted.add(future);
+                else
+                    future.whenComplete((r, t) -> completed.add(future));
+
+                inFlight++;
+            }
+            if (inFlight == 0) {
+                close();
+                return null;
+            }
+
+            inFlight--;
+            CompletableFuture<R> future = ordered ? submitted.poll() : FuncUtils.safeCall(completed::take);
+            try {
+                return future.join();
+            }
+            catch (CompletionException e) {
+                close();
+                throw e.getCause() instanceof RuntimeException re ? re : new RuntimeException(e.getCause());
+            }
+        }
+
+        @Override
+        public void close() {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * The decoded payloads of a range of ids, and the headers of the root oligos, i.e., of the ids that were not registered for segments.
+     */
+    private record DecodedRange(long startId, BaseSequence[] payloads, SizedDNAContainer.RootHeader[] headers) {
+    }
+
+    /**
+     * An object whose root oligo was swept and whose segments are still missing.
+     */
+    private static final class PendingObject {
+        private final long rootId;
+        private final long firstSegmentId;
+        private final BaseSequence[] payloads;
+        private int missing;
+
+        PendingObject(long rootId, BaseSequence rootPayload, SizedDNAContainer.RootHeader header) {
+            this.rootId = rootId;
+            this.firstSegmentId = header.nextId();
+            this.payloads = new BaseSequence[header.numSegments()];
+            this.payloads[0] = rootPayload;
+            this.missing = payloads.length - 1;
+        }
+
+        /**
+         * @return the id of the last segment.
+         */
+        long endId() {
+            return firstSegmentId + payloads.length - 2;
+        }
+
+        boolean add(long segmentId, BaseSequence payload) {
+            int i = (int) (segmentId - firstSegmentId) + 1;
+            if (payloads[i] == null) {
+                payloads[i] = payload;
+                missing--;
+            }
+            return missing == 0;
+        }
+    }
+
+    private static final class Sweep {
+        private final SizedDNAContainer container;
+        private final boolean ordered;
+        private final long idLimit;
+        private final long endId;
+        private final RangeExecutor<DecodedRange> executor;
+        // the pending objects by the id of their first segment. Their segment ranges are disjoint.
+        private final TreeMap<Long, PendingObject> pending;
+        // the ids of the pending objects and the completed objects that wait for an earlier pending object, for ordered scans
+        private final TreeSet<Long> pendingRootIds;
+        private final TreeMap<Long, BaseSequence> completed;
+        private boolean exhausted;
+
+        Sweep(SizedDNAContainer container, ScanOptions options) {
+            this.container = container;
+            this.ordered = options.ordered();
+            this.idLimit = container.idLimit();
+            this.endId = Math.min(options.toId(), idLimit);
+            this.pending = new TreeMap<>();
+            this.pendingRootIds = new TreeSet<>();
+            this.completed = new TreeMap<>();
+
+            long startId = Math.min(options.fromId(), endId);
+            int rangeSize = options.rangeSize();
+            Iterator<Supplier<DecodedRange>> tasks = new Iterator<>() {
+                private long nextStartId = startId;
+
+                @Override
+                public boolean hasNext() {
+                    return nextStartId < endId;
+                }
+
+                @Override
+                public Supplier<DecodedRange> next() {
+                    long rangeStartId = nextStartId;
+                    int count = (int) Math.min(rangeSize, endId - rangeStartId);
+                    nextStartId += count;
+                    return () -> decode(rangeStartId, count);
+                }
+            };
+            // the ranges are swept in order, so that the segments of an object are swept after its root
+            this.executor = new RangeExecutor<>(options, true, tasks);
+        }
+
+        private DecodedRange decode(long startId, int count) {
+            AddressedDNA[] oligos = container.getOligoStore().getAll(startId, count);
+            BaseSequence[] payloads = new BaseSequence[count];
+            SizedDNAContainer.RootHeader[] headers = new SizedDNAContainer.RootHeader[count];
+            for (int i = 0; i < count; i++) {
+                if (oligos[i] != null) {
+                    payloads[i] = container.decodePayload(oligos[i]);
+                    if (!container.isSegmentId(startId + i))
+                        headers[i] = readHeader(payloads[i]);
+                }
+            }
+            return new DecodedRange(startId, payloads, headers);
+        }
+
+        /**
+         * @return the objects that were completed by the next range, or null if all ranges were swept.
+         */
+        List<Pair<Long, BaseSequence>> next() {
+            if (exhausted)
+                return null;
+
+            List<Pair<Long, BaseSequence>> objects = new ArrayList<>();
+            DecodedRange range = executor.next();
+            if (range == null) {
+                exhausted = true;
+                completeAfterEnd(objects);
+            }
+            else {
+                sweep(range, objects);
+            }
+
+            if (ordered) {
+                Long firstPendingRootId = exhausted || pendingRootIds.isEmpty() ? null : pendingRootIds.first();
+                var ready = firstPendingRootId == null ? completed : completed.headMap(firstPendingRootId);
+                ready.forEach((id, seq) -> objects.add(new Pair<>(id, seq)));
+                ready.clear();
+            }
+            return objects;
+        }
+
+        private void sweep(DecodedRange range, List<Pair<Long, BaseSequence>> objects) {
+            BaseSequence[] payloads = range.payloads();
+            for (int i = 0; i < payloads.length; i++) {
+                if (payloads[i] == null)
+                    continue;
+
+                long id = range.startId() + i;
+                var owner = pending.floorEntry(id);
+                if (owner != null && id <= owner.getValue().endId()) {
+                    PendingObject object = owner.getValue();
+                    if (object.add(id, payloads[i])) {
+                        pending.remove(owner.getKey());
+                        complete(object.rootId, object.payloads, objects);
+                    }
+                    continue;
+                }
+
+                SizedDNAContainer.RootHeader header = range.headers()[i];
+                if (header == null)
+                    continue;
+
+                if (header.numSegments() == 1) {
+                    complete(id, new BaseSequence[] {payloads[i]}, objects);
+                    continue;
+                }
+
+                long firstSegmentId = header.nextId();
+                long lastSegmentId = firstSegmentId + header.numSegments() - 2;
+                if (firstSegmentId < 0L || lastSegmentId >= idLimit)
+                    continue;
+
+                if (lastSegmentId < id) {
+                    BaseSequence[] objectPayloads = readSegments(payloads[i], header, firstSegmentId);
+                    if (objectPayloads != null)
+                        complete(id, objectPayloads, objects);
+                }
+                else if (firstSegmentId > id && !overlapsPending(firstSegmentId, lastSegmentId)) {
+                    pending.put(firstSegmentId, new PendingObject(id, payloads[i], header));
+                    if (ordered)
+                        pendingRootIds.add(id);
+                }
+            }
+
+            // an object whose segments were all swept but that is still pending misses a segment, e.g., because its oligos are still being written
+            long sweptEndId = range.startId() + payloads.length;
+            while (!pending.isEmpty() && pending.firstEntry().getValue().endId() < sweptEndId)
+                drop(pending.pollFirstEntry().getValue());
+        }
+
+        private void completeAfterEnd(List<Pair<Long, BaseSequence>> objects) {
+            for (PendingObject object : pending.values()) {
+                BaseSequence[] objectPayloads = readSegments(object.payloads[0], new SizedDNAContainer.RootHeader(object.firstSegmentId, object.payloads.length), Math.max(object.firstSegmentId, endId));
+                if (objectPayloads == null) {
+                    drop(object);
+                    continue;
+                }
+                for (int i = 1; i < objectPayloads.length; i++) {
+                    if (object.payloads[i] == null)
+                        object.payloads[i] = objectPayloads[i];
+                }
+                if (Arrays.stream(object.payloads).anyMatch(Objects::isNull))
+                    drop(object);
+                else
+                    complete(object.rootId, object.payloads, objects);
+            }
+            pending.clear();
+        }
+
+        /**
+         * Reads the segments of an object from fromId on with a single getAll.
+         * @return the payloads of the object with null for the segments before fromId, or null if a segment is missing.
+         */
+        private BaseSequence[] readSegments(BaseSequence rootPayload, SizedDNAContainer.RootHeader header, long fromId) {
+            BaseSequence[] objectPayloads = new BaseSequence[header.numSegments()];
+            objectPayloads[0] = rootPayload;
+            int offset = (int) (fromId - header.nextId());
+            AddressedDNA[] oligos = container.getOligoStore().getAll(fromId, objectPayloads.length - 1 - offset);
+            for (int i = 0; i < oligos.length; i++) {
+                if (oligos[i] == null)
+                    return null;
+
+                objectPayloads[1 + offset + i] = container.decodePayload(oligos[i]);
+            }
+            return objectPayloads;
+        }
+
+        private boolean overlapsPending(long firstSegmentId, long lastSegmentId) {
+            var before = pending.floorEntry(lastSegmentId);
+            return before != null && before.getValue().endId() >= firstSegmentId;
+        }
+
+        private void complete(long id, BaseSequence[] payloads, List<Pair<Long, BaseSequence>> objects) {
+            BaseSequence seq = container.assemble(payloads);
+            if (ordered) {
+                pendingRootIds.remove(id);
+                completed.put(id, seq);
+            }
+            else {
+                objects.add(new Pair<>(id, seq));
+            }
+        }
+
+        private void drop(PendingObject object) {
+            if (ordered)
+                pendingRootIds.remove(object.rootId);
+        }
+
+        private SizedDNAContainer.RootHeader readHeader(BaseSequence payload) {
+            try {
+                return container.rootHeader(payload);
+            }
+            catch (RuntimeException e) {
+                return null;
+            }
+        }
+    }
+}
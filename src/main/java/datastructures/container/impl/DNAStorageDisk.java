@@ -6,20 +6,43 @@ import datastructures.container.DNAContainer;
 import datastructures.container.translation.AddressManager;
 import utils.*;
 import utils.serializers.FixedSizeSerializer;
+import utils.serializers.PackedSeqSerializer;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Collection;
 import java.util.Iterator;
-import java.util.Set;
-import java.util.concurrent.Callable;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
-public class DNAStorageDisk extends DNAContainer.DNAStorage {
+/**
+ * A DNAStorage that appends the oligos to memory-mapped files. Removed oligos are marked in a tombstone bitmap, and their space is reclaimed by compaction.
+ * The oligos are stored in generations. Compaction starts a new generation for new oligos, copies the live oligos of the old generation into it, re-routes them, and deletes the old generation. Reads continue during compaction without locking.
+ */
+public class DNAStorageDisk extends DNAContainer.DNAStorage implements AutoCloseable {
+    public static final int DEFAULT_COMPACTION_BATCH_SIZE = 4096;
+    private static final int DISK_ID_BITS = 40;
+    private static final long DISK_ID_MASK = (1L << DISK_ID_BITS) - 1L;
+    private static final int NUM_ROUTING_LOCKS = 64;
 
     private final Container<Long, Long> diskRouting;
-    private final PersistentContainer<AddressedDNA> disk;
-    private final ReadWriteLock lock;
+    private final String filePath;
+    private final FixedSizeSerializer<OwnedOligo> serializer;
+    private final Map<Integer, Generation> generations;
+    private final Lock[] routingLocks;
+    private volatile Generation current;
+    private volatile long compactions;
+    private ScheduledExecutorService compactor;
 
 
     public DNAStorageDisk(AddressManager<Long, BaseSequence> am, Container<Long, Long> diskRouting, int payloadSize, String filePath) {
@@ -27,31 +50,14 @@ public class DNAStorageDisk extends DNAContainer.DNAStorage {
         if (!am.addressTranslationManager().addressIsFixedSize())
             throw new RuntimeException("variable address size not supported by this DNAStorage");
 
-        this.lock = new ReentrantReadWriteLock();
         int addrSize = am.addressTranslationManager().addressSize();
-        int oligoSize = addrSize + payloadSize;
         this.diskRouting = diskRouting;
-        this.disk = new PersistentContainer<>(filePath, new FixedSizeSerializer<>() {
-            final int serializedSize = 2 + oligoSize / 4;
-            @Override
-            public int serializedSize() {
-                return serializedSize;
-            }
-
-            @Override
-            public byte[] serialize(AddressedDNA seq) {
-                if (seq.length() != oligoSize)
-                    throw new RuntimeException("seq cannot be serialized. Reason: seq.length() != serializedSize of this FixedSizedSerializer");
-
-                return Packer.withBytePadding(SeqBitStringConverter.transform(seq.join())).toBytes();
-            }
-
-            @Override
-            public AddressedDNA deserialize(byte[] bs) {
-                BaseSequence oligo = SeqBitStringConverter.transform(Packer.withoutBytePadding(new BitString(bs)));
-                return AddressedDNA.of(oligo, addrSize);
-            }
-        });
+        this.filePath = filePath;
+        this.serializer = OwnedOligo.serializer(PackedSeqSerializer.addressed(addrSize, payloadSize));
+        this.generations = new ConcurrentHashMap<>();
+        this.routingLocks = IntStream.range(0, NUM_ROUTING_LOCKS).mapToObj(__ -> new ReentrantLock()).toArray(Lock[]::new);
+        this.current = new Generation(0);
+        generations.put(0, current);
     }
 
     public DNAStorageDisk(AddressManager<Long, BaseSequence> am, int payloadSize, String filePath) {
@@ -60,32 +66,22 @@ public class DNAStorageDisk extends DNAContainer.DNAStorage {
 
     @Override
     public void put(AddressManager.ManagedAddress<Long, BaseSequence> key, AddressedDNA value) {
-        put(key.routed(), value);
+        putRouted(key.routed(), value);
     }
 
     @Override
     public boolean remove(AddressManager.ManagedAddress<Long, BaseSequence> key) {
-        return remove(key.routed());
+        return removeRouted(key.routed());
     }
 
     @Override
     public AddressedDNA get(AddressManager.ManagedAddress<Long, BaseSequence> key) {
-        return get(key.routed());
+        return getRouted(key.routed());
     }
 
     @Override
     public long size() {
-        return disk.size();
-    }
-
-    @Override
-    public Set<AddressManager.ManagedAddress<Long, BaseSequence>> keys() {
-        return readLocked(super::keys);
-    }
-
-    @Override
-    public boolean contains(AddressManager.ManagedAddress<Long, BaseSequence> key) {
-        return readLocked(() -> super.contains(key));
+        return diskRouting.size();
     }
 
     @Override
@@ -100,7 +96,7 @@ public class DNAStorageDisk extends DNAContainer.DNAStorage {
 
     @Override
     public Collection<AddressedDNA> values() {
-        return readLocked(disk::values);
+        return diskRouting.keys().stream().map(this::getRouted).filter(Objects::nonNull).toList();
     }
 
     @Override
@@ -110,38 +106,358 @@ public class DNAStorageDisk extends DNAContainer.DNAStorage {
 
     @Override
     public void put(long key, AddressedDNA value) {
-        writeLocked(() -> {
-            long diskId = disk.registerId();
-            diskRouting.put(key, diskId);
-            disk.put(diskId, value);
-        });
+        putRouted(am.route(key).routed(), value);
     }
 
     @Override
     public boolean remove(long key) {
-        throw new UnsupportedOperationException("cannot remove objects from DNAStorageDisk");
+        var routed = am.addressRoutingManager().get(key).routed();
+        return routed != null && removeRouted(routed);
     }
 
     @Override
     public AddressedDNA get(long key) {
-        return readLocked(() -> disk.get(diskRouting.get(key)));
+        var routed = am.addressRoutingManager().get(key).routed();
+        return routed == null ? null : getRouted(routed);
+    }
+
+    /**
+     * Returns the oligos of the contiguous ids startId, ..., startId + count - 1. If their records are contiguous on disk, e.g., because they were written by putAll, they are read with a single range read. Otherwise, they are read one by one.
+     * @param startId the first id.
+     * @param count the number of ids.
+     * @return the oligos, with null for ids that are not present.
+     */
+    @Override
+    public AddressedDNA[] getAll(long startId, int count) {
+        AddressedDNA[] oligos = new AddressedDNA[count];
+        if (count == 0)
+            return oligos;
+
+        long[] routedIds = new long[count];
+        Long firstLocation = null;
+        boolean contiguous = true;
+        for (int i = 0; i < count; i++) {
+            Long routed = am.addressRoutingManager().get(startId + i).routed();
+            Long location = routed == null ? null : diskRouting.get(routed);
+            routedIds[i] = routed == null ? -1L : routed;
+            if (i == 0)
+                firstLocation = location;
+            contiguous &= location != null && firstLocation != null && location == firstLocation + i;
+        }
+
+        Generation generation = contiguous ? generations.get(generationOf(firstLocation)) : null;
+        if (generation != null) {
+            List<OwnedOligo> records = generation.records.getAll(diskIdOf(firstLocation), count);
+            for (int i = 0; i < count; i++)
+                oligos[i] = records.get(i).oligo();
+
+            return oligos;
+        }
+
+        for (int i = 0; i < count; i++)
+            oligos[i] = routedIds[i] < 0L ? null : getRouted(routedIds[i]);
+
+        return oligos;
+    }
+
+    /**
+     * Appends the oligos to contiguous records on disk without locking, and routes their addresses to the records afterwards.
+     * @param keys the managed addresses of the oligos.
+     * @param oligos the oligos.
+     */
+    @Override
+    public void putAll(List<AddressManager.ManagedAddress<Long, BaseSequence>> keys, List<AddressedDNA> oligos) {
+        int size = oligos.size();
+        if (keys.size() != size)
+            throw new RuntimeException("keys.size() != oligos.size()");
+
+        Generation generation = enterWriter();
+        try {
+            long firstDiskId = generation.records.appendAll(IntStream.range(0, size).mapToObj(i -> new OwnedOligo(keys.get(i).routed(), oligos.get(i))).toList());
+            for (int i = 0; i < size; i++)
+                route(keys.get(i).routed(), encode(generation.id, firstDiskId + i));
+        }
+        finally {
+            generation.writers.decrementAndGet();
+        }
+    }
+
+    /**
+     * Writes all stored oligos, tombstones, and the disk routing, if it is a LongHashTable, to the storage device. When this method returns, all previous puts and removes are durable.
+     */
+    public void flush() {
+        for (Generation generation : generations.values()) {
+            generation.records.force();
+            generation.tombstones.force();
+        }
+        if (diskRouting instanceof LongHashTable table)
+            table.force();
+    }
+
+    /**
+     * @return the fraction of stored records that are removed or overwritten, i.e., the fraction of space that compaction would reclaim.
+     */
+    public double garbageRatio() {
+        long records = 0L;
+        long dead = 0L;
+        for (Generation generation : generations.values()) {
+            records += generation.records.size();
+            dead += generation.tombstones.count();
+        }
+        return records == 0L ? 0d : (double) dead / records;
+    }
+
+    /**
+     * Compacts the stored oligos. New oligos are appended to a new generation, and the live oligos of the current generation are copied into it in batches of DEFAULT_COMPACTION_BATCH_SIZE.
+     * Each copied oligo is re-routed atomically, i.e., readers either see the old or the new record. Afterwards, the files of the old generation are deleted.
+     */
+    public synchronized void compact() {
+        Generation old = current;
+        Generation next = new Generation(old.id + 1);
+        generations.put(next.id, next);
+        current = next;
+
+        // writers that entered the old generation before the swap have to finish routing their oligos before copying
+        while (old.writers.get() > 0)
+            Thread.yield();
+
+        long size = old.records.size();
+        for (long start = 0L; start < size; start += DEFAULT_COMPACTION_BATCH_SIZE) {
+            long end = Math.min(size, start + DEFAULT_COMPACTION_BATCH_SIZE);
+            for (long diskId = start; diskId < end; diskId++) {
+                if (!old.tombstones.isSet(diskId))
+                    move(old, diskId, next);
+            }
+            Thread.yield();
+        }
+
+        // counted before the old generation disappears, so that a reader that misses it also sees the new count
+        compactions++;
+        generations.remove(old.id);
+        old.delete();
+    }
+
+    /**
+     * Compacts the stored oligos if the garbage ratio is at least minGarbageRatio.
+     * @param minGarbageRatio the minimum garbage ratio.
+     * @return true if the oligos were compacted.
+     */
+    public boolean compactIfNeeded(double minGarbageRatio) {
+        if (garbageRatio() < minGarbageRatio)
+            return false;
+
+        compact();
+        return true;
+    }
+
+    /**
+     * Starts a daemon thread that periodically compacts the stored oligos when their garbage ratio is at least minGarbageRatio.
+     * @param intervalMillis the interval between the checks in milliseconds.
+     * @param minGarbageRatio the minimum garbage ratio.
+     */
+    public synchronized void startBackgroundCompaction(long intervalMillis, double minGarbageRatio) {
+        stopBackgroundCompaction();
+        this.compactor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "DNAStorageDisk-compactor");
+            t.setDaemon(true);
+            return t;
+        });
+        compactor.scheduleWithFixedDelay(() -> compactIfNeeded(minGarbageRatio), intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public void stopBackgroundCompaction() {
+        ScheduledExecutorService c = compactor;
+        if (c != null) {
+            c.shutdown();
+            FuncUtils.safeRun(() -> c.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS));
+            compactor = null;
+        }
     }
 
-    protected  <T> T readLocked(Callable<T> callable) {
-        lock.readLock().lock();
-        T result = FuncUtils.safeCall(callable);
-        lock.readLock().unlock();
-        return result;
+    @Override
+    public void close() {
+        stopBackgroundCompaction();
+        flush();
+        for (Generation generation : generations.values()) {
+            generation.records.close();
+            generation.tombstones.close();
+        }
     }
 
-    protected <T> T writeLocked(Callable<T> callable) {
-        lock.writeLock().lock();
-        T result = FuncUtils.safeCall(callable);
-        lock.writeLock().unlock();
-        return result;
+    protected void putRouted(long routed, AddressedDNA value) {
+        Generation generation = enterWriter();
+        try {
+            // the record is written before it is routed, so that readers only find completely written records
+            long diskId = generation.records.append(new OwnedOligo(routed, value));
+            route(routed, encode(generation.id, diskId));
+        }
+        finally {
+            generation.writers.decrementAndGet();
+        }
     }
 
-    protected void writeLocked(Runnable runnable) {
-        writeLocked(Executors.callable(runnable));
+    protected AddressedDNA getRouted(long routed) {
+        while (true) {
+            long epoch = compactions;
+            Long location = diskRouting.get(routed);
+            if (location == null)
+                return null;
+
+            Generation generation = generations.get(generationOf(location));
+            if (generation != null) {
+                OwnedOligo record = generation.records.get(diskIdOf(location));
+                return record == null ? null : record.oligo();
+            }
+            // only if the generation was compacted after reading the location, the oligo was re-routed
+            if (compactions == epoch)
+                return null;
+        }
+    }
+
+    protected boolean removeRouted(long routed) {
+        Lock lock = routingLock(routed);
+        Long location;
+        lock.lock();
+        try {
+            location = diskRouting.get(routed);
+            if (location == null)
+                return false;
+
+            diskRouting.remove(routed);
+        }
+        finally {
+            lock.unlock();
+        }
+        tombstone(location);
+        return true;
+    }
+
+    private void route(long routed, long location) {
+        Lock lock = routingLock(routed);
+        Long previous;
+        lock.lock();
+        try {
+            previous = diskRouting.get(routed);
+            diskRouting.put(routed, location);
+        }
+        finally {
+            lock.unlock();
+        }
+        if (previous != null)
+            tombstone(previous);
+    }
+
+    private void move(Generation from, long diskId, Generation to) {
+        OwnedOligo record = from.records.get(diskId);
+        long location = encode(from.id, diskId);
+        Lock lock = routingLock(record.routed());
+        lock.lock();
+        try {
+            // the oligo may have been removed or overwritten in the meantime
+            Long current = diskRouting.get(record.routed());
+            if (current != null && current == location)
+                diskRouting.put(record.routed(), encode(to.id, to.records.append(record)));
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    private void tombstone(long location) {
+        Generation generation = generations.get(generationOf(location));
+        if (generation != null)
+            generation.tombstones.set(diskIdOf(location));
+    }
+
+    private Generation enterWriter() {
+        while (true) {
+            Generation generation = current;
+            generation.writers.incrementAndGet();
+            if (generation == current)
+                return generation;
+
+            generation.writers.decrementAndGet();
+        }
+    }
+
+    private Lock routingLock(long routed) {
+        return routingLocks[Math.floorMod(Long.hashCode(routed), NUM_ROUTING_LOCKS)];
+    }
+
+    private static long encode(int generation, long diskId) {
+        if (diskId > DISK_ID_MASK)
+            throw new RuntimeException("diskId " + diskId + " exceeds " + DISK_ID_MASK);
+
+        return ((long) generation << DISK_ID_BITS) | diskId;
+    }
+
+    private static int generationOf(long location) {
+        return (int) (location >>> DISK_ID_BITS);
+    }
+
+    private static long diskIdOf(long location) {
+        return location & DISK_ID_MASK;
+    }
+
+    private class Generation {
+        final int id;
+        final MappedPersistentContainer<OwnedOligo> records;
+        final TombstoneBitmap tombstones;
+        final AtomicInteger writers;
+
+        Generation(int id) {
+            String path = id == 0 ? filePath : filePath + "." + id;
+            this.id = id;
+            this.records = new MappedPersistentContainer<>(path, serializer);
+            FuncUtils.safeRun(() -> Files.deleteIfExists(Path.of(path + ".tombstones")));
+            this.tombstones = TombstoneBitmap.open(path + ".tombstones");
+            this.writers = new AtomicInteger();
+        }
+
+        void delete() {
+            records.close();
+            tombstones.delete();
+            FuncUtils.safeRun(() -> Files.deleteIfExists(Path.of(records.getFilePath())));
+        }
+    }
+
+    /**
+     * An oligo stored together with the routed address it belongs to, which is needed to re-route the oligo when it is moved by compaction.
+     */
+    private record OwnedOligo(long routed, AddressedDNA oligo) {
+
+        static FixedSizeSerializer<OwnedOligo> serializer(FixedSizeSerializer<AddressedDNA> oligoSerializer) {
+            return new FixedSizeSerializer<>() {
+                final int serializedSize = Long.BYTES + oligoSerializer.serializedSize();
+
+                @Override
+                public int serializedSize() {
+                    return serializedSize;
+                }
+
+                @Override
+                public byte[] serialize(OwnedOligo record) {
+                    byte[] bs = new byte[serializedSize];
+                    serialize(record, ByteBuffer.wrap(bs), 0);
+                    return bs;
+                }
+
+                @Override
+                public void serialize(OwnedOligo record, ByteBuffer buffer, int pos) {
+                    buffer.putLong(pos, record.routed());
+                    oligoSerializer.serialize(record.oligo(), buffer, pos + Long.BYTES);
+                }
+
+                @Override
+                public OwnedOligo deserialize(byte[] bs) {
+                    return deserialize(ByteBuffer.wrap(bs), 0);
+                }
+
+                @Override
+                public OwnedOligo deserialize(ByteBuffer buffer, int pos) {
+                    return new OwnedOligo(buffer.getLong(pos), oligoSerializer.deserialize(buffer, pos + Long.BYTES));
+                }
+            };
+        }
     }
 }
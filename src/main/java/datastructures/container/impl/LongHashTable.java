@@ -0,0 +1,429 @@
+package datastructures.container.impl;
+
+import datastructures.container.Container;
+import utils.FuncUtils;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * A persistent long to long map, e.g., for routing tables, that stores open addressing hash tables with linear probing in memory-mapped files.
+ * The keys are split into segments by their hash. Each segment is stored in its own file, has its own lock, and is rehashed into a new file that replaces the old one when it becomes half full.
+ * A slot holds the key + 1 followed by the value, i.e., a slot with the key 0 is empty. The value is written before the key, so that a crash during a put never leaves a key with a partially written value.
+ * Keys must be >= 0.
+ */
+public class LongHashTable implements Container<Long, Long>, AutoCloseable {
+    public static final int DEFAULT_NUM_SEGMENTS = 16;
+    public static final long DEFAULT_INITIAL_SEGMENT_CAPACITY = 1L << 12;
+    private static final int HEADER_SIZE = 2 * Long.BYTES;
+    private static final int SLOT_SIZE = 2 * Long.BYTES;
+    private static final long MAX_SEGMENT_CAPACITY = Integer.highestOneBit((Integer.MAX_VALUE - HEADER_SIZE) / SLOT_SIZE);
+    private static final double MAX_LOAD_FACTOR = 0.5d;
+
+    private final String dirPath;
+    private final Segment[] segments;
+    private final int segmentShift;
+
+    private LongHashTable(String dirPath, int numSegments, long initialSegmentCapacity) {
+        if (Integer.bitCount(numSegments) != 1)
+            throw new RuntimeException("numSegments must be a power of 2");
+
+        FuncUtils.safeRun(() -> Files.createDirectories(Path.of(dirPath)));
+        long capacity = Math.min(MAX_SEGMENT_CAPACITY, Long.highestOneBit(Math.max(2L, initialSegmentCapacity - 1L) << 1));
+        this.dirPath = dirPath;
+        this.segmentShift = Long.SIZE - Integer.numberOfTrailingZeros(numSegments);
+        this.segments = IntStream.range(0, numSegments).mapToObj(i -> new Segment(Path.of(dirPath, "segment-" + i), numSegments, capacity)).toArray(Segment[]::new);
+    }
+
+    /**
+     * Opens the table stored in the directory dirPath with the default number of segments, or creates it if the directory does not exist.
+     * @param dirPath the directory of the segment files.
+     * @return the table.
+     */
+    public static LongHashTable open(String dirPath) {
+        return open(dirPath, DEFAULT_NUM_SEGMENTS);
+    }
+
+    /**
+     * Opens the table stored in the directory dirPath, or creates it if the directory does not exist.
+     * @param dirPath the directory of the segment files.
+     * @param numSegments the number of segments, which must be a power of 2. An existing table must have been created with the same number of segments.
+     * @return the table.
+     */
+    public static LongHashTable open(String dirPath, int numSegments) {
+        return new LongHashTable(dirPath, numSegments, DEFAULT_INITIAL_SEGMENT_CAPACITY);
+    }
+
+    /**
+     * Creates an empty table in the directory dirPath with the default number of segments. The segment files of an existing table in that directory are deleted.
+     * @param dirPath the directory of the segment files.
+     * @return the empty table.
+     */
+    public static LongHashTable create(String dirPath) {
+        return create(dirPath, DEFAULT_NUM_SEGMENTS);
+    }
+
+    /**
+     * Creates an empty table in the directory dirPath. The segment files of an existing table in that directory are deleted.
+     * @param dirPath the directory of the segment files.
+     * @param numSegments the number of segments, which must be a power of 2.
+     * @return the empty table.
+     */
+    public static LongHashTable create(String dirPath, int numSegments) {
+        Path dir = Path.of(dirPath);
+        if (Files.isDirectory(dir)) {
+            try (var files = FuncUtils.safeCall(() -> Files.list(dir))) {
+                files.filter(p -> p.getFileName().toString().startsWith("segment-")).forEach(p -> FuncUtils.safeRun(() -> Files.delete(p)));
+            }
+        }
+        return open(dirPath, numSegments);
+    }
+
+    private static long mix(long key) {
+        key = (key ^ (key >>> 33)) * 0xff51afd7ed558ccdL;
+        key = (key ^ (key >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return key ^ (key >>> 33);
+    }
+
+    private Segment segment(long hash) {
+        return segments.length == 1 ? segments[0] : segments[(int) (hash >>> segmentShift)];
+    }
+
+    private static void checkKey(long key) {
+        if (key < 0L)
+            throw new RuntimeException("LongHashTable only supports keys >= 0, but got " + key);
+    }
+
+    /**
+     * Maps key to value.
+     * @param key the key, which must be >= 0.
+     * @param value the value.
+     */
+    public void put(long key, long value) {
+        checkKey(key);
+        long hash = mix(key);
+        segment(hash).put(key, hash, value);
+    }
+
+    /**
+     * Returns the value mapped to key without boxing.
+     * @param key the key.
+     * @param missing the value returned if the key is not present.
+     * @return the value mapped to key, or missing.
+     */
+    public long get(long key, long missing) {
+        if (key < 0L)
+            return missing;
+
+        long hash = mix(key);
+        return segment(hash).get(key, hash, missing);
+    }
+
+    @Override
+    public void put(Long key, Long value) {
+        put(key.longValue(), value.longValue());
+    }
+
+    @Override
+    public Long get(Long key) {
+        if (key < 0L)
+            return null;
+
+        long hash = mix(key);
+        Segment segment = segment(hash);
+        segment.lock.readLock().lock();
+        try {
+            long slot = segment.table.find(key, hash);
+            return slot < 0L ? null : segment.table.value(slot);
+        }
+        finally {
+            segment.lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean contains(Long key) {
+        if (key < 0L)
+            return false;
+
+        long hash = mix(key);
+        Segment segment = segment(hash);
+        segment.lock.readLock().lock();
+        try {
+            return segment.table.find(key, hash) >= 0L;
+        }
+        finally {
+            segment.lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean remove(Long key) {
+        if (key < 0L)
+            return false;
+
+        long hash = mix(key);
+        return segment(hash).remove(key, hash);
+    }
+
+    @Override
+    public long size() {
+        return Arrays.stream(segments).mapToLong(s -> s.size).sum();
+    }
+
+    @Override
+    public Collection<Long> values() {
+        List<Long> values = new ArrayList<>();
+        for (Segment segment : segments)
+            segment.forEachSlot(slot -> values.add(segment.table.value(slot)));
+
+        return values;
+    }
+
+    @Override
+    public Set<Long> keys() {
+        Set<Long> keys = new HashSet<>();
+        for (Segment segment : segments)
+            segment.forEachSlot(slot -> keys.add(segment.table.key(slot)));
+
+        return keys;
+    }
+
+    @Override
+    public boolean isPersistent() {
+        return true;
+    }
+
+    public String getDirPath() {
+        return dirPath;
+    }
+
+    /**
+     * Writes all changes of the memory-mapped files to the storage device.
+     */
+    public void force() {
+        for (Segment segment : segments) {
+            segment.lock.readLock().lock();
+            try {
+                segment.table.force();
+            }
+            finally {
+                segment.lock.readLock().unlock();
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        for (Segment segment : segments) {
+            segment.lock.writeLock().lock();
+            try {
+                segment.table.force();
+                segment.table.close();
+            }
+            finally {
+                segment.lock.writeLock().unlock();
+            }
+        }
+    }
+
+    private static class Segment {
+        final Path path;
+        final int numSegments;
+        final ReadWriteLock lock;
+        Table table;
+        volatile long size;
+
+        Segment(Path path, int numSegments, long initialCapacity) {
+            this.path = path;
+            this.numSegments = numSegments;
+            this.lock = new ReentrantReadWriteLock();
+            this.table = new Table(path, numSegments, initialCapacity);
+            // the size is recounted on opening, so that it is consistent with the slots after a crash
+            this.size = table.occupiedSlots();
+        }
+
+        void put(long key, long hash, long value) {
+            lock.writeLock().lock();
+            try {
+                if (size + 1 > table.capacity * MAX_LOAD_FACTOR)
+                    grow();
+                if (table.put(key, hash, value))
+                    size++;
+            }
+            finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        long get(long key, long hash, long missing) {
+            lock.readLock().lock();
+            try {
+                long slot = table.find(key, hash);
+                return slot < 0L ? missing : table.value(slot);
+            }
+            finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        boolean remove(long key, long hash) {
+            lock.writeLock().lock();
+            try {
+                boolean removed = table.remove(key, hash);
+                if (removed)
+                    size--;
+                return removed;
+            }
+            finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        void forEachSlot(LongConsumer action) {
+            lock.readLock().lock();
+            try {
+                for (long slot = 0L; slot < table.capacity; slot++)
+                    if (!table.isEmpty(slot))
+                        action.accept(slot);
+            }
+            finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        private void grow() {
+            if (table.capacity >= MAX_SEGMENT_CAPACITY)
+                throw new RuntimeException("segment " + path + " cannot grow beyond " + MAX_SEGMENT_CAPACITY + " slots");
+
+            Path resizePath = Path.of(path + ".resize");
+            FuncUtils.safeRun(() -> Files.deleteIfExists(resizePath));
+            Table resized = new Table(resizePath, numSegments, table.capacity << 1);
+            for (long slot = 0L; slot < table.capacity; slot++) {
+                if (!table.isEmpty(slot)) {
+                    long key = table.key(slot);
+                    resized.put(key, mix(key), table.value(slot));
+                }
+            }
+            resized.force();
+            resized.close();
+            table.close();
+            FuncUtils.safeRun(() -> Files.move(resizePath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE));
+            table = new Table(path, numSegments, resized.capacity);
+        }
+    }
+
+    private static class Table {
+        final FileChannel fc;
+        final MappedByteBuffer buffer;
+        final long capacity;
+        final long mask;
+
+        Table(Path path, int numSegments, long initialCapacity) {
+            this.fc = FuncUtils.safeCall(() -> FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE));
+            boolean exists = FuncUtils.safeCall(fc::size) >= HEADER_SIZE;
+            long capacity = initialCapacity;
+            if (exists) {
+                MappedByteBuffer header = FuncUtils.safeCall(() -> fc.map(FileChannel.MapMode.READ_ONLY, 0L, HEADER_SIZE));
+                if (header.getInt(0) != numSegments)
+                    throw new RuntimeException("segment " + path + " belongs to a table with " + header.getInt(0) + " segments != " + numSegments);
+                capacity = header.getLong(Long.BYTES);
+            }
+
+            this.capacity = capacity;
+            this.mask = capacity - 1L;
+            this.buffer = FuncUtils.safeCall(() -> fc.map(FileChannel.MapMode.READ_WRITE, 0L, HEADER_SIZE + this.capacity * SLOT_SIZE));
+            if (!exists)
+                buffer.putInt(0, numSegments).putLong(Long.BYTES, this.capacity);
+        }
+
+        int offset(long slot) {
+            return HEADER_SIZE + (int) slot * SLOT_SIZE;
+        }
+
+        boolean isEmpty(long slot) {
+            return buffer.getLong(offset(slot)) == 0L;
+        }
+
+        long key(long slot) {
+            return buffer.getLong(offset(slot)) - 1L;
+        }
+
+        long value(long slot) {
+            return buffer.getLong(offset(slot) + Long.BYTES);
+        }
+
+        void write(long slot, long key, long value) {
+            int offset = offset(slot);
+            buffer.putLong(offset + Long.BYTES, value);
+            buffer.putLong(offset, key + 1L);
+        }
+
+        long find(long key, long hash) {
+            for (long slot = hash & mask; ; slot = (slot + 1L) & mask) {
+                long stored = buffer.getLong(offset(slot));
+                if (stored == 0L)
+                    return -1L;
+                if (stored == key + 1L)
+                    return slot;
+            }
+        }
+
+        /**
+         * @return true if the key was not present before.
+         */
+        boolean put(long key, long hash, long value) {
+            long slot = hash & mask;
+            long stored;
+            while ((stored = buffer.getLong(offset(slot))) != 0L && stored != key + 1L)
+                slot = (slot + 1L) & mask;
+
+            write(slot, key, value);
+            return stored == 0L;
+        }
+
+        boolean remove(long key, long hash) {
+            long slot = find(key, hash);
+            if (slot < 0L)
+                return false;
+
+            // backward shift deletion keeps the probe sequences of the following entries intact
+            long free = slot;
+            for (long next = (free + 1L) & mask; !isEmpty(next); next = (next + 1L) & mask) {
+                long nextKey = key(next);
+                long home = mix(nextKey) & mask;
+                if (((next - home) & mask) >= ((next - free) & mask)) {
+                    write(free, nextKey, value(next));
+                    free = next;
+                }
+            }
+            buffer.putLong(offset(free), 0L);
+            return true;
+        }
+
+        long occupiedSlots() {
+            long count = 0L;
+            for (long slot = 0L; slot < capacity; slot++)
+                if (!isEmpty(slot))
+                    count++;
+
+            return count;
+        }
+
+        void force() {
+            buffer.force();
+        }
+
+        void close() {
+            FuncUtils.safeRun(fc::close);
+        }
+    }
+}
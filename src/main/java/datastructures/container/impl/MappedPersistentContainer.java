@@ -0,0 +1,383 @@
+package datastructures.container.impl;
+
+import datastructures.container.Container;
+import utils.FuncUtils;
+import utils.serializers.FixedSizeSerializer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A persistent container with the same semantics as PersistentContainer that stores its fixed-size records in a memory-mapped file. The file is mapped in segments that are mapped on demand when the container grows.
+ * Values are serialized into and deserialized from the mapping directly, i.e., without a system call per record. Appends do not lock, and reads never block. The file starts with a header containing the number of records (long), which is updated after a record is appended.
+ * Since reads do not lock, overwriting an existing record is only safe if no other thread reads or writes that record concurrently. Otherwise, a reader can see a partially written record.
+ * Removed records are marked in a TombstoneBitmap stored next to the file, like in PersistentContainer. A failed write marks its records as removed before they are published, so that partially written records are never read.
+ * When the written records reach the storage device is controlled by the SyncPolicy.
+ * @param <V> the type of values.
+ */
+public class MappedPersistentContainer<V> extends Container.LinearLongContainer<V> implements AutoCloseable {
+    public static final long DEFAULT_SEGMENT_SIZE = 1L << 30;
+    public static final SyncPolicy DEFAULT_SYNC_POLICY = SyncPolicy.ON_CLOSE;
+    private static final int HEADER_SIZE = Long.BYTES;
+
+    /**
+     * Controls when changes of the memory-mapped file are forced to the storage device.
+     */
+    public enum SyncPolicy {
+        /**
+         * Only force() writes the changes to the storage device. Otherwise, the operating system decides.
+         */
+        MANUAL,
+        /**
+         * Like MANUAL, but close() also writes the changes to the storage device.
+         */
+        ON_CLOSE,
+        /**
+         * Every put is written to the storage device before it returns.
+         */
+        ALWAYS
+    }
+
+    private final String filePath;
+    private final FileChannel fc;
+    private final FixedSizeSerializer<V> valueSerializer;
+    private final int serializedSize;
+    private final int recordsPerSegment;
+    private final SyncPolicy syncPolicy;
+    private final MappedByteBuffer header;
+    private volatile MappedByteBuffer[] segments;
+    private final AtomicLong reserved;
+    private volatile long size;
+    private volatile TombstoneBitmap tombstones;
+
+    /**
+     * Creates an empty container at filePath with the default sync policy and segment size. An existing file is truncated.
+     * @param filePath the path of the file.
+     * @param valueSerializer the serializer of the values.
+     */
+    public MappedPersistentContainer(String filePath, FixedSizeSerializer<V> valueSerializer) {
+        this(filePath, valueSerializer, DEFAULT_SYNC_POLICY);
+    }
+
+    /**
+     * Creates an empty container at filePath with the default segment size. An existing file is truncated.
+     * @param filePath the path of the file.
+     * @param valueSerializer the serializer of the values.
+     * @param syncPolicy the sync policy.
+     */
+    public MappedPersistentContainer(String filePath, FixedSizeSerializer<V> valueSerializer, SyncPolicy syncPolicy) {
+        this(filePath, valueSerializer, syncPolicy, DEFAULT_SEGMENT_SIZE, false);
+    }
+
+    /**
+     * Creates an empty container at filePath. An existing file is truncated.
+     * @param filePath the path of the file.
+     * @param valueSerializer the serializer of the values.
+     * @param syncPolicy the sync policy.
+     * @param segmentSize the size of a mapped segment in bytes. It is rounded down to a multiple of the serialized size.
+     */
+    public MappedPersistentContainer(String filePath, FixedSizeSerializer<V> valueSerializer, SyncPolicy syncPolicy, long segmentSize) {
+        this(filePath, valueSerializer, syncPolicy, segmentSize, false);
+    }
+
+    private MappedPersistentContainer(String filePath, FixedSizeSerializer<V> valueSerializer, SyncPolicy syncPolicy, long segmentSize, boolean load) {
+        this.serializedSize = valueSerializer.serializedSize();
+        if (segmentSize < serializedSize || segmentSize > Integer.MAX_VALUE)
+            throw new RuntimeException("segmentSize must be in [" + serializedSize + ", " + Integer.MAX_VALUE + "]");
+
+        this.filePath = filePath;
+        this.valueSerializer = valueSerializer;
+        this.syncPolicy = syncPolicy;
+        this.recordsPerSegment = (int) (segmentSize / serializedSize);
+        this.fc = FuncUtils.safeCall(() -> FileChannel.open(Path.of(filePath), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE));
+        if (!load) {
+            FuncUtils.safeRun(() -> fc.truncate(0L));
+            FuncUtils.safeRun(() -> Files.deleteIfExists(Path.of(tombstonesPath(filePath))));
+        }
+
+        boolean exists = FuncUtils.safeCall(fc::size) >= HEADER_SIZE;
+        this.header = FuncUtils.safeCall(() -> fc.map(FileChannel.MapMode.READ_WRITE, 0L, HEADER_SIZE));
+        this.size = exists ? header.getLong(0) : 0L;
+        if (size < 0L || FuncUtils.safeCall(fc::size) < HEADER_SIZE + size * serializedSize)
+            throw new RuntimeException("failed loading persistent container from " + filePath);
+
+        if (load && Files.exists(Path.of(tombstonesPath(filePath))))
+            this.tombstones = TombstoneBitmap.open(tombstonesPath(filePath));
+        this.reserved = new AtomicLong(size);
+        this.segments = new MappedByteBuffer[0];
+        if (size > 0L) {
+            mapSegments(segmentIndex(size - 1L) + 1);
+            gen.sync(size - 1L);
+        }
+    }
+
+    /**
+     * Loads a container from filePath with the default sync policy and segment size, or creates it if the file does not exist.
+     * @param filePath the path of the file.
+     * @param valueSerializer the serializer of the values.
+     * @return the loaded container.
+     */
+    public static <V> MappedPersistentContainer<V> load(String filePath, FixedSizeSerializer<V> valueSerializer) {
+        return load(filePath, valueSerializer, DEFAULT_SYNC_POLICY, DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * Loads a container from filePath, or creates it if the file does not exist.
+     * @param filePath the path of the file.
+     * @param valueSerializer the serializer of the values.
+     * @param syncPolicy the sync policy.
+     * @param segmentSize the size of a mapped segment in bytes. It must be the segment size the file was created with.
+     * @return the loaded container.
+     */
+    public static <V> MappedPersistentContainer<V> load(String filePath, FixedSizeSerializer<V> valueSerializer, SyncPolicy syncPolicy, long segmentSize) {
+        return new MappedPersistentContainer<>(filePath, valueSerializer, syncPolicy, segmentSize, true);
+    }
+
+    public String getFilePath() {
+        return filePath;
+    }
+
+    public SyncPolicy getSyncPolicy() {
+        return syncPolicy;
+    }
+
+    /**
+     * Appends a value without locking.
+     * @param value the value.
+     * @return the key of the appended value.
+     */
+    public long append(V value) {
+        long key = reserved.getAndIncrement();
+        writeAll(key, Collections.singletonList(value), key);
+        return key;
+    }
+
+    /**
+     * Appends the values at contiguous keys without locking. Concurrent appends reserve disjoint key ranges with an atomic counter and write them in parallel. Afterwards, they are published in the order of their reservations, i.e., size() and the header only cover completely written records. If a write fails, the reserved records are published as removed, since later appends wait for them.
+     * @param values the values.
+     * @return the key of the first appended value.
+     */
+    public long appendAll(List<V> values) {
+        int n = values.size();
+        long firstKey = reserved.getAndAdd(n);
+        writeAll(firstKey, values, firstKey);
+        return firstKey;
+    }
+
+    @Override
+    public long put(V value) {
+        return append(value);
+    }
+
+    /**
+     * Puts the value at the given key. A key below the size overwrites its record in place, which requires that no other thread reads or writes that key concurrently. The key size appends the value. Putting a removed key restores it.
+     */
+    @Override
+    public void put(Long key, V value) {
+        if (key < size) {
+            writeAll(key, Collections.singletonList(value), Long.MAX_VALUE);
+            return;
+        }
+        if (!reserved.compareAndSet(key, key + 1L))
+            throw new RuntimeException("key > size");
+
+        writeAll(key, Collections.singletonList(value), key);
+    }
+
+    /**
+     * Puts the values at the contiguous keys firstKey, firstKey + 1, ... and updates the header once.
+     * @param firstKey the key of the first value. It must be <= size().
+     * @param values the values.
+     */
+    public void putAll(long firstKey, List<V> values) {
+        long end = firstKey + values.size();
+        long currentSize = size;
+        if (firstKey > currentSize)
+            throw new RuntimeException("key > size");
+        if (end > currentSize && !reserved.compareAndSet(currentSize, end))
+            throw new RuntimeException("concurrent appends. Use appendAll instead");
+
+        writeAll(firstKey, values, currentSize);
+    }
+
+    @Override
+    public V get(Long key) {
+        TombstoneBitmap t = tombstones;
+        if (key < 0L || key >= size || (t != null && t.isSet(key)))
+            return null;
+
+        return valueSerializer.deserialize(segments[segmentIndex(key)], offset(key));
+    }
+
+    /**
+     * Reads the contiguous records firstKey, firstKey + 1, ..., firstKey + count - 1 sequentially from the mapping.
+     * @param firstKey the key of the first record.
+     * @param count the number of records.
+     * @return the values, with null for removed records.
+     */
+    public List<V> getAll(long firstKey, int count) {
+        long end = firstKey + count;
+        if (firstKey < 0L || count < 0 || end > size)
+            throw new RuntimeException("[" + firstKey + ", " + end + ") is out of bounds for size " + size);
+
+        MappedByteBuffer[] mapped = segments;
+        TombstoneBitmap t = tombstones;
+        List<V> values = new ArrayList<>(count);
+        for (long key = firstKey; key < end; key++)
+            values.add(t != null && t.isSet(key) ? null : valueSerializer.deserialize(mapped[segmentIndex(key)], offset(key)));
+
+        return values;
+    }
+
+    /**
+     * Writes the values at the keys firstKey, firstKey + 1, ... and publishes the appended keys from publishFrom on. Written keys that were removed are restored.
+     * If a write fails, all keys of the values are marked as removed before they are published, so that a partially written record is never read.
+     */
+    private void writeAll(long firstKey, List<V> values, long publishFrom) {
+        long end = firstKey + values.size();
+        try {
+            for (int i = 0; i < values.size(); i++)
+                write(firstKey + i, values.get(i));
+        }
+        catch (Throwable e) {
+            try {
+                for (long key = firstKey; key < end; key++)
+                    tombstones().set(key);
+            }
+            finally {
+                // later appends wait for the failed keys to be published
+                if (end > publishFrom)
+                    publish(publishFrom, end);
+            }
+            throw e;
+        }
+
+        TombstoneBitmap t = tombstones;
+        if (t != null) {
+            for (long key = firstKey; key < end; key++)
+                t.clear(key);
+        }
+        if (end > publishFrom)
+            publish(publishFrom, end);
+    }
+
+    private void write(long key, V value) {
+        int segmentIndex = segmentIndex(key);
+        MappedByteBuffer[] mapped = segments;
+        if (segmentIndex >= mapped.length)
+            mapped = mapSegments(segmentIndex + 1);
+
+        MappedByteBuffer segment = mapped[segmentIndex];
+        int offset = offset(key);
+        valueSerializer.serialize(value, segment, offset);
+        if (syncPolicy == SyncPolicy.ALWAYS)
+            segment.force(offset, serializedSize);
+    }
+
+    /**
+     * Waits until all records before firstKey are published, and publishes the records up to end.
+     */
+    private void publish(long firstKey, long end) {
+        // the earlier writer may be descheduled, so waiting yields the processor after a few spins
+        for (int spins = 0; size != firstKey; spins++) {
+            if (spins < 64)
+                Thread.onSpinWait();
+            else
+                Thread.yield();
+        }
+
+        header.putLong(0, end);
+        if (syncPolicy == SyncPolicy.ALWAYS)
+            header.force();
+        gen.sync(end - 1L);
+        size = end;
+    }
+
+    @Override
+    public long size() {
+        return size;
+    }
+
+    @Override
+    public boolean isPersistent() {
+        return true;
+    }
+
+    /**
+     * Marks the record of the given key as removed. The record stays in the file, i.e., its key is not reused.
+     * @param key the key.
+     * @return true if the record was present.
+     */
+    @Override
+    public boolean remove(Long key) {
+        if (key < 0L || key >= size)
+            return false;
+
+        return tombstones().set(key);
+    }
+
+    @Override
+    protected boolean containsKey(long key) {
+        TombstoneBitmap t = tombstones;
+        return t == null || !t.isSet(key);
+    }
+
+    /**
+     * Writes all changes of the memory-mapped file and the tombstones to the storage device.
+     */
+    public synchronized void force() {
+        for (MappedByteBuffer segment : segments)
+            segment.force();
+        header.force();
+        if (tombstones != null)
+            tombstones.force();
+    }
+
+    @Override
+    public synchronized void close() {
+        if (syncPolicy != SyncPolicy.MANUAL)
+            force();
+        if (tombstones != null)
+            tombstones.close();
+        FuncUtils.safeRun(fc::close);
+    }
+
+    private synchronized TombstoneBitmap tombstones() {
+        if (tombstones == null)
+            tombstones = TombstoneBitmap.open(tombstonesPath(filePath));
+        return tombstones;
+    }
+
+    private static String tombstonesPath(String filePath) {
+        return filePath + ".tombstones";
+    }
+
+    private int segmentIndex(long key) {
+        return (int) (key / recordsPerSegment);
+    }
+
+    private int offset(long key) {
+        return (int) (key % recordsPerSegment) * serializedSize;
+    }
+
+    private synchronized MappedByteBuffer[] mapSegments(int numSegments) {
+        if (segments.length >= numSegments)
+            return segments;
+
+        MappedByteBuffer[] mapped = Arrays.copyOf(segments, numSegments);
+        long segmentBytes = (long) recordsPerSegment * serializedSize;
+        for (int i = segments.length; i < numSegments; i++) {
+            long pos = HEADER_SIZE + i * segmentBytes;
+            mapped[i] = FuncUtils.safeCall(() -> fc.map(FileChannel.MapMode.READ_WRITE, pos, segmentBytes));
+        }
+        segments = mapped;
+        return mapped;
+    }
+}
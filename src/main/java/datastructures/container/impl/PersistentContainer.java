@@ -5,32 +5,93 @@ import utils.FuncUtils;
 import utils.serializers.FixedSizeSerializer;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A persistent container that stores fixed-size records in a file.
+ * Removed records are marked in a TombstoneBitmap stored next to the file, which is created on the first removal. The keys of the records are their positions in the file, so removed records are not compacted.
+ * Optionally, appended records are collected in an append buffer that is written to the file with a single write once it holds flushSize records, once flushInterval milliseconds have passed, or when flush() is called.
+ * Writes are synchronized, but reads of records in the file are not, so a record must not be overwritten while it is read concurrently.
+ * @param <V> the type of values.
+ */
+public class PersistentContainer<V> extends Container.LinearLongContainer<V> implements AutoCloseable {
+    public static final int DEFAULT_FLUSH_SIZE = 0;
+    public static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 0L;
 
-public class PersistentContainer<V> extends Container.LinearLongContainer<V> {
     private long nextFreePos;
+    private volatile long flushedPos;
     private final FileChannel fc;
     private final FixedSizeSerializer<V> valueSerializer;
     private final long serializedSize;
-    private long size;
+    private volatile long size;
     private final String filePath;
+    private final ByteBuffer appendBuffer;
+    private final ScheduledExecutorService flusher;
+    private volatile TombstoneBitmap tombstones;
 
     public PersistentContainer(String filePath, FixedSizeSerializer<V> valueSerializer) {
+        this(filePath, valueSerializer, DEFAULT_FLUSH_SIZE, DEFAULT_FLUSH_INTERVAL_MILLIS);
+    }
+
+    /**
+     * Creates a container with an append buffer.
+     * @param filePath the path of the file.
+     * @param valueSerializer the serializer of the values.
+     * @param flushSize the number of appended records that are buffered before they are written. 0 disables the append buffer.
+     * @param flushIntervalMillis the maximum time in milliseconds that appended records stay in the append buffer. 0 disables periodic flushing.
+     */
+    public PersistentContainer(String filePath, FixedSizeSerializer<V> valueSerializer, int flushSize, long flushIntervalMillis) {
+        if (flushSize < 0 || flushIntervalMillis < 0L)
+            throw new RuntimeException("flushSize and flushIntervalMillis must be >= 0");
+
         this.nextFreePos = 0L;
+        this.flushedPos = 0L;
         this.fc = FuncUtils.safeCall(() -> FileChannel.open(Path.of(filePath), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE));
         this.valueSerializer = valueSerializer;
         this.serializedSize = valueSerializer.serializedSize();
         this.size = 0L;
         this.filePath = filePath;
+        this.appendBuffer = flushSize > 0 ? ByteBuffer.allocateDirect(Math.multiplyExact(flushSize, valueSerializer.serializedSize())) : null;
+        if (appendBuffer != null && flushIntervalMillis > 0L) {
+            this.flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "PersistentContainer-flusher");
+                t.setDaemon(true);
+                return t;
+            });
+            flusher.scheduleWithFixedDelay(this::flushBuffer, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+        else {
+            this.flusher = null;
+        }
     }
 
     public static <V> PersistentContainer<V> load(String filePath, FixedSizeSerializer<V> valueSerializer) {
-        PersistentContainer<V> pc = new PersistentContainer<>(filePath, valueSerializer);
+        return load(filePath, valueSerializer, DEFAULT_FLUSH_SIZE, DEFAULT_FLUSH_INTERVAL_MILLIS);
+    }
+
+    /**
+     * Loads a container with an append buffer.
+     * @param filePath the path of the file.
+     * @param valueSerializer the serializer of the values.
+     * @param flushSize the number of appended records that are buffered before they are written. 0 disables the append buffer.
+     * @param flushIntervalMillis the maximum time in milliseconds that appended records stay in the append buffer. 0 disables periodic flushing.
+     * @return the loaded container.
+     */
+    public static <V> PersistentContainer<V> load(String filePath, FixedSizeSerializer<V> valueSerializer, int flushSize, long flushIntervalMillis) {
+        PersistentContainer<V> pc = new PersistentContainer<>(filePath, valueSerializer, flushSize, flushIntervalMillis);
         pc.nextFreePos = FuncUtils.safeCall(pc.fc::size);
         if (pc.nextFreePos % valueSerializer.serializedSize() != 0L)
             throw new RuntimeException("failed loading persistent container from " + filePath);
 
+        pc.flushedPos = pc.nextFreePos;
+        if (Files.exists(Path.of(tombstonesPath(filePath))))
+            pc.tombstones = TombstoneBitmap.open(tombstonesPath(filePath));
         pc.size = pc.nextFreePos / pc.serializedSize;
         pc.gen.sync(pc.size - 1);
         return pc;
@@ -41,12 +102,26 @@ public class PersistentContainer<V> extends Container.LinearLongContainer<V> {
     }
 
     @Override
-    public void put(Long key, V value) {
+    public synchronized void put(Long key, V value) {
         if (key > size)
             throw new RuntimeException("key > size");
 
         long pos = filePositionFromKey(key);
-        FuncUtils.safeRun(() -> fc.write(ByteBuffer.wrap(valueSerializer.serialize(value)), pos));
+        byte[] bytes = valueSerializer.serialize(value);
+        if (tombstones != null)
+            tombstones.clear(key);
+        if (appendBuffer != null && pos >= flushedPos) {
+            if (pos == nextFreePos && !appendBuffer.hasRemaining())
+                flushBuffer();
+            if (pos == nextFreePos)
+                appendBuffer.put(bytes);
+            else
+                appendBuffer.put((int) (pos - flushedPos), bytes);
+        }
+        else {
+            FuncUtils.safeRun(() -> fc.write(ByteBuffer.wrap(bytes), pos));
+        }
+
         if (pos == nextFreePos) {
             nextFreePos += serializedSize;
             size++;
@@ -55,6 +130,36 @@ public class PersistentContainer<V> extends Container.LinearLongContainer<V> {
         }
     }
 
+    /**
+     * Puts the values at the contiguous keys firstKey, firstKey + 1, ... with a single write.
+     * @param firstKey the key of the first value. It must be <= size().
+     * @param values the values.
+     */
+    public synchronized void putAll(long firstKey, List<V> values) {
+        if (firstKey > size)
+            throw new RuntimeException("key > size");
+        if (values.isEmpty())
+            return;
+
+        if (tombstones != null)
+            for (long key = firstKey; key < firstKey + values.size(); key++)
+                tombstones.clear(key);
+
+        flushBuffer();
+        ByteBuffer block = ByteBuffer.allocate(Math.multiplyExact(values.size(), (int) serializedSize));
+        values.forEach(v -> block.put(valueSerializer.serialize(v)));
+        block.flip();
+        writeFully(block, filePositionFromKey(firstKey));
+
+        long end = Math.max(nextFreePos, filePositionFromKey(firstKey + values.size()));
+        if (end > nextFreePos) {
+            nextFreePos = end;
+            flushedPos = end;
+            size = end / serializedSize;
+            gen.sync(size - 1);
+        }
+    }
+
     @Override
     public long size() {
         return size;
@@ -65,20 +170,88 @@ public class PersistentContainer<V> extends Container.LinearLongContainer<V> {
         return true;
     }
 
+    /**
+     * Marks the record of the given key as removed. Its key is not reused.
+     * @param key the key.
+     * @return true if the record was present.
+     */
     @Override
-    public boolean remove(Long key) {
-        throw new UnsupportedOperationException("cannot remove objects from a persistent container");
+    public synchronized boolean remove(Long key) {
+        if (key < 0L || key >= size)
+            return false;
+
+        if (tombstones == null)
+            tombstones = TombstoneBitmap.open(tombstonesPath(filePath));
+        return tombstones.set(key);
     }
 
+    /**
+     * Reads the record of the given key. Only a read from the append buffer locks, since the buffer is flushed and reused by writers. Records in the file are read with positional reads that do not lock.
+     */
     @Override
     public V get(Long key) {
-        if (key >= size())
+        TombstoneBitmap t = tombstones;
+        if (key < 0L || key >= size || (t != null && t.isSet(key)))
             return null;
 
         long pos = filePositionFromKey(key);
+        if (appendBuffer != null && pos >= flushedPos) {
+            synchronized (this) {
+                if (pos >= flushedPos)
+                    return valueSerializer.deserialize(appendBuffer, (int) (pos - flushedPos));
+            }
+        }
+
         return FuncUtils.safeCall(() -> valueSerializer.deserialize(fc, pos));
     }
 
+    /**
+     * Writes the append buffer to the file and forces the file to the storage device. When this method returns, all previous puts are durable.
+     */
+    public synchronized void flush() {
+        flushBuffer();
+        FuncUtils.safeRun(() -> fc.force(false));
+        if (tombstones != null)
+            tombstones.force();
+    }
+
+    @Override
+    protected boolean containsKey(long key) {
+        TombstoneBitmap t = tombstones;
+        return t == null || !t.isSet(key);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (flusher != null)
+            flusher.shutdownNow();
+        flush();
+        if (tombstones != null)
+            tombstones.close();
+        FuncUtils.safeRun(fc::close);
+    }
+
+    private synchronized void flushBuffer() {
+        if (appendBuffer == null || appendBuffer.position() == 0 || !fc.isOpen())
+            return;
+
+        appendBuffer.flip();
+        writeFully(appendBuffer, flushedPos);
+        flushedPos = nextFreePos;
+        appendBuffer.clear();
+    }
+
+    private void writeFully(ByteBuffer bf, long pos) {
+        while (bf.hasRemaining()) {
+            long p = pos + bf.position();
+            FuncUtils.safeRun(() -> fc.write(bf, p));
+        }
+    }
+
+    private static String tombstonesPath(String filePath) {
+        return filePath + ".tombstones";
+    }
+
     protected long filePositionFromKey(Long key) {
         return key * serializedSize;
     }
@@ -0,0 +1,350 @@
+package datastructures.container.impl;
+
+import core.BaseSequence;
+import datastructures.container.translation.AddressManager;
+import utils.AddressedDNA;
+import utils.FuncUtils;
+import utils.Pair;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Puts many objects into a SizedDNAContainer with a pipeline of stages that run concurrently and are connected by bounded queues:
+ * allocate registers the managed ids of a batch of objects and routes and translates their ids with a single call each,
+ * segment prefixes each object with its header and splits it into segments,
+ * encode encodes the segments into oligos on a pool of workers,
+ * and write collects the oligos of several objects and writes them with a single DNAStorage.putAll.
+ * A stage blocks when the queue to its next stage is full, so that a slow stage throttles the stages before it and the memory of the pipeline stays bounded by the queue capacities.
+ * If a stage fails, the pipeline is stopped and run throws. Objects that were written before the failure remain in the container.
+ */
+public class PutAllPipeline {
+    public static final int DEFAULT_NUM_WORKERS = Math.max(1, Runtime.getRuntime().availableProcessors());
+    public static final int DEFAULT_QUEUE_CAPACITY = 256;
+    public static final int DEFAULT_ALLOCATION_BATCH_SIZE = 64;
+    public static final int DEFAULT_WRITE_BATCH_SIZE = 1024;
+
+    private final SizedDNAContainer container;
+    private final int numWorkers;
+    private final int queueCapacity;
+    private final int allocationBatchSize;
+    private final int writeBatchSize;
+
+    public PutAllPipeline(SizedDNAContainer container) {
+        this(container, DEFAULT_NUM_WORKERS, DEFAULT_QUEUE_CAPACITY, DEFAULT_ALLOCATION_BATCH_SIZE, DEFAULT_WRITE_BATCH_SIZE);
+    }
+
+    /**
+     * Creates a pipeline.
+     * @param container the container.
+     * @param numWorkers the number of threads of the encode stage.
+     * @param queueCapacity the capacity of each queue between two stages, in objects.
+     * @param allocationBatchSize the number of objects whose ids are allocated together.
+     * @param writeBatchSize the number of oligos after which the write stage writes the collected oligos.
+     */
+    public PutAllPipeline(SizedDNAContainer container, int numWorkers, int queueCapacity, int allocationBatchSize, int writeBatchSize) {
+        if (numWorkers <= 0 || queueCapacity <= 0 || allocationBatchSize <= 0 || writeBatchSize <= 0)
+            throw new RuntimeException("numWorkers, queueCapacity, allocationBatchSize, and writeBatchSize must be > 0");
+
+        this.container = container;
+        this.numWorkers = numWorkers;
+        this.queueCapacity = queueCapacity;
+        this.allocationBatchSize = allocationBatchSize;
+        this.writeBatchSize = writeBatchSize;
+    }
+
+    /**
+     * Puts the objects and returns when all of them are written.
+     * @param entries the pairs of registered ids and objects.
+     * @return the metrics of the stages.
+     */
+    public Metrics run(Stream<Pair<Long, BaseSequence>> entries) {
+        BlockingQueue<Job> allocated = new ArrayBlockingQueue<>(queueCapacity);
+        BlockingQueue<Job> segmented = new ArrayBlockingQueue<>(queueCapacity);
+        BlockingQueue<Job> encoded = new ArrayBlockingQueue<>(queueCapacity);
+        StageMetrics allocate = new StageMetrics("allocate", 1);
+        StageMetrics segment = new StageMetrics("segment", 1);
+        StageMetrics encode = new StageMetrics("encode", numWorkers);
+        StageMetrics write = new StageMetrics("write", 1);
+        LongAdder oligos = new LongAdder();
+
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        // every stage gets its own thread, so that no stage waits for a thread while the stages it depends on are blocked
+        ExecutorService executor = Executors.newFixedThreadPool(numWorkers + 3, r -> {
+            Thread t = new Thread(r, "PutAllPipeline-stage");
+            t.setDaemon(true);
+            return t;
+        });
+        long start = System.nanoTime();
+        submit(executor, failure, () -> allocate(entries.iterator(), allocated, allocate));
+        submit(executor, failure, () -> segment(allocated, segmented, segment));
+        for (int i = 0; i < numWorkers; i++)
+            submit(executor, failure, () -> encode(segmented, encoded, encode));
+        submit(executor, failure, () -> write(encoded, write, oligos));
+
+        executor.shutdown();
+        FuncUtils.safeRun(() -> executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS));
+        if (failure.get() != null)
+            throw new RuntimeException("putAll failed", failure.get());
+
+        return new Metrics(write.items(), oligos.sum(), System.nanoTime() - start, List.of(allocate, segment, encode, write));
+    }
+
+    private static void submit(ExecutorService executor, AtomicReference<Throwable> failure, Runnable stage) {
+        executor.execute(() -> {
+            try {
+                stage.run();
+            }
+            catch (Throwable t) {
+                // stops the other stages, which may be blocked on a queue
+                if (failure.compareAndSet(null, t))
+                    executor.shutdownNow();
+            }
+        });
+    }
+
+    private void allocate(Iterator<Pair<Long, BaseSequence>> entries, BlockingQueue<Job> out, StageMetrics metrics) {
+        List<Job> batch = new ArrayList<>(allocationBatchSize);
+        while (entries.hasNext()) {
+            Pair<Long, BaseSequence> entry = entries.next();
+            batch.add(new Job(entry.getT1(), entry.getT2()));
+            if (batch.size() == allocationBatchSize) {
+                allocateBatch(batch, out, metrics);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty())
+            allocateBatch(batch, out, metrics);
+
+        metrics.put(out, Job.END);
+    }
+
+    private void allocateBatch(List<Job> batch, BlockingQueue<Job> out, StageMetrics metrics) {
+        long start = System.nanoTime();
+        int numManagedIds = 0;
+        List<Long> ids = new ArrayList<>(batch.size());
+        for (Job job : batch) {
+            container.checkRegistered(job.id);
+            job.numSegmentsMinusOne = container.numSegmentsMinusOne(job.seq);
+            numManagedIds += job.numSegmentsMinusOne;
+            ids.add(job.id);
+        }
+
+        // the managed ids of the batch are contiguous, so every object gets a contiguous range of them
+        List<AddressManager.ManagedAddress<Long, BaseSequence>> managedIds = container.registerManagedIds(numManagedIds);
+        List<AddressManager.ManagedAddress<Long, BaseSequence>> rootIds = container.getAddressManager().routeAndTranslateAll(ids);
+        int offset = 0;
+        for (int i = 0; i < batch.size(); i++) {
+            Job job = batch.get(i);
+            job.rootId = rootIds.get(i);
+            job.managedIds = managedIds.subList(offset, offset + job.numSegmentsMinusOne);
+            offset += job.numSegmentsMinusOne;
+        }
+        metrics.busy(start, batch.size());
+
+        for (Job job : batch)
+            metrics.put(out, job);
+    }
+
+    private void segment(BlockingQueue<Job> in, BlockingQueue<Job> out, StageMetrics metrics) {
+        while (true) {
+            Job job = metrics.take(in);
+            if (job == Job.END) {
+                for (int i = 0; i < numWorkers; i++)
+                    metrics.put(out, Job.END);
+                return;
+            }
+
+            long start = System.nanoTime();
+            job.segments = container.segment(job.seq, job.numSegmentsMinusOne, job.managedIds.isEmpty() ? -1L : job.managedIds.get(0).original());
+            job.seq = null;
+            metrics.busy(start, 1);
+            metrics.put(out, job);
+        }
+    }
+
+    private void encode(BlockingQueue<Job> in, BlockingQueue<Job> out, StageMetrics metrics) {
+        while (true) {
+            Job job = metrics.take(in);
+            if (job == Job.END) {
+                metrics.put(out, Job.END);
+                return;
+            }
+
+            long start = System.nanoTime();
+            job.oligos = new AddressedDNA[job.segments.length];
+            job.oligos[0] = container.encodeSegment(job.rootId.translated(), job.segments[0]);
+            for (int i = 1; i < job.segments.length; i++)
+                job.oligos[i] = container.encodeSegment(job.managedIds.get(i - 1).translated(), job.segments[i]);
+
+            job.segments = null;
+            metrics.busy(start, 1);
+            metrics.put(out, job);
+        }
+    }
+
+    private void write(BlockingQueue<Job> in, StageMetrics metrics, LongAdder oligosWritten) {
+        List<AddressManager.ManagedAddress<Long, BaseSequence>> keys = new ArrayList<>(writeBatchSize);
+        List<AddressedDNA> oligos = new ArrayList<>(writeBatchSize);
+        List<Job> jobs = new ArrayList<>();
+        int ends = 0;
+        while (ends < numWorkers) {
+            Job job = metrics.take(in);
+            if (job == Job.END) {
+                ends++;
+                continue;
+            }
+
+            keys.add(job.rootId);
+            keys.addAll(job.managedIds);
+            oligos.addAll(List.of(job.oligos));
+            jobs.add(job);
+            if (oligos.size() >= writeBatchSize)
+                writeBatch(keys, oligos, jobs, metrics, oligosWritten);
+        }
+        if (!jobs.isEmpty())
+            writeBatch(keys, oligos, jobs, metrics, oligosWritten);
+    }
+
+    private void writeBatch(List<AddressManager.ManagedAddress<Long, BaseSequence>> keys, List<AddressedDNA> oligos, List<Job> jobs, StageMetrics metrics, LongAdder oligosWritten) {
+        long start = System.nanoTime();
+        container.getOligoStore().putAll(keys, oligos);
+        jobs.forEach(job -> container.invalidateDecoded(job.rootId.routed()));
+        metrics.busy(start, jobs.size());
+        oligosWritten.add(oligos.size());
+        keys.clear();
+        oligos.clear();
+        jobs.clear();
+    }
+
+    /**
+     * An object passing through the stages. Each stage sets the fields that the next stage needs and clears those that are no longer needed.
+     */
+    private static final class Job {
+        static final Job END = new Job(-1L, null);
+
+        final long id;
+        BaseSequence seq;
+        int numSegmentsMinusOne;
+        AddressManager.ManagedAddress<Long, BaseSequence> rootId;
+        List<AddressManager.ManagedAddress<Long, BaseSequence>> managedIds;
+        BaseSequence[] segments;
+        AddressedDNA[] oligos;
+
+        Job(long id, BaseSequence seq) {
+            this.id = id;
+            this.seq = seq;
+        }
+    }
+
+    /**
+     * The metrics of a pipeline run.
+     * @param objects the number of written objects.
+     * @param oligos the number of written oligos.
+     * @param elapsedNanos the duration of the run.
+     * @param stages the metrics of the stages in pipeline order.
+     */
+    public record Metrics(long objects, long oligos, long elapsedNanos, List<StageMetrics> stages) {
+        /**
+         * @return the number of written objects per second.
+         */
+        public double throughput() {
+            return elapsedNanos == 0L ? 0d : objects * 1e9d / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder("PutAllPipeline.Metrics{objects=" + objects + ", oligos=" + oligos + ", elapsedMillis=" + elapsedNanos / 1_000_000L + ", objects/s=" + Math.round(throughput()));
+            stages.forEach(s -> sb.append(", ").append(s));
+            return sb.append('}').toString();
+        }
+    }
+
+    /**
+     * The metrics of a stage, summed over its threads. The time of a thread is split into busy time, i.e., processing objects, idle time, i.e., waiting for objects from the previous stage, and blocked time, i.e., waiting for space in the queue to the next stage.
+     * A stage with much blocked time is throttled by a later stage, and a stage with much idle time waits for an earlier one.
+     */
+    public static final class StageMetrics {
+        private final String name;
+        private final int threads;
+        private final LongAdder items;
+        private final LongAdder busyNanos;
+        private final LongAdder idleNanos;
+        private final LongAdder blockedNanos;
+
+        StageMetrics(String name, int threads) {
+            this.name = name;
+            this.threads = threads;
+            this.items = new LongAdder();
+            this.busyNanos = new LongAdder();
+            this.idleNanos = new LongAdder();
+            this.blockedNanos = new LongAdder();
+        }
+
+        public String name() {
+            return name;
+        }
+
+        public int threads() {
+            return threads;
+        }
+
+        /**
+         * @return the number of objects processed by this stage.
+         */
+        public long items() {
+            return items.sum();
+        }
+
+        public long busyNanos() {
+            return busyNanos.sum();
+        }
+
+        public long idleNanos() {
+            return idleNanos.sum();
+        }
+
+        public long blockedNanos() {
+            return blockedNanos.sum();
+        }
+
+        /**
+         * @return the number of objects this stage processes per second of busy time of all its threads, i.e., the throughput it could reach if it never waited.
+         */
+        public double throughput() {
+            long busy = busyNanos();
+            return busy == 0L ? 0d : items() * 1e9d * threads / busy;
+        }
+
+        @Override
+        public String toString() {
+            return name + "{threads=" + threads + ", items=" + items() + ", objects/s=" + Math.round(throughput()) + ", busyMillis=" + busyNanos() / 1_000_000L + ", idleMillis=" + idleNanos() / 1_000_000L + ", blockedMillis=" + blockedNanos() / 1_000_000L + "}";
+        }
+
+        private void busy(long startNanos, int count) {
+            busyNanos.add(System.nanoTime() - startNanos);
+            items.add(count);
+        }
+
+        private Job take(BlockingQueue<Job> queue) {
+            long start = System.nanoTime();
+            Job job = FuncUtils.safeCall(queue::take);
+            idleNanos.add(System.nanoTime() - start);
+            return job;
+        }
+
+        private void put(BlockingQueue<Job> queue, Job job) {
+            long start = System.nanoTime();
+            FuncUtils.safeRun(() -> queue.put(job));
+            blockedNanos.add(System.nanoTime() - start);
+        }
+    }
+}
@@ -2,14 +2,21 @@ package datastructures.container.impl;
 
 import core.BaseSequence;
 import datastructures.container.DNAContainer;
+import datastructures.container.ScanOptions;
 import datastructures.container.translation.AddressManager;
 import datastructures.container.types.ContainerArray;
+import datastructures.container.types.ContainerBPlusTree;
 import datastructures.container.types.ContainerList;
+import datastructures.container.types.ContainerMap;
+import datastructures.container.types.ContainerUnrolledList;
 import datastructures.reference.IDNAFedReference;
 import datastructures.reference.IDNASketch;
 import utils.AddressedDNA;
 import utils.Coder;
+import utils.Pair;
 import java.util.*;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
 
 public class RichDNAContainer<T> implements DNAContainer {
 
@@ -39,6 +46,16 @@ public class RichDNAContainer<T> implements DNAContainer {
         return container.keys();
     }
 
+    @Override
+    public LongStream keyStream() {
+        return container.keyStream();
+    }
+
+    @Override
+    public Stream<Pair<Long, BaseSequence>> scan(ScanOptions options) {
+        return container.scan(options);
+    }
+
     @Override
     public void put(Long key, BaseSequence value) {
         container.put(key, value);
@@ -143,6 +160,79 @@ public class RichDNAContainer<T> implements DNAContainer {
         );
     }
 
+    public ContainerUnrolledList<T> putUnrolledList(List<T> list) {
+        return ContainerUnrolledList.putUnrolledList(container, coder, list);
+    }
+
+    public ContainerUnrolledList<T> putUnrolledList(long rootId, List<T> list, int nodeCapacity) {
+        return ContainerUnrolledList.putUnrolledList(container, coder, rootId, list, nodeCapacity);
+    }
+
+    public ContainerUnrolledList<T> putEmptyUnrolledList(long rootId) {
+        return ContainerUnrolledList.putEmptyUnrolledList(container, coder, rootId);
+    }
+
+    public ContainerUnrolledList<T> getUnrolledList(IDNASketch.ContainerIdSketch sketch) {
+        return getUnrolledList(sketch.id());
+    }
+
+    public ContainerUnrolledList<T> getUnrolledList(long rootId) {
+        return new ContainerUnrolledList<>(
+                container,
+                new IDNASketch.ContainerIdSketch(rootId, container),
+                coder
+        );
+    }
+
+    public <K> ContainerMap<K, T> putMap(Coder<K, BaseSequence> keyCoder, Map<K, T> map) {
+        return ContainerMap.putMap(container, keyCoder, coder, map);
+    }
+
+    public <K> ContainerMap<K, T> putMap(Coder<K, BaseSequence> keyCoder, long rootId, Map<K, T> map, boolean parallel) {
+        return ContainerMap.putMap(container, keyCoder, coder, rootId, map, parallel);
+    }
+
+    public <K> ContainerMap<K, T> putEmptyMap(Coder<K, BaseSequence> keyCoder, long rootId) {
+        return ContainerMap.putEmptyMap(container, keyCoder, coder, rootId);
+    }
+
+    public <K> ContainerMap<K, T> getMap(Coder<K, BaseSequence> keyCoder, IDNASketch.ContainerIdSketch sketch) {
+        return getMap(keyCoder, sketch.id());
+    }
+
+    public <K> ContainerMap<K, T> getMap(Coder<K, BaseSequence> keyCoder, long rootId) {
+        return new ContainerMap<>(
+                container,
+                new IDNASketch.ContainerIdSketch(rootId, container),
+                keyCoder,
+                coder
+        );
+    }
+
+    public ContainerBPlusTree<T> putBPlusTree(SortedMap<Long, T> map) {
+        return ContainerBPlusTree.putBPlusTree(container, coder, map);
+    }
+
+    public ContainerBPlusTree<T> putBPlusTree(long rootId, SortedMap<Long, T> map, boolean parallel) {
+        return ContainerBPlusTree.putBPlusTree(container, coder, rootId, map, parallel);
+    }
+
+    public ContainerBPlusTree<T> putEmptyBPlusTree(long rootId) {
+        return ContainerBPlusTree.putEmptyBPlusTree(container, coder, rootId);
+    }
+
+    public ContainerBPlusTree<T> getBPlusTree(IDNASketch.ContainerIdSketch sketch) {
+        return getBPlusTree(sketch.id());
+    }
+
+    public ContainerBPlusTree<T> getBPlusTree(long rootId) {
+        return new ContainerBPlusTree<>(
+                container,
+                new IDNASketch.ContainerIdSketch(rootId, container),
+                coder
+        );
+    }
+
     public ContainerArray<T> putArray(T[] array, boolean parallel) {
         return putArray(container.registerId(), array, parallel);
     }
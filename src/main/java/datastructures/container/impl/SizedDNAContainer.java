@@ -5,6 +5,7 @@ import core.dnarules.BasicDNARules;
 import core.dnarules.DNARule;
 import datastructures.container.Container;
 import datastructures.container.DNAContainer;
+import datastructures.container.ScanOptions;
 import datastructures.container.translation.AddressManager;
 import datastructures.container.translation.DNAAddrManager;
 import dnacoders.BasicSegmentationCoder;
@@ -13,15 +14,29 @@ import dnacoders.SegmentationCoder;
 import dnacoders.headercoders.BasicDNAPadder;
 import dnacoders.headercoders.ReedSolomonCoder;
 import utils.*;
+import utils.cache.WTinyLFUCache;
 import utils.lsh.LSH;
 import utils.lsh.minhash.MinHashLSH;
+import java.io.BufferedInputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.*;
 import java.util.function.BiFunction;
 import java.util.function.Function;
 import java.util.function.Supplier;
 import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
 
 public class SizedDNAContainer extends Container.LinearLongContainer<BaseSequence> implements DNAContainer {
+    // the estimated heap size of a cached object: a fixed overhead for the entry and the sequence plus a reference per base
+    private static final int DECODED_ENTRY_OVERHEAD = 64;
+    private static final int DECODED_BYTES_PER_BASE = 4;
+    // the number of segments that putStream and getStream encode or decode at once
+    private static final int STREAM_BATCH_SIZE = 64;
 
     private final SegmentationCoder segmentationCoder;
     private final LSH<BaseSequence> oligLSH;
@@ -32,6 +47,9 @@ public class SizedDNAContainer extends Container.LinearLongContainer<BaseSequenc
     private final AddressManager<Long, BaseSequence> addressManager;
     private final int payloadOffset;
     private final boolean isParallel;
+    private final WTinyLFUCache<BaseSequence> decodedCache;
+    // marks the ids that were allocated for segments, so that a scan can tell root ids from segment ids, also after the container is rebuilt on its store
+    private final TombstoneBitmap segmentIds;
 
     private SizedDNAContainer(
             boolean isParallel,
@@ -41,7 +59,9 @@ public class SizedDNAContainer extends Container.LinearLongContainer<BaseSequenc
             int payloadSize,
             DNAPacker.LengthBase sizedHeaderLengthBase,
             DNAStorage store,
-            AddressManager<Long, BaseSequence> addressManager) {
+            AddressManager<Long, BaseSequence> addressManager,
+            long decodedCacheSize,
+            TombstoneBitmap segmentIds) {
 
         super();
         this.segmentationCoder = segmentationCoder;
@@ -53,6 +73,15 @@ public class SizedDNAContainer extends Container.LinearLongContainer<BaseSequenc
         this.payloadOffset = sizedHeaderLengthBase.totalSize() + DNAPacker.LengthBase.INT_64.totalSize();
         this.payloadDistanceCoder = payloadDistanceCoder;
         this.isParallel = isParallel;
+        this.decodedCache = decodedCacheSize > 0L ? new WTinyLFUCache<>(
+                decodedCacheSize,
+                seq -> DECODED_ENTRY_OVERHEAD + (long) DECODED_BYTES_PER_BASE * seq.length(),
+                decodedCacheSize / (DECODED_ENTRY_OVERHEAD + (long) DECODED_BYTES_PER_BASE * payloadSize)
+        ) : null;
+        this.segmentIds = segmentIds;
+        // a container rebuilt on a store that holds objects continues after the ids known to the address manager
+        if (store.size() > 0L)
+            addressManager.addressRoutingManager().container().keys().stream().mapToLong(Long::longValue).max().ifPresent(gen::sync);
     }
 
     public static Builder builder() {
@@ -61,57 +90,271 @@ public class SizedDNAContainer extends Container.LinearLongContainer<BaseSequenc
 
     @Override
     public void put(Long id, BaseSequence seq) {
+        checkRegistered(id);
+        int numSegmentsMinusOne = numSegmentsMinusOne(seq);
+        List<AddressManager.ManagedAddress<Long, BaseSequence>> managedIds = registerManagedIds(numSegmentsMinusOne);
+        var segments = segment(seq, numSegmentsMinusOne, managedIds.isEmpty() ? -1L : managedIds.get(0).original());
+        var addressedSegments = new AddressedDNA[segments.length];
+        var rootId = addressManager.routeAndTranslate(id);
+        addressedSegments[0] = encodeSegment(rootId.translated(), segments[0]);
+
+        FuncUtils.stream(IntStream.range(0, managedIds.size()), isParallel).forEach(i ->
+                addressedSegments[i + 1] = encodeSegment(managedIds.get(i).translated(), segments[i + 1]));
+
+        List<AddressManager.ManagedAddress<Long, BaseSequence>> keys = new ArrayList<>(segments.length);
+        keys.add(rootId);
+        keys.addAll(managedIds);
+        store.putAll(keys, Arrays.asList(addressedSegments));
+        invalidateDecoded(rootId.routed());
+    }
+
+    /**
+     * Puts the objects with the PutAllPipeline, i.e., allocates their addresses in batches, and segments, encodes, and writes them concurrently.
+     * @param entries the objects by their registered ids.
+     * @return the metrics of the pipeline's stages.
+     */
+    public PutAllPipeline.Metrics putAll(Map<Long, BaseSequence> entries) {
+        return putAll(entries.entrySet().stream().map(e -> new Pair<>(e.getKey(), e.getValue())));
+    }
+
+    /**
+     * Puts the objects with the PutAllPipeline, i.e., allocates their addresses in batches, and segments, encodes, and writes them concurrently.
+     * @param entries the pairs of registered ids and objects.
+     * @return the metrics of the pipeline's stages.
+     */
+    public PutAllPipeline.Metrics putAll(Stream<Pair<Long, BaseSequence>> entries) {
+        return new PutAllPipeline(this).run(entries);
+    }
+
+    /**
+     * Puts the bytes of a stream of unknown length. The stream is first copied to a temporary file to determine its length, and then put with putStream(id, in, length).
+     * @param id the registered id.
+     * @param in the stream.
+     */
+    public void putStream(long id, InputStream in) {
+        Path spool = FuncUtils.safeCall(() -> Files.createTempFile("dnacontainer", ".stream"));
+        try {
+            long length = FuncUtils.safeCall(() -> Files.copy(in, spool, StandardCopyOption.REPLACE_EXISTING));
+            FuncUtils.safeRun(() -> {
+                try (InputStream spooled = new BufferedInputStream(Files.newInputStream(spool))) {
+                    putStream(id, spooled, length);
+                }
+            });
+        }
+        finally {
+            FuncUtils.safeRun(() -> Files.deleteIfExists(spool));
+        }
+    }
+
+    /**
+     * Puts the bytes of a stream, i.e., 4 bases per byte, with the same oligo layout as put(id, seq). The stream is read, encoded, and written segment by segment, so that only a batch of segments is in memory.
+     * The root oligo, which carries the header, is written last, so that the object is not visible before all its segments are written.
+     * @param id the registered id.
+     * @param in the stream.
+     * @param length the number of bytes to read from the stream.
+     */
+    public void putStream(long id, InputStream in, long length) {
+        checkRegistered(id);
+        if (length < 0L || length > Integer.MAX_VALUE / 4 - payloadOffset)
+            throw new RuntimeException("length must be in [0, " + (Integer.MAX_VALUE / 4 - payloadOffset) + "]");
+
+        int numSegmentsMinusOne = numSegmentsMinusOne((int) length * 4);
+        int splitLength = segmentationCoder.splitLength();
+        long firstSegmentId = numSegmentsMinusOne == 0 ? -1L : gen.getRange(numSegmentsMinusOne);
+        markSegmentIds(firstSegmentId, numSegmentsMinusOne);
+        StreamedBases bases = new StreamedBases(in, length);
+
+        BaseSequence rootSegment = BaseSequence.join(
+                DNAPacker.pack(firstSegmentId, DNAPacker.LengthBase.INT_64),
+                DNAPacker.pack(numSegmentsMinusOne, sizedHeaderLengthBase),
+                bases.next(splitLength - payloadOffset));
+        var rootId = addressManager.routeAndTranslate(id);
+        AddressedDNA root = encodeSegment(rootId.translated(), segmentationCoder.encode(rootSegment)[0]);
+
+        for (int from = 0; from < numSegmentsMinusOne; from += STREAM_BATCH_SIZE) {
+            int count = Math.min(STREAM_BATCH_SIZE, numSegmentsMinusOne - from);
+            BaseSequence[] segments = new BaseSequence[count];
+            for (int i = 0; i < count; i++)
+                segments[i] = bases.next(splitLength);
+
+            long batchStartId = firstSegmentId + from;
+            List<AddressManager.ManagedAddress<Long, BaseSequence>> keys = addressManager.routeAndTranslateAll(LongStream.range(batchStartId, batchStartId + count).boxed().toList());
+            AddressedDNA[] oligos = new AddressedDNA[count];
+            FuncUtils.stream(IntStream.range(0, count), isParallel).forEach(i -> oligos[i] = encodeSegment(keys.get(i).translated(), segmentationCoder.encode(segments[i])[0]));
+            store.putAll(keys, Arrays.asList(oligos));
+        }
+
+        store.putAll(List.of(rootId), List.of(root));
+        invalidateDecoded(rootId.routed());
+    }
+
+    /**
+     * Writes the bytes of an object that was put with putStream to a stream. The oligos are read and decoded segment by segment, so that only a batch of segments is in memory.
+     * @param id the id.
+     * @param out the stream.
+     * @return the number of written bytes, or -1 if id is not present.
+     */
+    public long getStream(long id, OutputStream out) {
+        AddressedDNA root = store.get(id);
+        if (root == null)
+            return -1L;
+
+        BaseSequence rootPayload = segmentationCoder.decode(new BaseSequence[] {payloadDistanceCoder.decode(root).payload()});
+        long nextId = DNAPacker.LengthBase.INT_64.unpackSingle(rootPayload).longValue();
+        int numSegmentsMinusOne = sizedHeaderLengthBase.unpackSingle(rootPayload.window(DNAPacker.LengthBase.INT_64.totalSize())).intValue();
+        BaseSequence pending = writeBytes(rootPayload.window(payloadOffset), out);
+        long written = (rootPayload.length() - payloadOffset - pending.length()) / 4;
+
+        for (int from = 0; from < numSegmentsMinusOne; from += STREAM_BATCH_SIZE) {
+            int count = Math.min(STREAM_BATCH_SIZE, numSegmentsMinusOne - from);
+            long batchStartId = nextId + from;
+            AddressedDNA[] oligos = store.getAll(batchStartId, count);
+            BaseSequence[] payloads = new BaseSequence[count];
+            FuncUtils.stream(IntStream.range(0, count), isParallel).forEach(i -> {
+                if (oligos[i] == null)
+                    throw new RuntimeException("segment with id=" + (batchStartId + i) + " of id=" + id + " is missing");
+                payloads[i] = payloadDistanceCoder.decode(oligos[i]).payload();
+            });
+            BaseSequence decoded = BaseSequence.join(pending, segmentationCoder.decode(payloads));
+            pending = writeBytes(decoded, out);
+            written += (decoded.length() - pending.length()) / 4;
+        }
+
+        if (pending.length() != 0)
+            throw new RuntimeException("object with id=" + id + " is not a byte stream. Reason: its length is not a multiple of 4");
+
+        return written;
+    }
+
+    /**
+     * Writes the bytes of the longest prefix of seq whose length is a multiple of 4.
+     * @return the remaining bases.
+     */
+    private static BaseSequence writeBytes(BaseSequence seq, OutputStream out) {
+        int full = seq.length() & ~3;
+        byte[] bytes = new byte[full >>> 2];
+        SeqBitStringConverter.transform(seq.window(0, full), bytes, 0);
+        FuncUtils.safeRun(() -> out.write(bytes));
+        return seq.subSequence(full, seq.length());
+    }
+
+    /**
+     * Registers n contiguous ids for the segments of objects.
+     * @param n the number of ids.
+     * @return the managed ids.
+     */
+    @Override
+    public List<AddressManager.ManagedAddress<Long, BaseSequence>> registerManagedIds(int n) {
+        List<AddressManager.ManagedAddress<Long, BaseSequence>> managedIds = DNAContainer.super.registerManagedIds(n);
+        if (n > 0)
+            markSegmentIds(managedIds.get(0).original(), n);
+        return managedIds;
+    }
+
+    private void markSegmentIds(long firstId, int n) {
+        for (long id = firstId; id < firstId + n; id++)
+            segmentIds.set(id);
+    }
+
+    /**
+     * @param id the id.
+     * @return true if the id was registered for a segment of an object, i.e., it is not the id of an object.
+     */
+    boolean isSegmentId(long id) {
+        return segmentIds.isSet(id);
+    }
+
+    void checkRegistered(long id) {
         if (id >= gen.getCurrentNextFreeId())
             throw new RuntimeException("id=" + id + " not registered");
+    }
 
-        int numSegmentsMinusOne = segmentationCoder.numSegments(seq.length() + sizedHeaderLengthBase.totalSize() + DNAPacker.LengthBase.INT_64.totalSize()) - 1;
+    /**
+     * @param seq the object.
+     * @return the number of oligos of the object minus one, i.e., the number of managed ids it needs besides its own id.
+     */
+    int numSegmentsMinusOne(BaseSequence seq) {
+        return numSegmentsMinusOne(seq.length());
+    }
+
+    private int numSegmentsMinusOne(int length) {
+        int numSegmentsMinusOne = segmentationCoder.numSegments(length + payloadOffset) - 1;
         if (DNAPacker.pack(numSegmentsMinusOne, sizedHeaderLengthBase).length() > sizedHeaderLengthBase.totalSize())
             throw new RuntimeException("payload too large for the specified sizedHeaderLengthBase. Consider using a larger sizedHeaderLengthBase (Packer.Type)!");
 
-        List<AddressManager.ManagedAddress<Long, BaseSequence>> managedIds = registerManagedIds(numSegmentsMinusOne);
+        return numSegmentsMinusOne;
+    }
 
+    /**
+     * Prefixes the object with its header and splits it into segments.
+     * @param seq the object.
+     * @param numSegmentsMinusOne the number of segments minus one.
+     * @param firstSegmentId the id of the second segment, or -1 if the object has a single segment.
+     * @return the segments.
+     */
+    BaseSequence[] segment(BaseSequence seq, int numSegmentsMinusOne, long firstSegmentId) {
         BaseSequence sizedPayload = BaseSequence.join(
-                DNAPacker.pack(managedIds.isEmpty() ? -1L : managedIds.get(0).original(), DNAPacker.LengthBase.INT_64),
+                DNAPacker.pack(firstSegmentId, DNAPacker.LengthBase.INT_64),
                 DNAPacker.pack(numSegmentsMinusOne, sizedHeaderLengthBase),
                 seq);
 
-        var segments = segmentationCoder.encode(sizedPayload);
-        var addressedSegments = new AddressedDNA[segments.length];
-        var rootId = addressManager.routeAndTranslate(id);
-        addressedSegments[0] = payloadDistanceCoder.encode(new AddressedDNA(rootId.translated(), segments[0]));
-        store.put(rootId, addressedSegments[0]);
+        return segmentationCoder.encode(sizedPayload);
+    }
 
-        FuncUtils.stream(IntStream.range(0, managedIds.size()), isParallel).forEach(i -> {
-            addressedSegments[i + 1] = payloadDistanceCoder.encode(new AddressedDNA(managedIds.get(i).translated(), segments[i + 1]));
-            store.put(managedIds.get(i), addressedSegments[i + 1]);
-        });
+    AddressedDNA encodeSegment(BaseSequence address, BaseSequence segment) {
+        return payloadDistanceCoder.encode(new AddressedDNA(address, segment));
+    }
+
+    void invalidateDecoded(long routedRootId) {
+        if (decodedCache != null)
+            decodedCache.invalidate(routedRootId);
     }
 
     @Override
     public AddressedDNA[] getOligos(long id) {
-        AddressedDNA root = store.get(id);
-        if (root == null)
-            return null;
+        FetchedOligos fetched = fetchOligos(id);
+        return fetched == null ? null : fetched.oligos();
+    }
 
-        var payload = payloadDistanceCoder.decode(root).payload();
-        BaseSequence header = segmentationCoder.decode(new BaseSequence[] {payload});
+    /**
+     * Returns the object stored at id. The root oligo is only decoded once, i.e., its payload decoded for reading the header is reused for assembling the object.
+     * If the decoded-object cache is enabled, the object is cached by the routed id of its root oligo and a copy of it is returned.
+     * @param id the id.
+     * @return the object, or null if id is not present.
+     */
+    @Override
+    public BaseSequence get(Long id) {
+        if (decodedCache == null) {
+            var sized = getSized(id);
+            return sized == null ? null : sized.window(payloadOffset);
+        }
 
-        long nextId = DNAPacker.LengthBase.INT_64.unpackSingle(header).longValue();
-        int numSegments = sizedHeaderLengthBase.unpackSingle(header.window(DNAPacker.LengthBase.INT_64.totalSize())).intValue() + 1;
-        AddressedDNA[] oligos = new AddressedDNA[numSegments];
-        oligos[0] = root;
+        Long routed = addressManager.addressRoutingManager().get(id).routed();
+        if (routed == null)
+            return null;
 
-        int c = 1;
-        while(c < numSegments)
-            oligos[c++] = store.get(nextId++);
+        BaseSequence cached = decodedCache.get(routed);
+        if (cached != null)
+            return cached.clone();
 
-        return oligos;
+        long stamp = decodedCache.stamp();
+        var sized = getSized(id);
+        if (sized == null)
+            return null;
+
+        BaseSequence seq = sized.subSequence(payloadOffset, sized.length());
+        decodedCache.put(routed, seq, stamp);
+        return seq.clone();
     }
 
     @Override
-    public BaseSequence get(Long id) {
-        var oligos = getOligos(id);
-        return oligos == null? null : assembleFromOligos(oligos);
+    public boolean remove(Long key) {
+        Long routed = decodedCache == null ? null : addressManager.addressRoutingManager().get(key).routed();
+        boolean removed = DNAContainer.super.remove(key);
+        if (routed != null)
+            decodedCache.invalidate(routed);
+
+        return removed;
     }
 
     @Override
@@ -120,8 +363,22 @@ public class SizedDNAContainer extends Container.LinearLongContainer<BaseSequenc
     }
 
     public BaseSequence getSized(long id) {
-        var oligos = getOligos(id);
-        return oligos == null? null : assembleSizedFromOligos(oligos);
+        FetchedOligos fetched = fetchOligos(id);
+        if (fetched == null)
+            return null;
+
+        AddressedDNA[] oligos = fetched.oligos();
+        BaseSequence[] payloads = new BaseSequence[oligos.length];
+        payloads[0] = fetched.rootPayload();
+        FuncUtils.stream(IntStream.range(1, oligos.length), isParallel).forEach(i -> payloads[i] = payloadDistanceCoder.decode(oligos[i]).payload());
+        return segmentationCoder.decode(payloads);
+    }
+
+    /**
+     * @return the decoded-object cache, or null if it is disabled.
+     */
+    public WTinyLFUCache<BaseSequence> getDecodedCache() {
+        return decodedCache;
     }
 
     @Override
@@ -142,6 +399,110 @@ public class SizedDNAContainer extends Container.LinearLongContainer<BaseSequenc
         return segmentationCoder.decode(Arrays.stream(oligos).map(payloadDistanceCoder::decode).map(AddressedDNA::payload).toArray(BaseSequence[]::new));
     }
 
+    private FetchedOligos fetchOligos(long id) {
+        AddressedDNA root = store.get(id);
+        if (root == null)
+            return null;
+
+        var payload = decodePayload(root);
+        RootHeader header = rootHeader(payload);
+        int numSegments = header.numSegments();
+        AddressedDNA[] oligos = new AddressedDNA[numSegments];
+        oligos[0] = root;
+        if (numSegments > 1)
+            System.arraycopy(store.getAll(header.nextId(), numSegments - 1), 0, oligos, 1, numSegments - 1);
+
+        return new FetchedOligos(oligos, payload);
+    }
+
+    /**
+     * Scans the objects with contiguous reads of the oligos of each range of ids, and decodes the ranges in parallel. See ContainerScan.scan.
+     * The decoded-object cache is neither read nor filled by a scan.
+     * @param options the options.
+     * @return the objects by their ids.
+     */
+    @Override
+    public Stream<Pair<Long, BaseSequence>> scan(ScanOptions options) {
+        return ContainerScan.scan(this, options);
+    }
+
+    /**
+     * @return the id after the last registered id.
+     */
+    long idLimit() {
+        return gen.getCurrentNextFreeId();
+    }
+
+    BaseSequence decodePayload(AddressedDNA oligo) {
+        return payloadDistanceCoder.decode(oligo).payload();
+    }
+
+    /**
+     * Reads the header of the decoded payload of a root oligo.
+     * @param rootPayload the decoded payload.
+     * @return the header.
+     */
+    RootHeader rootHeader(BaseSequence rootPayload) {
+        BaseSequence header = segmentationCoder.decode(new BaseSequence[] {rootPayload});
+        int nextIdSize = DNAPacker.LengthBase.INT_64.totalSize();
+        long nextId = DNAPacker.LengthBase.INT_64.unpackSingle(header).longValue();
+        int numSegments = sizedHeaderLengthBase.unpackSingle(header.window(nextIdSize)).intValue() + 1;
+        return new RootHeader(nextId, numSegments);
+    }
+
+    /**
+     * Assembles an object from the decoded payloads of its oligos.
+     * @param payloads the decoded payloads, starting with the root oligo's.
+     * @return the object.
+     */
+    BaseSequence assemble(BaseSequence[] payloads) {
+        return segmentationCoder.decode(payloads).window(payloadOffset);
+    }
+
+    /**
+     * Reads the bytes of a stream as bases on demand, so that only the bases of the requested segments are in memory.
+     */
+    private static final class StreamedBases {
+        private final InputStream in;
+        private long remainingBytes;
+        private BaseSequence buffered;
+
+        StreamedBases(InputStream in, long length) {
+            this.in = in;
+            this.remainingBytes = length;
+            this.buffered = new BaseSequence();
+        }
+
+        BaseSequence next(int count) {
+            int missing = count - buffered.length();
+            if (missing > 0 && remainingBytes > 0L) {
+                int n = (int) Math.min(remainingBytes, (missing + 3) >>> 2);
+                byte[] bytes = FuncUtils.safeCall(() -> in.readNBytes(n));
+                if (bytes.length != n)
+                    throw new RuntimeException("stream ended " + (remainingBytes - bytes.length) + " bytes before the specified length");
+
+                remainingBytes -= n;
+                buffered = BaseSequence.join(buffered, SeqBitStringConverter.transform(bytes, 0, n));
+            }
+            int taken = Math.min(count, buffered.length());
+            BaseSequence result = buffered.subSequence(0, taken);
+            buffered = buffered.subSequence(taken, buffered.length());
+            return result;
+        }
+    }
+
+    /**
+     * The header of a root oligo, i.e., the id of the object's second oligo, or -1 if it has a single oligo, and the number of its oligos.
+     */
+    record RootHeader(long nextId, int numSegments) {
+    }
+
+    /**
+     * The oligos of an object and the decoded payload of its root oligo.
+     */
+    private record FetchedOligos(AddressedDNA[] oligos, BaseSequence rootPayload) {
+    }
+
     @Override
     public int getAddressSize() {
         return addressManager.addressSize();
@@ -180,7 +541,11 @@ public class SizedDNAContainer extends Container.LinearLongContainer<BaseSequenc
         public static final DNARule DEFAULT_DNA_RULES = BasicDNARules.INSTANCE;
 
         public static final Function<AddressManager<Long, BaseSequence>, DNAStorage> DEFAULT_STORE_NOT_PERSISTENT = DNAStorageMap::new;
-        public static final BiFunction<AddressManager<Long, BaseSequence>, Integer, DNAStorage> DEFAULT_STORE_PERSISTENT = (am, payloadSize) -> new DNAStorageDisk(am, payloadSize, "dnacontainer.store");
+        public static final long DEFAULT_CACHE_SIZE = 0L;
+        public static final long DEFAULT_DECODED_CACHE_SIZE = 0L;
+        public static final BiFunction<AddressManager<Long, BaseSequence>, Integer, DNAStorage> DEFAULT_STORE_PERSISTENT = (am, payloadSize) -> new DNAStorageDisk(am, LongHashTable.create("dnacontainer.routing"), payloadSize, "dnacontainer.store");
+
+        public static final String DEFAULT_SEGMENT_IDS_PATH_PERSISTENT = "dnacontainer.segments";
 
         public static final Supplier<DNAAddrManager> DEFAULT_ADDRESS_TRANSLATION_MANAGER_SUPP =
                 () -> DNAAddrManager
@@ -209,6 +574,9 @@ public class SizedDNAContainer extends Container.LinearLongContainer<BaseSequenc
 
         private DNAPacker.LengthBase sizedHeaderLengthBase;
         private DNAStorage store;
+        private String segmentIdsPath;
+        private Long cacheSize;
+        private Long decodedCacheSize;
         private AddressManager<Long, BaseSequence> addressManager;
         private LSH<BaseSequence> oligoLSH;
 
@@ -280,6 +648,16 @@ public class SizedDNAContainer extends Container.LinearLongContainer<BaseSequenc
                 case CUSTOM -> store;
             };
 
+            this.cacheSize = FuncUtils.conditionOrElse(x -> x != null && x >= 0L, cacheSize, () -> DEFAULT_CACHE_SIZE);
+            DNAStorage containerStore = cacheSize > 0L ? new CachedDNAStorage(store, cacheSize, payloadSize) : store;
+            this.decodedCacheSize = FuncUtils.conditionOrElse(x -> x != null && x >= 0L, decodedCacheSize, () -> DEFAULT_DECODED_CACHE_SIZE);
+
+            this.segmentIdsPath = FuncUtils.nullEscape(segmentIdsPath, () -> storeType == DNAStoreType.DISK_PERSISTENT ? DEFAULT_SEGMENT_IDS_PATH_PERSISTENT : temporarySegmentIdsPath());
+            // segment ids of an empty store are left over from an earlier container
+            if (store.size() == 0L)
+                FuncUtils.safeRun(() -> Files.deleteIfExists(Path.of(segmentIdsPath)));
+            TombstoneBitmap segmentIds = TombstoneBitmap.open(segmentIdsPath);
+
             return new SizedDNAContainer(
                     isParallel,
                     segmentationCoder,
@@ -287,11 +665,19 @@ public class SizedDNAContainer extends Container.LinearLongContainer<BaseSequenc
                     oligoLSH,
                     payloadSize,
                     sizedHeaderLengthBase,
-                    store,
-                    addressManager
+                    containerStore,
+                    addressManager,
+                    decodedCacheSize,
+                    segmentIds
             );
         }
 
+        private static String temporarySegmentIdsPath() {
+            Path path = FuncUtils.safeCall(() -> Files.createTempFile("dnacontainer", ".segments"));
+            path.toFile().deleteOnExit();
+            return path.toString();
+        }
+
         public Builder setPayloadSize(int payloadSize) {
             this.payloadSize = payloadSize;
             return this;
@@ -320,6 +706,37 @@ public class SizedDNAContainer extends Container.LinearLongContainer<BaseSequenc
             return this;
         }
 
+        /**
+         * Sets the file of the bitmap that marks the ids of segments, which a scan needs to tell objects from segments. If the store already holds oligos, the bitmap is loaded from the file, so that a container rebuilt on a persistent store scans its objects.
+         * By default, the persistent default store uses dnacontainer.segments, and other stores use a temporary file.
+         * @param segmentIdsPath the path of the bitmap file.
+         * @return this builder.
+         */
+        public Builder setSegmentIdsPath(String segmentIdsPath) {
+            this.segmentIdsPath = segmentIdsPath;
+            return this;
+        }
+
+        /**
+         * Puts a CachedDNAStorage in front of the store.
+         * @param cacheSize the byte budget of the cached oligos. 0 disables the cache.
+         * @return this builder.
+         */
+        public Builder setCacheSize(long cacheSize) {
+            this.cacheSize = cacheSize;
+            return this;
+        }
+
+        /**
+         * Caches the decoded objects returned by get(id).
+         * @param decodedCacheSize the byte budget of the cached objects. 0 disables the cache.
+         * @return this builder.
+         */
+        public Builder setDecodedCacheSize(long decodedCacheSize) {
+            this.decodedCacheSize = decodedCacheSize;
+            return this;
+        }
+
         public Builder setOligoLSH(LSH<BaseSequence> oligoLSH) {
             this.oligoLSH = oligoLSH;
             return this;
@@ -0,0 +1,159 @@
+package datastructures.container.impl;
+
+import utils.FuncUtils;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A memory-mapped bitmap that marks deleted records by their index. Bits are set and cleared with atomic compare-and-set operations, i.e., without locking. The file grows when a bit beyond its end is set.
+ */
+public class TombstoneBitmap implements AutoCloseable {
+    private static final VarHandle WORDS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+    private static final long INITIAL_SIZE = 1L << 12;
+
+    private final Path path;
+    private final FileChannel fc;
+    private final AtomicLong count;
+    private volatile MappedByteBuffer buffer;
+
+    private TombstoneBitmap(Path path) {
+        this.path = path;
+        this.fc = FuncUtils.safeCall(() -> FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE));
+        long fileSize = FuncUtils.safeCall(fc::size);
+        this.buffer = map(Math.max(INITIAL_SIZE, fileSize + Long.BYTES - 1L & -Long.BYTES));
+        long c = 0L;
+        for (int pos = 0; pos < buffer.capacity(); pos += Long.BYTES)
+            c += Long.bitCount((long) WORDS.get(buffer, pos));
+        this.count = new AtomicLong(c);
+    }
+
+    /**
+     * Opens the bitmap stored at filePath, or creates it if the file does not exist.
+     * @param filePath the path of the bitmap file.
+     * @return the bitmap.
+     */
+    public static TombstoneBitmap open(String filePath) {
+        return new TombstoneBitmap(Path.of(filePath));
+    }
+
+    /**
+     * Marks the record at index as deleted.
+     * @param index the index.
+     * @return true if the record was not marked before.
+     */
+    public boolean set(long index) {
+        int pos = wordPosition(index);
+        if (pos >= buffer.capacity())
+            grow(pos);
+
+        long bit = 1L << (index & 63);
+        MappedByteBuffer b = buffer;
+        long word;
+        do {
+            word = (long) WORDS.getVolatile(b, pos);
+            if ((word & bit) != 0L)
+                return false;
+        } while (!WORDS.compareAndSet(b, pos, word, word | bit));
+
+        count.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Unmarks the record at index.
+     * @param index the index.
+     * @return true if the record was marked before.
+     */
+    public boolean clear(long index) {
+        int pos = wordPosition(index);
+        MappedByteBuffer b = buffer;
+        if (pos >= b.capacity())
+            return false;
+
+        long bit = 1L << (index & 63);
+        long word;
+        do {
+            word = (long) WORDS.getVolatile(b, pos);
+            if ((word & bit) == 0L)
+                return false;
+        } while (!WORDS.compareAndSet(b, pos, word, word & ~bit));
+
+        count.decrementAndGet();
+        return true;
+    }
+
+    /**
+     * @param index the index.
+     * @return true if the record at index is marked as deleted.
+     */
+    public boolean isSet(long index) {
+        int pos = wordPosition(index);
+        MappedByteBuffer b = buffer;
+        return pos < b.capacity() && ((long) WORDS.getVolatile(b, pos) & (1L << (index & 63))) != 0L;
+    }
+
+    /**
+     * @return the number of marked records.
+     */
+    public long count() {
+        return count.get();
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * Writes all changes of the memory-mapped file to the storage device.
+     */
+    public void force() {
+        buffer.force();
+    }
+
+    @Override
+    public void close() {
+        force();
+        FuncUtils.safeRun(fc::close);
+    }
+
+    /**
+     * Closes and deletes the bitmap file.
+     */
+    public void delete() {
+        FuncUtils.safeRun(fc::close);
+        FuncUtils.safeRun(() -> Files.deleteIfExists(path));
+    }
+
+    private static int wordPosition(long index) {
+        if (index < 0L)
+            throw new RuntimeException("index must be >= 0");
+
+        return Math.toIntExact((index >>> 6) << 3);
+    }
+
+    private synchronized void grow(int pos) {
+        long size = buffer.capacity();
+        if (pos < size)
+            return;
+
+        while (size <= pos)
+            size <<= 1;
+        // both mappings share the same pages, so concurrent updates of the old mapping are not lost
+        buffer = map(Math.min(size, Integer.MAX_VALUE & -Long.BYTES));
+    }
+
+    private MappedByteBuffer map(long size) {
+        MappedByteBuffer mapped = FuncUtils.safeCall(() -> fc.map(FileChannel.MapMode.READ_WRITE, 0L, size));
+        if (mapped.order(ByteOrder.nativeOrder()) != mapped)
+            throw new RuntimeException("failed mapping " + path);
+
+        return mapped;
+    }
+}
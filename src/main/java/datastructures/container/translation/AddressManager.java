@@ -3,6 +3,7 @@ package datastructures.container.translation;
 import datastructures.container.Container;
 import utils.Coder;
 import java.util.Collection;
+import java.util.List;
 import java.util.Objects;
 import java.util.Set;
 import java.util.function.Supplier;
@@ -44,6 +45,15 @@ public interface AddressManager<F, T> extends Coder<F, AddressManager.ManagedAdd
         return ManagedAddress.of(routed, translatedAddress);
     }
 
+    /**
+     * Routes and translates a batch of addresses. Implementations may generate and commit the new addresses of the batch together, which is cheaper than translating them one by one.
+     * @param originals the addresses to route and translate.
+     * @return the managed addresses in the order of originals.
+     */
+    default List<ManagedAddress<F, T>> routeAndTranslateAll(List<F> originals) {
+        return originals.stream().map(this::routeAndTranslate).toList();
+    }
+
     default RoutingManager.RoutedAddress<F> route(F original) {
         return addressRoutingManager().route(original);
     }
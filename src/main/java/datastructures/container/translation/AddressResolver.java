@@ -0,0 +1,178 @@
+package datastructures.container.translation;
+
+import core.BaseSequence;
+import utils.FuncUtils;
+import utils.lsh.minhash.MinHashLSH;
+import utils.lsh.storage.LSHStorage;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Resolves noisy addresses, e.g., the address regions of sequenced reads with substitutions and indels, to the barcodes of a DNAAddrManager.
+ * Candidate barcodes are found by q-gram MinHash LSH with many small bands (OR amplification), which tolerates a few edits, and are verified by a banded edit distance.
+ */
+public class AddressResolver {
+    public static final int DEFAULT_Q = 10;
+    public static final int DEFAULT_NUM_BANDS = 32;
+    public static final int DEFAULT_BAND_SIZE = 2;
+
+    private final DNAAddrManager addressManager;
+    private final MinHashLSH.Traditional<BaseSequence> lsh;
+    private final int addrSize;
+    private final int maxDistance;
+
+    /**
+     * Creates an AddressResolver with the default q-gram length and banding.
+     * @param addressManager the address manager whose barcodes are resolved.
+     * @param maxDistance the maximum edit distance of a read to its barcode.
+     */
+    public AddressResolver(DNAAddrManager addressManager, int maxDistance) {
+        this(addressManager, maxDistance, DEFAULT_Q, DEFAULT_NUM_BANDS, DEFAULT_BAND_SIZE);
+    }
+
+    /**
+     * Creates an AddressResolver and indexes all barcodes that are currently assigned by the address manager.
+     * @param addressManager the address manager whose barcodes are resolved.
+     * @param maxDistance the maximum edit distance of a read to its barcode.
+     * @param q the length of the q-grams.
+     * @param numBands the number of LSH bands. A barcode is a candidate if any band matches.
+     * @param bandSize the number of MinHash values per band.
+     */
+    public AddressResolver(DNAAddrManager addressManager, int maxDistance, int q, int numBands, int bandSize) {
+        if (maxDistance < 0)
+            throw new RuntimeException("maxDistance must be >= 0");
+
+        this.addressManager = addressManager;
+        this.addrSize = addressManager.getAddressSize();
+        this.maxDistance = maxDistance;
+        this.lsh = MinHashLSH.newSeqAmpLSHTraditional(q, numBands * bandSize, numBands, LSHStorage.AmplifiedLSHStorage.Amplification.OR);
+        this.lsh.insertParallel(addressManager.addressTranslationManager().container().values());
+    }
+
+    /**
+     * Adds a barcode that was assigned after this instance was created.
+     * @param barcode the barcode.
+     */
+    public void index(BaseSequence barcode) {
+        lsh.insert(barcode);
+    }
+
+    /**
+     * Resolves a read to the barcode with the smallest edit distance. The barcode is aligned to the start of the read, and the bases of the read after the barcode are ignored.
+     * @param read the read, or its address region.
+     * @return the best match, or null if no barcode is within maxDistance.
+     */
+    public Match resolve(BaseSequence read) {
+        if (read.length() >= addrSize) {
+            BaseSequence exact = read.length() == addrSize ? read : read.window(0, addrSize);
+            AddressManager.ManagedAddress<Long, BaseSequence> managed = addressManager.resolve(exact);
+            if (managed != null)
+                return new Match(managed, 0);
+        }
+
+        BaseSequence region = read.length() > addrSize ? read.window(0, addrSize) : read;
+        Set<BaseSequence> candidates = lsh.candidates(region);
+        byte[] readBases = toOrdinals(read, addrSize + maxDistance);
+        BaseSequence best = null;
+        int bestDistance = maxDistance + 1;
+        for (BaseSequence candidate : candidates) {
+            int distance = bandedEditDistance(toOrdinals(candidate, addrSize), readBases, Math.min(maxDistance, bestDistance - 1));
+            if (distance < bestDistance) {
+                best = candidate;
+                bestDistance = distance;
+            }
+        }
+        if (best == null)
+            return null;
+
+        AddressManager.ManagedAddress<Long, BaseSequence> managed = addressManager.resolve(best);
+        return managed == null ? null : new Match(managed, bestDistance);
+    }
+
+    /**
+     * Resolves a batch of reads in parallel.
+     * @param reads the reads.
+     * @return the best matches in the order of reads. Reads without a match within maxDistance are mapped to null.
+     */
+    public List<Match> resolveAll(Collection<BaseSequence> reads) {
+        return Arrays.asList(FuncUtils.stream(reads.stream(), true).map(this::resolve).toArray(Match[]::new));
+    }
+
+    public int getMaxDistance() {
+        return maxDistance;
+    }
+
+    /**
+     * Computes the edit distance of a barcode to a prefix of a read, i.e., trailing bases of the read are free. Only cells within maxDistance of the diagonal are computed.
+     * @param barcode the barcode.
+     * @param read the read.
+     * @param maxDistance the maximum distance of interest.
+     * @return the edit distance, or maxDistance + 1 if it exceeds maxDistance.
+     */
+    public static int bandedEditDistance(BaseSequence barcode, BaseSequence read, int maxDistance) {
+        return bandedEditDistance(toOrdinals(barcode, barcode.length()), toOrdinals(read, barcode.length() + maxDistance), maxDistance);
+    }
+
+    private static int bandedEditDistance(byte[] barcode, byte[] read, int maxDistance) {
+        int n = barcode.length;
+        int m = Math.min(read.length, n + maxDistance);
+        int inf = maxDistance + 1;
+        if (n - m > maxDistance)
+            return inf;
+
+        int[] prev = new int[m + 2];
+        int[] cur = new int[m + 2];
+        Arrays.fill(prev, inf);
+        Arrays.fill(cur, inf);
+        for (int j = 0; j <= Math.min(m, maxDistance); j++)
+            prev[j] = j;
+
+        for (int i = 1; i <= n; i++) {
+            int lo = Math.max(1, i - maxDistance);
+            int hi = Math.min(m, i + maxDistance);
+            cur[lo - 1] = lo == 1 ? Math.min(i, inf) : inf;
+            int rowMin = cur[lo - 1];
+            byte b = barcode[i - 1];
+            for (int j = lo; j <= hi; j++) {
+                int cost = b == read[j - 1] ? 0 : 1;
+                int d = Math.min(prev[j - 1] + cost, Math.min(prev[j], cur[j - 1]) + 1);
+                cur[j] = Math.min(d, inf);
+                rowMin = Math.min(rowMin, cur[j]);
+            }
+            cur[hi + 1] = inf;
+            if (rowMin > maxDistance)
+                return inf;
+
+            int[] tmp = prev;
+            prev = cur;
+            cur = tmp;
+        }
+
+        int result = inf;
+        for (int j = Math.max(0, n - maxDistance); j <= m; j++)
+            result = Math.min(result, prev[j]);
+
+        return result;
+    }
+
+    private static byte[] toOrdinals(BaseSequence seq, int maxLength) {
+        byte[] ordinals = new byte[Math.min(seq.length(), maxLength)];
+        for (int i = 0; i < ordinals.length; i++)
+            ordinals[i] = (byte) seq.get(i).ordinal();
+
+        return ordinals;
+    }
+
+    /**
+     * The barcode that matches a read best.
+     * @param address the managed address of the barcode.
+     * @param distance the edit distance of the read to the barcode.
+     */
+    public record Match(AddressManager.ManagedAddress<Long, BaseSequence> address, int distance) {
+        public long id() {
+            return address.original();
+        }
+    }
+}
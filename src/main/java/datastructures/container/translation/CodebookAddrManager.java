@@ -0,0 +1,168 @@
+package datastructures.container.translation;
+
+import core.BaseSequence;
+import datastructures.container.Container;
+import datastructures.container.impl.BarcodeCodebook;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+/**
+ * An AddressManager that serves barcodes from a precomputed BarcodeCodebook. Each new id is routed to the next unused index of the codebook, and translated to the barcode stored at that index.
+ * Hence, translating an address is a lookup, and no distance checks are performed at runtime.
+ */
+public class CodebookAddrManager implements AddressManager<Long, BaseSequence> {
+
+    private final BarcodeCodebook codebook;
+    private final AtomicLong nextIndex;
+    private final AddressRoutingManager addressRoutingManager;
+    private final AddressTranslationManager addressTranslationManager;
+
+    /**
+     * Creates an instance of CodebookAddrManager with a non-persistent routing table.
+     * @param codebook the codebook.
+     */
+    public CodebookAddrManager(BarcodeCodebook codebook) {
+        this(codebook, new Container.MapContainer<>());
+    }
+
+    /**
+     * Creates an instance of CodebookAddrManager.
+     * @param codebook the codebook.
+     * @param addressRoutingContainer the container mapping ids to codebook indexes. If it is not empty, e.g., a loaded persistent container, the next index is continued after the largest routed index, so that indexes still in use are not reassigned after removals.
+     */
+    public CodebookAddrManager(BarcodeCodebook codebook, Container<Long, Long> addressRoutingContainer) {
+        this.codebook = codebook;
+        this.nextIndex = new AtomicLong(addressRoutingContainer.values().stream().mapToLong(Long::longValue).max().orElse(-1L) + 1L);
+        this.addressRoutingManager = new AddressRoutingManager(addressRoutingContainer);
+        this.addressTranslationManager = new AddressTranslationManager();
+    }
+
+    @Override
+    public ManagedAddress<Long, BaseSequence> routeAndTranslate(Long addr) {
+        Long routed = addressRoutingManager.container.get(addr);
+        if (routed == null)
+            routed = assign(addr);
+
+        long index = routed;
+        return ManagedAddress.ofLazy(new RoutingManager.RoutedAddress<>(addr, routed), () -> codebook.get(index));
+    }
+
+    @Override
+    public List<ManagedAddress<Long, BaseSequence>> routeAndTranslateAll(List<Long> originals) {
+        long[] routed = assignAll(originals);
+        return IntStream.range(0, routed.length).mapToObj(i -> {
+            long index = routed[i];
+            return ManagedAddress.<Long, BaseSequence>ofLazy(new RoutingManager.RoutedAddress<>(originals.get(i), index), () -> codebook.get(index));
+        }).toList();
+    }
+
+    private synchronized long[] assignAll(List<Long> originals) {
+        return originals.stream().mapToLong(this::assign).toArray();
+    }
+
+    private synchronized long assign(long addr) {
+        Long routed = addressRoutingManager.container.get(addr);
+        if (routed != null)
+            return routed;
+
+        long index = nextIndex.getAndIncrement();
+        if (index >= codebook.size())
+            throw new RuntimeException("codebook " + codebook.getFilePath() + " is exhausted after " + codebook.size() + " barcodes");
+
+        addressRoutingManager.container.put(addr, index);
+        return index;
+    }
+
+    /**
+     * Removes the routing of the given address. The codebook index is not reused.
+     * @param routedAddress the routed address to remove.
+     */
+    @Override
+    public void remove(RoutingManager.RoutedAddress<Long> routedAddress) {
+        addressRoutingManager.remove(routedAddress);
+    }
+
+    /**
+     * @return the number of codebook barcodes that are not assigned yet.
+     */
+    public long remainingBarcodes() {
+        return Math.max(0L, codebook.size() - nextIndex.get());
+    }
+
+    public BarcodeCodebook getCodebook() {
+        return codebook;
+    }
+
+    @Override
+    public RoutingManager<Long> addressRoutingManager() {
+        return addressRoutingManager;
+    }
+
+    @Override
+    public TranslationManager<Long, BaseSequence> addressTranslationManager() {
+        return addressTranslationManager;
+    }
+
+    private class AddressRoutingManager implements RoutingManager<Long> {
+        final Container<Long, Long> container;
+
+        AddressRoutingManager(Container<Long, Long> container) {
+            this.container = container;
+        }
+
+        @Override
+        public Container<Long, Long> container() {
+            return container;
+        }
+
+        @Override
+        public RoutedAddress<Long> compute(Long original) {
+            return new RoutedAddress<>(original, assign(original));
+        }
+
+        @Override
+        public RoutedAddress<Long> route(Long original) {
+            return compute(original);
+        }
+    }
+
+    private class AddressTranslationManager implements TranslationManager<Long, BaseSequence> {
+
+        @Override
+        public Container<Long, BaseSequence> container() {
+            return codebook;
+        }
+
+        @Override
+        public long size() {
+            return nextIndex.get();
+        }
+
+        @Override
+        public int addressSize() {
+            return codebook.getAddressSize();
+        }
+
+        @Override
+        public boolean addressIsFixedSize() {
+            return true;
+        }
+
+        @Override
+        public void put(Long routed, BaseSequence translated) {
+            if (!translated.equals(codebook.get(routed)))
+                throw new RuntimeException("codebook barcode at index " + routed + " differs from " + translated);
+        }
+
+        @Override
+        public TranslatedAddress<Long, BaseSequence> compute(RoutingManager.RoutedAddress<Long> routedAddress) {
+            return TranslatedAddress.of(routedAddress, codebook.get(routedAddress.routed()));
+        }
+
+        @Override
+        public TranslatedAddress<Long, BaseSequence> translate(RoutingManager.RoutedAddress<Long> routedAddress) {
+            return compute(routedAddress);
+        }
+    }
+}
@@ -4,9 +4,12 @@ import core.BaseSequence;
 import core.dnarules.BasicDNARules;
 import core.dnarules.DNARule;
 import datastructures.container.Container;
+import datastructures.container.impl.BarcodeIndex;
+import datastructures.container.impl.LongHashTable;
 import datastructures.container.impl.PersistentContainer;
 import dnacoders.DistanceCoder;
 import dnacoders.GCFiller;
+import dnacoders.dnaconvertors.RotatingIdCoder;
 import dnacoders.dnaconvertors.RotatingTre;
 import dnacoders.headercoders.BasicDNAPadder;
 import dnacoders.headercoders.PermutationCoder;
@@ -14,15 +17,24 @@ import dnacoders.headercoders.ReedSolomonCoder;
 import utils.*;
 import utils.lsh.LSH;
 import utils.lsh.minhash.MinHashLSH;
-import utils.serializers.FixedSizeSerializer;
+import utils.serializers.PackedSeqSerializer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicLong;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.BiFunction;
 import java.util.function.Function;
 import java.util.function.Supplier;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
-public class DNAAddrManager implements AddressManager<Long, BaseSequence> {
+public class DNAAddrManager implements AddressManager<Long, BaseSequence>, AutoCloseable {
+
+    private static final int NUM_ADDRESS_LOCKS = 64;
+    private static final int PARALLEL_BATCH_SIZE = 32;
 
     private final LSH<BaseSequence> lsh;
     private final Function<Long, BaseSequence> coder;
@@ -32,10 +44,16 @@ public class DNAAddrManager implements AddressManager<Long, BaseSequence> {
     private final double minDist;
     private final int addressTranslationTrials;
     private final AtomicLong size;
-    private final ReadWriteLock addressManagerLock;
+    private final Lock[] addressLocks;
+    private final AtomicLong lshVersion;
+    private final boolean exactLsh;
+    private final Lock reservationLock;
+    private final Queue<BarcodeCandidate> spareBarcodes;
 
     private final AddressTranslationManager addressTranslationManager;
     private final AddressRoutingManager addressRoutingManager;
+    private final Container<BaseSequence, Long> reverseIndex;
+    private final BarcodePool barcodePool;
 
     private DNAAddrManager(
             LSH<BaseSequence> lsh,
@@ -44,7 +62,11 @@ public class DNAAddrManager implements AddressManager<Long, BaseSequence> {
             Coder<Long, BaseSequence> coder,
             int translationTrials,
             Container<Long, Long> addressRoutingContainer,
-            Container<Long, BaseSequence> addressTranslationContainer
+            Container<Long, BaseSequence> addressTranslationContainer,
+            Container<BaseSequence, Long> reverseIndex,
+            int barcodePoolSize,
+            int barcodePoolProducers,
+            ExecutorService barcodePoolExecutor
     ) {
         this.lsh = lsh;
         this.coder = coder;
@@ -54,9 +76,15 @@ public class DNAAddrManager implements AddressManager<Long, BaseSequence> {
         this.addrGen = new UniqueIDGenerator();
         this.addressRoutingManager = new AddressRoutingManager(addressRoutingContainer);
         this.addressTranslationManager = new AddressTranslationManager(addressTranslationContainer);
+        this.reverseIndex = reverseIndex;
         this.badAddresses = new AtomicLong(0L);
-        this.addressManagerLock = new ReentrantReadWriteLock();
+        this.addressLocks = Stream.generate(ReentrantLock::new).limit(NUM_ADDRESS_LOCKS).toArray(Lock[]::new);
+        this.lshVersion = new AtomicLong(0L);
+        this.exactLsh = lsh instanceof MinHashLSH.Traditional<BaseSequence>;
+        this.reservationLock = new ReentrantLock();
+        this.spareBarcodes = new ConcurrentLinkedQueue<>();
         this.size = new AtomicLong(0L);
+        this.barcodePool = barcodePoolSize > 0 ? new BarcodePool(barcodePoolSize, barcodePoolProducers, barcodePoolExecutor) : null;
     }
 
     @Override
@@ -64,74 +92,282 @@ public class DNAAddrManager implements AddressManager<Long, BaseSequence> {
         return routeAndTranslate(addr, true);
     }
 
-    private ManagedAddress<Long, BaseSequence> readManagedAddress(long addr, boolean lockContainers) {
-        try {
-            if (lockContainers)
-                addressManagerLock.readLock().lock();
-            RoutingManager.RoutedAddress<Long> routedAddress = addressRoutingManager.get(addr);
-            if (routedAddress.routed() != null)
-                return ManagedAddress.ofLazy(routedAddress, () -> addressTranslationManager.get(routedAddress).translated());
+    private Lock addressLock(long addr) {
+        return addressLocks[lockIndex(addr)];
+    }
 
-            return null;
-        }
-        finally {
-            if (lockContainers)
-                addressManagerLock.readLock().unlock();
-        }
+    private int lockIndex(long addr) {
+        return Math.floorMod(Long.hashCode(addr), addressLocks.length);
     }
 
-    private void writeNewManagedAddress(long addr, long routed, BaseSequence translated, long addedBadAddresses) {
-        lsh.insert(translated);
-        addressRoutingManager.container.put(addr, routed);
+    /**
+     * Reads the managed address without locking. This is safe since the routing entry is written after the translation entry, i.e., a visible routing entry always has a translation.
+     */
+    private ManagedAddress<Long, BaseSequence> readManagedAddress(long addr) {
+        RoutingManager.RoutedAddress<Long> routedAddress = addressRoutingManager.get(addr);
+        if (routedAddress.routed() != null)
+            return ManagedAddress.ofLazy(routedAddress, () -> addressTranslationManager.get(routedAddress).translated());
+
+        return null;
+    }
+
+    private void writeNewManagedAddress(long addr, long routed, BaseSequence translated, long addedBadAddresses, boolean insertIntoLsh) {
+        if (insertIntoLsh) {
+            lsh.insert(translated);
+            lshVersion.incrementAndGet();
+        }
         addressTranslationManager.container.put(routed, translated);
+        reverseIndex.put(translated, addr);
+        addressRoutingManager.container.put(addr, routed);
         size.incrementAndGet();
         badAddresses.addAndGet(addedBadAddresses);
     }
 
     private ManagedAddress<Long, BaseSequence> routeAndTranslate(Long addr, boolean store) {
-        ManagedAddress<Long, BaseSequence> managed = readManagedAddress(addr, true);
+        ManagedAddress<Long, BaseSequence> managed = readManagedAddress(addr);
         if (managed != null)
             return managed;
 
         return compute(addr, store);
     }
 
+    /**
+     * Computes the managed address of addr. If store is false, the barcode is checked but not reserved in the LSH, since it is not committed.
+     */
     public ManagedAddress<Long, BaseSequence> compute(long addr, boolean store) {
+        BarcodeCandidate candidate = store ? pollReserved() : null;
+        if (candidate == null)
+            candidate = generateBarcode(store);
+
+        Lock lock = addressLock(addr);
+        lock.lock();
+        try {
+            ManagedAddress<Long, BaseSequence> managed = readManagedAddress(addr);
+            if (managed != null) {
+                release(candidate);
+                return managed;
+            }
+            if (store)
+                writeNewManagedAddress(addr, candidate.routed, candidate.barcode, candidate.numBadAddresses, !candidate.isReserved);
+        }
+        finally {
+            lock.unlock();
+        }
+
+        return new ManagedAddress<>(addr, candidate.routed, candidate.barcode);
+    }
+
+    /**
+     * Resolves an observed barcode, e.g., the address of a sequenced oligo, to its managed address with a lookup in the reverse index.
+     * The reverse index maps a barcode to the original id that was last routed to it, and the result is verified against the routing of that id.
+     * @param address the barcode.
+     * @return the managed address of the barcode, or null if the barcode is not assigned or no original id is routed to it.
+     */
+    public ManagedAddress<Long, BaseSequence> resolve(BaseSequence address) {
+        Long original = reverseIndex.get(address);
+        if (original == null)
+            return null;
+
+        ManagedAddress<Long, BaseSequence> managed = readManagedAddress(original);
+        return managed != null && address.equals(managed.translated()) ? managed : null;
+    }
+
+    /**
+     * Generates and reserves a barcode with a sufficient distance to the barcodes in the LSH without routing an id to it, e.g., to fill a BarcodeCodebook.
+     * @return the barcode, or null if no barcode with a sufficient distance was found within addressTranslationTrials trials.
+     */
+    public BaseSequence generateDistantBarcode() {
+        BarcodeCandidate candidate = pollReserved();
+        if (candidate == null)
+            candidate = generateBarcode();
+
+        badAddresses.addAndGet(candidate.numBadAddresses);
+        return candidate.isReserved ? candidate.barcode : null;
+    }
+
+    @Override
+    public void remove(RoutingManager.RoutedAddress<Long> routedAddress) {
+        BaseSequence translated = addressTranslationManager.get(routedAddress).translated();
+        addressRoutingManager.remove(routedAddress);
+        if (translated != null) {
+            if (routedAddress.original().equals(reverseIndex.get(translated)))
+                reverseIndex.remove(translated);
+            addressTranslationManager.remove(routedAddress);
+        }
+    }
+
+    public Container<BaseSequence, Long> getReverseIndex() {
+        return reverseIndex;
+    }
+
+    @Override
+    public List<ManagedAddress<Long, BaseSequence>> routeAndTranslateAll(List<Long> originals) {
+        return routeAndTranslateAll(originals.stream().mapToLong(Long::longValue).toArray());
+    }
+
+    /**
+     * Routes and translates a batch of addresses. The barcodes of all new addresses are generated and validated together, and committed with a single acquisition of the involved locks.
+     * @param ids the addresses to route and translate.
+     * @return the managed addresses in the order of ids.
+     */
+    public List<ManagedAddress<Long, BaseSequence>> routeAndTranslateAll(long[] ids) {
+        List<ManagedAddress<Long, BaseSequence>> result = new ArrayList<>(ids.length);
+        List<Integer> missing = new ArrayList<>();
+        for (int i = 0; i < ids.length; i++) {
+            ManagedAddress<Long, BaseSequence> managed = readManagedAddress(ids[i]);
+            result.add(managed);
+            if (managed == null)
+                missing.add(i);
+        }
+        if (missing.isEmpty())
+            return result;
+
+        BarcodeCandidate[] candidates = generateBarcodes(missing.size());
+        List<Lock> locks = missing.stream().mapToInt(i -> lockIndex(ids[i])).distinct().sorted().mapToObj(i -> addressLocks[i]).toList();
+        locks.forEach(Lock::lock);
+        try {
+            for (int j = 0; j < missing.size(); j++) {
+                int i = missing.get(j);
+                BarcodeCandidate candidate = candidates[j];
+                ManagedAddress<Long, BaseSequence> managed = readManagedAddress(ids[i]);
+                if (managed != null) {
+                    release(candidate);
+                    result.set(i, managed);
+                }
+                else {
+                    writeNewManagedAddress(ids[i], candidate.routed, candidate.barcode, candidate.numBadAddresses, !candidate.isReserved);
+                    result.set(i, new ManagedAddress<>(ids[i], candidate.routed, candidate.barcode));
+                }
+            }
+        }
+        finally {
+            locks.forEach(Lock::unlock);
+        }
+
+        return result;
+    }
+
+    /**
+     * Generates n barcodes. Pooled barcodes are used first. The remaining routed ids are drawn at once, and their barcodes are encoded in parallel for large batches.
+     * The barcodes are reserved in order, so that each one is checked against the previously reserved ones of the batch. Only a Traditional LSH reserves them in parallel, since tryReserve checks a barcode again if others were reserved concurrently.
+     * Barcodes of the batch that fail the check are replaced by generating barcodes one by one.
+     */
+    private BarcodeCandidate[] generateBarcodes(int n) {
+        BarcodeCandidate[] candidates = new BarcodeCandidate[n];
+        int pooled = 0;
+        while (pooled < n && (candidates[pooled] = pollReserved()) != null)
+            pooled++;
+        if (pooled == n)
+            return candidates;
+
+        int offset = pooled;
+        long[] routedIds = addrGen.getN(n - offset);
+        boolean parallel = routedIds.length >= PARALLEL_BATCH_SIZE;
+        BaseSequence[] barcodes = FuncUtils.stream(IntStream.range(0, routedIds.length), parallel).mapToObj(i -> coder.apply(routedIds[i])).toArray(BaseSequence[]::new);
+        FuncUtils.stream(IntStream.range(0, routedIds.length), parallel && exactLsh).forEach(i -> candidates[offset + i] = reserve(barcodes[i]) ?
+                new BarcodeCandidate(routedIds[i], barcodes[i], 0L, true, true)
+                : addBadAddresses(generateBarcode(true), 1L));
+
+        return candidates;
+    }
+
+    private static BarcodeCandidate addBadAddresses(BarcodeCandidate candidate, long n) {
+        return new BarcodeCandidate(candidate.routed, candidate.barcode, candidate.numBadAddresses + n, candidate.isSufficientDistance, candidate.isReserved);
+    }
+
+    private BarcodeCandidate generateBarcode() {
+        return generateBarcode(true);
+    }
+
+    /**
+     * Generates a new routed id and its barcode. Up to addressTranslationTrials barcodes are generated until one has a sufficient distance to the barcodes in the LSH and, if reserve is true, could be reserved.
+     * @param reserve true to reserve the barcode in the LSH.
+     * @return the generated candidate. If no barcode had a sufficient distance, the last generated barcode is returned unreserved.
+     */
+    private BarcodeCandidate generateBarcode(boolean reserve) {
         int trials = 0;
         long routed = addrGen.get();
         BaseSequence barcode = coder.apply(routed);
         long numBadAddresses = 0L;
         while(trials++ < addressTranslationTrials) {
-            if (isSufficientDistance(barcode)) {
-                addressManagerLock.writeLock().lock();
-                ManagedAddress<Long, BaseSequence> managed = readManagedAddress(addr, false);
-                if (managed != null) {
-                    addressManagerLock.writeLock().unlock();
-                    return managed;
-                }
-                if (store)
-                    writeNewManagedAddress(addr, routed, barcode, numBadAddresses);
-                addressManagerLock.writeLock().unlock();
-                return new ManagedAddress<>(addr, routed, barcode);
-            }
-            else {
-                routed = addrGen.get();
-                barcode = coder.apply(routed);
-                numBadAddresses++;
-            }
+            if (reserve ? reserve(barcode) : isSufficientDistance(barcode))
+                return new BarcodeCandidate(routed, barcode, numBadAddresses, true, reserve);
+
+            routed = addrGen.get();
+            barcode = coder.apply(routed);
+            numBadAddresses++;
         }
-        if (store) {
-            addressManagerLock.writeLock().lock();
-            ManagedAddress<Long, BaseSequence> managed = readManagedAddress(addr, false);
-            if (managed != null) {
-                addressManagerLock.writeLock().unlock();
-                return managed;
-            }
-            writeNewManagedAddress(addr, routed, barcode, numBadAddresses);
-            addressManagerLock.writeLock().unlock();
+
+        return new BarcodeCandidate(routed, barcode, numBadAddresses, false, false);
+    }
+
+    /**
+     * Checks the distance of a barcode to the barcodes in the LSH and reserves it by inserting it into the LSH.
+     * A Traditional LSH returns the similar barcodes, so the barcode is reserved optimistically by tryReserve. The other LSH types only answer whether a similar barcode was inserted, which is also true for the barcode itself once it is inserted, so the check and the insertion are serialized instead.
+     * @param barcode the barcode.
+     * @return true if the barcode was reserved, and false if it has an insufficient distance.
+     */
+    private boolean reserve(BaseSequence barcode) {
+        if (exactLsh) {
+            long version = lshVersion.get();
+            return isSufficientDistance(barcode) && tryReserve(barcode, version);
         }
 
-        return new ManagedAddress<>(addr, routed, barcode);
+        reservationLock.lock();
+        try {
+            if (!isSufficientDistance(barcode))
+                return false;
+            lsh.insert(barcode);
+            lshVersion.incrementAndGet();
+            return true;
+        }
+        finally {
+            reservationLock.unlock();
+        }
+    }
+
+    /**
+     * Reserves a barcode that passed the distance check by inserting it into the Traditional LSH. If other barcodes were inserted since the check started, i.e., the LSH's version changed, the barcode is checked again against the LSH excluding itself.
+     * If that check fails, the barcode conflicts with a concurrently reserved one, and the reservation is rolled back so that the caller retries with a new barcode.
+     * @param barcode the barcode to reserve.
+     * @param version the LSH's version read before the distance check of barcode.
+     * @return true if the barcode was reserved, and false otherwise.
+     */
+    private boolean tryReserve(BaseSequence barcode, long version) {
+        lsh.insert(barcode);
+        if (lshVersion.incrementAndGet() == version + 1L)
+            return true;
+
+        if (DistanceCoder.distanceScoreExclusive(barcode, lsh) >= minDist && DistanceCoder.distanceScoreFilter(barcode.complement(), lsh, can -> can != barcode) >= minDist)
+            return true;
+
+        lsh.remove(barcode);
+        return false;
+    }
+
+    /**
+     * Releases a reserved barcode that was not committed. It is handed back to the pool if possible. Otherwise, it is removed from a Traditional LSH, or kept reserved as a spare for the next address, since removing it from the other LSH types is unsupported or would also remove the hashes of other barcodes.
+     */
+    private void release(BarcodeCandidate candidate) {
+        if (!candidate.isReserved)
+            return;
+        if (barcodePool != null && barcodePool.giveBack(candidate))
+            return;
+        if (exactLsh)
+            lsh.remove(candidate.barcode);
+        else
+            spareBarcodes.add(candidate);
+    }
+
+    /**
+     * @return a reserved barcode of the spares or the pool, or null if there is none.
+     */
+    private BarcodeCandidate pollReserved() {
+        BarcodeCandidate spare = spareBarcodes.poll();
+        if (spare != null)
+            return spare;
+
+        return barcodePool != null ? barcodePool.poll() : null;
     }
 
     public int getAddressSize() {
@@ -149,6 +385,22 @@ public class DNAAddrManager implements AddressManager<Long, BaseSequence> {
         return addressTranslationTrials;
     }
 
+    /**
+     * @return the number of pre-validated barcodes that are currently waiting in the background pool, or 0 if no pool is used.
+     */
+    public int pooledBarcodesCount() {
+        return barcodePool != null ? barcodePool.queue.size() : 0;
+    }
+
+    /**
+     * Stops the background barcode producers, if any. Barcodes that remain in the pool stay reserved in the LSH.
+     */
+    @Override
+    public void close() {
+        if (barcodePool != null)
+            barcodePool.close();
+    }
+
     private boolean isSufficientDistance(BaseSequence barcode) {
         return DistanceCoder.distanceScore(barcode, lsh) >= minDist && DistanceCoder.distanceScore(barcode.complement(), lsh) >= minDist;
     }
@@ -187,6 +439,17 @@ public class DNAAddrManager implements AddressManager<Long, BaseSequence> {
         public RoutedAddress<Long> compute(Long original) {
             return DNAAddrManager.this.routeAndTranslate(original, false).routedAddress();
         }
+
+        /**
+         * Routes an original id to a routed id, e.g., when ContainerList.insert moves an element. The reverse index then maps the barcode of the routed id to the original id.
+         */
+        @Override
+        public void put(Long original, Long routed) {
+            container.put(original, routed);
+            BaseSequence translated = addressTranslationManager.container.get(routed);
+            if (translated != null)
+                reverseIndex.put(translated, original);
+        }
     }
 
     private class AddressTranslationManager implements TranslationManager<Long, BaseSequence> {
@@ -222,40 +485,118 @@ public class DNAAddrManager implements AddressManager<Long, BaseSequence> {
         }
     }
 
+    /**
+     * A routed id and its barcode.
+     * @param isSufficientDistance true if the barcode had a sufficient distance to the LSH's barcodes when it was generated.
+     * @param isReserved true if the barcode was already inserted into the LSH.
+     */
+    private record BarcodeCandidate(long routed, BaseSequence barcode, long numBadAddresses, boolean isSufficientDistance, boolean isReserved) {
+    }
+
+    /**
+     * Pre-generates barcodes on background threads. Each pooled barcode is reserved in the LSH when it is validated so that later pooled or inline barcodes are checked against it.
+     * Only barcodes that passed the distance check are pooled. A producer that fails stops, and its exception is thrown by the next poll(), which restarts the producer.
+     */
+    private class BarcodePool implements AutoCloseable {
+        final BlockingQueue<BarcodeCandidate> queue;
+        final ExecutorService executor;
+        final boolean ownsExecutor;
+        final List<Future<?>> producers;
+        final BlockingQueue<RuntimeException> failures;
+        volatile boolean running;
+
+        BarcodePool(int capacity, int numProducers, ExecutorService executor) {
+            this.queue = new ArrayBlockingQueue<>(capacity);
+            this.ownsExecutor = executor == null;
+            this.executor = ownsExecutor ? Executors.newFixedThreadPool(numProducers, r -> {
+                Thread t = new Thread(r, "barcode-pool-producer");
+                t.setDaemon(true);
+                return t;
+            }) : executor;
+            this.failures = new LinkedBlockingQueue<>();
+            this.running = true;
+            this.producers = new CopyOnWriteArrayList<>();
+            for (int i = 0; i < numProducers; i++)
+                startProducer();
+        }
+
+        private void startProducer() {
+            producers.add(executor.submit(this::produce));
+        }
+
+        void produce() {
+            try {
+                while (running && !Thread.currentThread().isInterrupted()) {
+                    BarcodeCandidate candidate = generateBarcode();
+                    if (!candidate.isReserved) {
+                        // the barcode failed the distance check in every trial
+                        badAddresses.addAndGet(candidate.numBadAddresses);
+                        continue;
+                    }
+                    queue.put(candidate);
+                }
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            catch (RuntimeException e) {
+                failures.add(e);
+            }
+        }
+
+        /**
+         * @return a pooled barcode, or null if the pool is empty.
+         * @throws RuntimeException if a producer failed since the last call.
+         */
+        BarcodeCandidate poll() {
+            RuntimeException failure = failures.poll();
+            if (failure != null) {
+                if (running)
+                    startProducer();
+                throw new RuntimeException("barcode pool producer failed", failure);
+            }
+            return queue.poll();
+        }
+
+        boolean giveBack(BarcodeCandidate candidate) {
+            return queue.offer(candidate);
+        }
+
+        @Override
+        public void close() {
+            running = false;
+            producers.forEach(f -> f.cancel(true));
+            if (ownsExecutor)
+                executor.shutdownNow();
+        }
+    }
+
     public static class Builder {
         public static final int DEFAULT_ADDRESS_TRANSLATION_TRIALS = 1000;
         public static final int DEFAULT_ADDRESS_SIZE = 80;
         public static final int DEFAULT_MIN_ADDRESS_SIZE = 20;
         public static final int DEFAULT_ADDR_NUM_PERMUTATIONS = 16;
         public static final int DEFAULT_ECC_LEN = 0;
+        public static final int DEFAULT_BARCODE_POOL_SIZE = 0;
+        public static final int DEFAULT_BARCODE_POOL_PRODUCERS = 1;
         public static final double DEFAULT_MIN_DIST = 0.3d;
         public static final boolean DEFAULT_DEEP_LSH = true;
+        public static final boolean DEFAULT_NUMERIC_BARCODES = false;
         public static final Coder<String, BaseSequence> DEFAULT_STRING_CODER = RotatingTre.INSTANCE;
         public static final BiFunction<Integer, Boolean, LSH<BaseSequence>> DEFAULT_LSH = (addrSize, deep) -> deep ? MinHashLSH.newSeqLSHTraditional(5, 5) : MinHashLSH.newSeqLSHLight(5, 5);
         public static final Supplier<DNARule> DEFAULT_DNA_RULES = () -> BasicDNARules.INSTANCE;
 
-        // only supported in single-thread mode
-        public static final Supplier<Container<Long, Long>> DEFAULT_ADDRESS_ROUTING_CONTAINER_PERSISTENT = () -> new PersistentContainer<>("routing.table", FixedSizeSerializer.LONG);
+        public static final Supplier<Container<Long, Long>> DEFAULT_ADDRESS_ROUTING_CONTAINER_PERSISTENT = () -> LongHashTable.create("routing.hashtable");
 
         public static final Supplier<Container<Long, Long>> DEFAULT_ADDRESS_ROUTING_CONTAINER_NOT_PERSISTENT = Container.MapContainer::new;
 
         // only supported in single-thread mode
-        public static final Function<Integer, Container<Long, BaseSequence>> DEFAULT_ADDRESS_TRANSLATION_CONTAINER_PERSISTENT = addrSize -> new PersistentContainer<>("translation.table", new FixedSizeSerializer<>() {
-            @Override
-            public int serializedSize() {
-                return 2 + addrSize / 4;
-            }
-            @Override
-            public byte[] serialize(BaseSequence seq) {
-                return Packer.withBytePadding(SeqBitStringConverter.transform(seq)).toBytes();
-            }
-            @Override
-            public BaseSequence deserialize(byte[] bs) {
-                return SeqBitStringConverter.transform(Packer.withoutBytePadding(new BitString(bs)));
-            }
-        });
+        public static final Function<Integer, Container<Long, BaseSequence>> DEFAULT_ADDRESS_TRANSLATION_CONTAINER_PERSISTENT = addrSize -> new PersistentContainer<>("translation.table", new PackedSeqSerializer(addrSize));
         public static final Function<Integer, Container<Long, BaseSequence>> DEFAULT_ADDRESS_TRANSLATION_CONTAINER_NOT_PERSISTENT = __ -> new Container.MapContainer<>();
 
+        public static final Function<Integer, Container<BaseSequence, Long>> DEFAULT_REVERSE_INDEX_PERSISTENT = addrSize -> BarcodeIndex.Persistent.create("barcodes.index", addrSize);
+        public static final Function<Integer, Container<BaseSequence, Long>> DEFAULT_REVERSE_INDEX_NOT_PERSISTENT = BarcodeIndex.InMemory::new;
+
         private LSH<BaseSequence> lsh;
         private Integer numPermutations;
         private Integer addressEccSize;
@@ -263,10 +604,15 @@ public class DNAAddrManager implements AddressManager<Long, BaseSequence> {
         private DNARule dnaRules;
         private Container<Long, Long> addressRoutingContainer;
         private Container<Long, BaseSequence> addressTranslationContainer;
+        private Container<BaseSequence, Long> reverseIndex;
         private Coder<String, BaseSequence> stringCoder;
         private Double minDist;
         private Integer addressTranslationTrials;
         private Boolean deepLSH;
+        private Boolean numericBarcodes;
+        private Integer barcodePoolSize;
+        private Integer barcodePoolProducers;
+        private ExecutorService barcodePoolExecutor;
 
         public DNAAddrManager build() {
             this.addressEccSize = FuncUtils.conditionOrElse(ecc -> ecc != null && ecc >= 0, addressEccSize, () -> DEFAULT_ECC_LEN);
@@ -274,19 +620,58 @@ public class DNAAddrManager implements AddressManager<Long, BaseSequence> {
             if (addressEccSize > 0 && addrSize % 4 != 0)
                 throw new RuntimeException("addressSize % 4 != 0");
 
+            this.numericBarcodes = FuncUtils.nullEscape(numericBarcodes, () -> DEFAULT_NUMERIC_BARCODES);
+            if (numericBarcodes) {
+                if (addrSize - eccOverhead() < RotatingIdCoder.ID_DIGITS)
+                    throw new RuntimeException("numeric barcodes require addressSize - ecc overhead >= " + RotatingIdCoder.ID_DIGITS);
+                if (numPermutations != null && numPermutations > 0)
+                    throw new RuntimeException("numeric barcodes do not support permutations");
+                if (dnaRules != null)
+                    throw new RuntimeException("numeric barcodes do not support dnaRules");
+            }
+
             this.deepLSH = FuncUtils.nullEscape(deepLSH, () -> DEFAULT_DEEP_LSH);
             this.lsh = FuncUtils.nullEscape(lsh, () -> DEFAULT_LSH.apply(addrSize, deepLSH));
             this.numPermutations = FuncUtils.conditionOrElse(n -> n != null && n >= 0, numPermutations, () -> DEFAULT_ADDR_NUM_PERMUTATIONS);
             this.dnaRules = FuncUtils.nullEscape(dnaRules, DEFAULT_DNA_RULES);
             this.addressRoutingContainer = FuncUtils.nullEscape(addressRoutingContainer, DEFAULT_ADDRESS_ROUTING_CONTAINER_NOT_PERSISTENT);
             this.addressTranslationContainer = FuncUtils.nullEscape(addressTranslationContainer, () -> DEFAULT_ADDRESS_TRANSLATION_CONTAINER_NOT_PERSISTENT.apply(addrSize));
+            this.reverseIndex = FuncUtils.nullEscape(reverseIndex, () -> DEFAULT_REVERSE_INDEX_NOT_PERSISTENT.apply(addrSize));
             this.minDist = FuncUtils.conditionOrElse(d -> d != null && d > 0d && d <= 1d, minDist, () -> DEFAULT_MIN_DIST);
             this.stringCoder = FuncUtils.nullEscape(stringCoder, () -> DEFAULT_STRING_CODER);
             this.addressTranslationTrials = FuncUtils.conditionOrElse(t -> t != null && t > 0, addressTranslationTrials, () -> DEFAULT_ADDRESS_TRANSLATION_TRIALS);
+            this.barcodePoolSize = FuncUtils.conditionOrElse(s -> s != null && s >= 0, barcodePoolSize, () -> DEFAULT_BARCODE_POOL_SIZE);
+            this.barcodePoolProducers = FuncUtils.conditionOrElse(n -> n != null && n > 0, barcodePoolProducers, () -> DEFAULT_BARCODE_POOL_PRODUCERS);
 
+            Coder<Long, BaseSequence> coder = numericBarcodes ? numericAddressCoder() : stringAddressCoder();
+            return new DNAAddrManager(
+                    lsh,
+                    minDist,
+                    addrSize,
+                    coder,
+                    addressTranslationTrials,
+                    addressRoutingContainer,
+                    addressTranslationContainer,
+                    reverseIndex,
+                    barcodePoolSize,
+                    barcodePoolProducers,
+                    barcodePoolExecutor
+            );
+        }
+
+        private int eccOverhead() {
+            return addressEccSize > 0 ? ReedSolomonCoder.overhead(addrSize, addressEccSize) : 0;
+        }
+
+        private Coder<Long, BaseSequence> numericAddressCoder() {
+            Coder<Long, BaseSequence> idCoder = new RotatingIdCoder(addrSize - eccOverhead());
+            return addressEccSize > 0 ? Coder.fuse(idCoder, new ReedSolomonCoder(addressEccSize)) : idCoder;
+        }
+
+        private Coder<Long, BaseSequence> stringAddressCoder() {
             PermutationCoder addressPermutationCoder = numPermutations <= 0 ? new ZeroPermCoder(false) : new PermutationCoder(false, numPermutations, seq -> -dnaRules.evalErrorProbability(seq));
             int addrPermOffset = addressPermutationCoder.getLengthBase().totalSize();
-            int offsetAddress = addrPermOffset + (addressEccSize > 0 ? ReedSolomonCoder.overhead(addrSize, addressEccSize) : 0);
+            int offsetAddress = addrPermOffset + eccOverhead();
             var paddingCoder = new BasicDNAPadder(addrSize - offsetAddress);
 
             Coder<String, BaseSequence> addrCoder = Coder.fuse(
@@ -297,21 +682,11 @@ public class DNAAddrManager implements AddressManager<Long, BaseSequence> {
 
 
             Coder<String, BaseSequence> addressGenerator = addressEccSize > 0 ? Coder.fuse(addrCoder, new ReedSolomonCoder(addressEccSize)) : addrCoder;
-            Coder<Long, BaseSequence> coder = Coder.fuse(
+            return Coder.fuse(
                     Coder.of(String::valueOf, Long::parseLong),
                     addressGenerator,
                     Coder.of(seq -> seq.length() > addrSize ? seq.window(0, addrSize) : seq, null)
             );
-
-            return new DNAAddrManager(
-                    lsh,
-                    minDist,
-                    addrSize,
-                    coder,
-                    addressTranslationTrials,
-                    addressRoutingContainer,
-                    addressTranslationContainer
-            );
         }
 
         public Builder setLsh(LSH<BaseSequence> lsh) {
@@ -349,6 +724,16 @@ public class DNAAddrManager implements AddressManager<Long, BaseSequence> {
             return this;
         }
 
+        /**
+         * Sets the container that maps barcodes back to their original ids, e.g., BarcodeIndex.Persistent. By default, an in-memory BarcodeIndex is used.
+         * @param reverseIndex the reverse index.
+         * @return this builder.
+         */
+        public Builder setReverseIndex(Container<BaseSequence, Long> reverseIndex) {
+            this.reverseIndex = reverseIndex;
+            return this;
+        }
+
         public Builder setMinDist(Double minDist) {
             this.minDist = minDist;
             return this;
@@ -375,6 +760,42 @@ public class DNAAddrManager implements AddressManager<Long, BaseSequence> {
             this.stringCoder = stringCoder;
             return this;
         }
+
+        /**
+         * Selects how barcodes are generated from routed ids. Numeric barcodes are computed directly from the id by RotatingIdCoder, skipping the string coder, the padding, and the permutations.
+         * They require addressSize minus the ecc overhead to be at least RotatingIdCoder.ID_DIGITS, and cannot be combined with permutations or dnaRules, since RotatingIdCoder steers the GC content itself.
+         * @param numericBarcodes true to use numeric barcodes, and false to use the string coder.
+         * @return this builder.
+         */
+        public Builder setNumericBarcodes(boolean numericBarcodes) {
+            this.numericBarcodes = numericBarcodes;
+            return this;
+        }
+
+        /**
+         * Enables pre-generating barcodes in the background. New addresses then mostly dequeue an already validated barcode instead of generating one on the caller's thread.
+         * @param barcodePoolSize the maximum number of pre-generated barcodes. 0 disables the pool.
+         * @return this builder.
+         */
+        public Builder setBarcodePoolSize(int barcodePoolSize) {
+            this.barcodePoolSize = barcodePoolSize;
+            return this;
+        }
+
+        public Builder setBarcodePoolProducers(int barcodePoolProducers) {
+            this.barcodePoolProducers = barcodePoolProducers;
+            return this;
+        }
+
+        /**
+         * Sets the executor that runs the barcode producers, e.g., Executors.newVirtualThreadPerTaskExecutor(). If not set, a fixed pool of daemon threads is used.
+         * @param barcodePoolExecutor the executor.
+         * @return this builder.
+         */
+        public Builder setBarcodePoolExecutor(ExecutorService barcodePoolExecutor) {
+            this.barcodePoolExecutor = barcodePoolExecutor;
+            return this;
+        }
     }
 
     private static class ZeroPermCoder extends PermutationCoder {
@@ -6,10 +6,13 @@ import datastructures.reference.IDNAFedReference;
 import datastructures.reference.IDNASketch;
 import utils.*;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
 public class ContainerArray<T> extends IDNAFedReference.DNAFedReference<ArrayList<T>, IDNASketch.ContainerIdSketch> implements Streamable<T> {
+    public static final int DEFAULT_READ_AHEAD = ReadAhead.DEFAULT_READ_AHEAD;
+
     private final Coder<T, BaseSequence> coder;
 
     public ContainerArray(DNAContainer container, IDNASketch.ContainerIdSketch sketch, Coder<T, BaseSequence> coder) {
@@ -61,45 +64,57 @@ public class ContainerArray<T> extends IDNAFedReference.DNAFedReference<ArrayLis
     }
 
     public static <T> Iterator<T> getArrayIterator(IDNASketch.ContainerIdSketch sketch, Coder<T, BaseSequence> coder) {
+        return getArrayIterator(sketch, coder, DEFAULT_READ_AHEAD);
+    }
+
+    /**
+     * Returns an iterator over the elements of the array that fetches the next readAhead elements asynchronously while the current element is decoded.
+     * @param sketch the sketch of the array.
+     * @param coder the coder of the elements.
+     * @param readAhead the number of elements fetched ahead. 0 fetches each element when it is requested.
+     * @return the iterator.
+     */
+    public static <T> Iterator<T> getArrayIterator(IDNASketch.ContainerIdSketch sketch, Coder<T, BaseSequence> coder, int readAhead) {
         UnpackedHeader header = UnpackedHeader.of(getHeaderSeq(sketch));
         checkOutOfBounds(header, 0, header.length);
-        return getArrayFromStartEndIterator(sketch, coder, header.payloadStartId, 0, header.length);
+        return getArrayFromStartEndIterator(sketch, coder, header.payloadStartId, 0, header.length, 1, readAhead);
     }
 
     public Iterator<T> getFromPosReverseIterator(int startInclusive) {
         UnpackedHeader header = UnpackedHeader.of(getHeaderSeq());
         checkOutOfBounds(header, startInclusive, header.length);
-        return getArrayFromStartEndReverseIterator(header.payloadStartId, startInclusive, -1);
+        return getArrayFromStartEndIterator(sketch, coder, header.payloadStartId, startInclusive, -1, -1, DEFAULT_READ_AHEAD);
     }
 
-    private static <T> Iterator<T> getArrayFromStartEndIterator(IDNASketch.ContainerIdSketch sketch, Coder<T, BaseSequence> coder, long payloadStartId, int startInclusive, int endExclusive) {
+    private static <T> Iterator<T> getArrayFromStartEndIterator(IDNASketch.ContainerIdSketch sketch, Coder<T, BaseSequence> coder, long payloadStartId, int startInclusive, int endExclusive, int step, int readAhead) {
         DNAContainer container = sketch.container();
         return new Iterator<>() {
             int pos = startInclusive;
-            @Override
-            public boolean hasNext() {
-                return pos < endExclusive;
-            }
+            int fetchPos = startInclusive;
+            final Deque<CompletableFuture<BaseSequence>> fetched = new ArrayDeque<>();
 
-            @Override
-            public T next() {
-                return coder.decode(container.get(payloadStartId + (pos++)));
-            }
-        };
-    }
-
-    private Iterator<T> getArrayFromStartEndReverseIterator(long payloadStartId, int startInclusive, int endExclusive) {
-        DNAContainer container = sketch.container();
-        return new Iterator<>() {
-            int pos = startInclusive;
             @Override
             public boolean hasNext() {
-                return pos > endExclusive;
+                return step > 0 ? pos < endExclusive : pos > endExclusive;
             }
 
             @Override
             public T next() {
-                return coder.decode(container.get(payloadStartId + (pos--)));
+                if (!hasNext())
+                    throw new NoSuchElementException();
+                if (readAhead <= 0) {
+                    long id = payloadStartId + pos;
+                    pos += step;
+                    return coder.decode(container.get(id));
+                }
+                // the current element and the next readAhead elements are fetched
+                while (fetched.size() <= readAhead && (step > 0 ? fetchPos < endExclusive : fetchPos > endExclusive)) {
+                    long id = payloadStartId + fetchPos;
+                    fetched.add(ReadAhead.fetch(() -> container.get(id)));
+                    fetchPos += step;
+                }
+                pos += step;
+                return coder.decode(fetched.poll().join());
             }
         };
     }
@@ -107,13 +122,13 @@ public class ContainerArray<T> extends IDNAFedReference.DNAFedReference<ArrayLis
     public Iterator<T> getFromPosIterator(int startInclusive, int endExclusive) {
         UnpackedHeader header = UnpackedHeader.of(getHeaderSeq());
         checkOutOfBounds(header, startInclusive, endExclusive);
-        return getArrayFromStartEndIterator(sketch, coder, header.payloadStartId, startInclusive, endExclusive);
+        return getArrayFromStartEndIterator(sketch, coder, header.payloadStartId, startInclusive, endExclusive, 1, DEFAULT_READ_AHEAD);
     }
 
     public Iterator<T> getFromPosReverseIterator(int startInclusive, int endExclusive) {
         UnpackedHeader header = UnpackedHeader.of(getHeaderSeq());
         checkOutOfBounds(header,endExclusive + 1, startInclusive);
-        return getArrayFromStartEndReverseIterator(header.payloadStartId, startInclusive, endExclusive);
+        return getArrayFromStartEndIterator(sketch, coder, header.payloadStartId, startInclusive, endExclusive, -1, DEFAULT_READ_AHEAD);
     }
 
     public int length() {
@@ -145,7 +160,7 @@ public class ContainerArray<T> extends IDNAFedReference.DNAFedReference<ArrayLis
         long payloadStartId = ids[0];
         int packedArrayLength = arrayLength - 1;
         DNAPacker.LengthBase minLbForArraySize = DNAPacker.LengthBase.fromUnsignedNumber(packedArrayLength);
-        DNAPacker.LengthBase minLbForPayloadStartId = DNAPacker.LengthBase.fromUnsignedNumber(packedArrayLength);
+        DNAPacker.LengthBase minLbForPayloadStartId = DNAPacker.LengthBase.fromUnsignedNumber(payloadStartId);
         BaseSequence header = BaseSequence.join(
                 DNAPacker.pack(packedArrayLength, minLbForArraySize),
                 DNAPacker.pack(payloadStartId, minLbForPayloadStartId)
@@ -0,0 +1,572 @@
+package datastructures.container.types;
+
+import core.BaseSequence;
+import datastructures.container.DNAContainer;
+import datastructures.reference.IDNAFedReference;
+import datastructures.reference.IDNASketch;
+import utils.*;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * A B+-tree that maps long keys to values, whose nodes are objects of the container.
+ * The root object contains the order, the number of entries, the height, and the id of the root node. An internal node contains the packed separator keys and the ids of its children, and a leaf contains the packed keys, the ids of the objects that store the values, and the id of the next leaf.
+ * Hence, get reads height + 3 objects, and a range query descends to the leaf of its first key once and then follows the links between the leaves, which are fetched ahead while the values of the current leaf are decoded.
+ * put splits a full leaf, and a full internal node, into two halves. remove does not merge underfull nodes, and rebuild compacts the nodes by bulk loading the entries again.
+ */
+public class ContainerBPlusTree<T> extends IDNAFedReference.DNAFedReference<SortedMap<Long, T>, IDNASketch.ContainerIdSketch> implements Streamable<Pair<Long, T>> {
+    public static final int DEFAULT_ORDER = 16;
+    public static final int DEFAULT_READ_AHEAD = ReadAhead.DEFAULT_READ_AHEAD;
+
+    private final Coder<T, BaseSequence> coder;
+
+    public ContainerBPlusTree(DNAContainer container, IDNASketch.ContainerIdSketch sketch, Coder<T, BaseSequence> coder) {
+        super(
+                sketch,
+                s -> getBPlusTreeOligos(container, s.id()).stream().map(AddressedDNA::payload).toArray(BaseSequence[]::new),
+                s -> decodeTree(FuncUtils.stream(() -> getRangeIterator(container, sketch.id(), Long.MIN_VALUE, Long.MAX_VALUE, DEFAULT_READ_AHEAD)), coder)
+        );
+        this.coder = coder;
+    }
+
+    @Override
+    public Iterator<Pair<Long, T>> iterator() {
+        return stream().iterator();
+    }
+
+    @Override
+    public Stream<Pair<Long, T>> stream() {
+        return range(Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    /**
+     * Returns the entries with fromInclusive <= key <= toInclusive in ascending order of their keys.
+     * @param fromInclusive the smallest key.
+     * @param toInclusive the largest key.
+     * @return the entries.
+     */
+    public Stream<Pair<Long, T>> range(long fromInclusive, long toInclusive) {
+        return encodedRange(fromInclusive, toInclusive).map(e -> new Pair<>(e.getT1(), coder.decode(e.getT2())));
+    }
+
+    public Stream<Pair<Long, BaseSequence>> encodedRange(long fromInclusive, long toInclusive) {
+        return FuncUtils.stream(() -> getRangeIterator(sketch.container(), sketch.id(), fromInclusive, toInclusive, DEFAULT_READ_AHEAD));
+    }
+
+    @Override
+    public SortedMap<Long, T> decode() {
+        return decodeTree(encodedRange(Long.MIN_VALUE, Long.MAX_VALUE), coder);
+    }
+
+    @Override
+    public boolean isNullPointer() {
+        return Header.of(sketch.container().get(sketch.id())) == null;
+    }
+
+    /**
+     * Returns the value of a key by descending from the root node to the leaf of the key.
+     * @param key the key.
+     * @return the value, or null if the key is not in the tree.
+     */
+    public T get(long key) {
+        DNAContainer container = sketch.container();
+        Header header = Header.of(container.get(sketch.id()));
+        if (header == null)
+            return null;
+
+        Node leaf = descend(container, header, key, null, null);
+        int i = Collections.binarySearch(leaf.keys, key);
+        return i < 0 ? null : coder.decode(container.get(leaf.refs.get(i)));
+    }
+
+    public boolean containsKey(long key) {
+        DNAContainer container = sketch.container();
+        Header header = Header.of(container.get(sketch.id()));
+        return header != null && Collections.binarySearch(descend(container, header, key, null, null).keys, key) >= 0;
+    }
+
+    /**
+     * @return the number of entries, which is read from the root.
+     */
+    public int size() {
+        Header header = Header.of(sketch.container().get(sketch.id()));
+        return header == null ? 0 : header.size;
+    }
+
+    /**
+     * @return the number of internal levels, which is read from the root. A tree of height 0 consists of one leaf.
+     */
+    public int height() {
+        Header header = Header.of(sketch.container().get(sketch.id()));
+        return header == null ? 0 : header.height;
+    }
+
+    @Override
+    public BaseSequence[] addresses() {
+        return getBPlusTreeOligos(sketch.container(), sketch.id()).stream().map(AddressedDNA::address).toArray(BaseSequence[]::new);
+    }
+
+    /**
+     * Puts an entry. The value of an existing key is overwritten in place. A new key is added to its leaf, which is split into two halves if it is full, and the splits propagate up to the root node.
+     * @param key the key.
+     * @param value the value.
+     * @return true if the entry was put, and false if the tree does not exist.
+     */
+    public boolean put(long key, T value) {
+        DNAContainer container = sketch.container();
+        Header header = Header.of(container.get(sketch.id()));
+        if (header == null)
+            return false;
+
+        List<Node> path = new ArrayList<>(header.height);
+        List<Integer> positions = new ArrayList<>(header.height);
+        Node leaf = descend(container, header, key, path, positions);
+        int i = Collections.binarySearch(leaf.keys, key);
+        if (i >= 0) {
+            container.put(leaf.refs.get(i), coder.encode(value));
+            return true;
+        }
+
+        long valueId = container.registerId();
+        container.put(valueId, coder.encode(value));
+        leaf.keys.add(-i - 1, key);
+        leaf.refs.add(-i - 1, valueId);
+
+        // the right half of a split node is written before the node that refers to it
+        Node node = leaf;
+        Pair<Long, Node> split = null;
+        for (int level = path.size(); level >= 0; level--) {
+            split = node.refs.size() > header.order ? node.split(container.registerId()) : null;
+            if (split != null)
+                container.put(split.getT2().id, split.getT2().toSeq());
+            container.put(node.id, node.toSeq());
+            if (split == null || level == 0)
+                break;
+
+            Node parent = path.get(level - 1);
+            int pos = positions.get(level - 1);
+            parent.keys.add(pos, split.getT1());
+            parent.refs.add(pos + 1, split.getT2().id);
+            node = parent;
+        }
+
+        if (split != null) {
+            Node root = new Node(container.registerId(), false);
+            root.keys.add(split.getT1());
+            root.refs.add(header.rootNodeId);
+            root.refs.add(split.getT2().id);
+            container.put(root.id, root.toSeq());
+            header.rootNodeId = root.id;
+            header.height++;
+        }
+        header.size++;
+        container.put(sketch.id(), header.toSeq());
+        return true;
+    }
+
+    /**
+     * Removes a key from its leaf and removes the object of its value. The leaf is not merged with its siblings if it becomes underfull.
+     * @param key the key.
+     * @return true if the key was removed, and false if the key is not in the tree.
+     */
+    public boolean remove(long key) {
+        DNAContainer container = sketch.container();
+        Header header = Header.of(container.get(sketch.id()));
+        if (header == null)
+            return false;
+
+        Node leaf = descend(container, header, key, null, null);
+        int i = Collections.binarySearch(leaf.keys, key);
+        if (i < 0)
+            return false;
+
+        long valueId = leaf.refs.get(i);
+        leaf.keys.remove(i);
+        leaf.refs.remove(i);
+        container.put(leaf.id, leaf.toSeq());
+        container.remove(valueId);
+        header.size--;
+        container.put(sketch.id(), header.toSeq());
+        return true;
+    }
+
+    /**
+     * Bulk loads the keys and value ids of the leaves into new, full nodes, writes the root, and removes the old nodes. The objects of the values are kept.
+     * @return true if the tree was rebuilt, and false if the tree does not exist.
+     */
+    public boolean rebuild() {
+        DNAContainer container = sketch.container();
+        Header header = Header.of(container.get(sketch.id()));
+        if (header == null)
+            return false;
+
+        List<Long> nodeIds = new ArrayList<>();
+        List<Long> keys = new ArrayList<>(header.size);
+        List<Long> valueIds = new ArrayList<>(header.size);
+        List<Long> level = List.of(header.rootNodeId);
+        while (!level.isEmpty()) {
+            List<Long> next = new ArrayList<>();
+            for (long id : level) {
+                Node node = readNode(container, id);
+                nodeIds.add(id);
+                if (node.leaf) {
+                    keys.addAll(node.keys);
+                    valueIds.addAll(node.refs);
+                }
+                else
+                    next.addAll(node.refs);
+            }
+            level = next;
+        }
+
+        Header rebuilt = putNodes(container, header.order, keys, valueIds, false);
+        container.put(sketch.id(), rebuilt.toSeq());
+        nodeIds.forEach(container::remove);
+        return true;
+    }
+
+    /**
+     * Returns an iterator over the entries with fromInclusive <= key <= toInclusive and their encoded values.
+     * The iterator descends to the leaf of fromInclusive once and then follows the links between the leaves. The next readAhead leaves are fetched asynchronously, and so are the values of the current leaf.
+     * @param container the container.
+     * @param rootId the id of the tree.
+     * @param fromInclusive the smallest key.
+     * @param toInclusive the largest key.
+     * @param readAhead the number of leaves fetched ahead. 0 reads each leaf and each value when it is requested.
+     * @return the iterator.
+     */
+    public static Iterator<Pair<Long, BaseSequence>> getRangeIterator(DNAContainer container, long rootId, long fromInclusive, long toInclusive, int readAhead) {
+        Header header = Header.of(container.get(rootId));
+        if (header == null || fromInclusive > toInclusive)
+            return Collections.emptyIterator();
+
+        Node first = descend(container, header, fromInclusive, null, null);
+        int firstPos = Collections.binarySearch(first.keys, fromInclusive);
+        return new Iterator<>() {
+            Node leaf = first;
+            int pos = firstPos < 0 ? -firstPos - 1 : firstPos;
+            List<CompletableFuture<BaseSequence>> values = fetchValues(leaf, pos);
+            int valuesFrom = pos;
+            CompletableFuture<Node> lastFetched = CompletableFuture.completedFuture(first);
+            final Deque<CompletableFuture<Node>> fetched = new ArrayDeque<>();
+
+            @Override
+            public boolean hasNext() {
+                while (leaf != null && pos >= leaf.keys.size()) {
+                    leaf = nextLeaf();
+                    pos = 0;
+                    valuesFrom = 0;
+                    values = leaf == null ? null : fetchValues(leaf, 0);
+                }
+                return leaf != null && leaf.keys.get(pos) <= toInclusive;
+            }
+
+            @Override
+            public Pair<Long, BaseSequence> next() {
+                if (!hasNext())
+                    throw new NoSuchElementException("Iterator exhausted! No more elements to return.");
+
+                long key = leaf.keys.get(pos);
+                BaseSequence value = values == null ? container.get(leaf.refs.get(pos)) : values.get(pos - valuesFrom).join();
+                pos++;
+                return new Pair<>(key, value);
+            }
+
+            private Node nextLeaf() {
+                if (isLastLeaf(leaf, toInclusive))
+                    return null;
+                if (readAhead <= 0)
+                    return readNode(container, leaf.nextId);
+
+                // the next readAhead leaves are fetched, each one after its predecessor that contains its id
+                while (fetched.size() < readAhead) {
+                    lastFetched = ReadAhead.fetchAfter(lastFetched, n -> n == null || isLastLeaf(n, toInclusive) ? null : readNode(container, n.nextId));
+                    fetched.add(lastFetched);
+                }
+                return fetched.poll().join();
+            }
+
+            private List<CompletableFuture<BaseSequence>> fetchValues(Node node, int from) {
+                if (readAhead <= 0)
+                    return null;
+
+                List<CompletableFuture<BaseSequence>> futures = new ArrayList<>(node.keys.size() - from);
+                for (int i = from; i < node.keys.size() && node.keys.get(i) <= toInclusive; i++) {
+                    long id = node.refs.get(i);
+                    futures.add(ReadAhead.fetch(() -> container.get(id)));
+                }
+                return futures;
+            }
+        };
+    }
+
+    /**
+     * @return true if the leaf has no next leaf or contains a key > toInclusive, i.e., the next leaf is not in the range.
+     */
+    private static boolean isLastLeaf(Node leaf, long toInclusive) {
+        return leaf.nextId < 0L || !leaf.keys.isEmpty() && leaf.keys.get(leaf.keys.size() - 1) > toInclusive;
+    }
+
+    public static List<AddressedDNA> getBPlusTreeOligos(DNAContainer container, long rootId) {
+        Header header = Header.of(container.get(rootId));
+        if (header == null)
+            return Collections.emptyList();
+
+        List<AddressedDNA> oligos = new ArrayList<>(Arrays.asList(container.getOligos(rootId)));
+        List<Long> level = List.of(header.rootNodeId);
+        while (!level.isEmpty()) {
+            List<Long> next = new ArrayList<>();
+            for (long id : level) {
+                Node node = readNode(container, id);
+                oligos.addAll(Arrays.asList(container.getOligos(id)));
+                if (node.leaf)
+                    node.refs.forEach(valueId -> oligos.addAll(Arrays.asList(container.getOligos(valueId))));
+                else
+                    next.addAll(node.refs);
+            }
+            level = next;
+        }
+        return oligos;
+    }
+
+    public static <T> ContainerBPlusTree<T> putBPlusTree(DNAContainer container, Coder<T, BaseSequence> coder, SortedMap<Long, T> map) {
+        return putBPlusTree(container, coder, container.registerId(), map, false);
+    }
+
+    public static <T> ContainerBPlusTree<T> putBPlusTree(DNAContainer container, Coder<T, BaseSequence> coder, long rootId, SortedMap<Long, T> map, boolean parallel) {
+        List<Pair<Long, T>> entries = map == null ? Collections.emptyList() : map.entrySet().stream().map(e -> new Pair<>(e.getKey(), e.getValue())).toList();
+        return putBPlusTree(container, coder, rootId, entries, DEFAULT_ORDER, parallel);
+    }
+
+    /**
+     * Bulk loads a tree from entries that are sorted by their keys. The leaves are filled up to the order and written once, and the internal nodes are built level by level from the smallest keys of their children, which is much cheaper than putting the entries one by one.
+     * @param container the container.
+     * @param coder the coder of the values.
+     * @param rootId the id of the tree.
+     * @param sortedEntries the entries in strictly ascending order of their keys.
+     * @param order the maximum number of entries of a leaf and of children of an internal node.
+     * @param parallel true to write the values in parallel.
+     * @return the tree.
+     */
+    public static <T> ContainerBPlusTree<T> putBPlusTree(DNAContainer container, Coder<T, BaseSequence> coder, long rootId, List<Pair<Long, T>> sortedEntries, int order, boolean parallel) {
+        if (order < 3)
+            throw new RuntimeException("order must be >= 3");
+
+        int size = sortedEntries == null ? 0 : sortedEntries.size();
+        List<Long> keys = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            long key = sortedEntries.get(i).getT1();
+            if (i > 0 && key <= keys.get(i - 1))
+                throw new RuntimeException("the keys must be in strictly ascending order: " + keys.get(i - 1) + " >= " + key);
+            keys.add(key);
+        }
+
+        List<Long> valueIds = new ArrayList<>(size);
+        if (size > 0) {
+            long[] ids = container.registerIds(size);
+            FuncUtils.stream(IntStream.range(0, size), parallel).forEach(i -> container.put(ids[i], coder.encode(sortedEntries.get(i).getT2())));
+            Arrays.stream(ids).forEach(valueIds::add);
+        }
+        Header header = putNodes(container, order, keys, valueIds, parallel);
+        container.put(rootId, header.toSeq());
+        return new ContainerBPlusTree<>(container, new IDNASketch.ContainerIdSketch(rootId, container), coder);
+    }
+
+    public static <T> ContainerBPlusTree<T> putEmptyBPlusTree(DNAContainer container, Coder<T, BaseSequence> coder, long rootId) {
+        return putBPlusTree(container, coder, rootId, Collections.emptyList(), DEFAULT_ORDER, false);
+    }
+
+    @Override
+    public String toString() {
+        return getBPlusTreeOligos(sketch().container(), sketch.id()).toString();
+    }
+
+    private static <T> SortedMap<Long, T> decodeTree(Stream<Pair<Long, BaseSequence>> entries, Coder<T, BaseSequence> coder) {
+        SortedMap<Long, T> map = new TreeMap<>();
+        entries.forEach(e -> map.put(e.getT1(), coder.decode(e.getT2())));
+        return map;
+    }
+
+    /**
+     * Writes the leaves and the internal nodes of sorted keys and their value ids bottom-up. The entries of each level are spread evenly over the fewest nodes with at most order entries, so that every node except a root leaf has at least two entries.
+     * @return the header of the nodes, which is not written.
+     */
+    private static Header putNodes(DNAContainer container, int order, List<Long> keys, List<Long> valueIds, boolean parallel) {
+        int numLeaves = Math.max(1, (keys.size() + order - 1) / order);
+        long[] leafIds = container.registerIds(numLeaves);
+        List<Long> minKeys = new ArrayList<>(numLeaves);
+        List<Node> leaves = new ArrayList<>(numLeaves);
+        for (int i = 0; i < numLeaves; i++) {
+            Node leaf = new Node(leafIds[i], true);
+            int from = chunkStart(keys.size(), numLeaves, i);
+            int to = chunkStart(keys.size(), numLeaves, i + 1);
+            leaf.keys.addAll(keys.subList(from, to));
+            leaf.refs.addAll(valueIds.subList(from, to));
+            leaf.nextId = i + 1 < numLeaves ? leafIds[i + 1] : -1L;
+            leaves.add(leaf);
+            minKeys.add(from < to ? keys.get(from) : 0L);
+        }
+        FuncUtils.stream(leaves.stream(), parallel).forEach(leaf -> container.put(leaf.id, leaf.toSeq()));
+
+        List<Long> childIds = Arrays.stream(leafIds).boxed().toList();
+        int height = 0;
+        while (childIds.size() > 1) {
+            int numNodes = (childIds.size() + order - 1) / order;
+            long[] nodeIds = container.registerIds(numNodes);
+            List<Long> nodeMinKeys = new ArrayList<>(numNodes);
+            for (int i = 0; i < numNodes; i++) {
+                Node node = new Node(nodeIds[i], false);
+                int from = chunkStart(childIds.size(), numNodes, i);
+                int to = chunkStart(childIds.size(), numNodes, i + 1);
+                node.refs.addAll(childIds.subList(from, to));
+                node.keys.addAll(minKeys.subList(from + 1, to));
+                container.put(node.id, node.toSeq());
+                nodeMinKeys.add(minKeys.get(from));
+            }
+            childIds = Arrays.stream(nodeIds).boxed().toList();
+            minKeys = nodeMinKeys;
+            height++;
+        }
+        return new Header(order, keys.size(), height, childIds.get(0));
+    }
+
+    private static int chunkStart(int size, int numChunks, int chunk) {
+        return (int) ((long) size * chunk / numChunks);
+    }
+
+    /**
+     * Reads the nodes from the root node to the leaf that may contain the key. If path is not null, the internal nodes and the positions of the followed children are added to path and positions.
+     */
+    private static Node descend(DNAContainer container, Header header, long key, List<Node> path, List<Integer> positions) {
+        Node node = readNode(container, header.rootNodeId);
+        while (!node.leaf) {
+            int pos = node.childPos(key);
+            if (path != null) {
+                path.add(node);
+                positions.add(pos);
+            }
+            node = readNode(container, node.refs.get(pos));
+        }
+        return node;
+    }
+
+    private static Node readNode(DNAContainer container, long id) {
+        return Node.of(id, container.get(id));
+    }
+
+    /**
+     * The root of the tree, i.e., the order, the number of entries, the number of internal levels, and the id of the root node.
+     */
+    private static final class Header {
+        private final int order;
+        private int size;
+        private int height;
+        private long rootNodeId;
+
+        Header(int order, int size, int height, long rootNodeId) {
+            this.order = order;
+            this.size = size;
+            this.height = height;
+            this.rootNodeId = rootNodeId;
+        }
+
+        static Header of(BaseSequence seq) {
+            if (seq == null)
+                return null;
+
+            Number[] unpacked = DNAPacker.unpack(seq, 4, false);
+            return new Header(unpacked[0].intValue(), unpacked[1].intValue(), unpacked[2].intValue(), unpacked[3].longValue());
+        }
+
+        BaseSequence toSeq() {
+            return DNAPacker.packUnsigned(List.of((long) order, (long) size, (long) height, rootNodeId));
+        }
+    }
+
+    /**
+     * A node, i.e., whether it is a leaf, the number of keys, the keys, and the ids of the children or the values, followed by the id of the next leaf plus 1 (0 if there is none) for a leaf.
+     * An internal node with n children has n - 1 keys, and its i-th key is the smallest key of its (i + 1)-th child. The keys are packed unsigned with their sign bit flipped, since DNAPacker cannot pack negative numbers.
+     */
+    private static final class Node {
+        private final long id;
+        private final boolean leaf;
+        private final List<Long> keys;
+        private final List<Long> refs;
+        private long nextId;
+
+        Node(long id, boolean leaf) {
+            this.id = id;
+            this.leaf = leaf;
+            this.keys = new ArrayList<>();
+            this.refs = new ArrayList<>();
+            this.nextId = -1L;
+        }
+
+        static Node of(long id, BaseSequence seq) {
+            if (seq == null)
+                throw new RuntimeException("node of B+-tree is missing");
+
+            List<Number> unpacked = DNAPacker.unpackAll(seq, false);
+            Node node = new Node(id, unpacked.get(0).intValue() == 1);
+            int numKeys = unpacked.get(1).intValue();
+            int numRefs = node.leaf ? numKeys : numKeys + 1;
+            for (int i = 0; i < numKeys; i++)
+                node.keys.add(unpacked.get(2 + i).longValue() ^ Long.MIN_VALUE);
+            for (int i = 0; i < numRefs; i++)
+                node.refs.add(unpacked.get(2 + numKeys + i).longValue());
+            if (node.leaf)
+                node.nextId = unpacked.get(2 + numKeys + numRefs).longValue() - 1L;
+
+            return node;
+        }
+
+        BaseSequence toSeq() {
+            List<Long> values = new ArrayList<>(3 + keys.size() + refs.size());
+            values.add(leaf ? 1L : 0L);
+            values.add((long) keys.size());
+            keys.forEach(key -> values.add(key ^ Long.MIN_VALUE));
+            values.addAll(refs);
+            if (leaf)
+                values.add(nextId + 1L);
+
+            return DNAPacker.packUnsigned(values);
+        }
+
+        /**
+         * @return the position of the child that may contain the key, i.e., the number of keys <= key.
+         */
+        int childPos(long key) {
+            int i = Collections.binarySearch(keys, key);
+            return i >= 0 ? i + 1 : -i - 1;
+        }
+
+        /**
+         * Moves the second half of the entries to a new node. A split leaf links to the new leaf.
+         * @param newId the id of the new node.
+         * @return the smallest key of the new node and the new node.
+         */
+        Pair<Long, Node> split(long newId) {
+            Node right = new Node(newId, leaf);
+            int half = refs.size() / 2;
+            long separator;
+            if (leaf) {
+                right.keys.addAll(keys.subList(half, keys.size()));
+                right.refs.addAll(refs.subList(half, refs.size()));
+                keys.subList(half, keys.size()).clear();
+                right.nextId = nextId;
+                nextId = newId;
+                separator = right.keys.get(0);
+            }
+            else {
+                separator = keys.get(half - 1);
+                right.keys.addAll(keys.subList(half, keys.size()));
+                right.refs.addAll(refs.subList(half, refs.size()));
+                keys.subList(half - 1, keys.size()).clear();
+            }
+            refs.subList(half, refs.size()).clear();
+            return new Pair<>(separator, right);
+        }
+    }
+}
@@ -6,17 +6,25 @@ import datastructures.reference.IDNAFedReference;
 import datastructures.reference.IDNASketch;
 import utils.*;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Stream;
 
+/**
+ * A linked list whose elements point to their next element. The root of the list is a header with the id of the first element and the id of the tail.
+ * The tail is an object that holds the id of the last element, so that append reads the last element directly instead of walking the list. It is absent while the list is empty.
+ * The header never changes, so that it is cached per ContainerList. Lists whose root is their first element, or a pointer to it, are still read, and appended to by walking the list.
+ */
 public class ContainerList<T> extends IDNAFedReference.DNAFedReference<List<T>, IDNASketch.ContainerIdSketch> implements Streamable<T> {
+    public static final int DEFAULT_READ_AHEAD = ReadAhead.DEFAULT_READ_AHEAD;
 
     private final Coder<T, BaseSequence> coder;
+    private volatile ListHeader header;
 
     public ContainerList(DNAContainer container, IDNASketch.ContainerIdSketch sketch, Coder<T, BaseSequence> coder) {
         super(
                 sketch,
                 s -> getListOligos(container, s.id()).stream().map(AddressedDNA::payload).toArray(BaseSequence[]::new),
-                s -> FuncUtils.stream(() -> getRichListIterator(container, sketch.id())).map(RichListElement::object).map(coder::decode).toList()
+                s -> FuncUtils.stream(() -> getRichListIterator(container, sketch.id(), DEFAULT_READ_AHEAD)).map(RichListElement::object).map(coder::decode).toList()
         );
         this.coder = coder;
     }
@@ -28,7 +36,7 @@ public class ContainerList<T> extends IDNAFedReference.DNAFedReference<List<T>,
 
     @Override
     public Stream<T> stream() {
-        return encodedObjectsStream().map(coder::decode);
+        return FuncUtils.stream(() -> getRichListIterator(sketch.container(), sketch.id(), DEFAULT_READ_AHEAD)).map(RichListElement::object).map(coder::decode);
     }
 
     public Stream<BaseSequence> encodedObjectsStream() {
@@ -41,7 +49,7 @@ public class ContainerList<T> extends IDNAFedReference.DNAFedReference<List<T>,
     }
 
     public T get(int i) {
-        return stream().skip(i).findFirst().orElse(null);
+        return encodedObjectsStream().skip(i).findFirst().map(coder::decode).orElse(null);
     }
 
     @Override
@@ -63,14 +71,33 @@ public class ContainerList<T> extends IDNAFedReference.DNAFedReference<List<T>,
     }
 
     public static Iterator<RichListElement> getRichListIterator(DNAContainer container, long listId) {
+        return getRichListIterator(container, listId, 0);
+    }
+
+    /**
+     * Returns an iterator over the elements of the list that fetches the next readAhead elements asynchronously while the current element is decoded.
+     * Since each element points to the next one, the fetches are chained, i.e., an element is fetched once its predecessor was fetched.
+     * @param container the container.
+     * @param listId the id of the list.
+     * @param readAhead the number of elements fetched ahead. 0 fetches each element when it is requested.
+     * @return the iterator.
+     */
+    public static Iterator<RichListElement> getRichListIterator(DNAContainer container, long listId, int readAhead) {
         BaseSequence seq = container.get(listId);
         if (seq == null)
             return Collections.emptyIterator();
 
-        if (seq.length() == DNAPacker.LengthBase.INT_64.totalSize()) {
+        ListHeader header = ListHeader.of(seq);
+        if (header != null) {
+            listId = header.firstId();
+            seq = container.get(listId);
+        }
+        else if (seq.length() == DNAPacker.LengthBase.INT_64.totalSize()) {
             listId = DNAPacker.unpack(seq, false).longValue();
             seq = container.get(listId);
         }
+        if (seq == null)
+            return Collections.emptyIterator();
 
         BaseSequence seqFinal = seq;
         final long nextId = listId;
@@ -78,10 +105,12 @@ public class ContainerList<T> extends IDNAFedReference.DNAFedReference<List<T>,
         return new Iterator<>() {
             BaseSequence s = seqFinal;
             long id = nextId;
+            final Deque<CompletableFuture<BaseSequence>> fetched = new ArrayDeque<>();
+            CompletableFuture<BaseSequence> lastFetched = CompletableFuture.completedFuture(seqFinal);
 
             @Override
             public boolean hasNext() {
-                return s != null && s.length() > DNAPacker.LengthBase.INT_64.totalSize();
+                return hasElement(s);
             }
 
             @Override
@@ -90,12 +119,25 @@ public class ContainerList<T> extends IDNAFedReference.DNAFedReference<List<T>,
                     throw new NoSuchElementException("Iterator exhausted! No more elements to return.");
                 BaseSequence r = s.window(DNAPacker.LengthBase.INT_64.totalSize());
                 id = DNAPacker.unpack(s, false).longValue();
-                s = container.get(id);
+                if (readAhead <= 0) {
+                    s = container.get(id);
+                    return new RichListElement(id, r);
+                }
+
+                while (fetched.size() < readAhead) {
+                    lastFetched = ReadAhead.fetchAfter(lastFetched, prev -> hasElement(prev) ? container.get(DNAPacker.unpack(prev, false).longValue()) : null);
+                    fetched.add(lastFetched);
+                }
+                s = fetched.poll().join();
                 return new RichListElement(id, r);
             }
         };
     }
 
+    private static boolean hasElement(BaseSequence seq) {
+        return seq != null && seq.length() > DNAPacker.LengthBase.INT_64.totalSize();
+    }
+
     public static List<AddressedDNA> getListOligos(IDNASketch.ContainerIdSketch sketch) {
         return getListOligos(sketch.container(), sketch.id());
     }
@@ -106,7 +148,11 @@ public class ContainerList<T> extends IDNAFedReference.DNAFedReference<List<T>,
             return Collections.emptyList();
 
         List<AddressedDNA> oligos = new ArrayList<>(Arrays.asList(container.getOligos(listId)));
-        long id = DNAPacker.unpack(seq, false).longValue();
+        ListHeader header = ListHeader.of(seq);
+        if (header != null && container.get(header.tailId()) != null)
+            oligos.addAll(Arrays.asList(container.getOligos(header.tailId())));
+
+        long id = header != null ? header.firstId() : DNAPacker.unpack(seq, false).longValue();
         seq = container.get(id);
         while (seq != null) {
             oligos.addAll(Arrays.asList(container.getOligos(id)));
@@ -122,43 +168,83 @@ public class ContainerList<T> extends IDNAFedReference.DNAFedReference<List<T>,
         return append(Collections.singletonList(element));
     }
 
+    /**
+     * Appends the elements. The free id after the last element is read from the last element, whose id is stored in the tail, or is the first id if the list is empty.
+     * Afterwards, the tail is set to the new last element. Lists without a header are walked to their end.
+     * @param elements the elements.
+     * @return true if the elements were appended, and false if there are no elements or the list does not exist.
+     */
     public boolean append(List<T> elements) {
         if (elements == null || elements.isEmpty())
             return false;
 
-        long id = sketch.id();
         DNAContainer container = sketch.container();
-        BaseSequence seq = container.get(id);
-        if (seq == null)
-            return false;
-
-        do {
-            id = DNAPacker.unpack(seq, false).longValue();
-            seq = container.get(id);
-        } while(seq != null);
+        ListHeader header = header();
+        long id;
+        if (header != null) {
+            id = header.firstId();
+            BaseSequence tail = container.get(header.tailId());
+            BaseSequence last = tail == null ? null : container.get(DNAPacker.unpack(tail, false).longValue());
+            if (last != null)
+                id = DNAPacker.unpack(last, false).longValue();
+        }
+        else {
+            id = sketch.id();
+            BaseSequence seq = container.get(id);
+            if (seq == null)
+                return false;
+
+            do {
+                id = DNAPacker.unpack(seq, false).longValue();
+                seq = container.get(id);
+            } while(seq != null);
+        }
 
         long[] ids = container.registerIds(elements.size());
         container.put(id, BaseSequence.join(DNAPacker.pack(ids[0], DNAPacker.LengthBase.INT_64), coder.encode(elements.get(0))));
         for (int i = 1; i < elements.size(); i++)
             container.put(ids[i - 1], BaseSequence.join(DNAPacker.pack(ids[i], DNAPacker.LengthBase.INT_64), coder.encode(elements.get(i))));
 
+        if (header != null)
+            putTail(container, header.tailId(), elements.size() == 1 ? id : ids[elements.size() - 2]);
+
         return true;
     }
 
+    /**
+     * @return the cached header, or null if the list does not exist or has no header.
+     */
+    private ListHeader header() {
+        ListHeader cached = header;
+        if (cached == null) {
+            cached = ListHeader.of(sketch.container().get(sketch.id()));
+            header = cached;
+        }
+        return cached;
+    }
+
+    private static void putTail(DNAContainer container, long tailId, long lastId) {
+        container.put(tailId, DNAPacker.pack(lastId, DNAPacker.LengthBase.INT_64));
+    }
+
     public boolean insert(int pos, T element) {
         if (pos < 0)
             return false;
 
         DNAContainer container = sketch.container();
         var atm = container.getAddressManager();
-        long idNew = container.registerId();
-        long idNewRouted = atm.routeAndTranslate(idNew).routed();
         long id = sketch.id();
+        ListHeader header = header();
+        long firstId = header != null ? header.firstId() : id;
 
-        Long idPrevious = pos == 0 ? Long.valueOf(id) : FuncUtils.stream(() -> getRichListIterator(container, id)).skip(pos - 1).findFirst().map(RichListElement::id).orElse(null);
-        if (idPrevious == null)
+        // the new element takes the routing of the element at pos, which is moved to idNext. If that element is the last one, the tail is moved along with it
+        Long idPrevious = pos == 0 ? Long.valueOf(firstId) : FuncUtils.stream(() -> getRichListIterator(container, id)).skip(pos - 1).findFirst().map(RichListElement::id).orElse(null);
+        if (idPrevious == null || (header != null && container.get(idPrevious) == null))
             return append(element);
 
+        long idNew = container.registerId();
+        long idNewRouted = atm.routeAndTranslate(idNew).routed();
+
         long idNext = container.registerId();
         long idPreviousRouted = atm.routeAndTranslate(idPrevious).routed();
 
@@ -166,6 +252,11 @@ public class ContainerList<T> extends IDNAFedReference.DNAFedReference<List<T>,
 
         atm.addressRoutingManager().put(idPrevious, idNewRouted);
         atm.addressRoutingManager().put(idNext, idPreviousRouted);
+        if (header != null) {
+            BaseSequence tail = container.get(header.tailId());
+            if (tail != null && DNAPacker.unpack(tail, false).longValue() == idPrevious)
+                putTail(container, header.tailId(), idNext);
+        }
 
         return true;
     }
@@ -178,18 +269,20 @@ public class ContainerList<T> extends IDNAFedReference.DNAFedReference<List<T>,
         if (list == null || list.isEmpty())
             return putEmptyList(container, coder, rootId);
 
+        // the elements, the free id after the last element, and the tail id
         int listSize = list.size();
-        long[] ids = container.registerIds(listSize);
-
-        container.put(rootId, BaseSequence.join(DNAPacker.pack(ids[0], DNAPacker.LengthBase.INT_64), coder.encode(list.get(0))));
-        for (int i = 1; i < listSize; i++)
-            container.put(ids[i - 1], BaseSequence.join(DNAPacker.pack(ids[i], DNAPacker.LengthBase.INT_64), coder.encode(list.get(i))));
+        long[] ids = container.registerIds(listSize + 2);
+        for (int i = 0; i < listSize; i++)
+            container.put(ids[i], BaseSequence.join(DNAPacker.pack(ids[i + 1], DNAPacker.LengthBase.INT_64), coder.encode(list.get(i))));
 
+        putTail(container, ids[listSize + 1], ids[listSize - 1]);
+        container.put(rootId, new ListHeader(ids[0], ids[listSize + 1]).toSeq());
         return new ContainerList<>(container, new IDNASketch.ContainerIdSketch(rootId, container), coder);
     }
 
     public static <T> ContainerList<T> putEmptyList(DNAContainer container, Coder<T, BaseSequence> coder, long rootId) {
-        container.put(rootId, DNAPacker.pack(container.registerId(), DNAPacker.LengthBase.INT_64));
+        long[] ids = container.registerIds(2);
+        container.put(rootId, new ListHeader(ids[0], ids[1]).toSeq());
         return new ContainerList<>(container, new IDNASketch.ContainerIdSketch(rootId, container), coder);
     }
 
@@ -201,4 +294,25 @@ public class ContainerList<T> extends IDNAFedReference.DNAFedReference<List<T>,
     public record RichListElement(long id, BaseSequence object) {
 
     }
+
+    /**
+     * The header in the root of a list, i.e., the id of the first element, and the id of the tail, which holds the id of the last element.
+     * It starts with a version that is packed as HALF_BYTE, whereas the root of a list without a header starts with an id that is packed as INT_64.
+     */
+    private record ListHeader(long firstId, long tailId) {
+        private static final BaseSequence VERSION = DNAPacker.pack(1, DNAPacker.LengthBase.HALF_BYTE);
+        private static final int LENGTH = VERSION.length() + 2 * DNAPacker.LengthBase.INT_64.totalSize();
+
+        static ListHeader of(BaseSequence seq) {
+            if (seq == null || seq.length() != LENGTH || !seq.window(0, VERSION.length()).equals(VERSION))
+                return null;
+
+            Number[] ids = DNAPacker.unpack(seq.window(VERSION.length()), 2, false);
+            return new ListHeader(ids[0].longValue(), ids[1].longValue());
+        }
+
+        BaseSequence toSeq() {
+            return BaseSequence.join(VERSION, DNAPacker.pack(firstId, DNAPacker.LengthBase.INT_64), DNAPacker.pack(tailId, DNAPacker.LengthBase.INT_64));
+        }
+    }
 }
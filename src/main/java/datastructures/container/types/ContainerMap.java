@@ -0,0 +1,533 @@
+package datastructures.container.types;
+
+import core.BaseSequence;
+import datastructures.container.DNAContainer;
+import datastructures.reference.IDNAFedReference;
+import datastructures.reference.IDNASketch;
+import utils.*;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * A hash map that stores its entries in a directory of buckets.
+ * The root object contains the number of buckets, the number of entries per bucket object, the number of entries, and the id of the first bucket. The buckets have contiguous ids, so that the bucket of a key is computed from the hash of the encoded key without reading an index.
+ * A bucket object contains up to bucketCapacity entries and the id of its overflow object, which takes the entries that do not fit into the bucket. Hence, get reads the root and one bucket as long as the buckets do not overflow, and rebuild redistributes the entries to restore this.
+ * The keys are compared and hashed by their encodings, so the key coder must encode equal keys to equal sequences.
+ */
+public class ContainerMap<K, V> extends IDNAFedReference.DNAFedReference<Map<K, V>, IDNASketch.ContainerIdSketch> implements Streamable<Pair<K, V>> {
+    public static final int DEFAULT_BUCKET_CAPACITY = 8;
+    public static final double DEFAULT_LOAD_FACTOR = 0.75d;
+    public static final int DEFAULT_READ_AHEAD = ReadAhead.DEFAULT_READ_AHEAD;
+
+    private final Coder<K, BaseSequence> keyCoder;
+    private final Coder<V, BaseSequence> valueCoder;
+
+    public ContainerMap(DNAContainer container, IDNASketch.ContainerIdSketch sketch, Coder<K, BaseSequence> keyCoder, Coder<V, BaseSequence> valueCoder) {
+        super(
+                sketch,
+                s -> getMapOligos(container, s.id()).stream().map(AddressedDNA::payload).toArray(BaseSequence[]::new),
+                s -> decodeMap(FuncUtils.stream(() -> getMapIterator(container, sketch.id(), DEFAULT_READ_AHEAD)), keyCoder, valueCoder)
+        );
+        this.keyCoder = keyCoder;
+        this.valueCoder = valueCoder;
+    }
+
+    @Override
+    public Iterator<Pair<K, V>> iterator() {
+        return stream().iterator();
+    }
+
+    @Override
+    public Stream<Pair<K, V>> stream() {
+        return encodedEntriesStream().map(e -> new Pair<>(keyCoder.decode(e.getT1()), valueCoder.decode(e.getT2())));
+    }
+
+    public Stream<Pair<BaseSequence, BaseSequence>> encodedEntriesStream() {
+        return FuncUtils.stream(() -> getMapIterator(sketch.container(), sketch.id(), DEFAULT_READ_AHEAD));
+    }
+
+    @Override
+    public Map<K, V> decode() {
+        return decodeMap(encodedEntriesStream(), keyCoder, valueCoder);
+    }
+
+    @Override
+    public boolean isNullPointer() {
+        return Header.of(sketch.container().get(sketch.id())) == null;
+    }
+
+    /**
+     * Returns the value of a key by reading the root and the bucket of the key, and the overflow objects of the bucket if the key is not found in the bucket.
+     * @param key the key.
+     * @return the value, or null if the key is not in the map.
+     */
+    public V get(K key) {
+        BaseSequence value = locate(key);
+        return value == null ? null : valueCoder.decode(value);
+    }
+
+    /**
+     * Locates the key like get, but does not decode its value.
+     * @param key the key.
+     * @return true if the key is in the map.
+     */
+    public boolean containsKey(K key) {
+        return locate(key) != null;
+    }
+
+    /**
+     * Reads the root and the bucket chain of the key up to the bucket object that holds the key.
+     * @return the encoded value of the key, or null if the key is not in the map.
+     */
+    private BaseSequence locate(K key) {
+        DNAContainer container = sketch.container();
+        Header header = Header.of(container.get(sketch.id()));
+        if (header == null)
+            return null;
+
+        BaseSequence encodedKey = keyCoder.encode(key);
+        long id = header.bucketId(encodedKey);
+        while (id >= 0L) {
+            Bucket bucket = Bucket.of(id, container.get(id));
+            if (bucket == null)
+                return null;
+            int i = bucket.indexOf(encodedKey);
+            if (i >= 0)
+                return bucket.values.get(i);
+            id = bucket.overflowId;
+        }
+        return null;
+    }
+
+    /**
+     * @return the number of entries, which is read from the root.
+     */
+    public int size() {
+        Header header = Header.of(sketch.container().get(sketch.id()));
+        return header == null ? 0 : header.size;
+    }
+
+    /**
+     * @return the number of buckets, which is read from the root.
+     */
+    public int numBuckets() {
+        Header header = Header.of(sketch.container().get(sketch.id()));
+        return header == null ? 0 : header.numBuckets;
+    }
+
+    @Override
+    public BaseSequence[] addresses() {
+        return getMapOligos(sketch.container(), sketch.id()).stream().map(AddressedDNA::address).toArray(BaseSequence[]::new);
+    }
+
+    public boolean put(K key, V value) {
+        return putAll(Collections.singletonMap(key, value));
+    }
+
+    /**
+     * Puts the entries by grouping them by their buckets, so that each modified bucket is read and written once, and the root is written once.
+     * An existing key gets the new value, and new keys fill up the free slots of their bucket before an overflow object is added to the bucket.
+     * @param entries the entries.
+     * @return true if the entries were put, and false if there are no entries or the map does not exist.
+     */
+    public boolean putAll(Map<K, V> entries) {
+        if (entries == null || entries.isEmpty())
+            return false;
+
+        DNAContainer container = sketch.container();
+        Header header = Header.of(container.get(sketch.id()));
+        if (header == null)
+            return false;
+
+        Map<Long, Map<BaseSequence, BaseSequence>> byBucket = new LinkedHashMap<>();
+        entries.forEach((k, v) -> {
+            BaseSequence encodedKey = keyCoder.encode(k);
+            byBucket.computeIfAbsent(header.bucketId(encodedKey), __ -> new LinkedHashMap<>()).put(encodedKey, valueCoder.encode(v));
+        });
+
+        int added = 0;
+        for (var bucket : byBucket.entrySet())
+            added += upsert(container, header, bucket.getKey(), bucket.getValue());
+
+        if (added > 0) {
+            header.size += added;
+            container.put(sketch.id(), header.toSeq());
+        }
+        return true;
+    }
+
+    /**
+     * Removes a key by rewriting the bucket object that contains the key.
+     * @param key the key.
+     * @return true if the key was removed, and false if the key is not in the map.
+     */
+    public boolean remove(K key) {
+        DNAContainer container = sketch.container();
+        Header header = Header.of(container.get(sketch.id()));
+        if (header == null)
+            return false;
+
+        BaseSequence encodedKey = keyCoder.encode(key);
+        for (Bucket bucket : readChain(container, header.bucketId(encodedKey))) {
+            int i = bucket.indexOf(encodedKey);
+            if (i >= 0) {
+                bucket.keys.remove(i);
+                bucket.values.remove(i);
+                container.put(bucket.id, bucket.toSeq());
+                header.size--;
+                container.put(sketch.id(), header.toSeq());
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Rebuilds the map with enough buckets for its entries to fill the buckets to DEFAULT_LOAD_FACTOR of their capacity.
+     * @return true if the map was rebuilt, and false if the map does not exist.
+     */
+    public boolean rebuild() {
+        Header header = Header.of(sketch.container().get(sketch.id()));
+        return header != null && rebuild(numBucketsFor(header.size, header.bucketCapacity));
+    }
+
+    /**
+     * Redistributes the entries to new buckets, writes the root, and removes the old buckets and their overflow objects.
+     * @param numBuckets the number of buckets.
+     * @return true if the map was rebuilt, and false if the map does not exist.
+     */
+    public boolean rebuild(int numBuckets) {
+        if (numBuckets <= 0)
+            throw new RuntimeException("numBuckets must be > 0");
+
+        DNAContainer container = sketch.container();
+        Header header = Header.of(container.get(sketch.id()));
+        if (header == null)
+            return false;
+
+        List<Long> oldIds = new ArrayList<>();
+        List<Pair<BaseSequence, BaseSequence>> entries = new ArrayList<>(header.size);
+        for (int b = 0; b < header.numBuckets; b++) {
+            for (Bucket bucket : readChain(container, header.bucketStartId + b)) {
+                oldIds.add(bucket.id);
+                for (int i = 0; i < bucket.size(); i++)
+                    entries.add(new Pair<>(bucket.keys.get(i), bucket.values.get(i)));
+            }
+        }
+
+        Header rebuilt = putBuckets(container, entries, numBuckets, header.bucketCapacity, false);
+        container.put(sketch.id(), rebuilt.toSeq());
+        oldIds.forEach(container::remove);
+        return true;
+    }
+
+    /**
+     * Returns an iterator over the encoded entries that fetches the next readAhead buckets and their overflow objects asynchronously while the entries of the current bucket are decoded.
+     * @param container the container.
+     * @param rootId the id of the map.
+     * @param readAhead the number of buckets fetched ahead. 0 fetches each bucket when its first entry is requested.
+     * @return the iterator.
+     */
+    public static Iterator<Pair<BaseSequence, BaseSequence>> getMapIterator(DNAContainer container, long rootId, int readAhead) {
+        Header header = Header.of(container.get(rootId));
+        if (header == null)
+            return Collections.emptyIterator();
+
+        return new Iterator<>() {
+            int bucketPos = 0;
+            int fetchPos = 0;
+            Iterator<Pair<BaseSequence, BaseSequence>> bucket = Collections.emptyIterator();
+            final Deque<CompletableFuture<List<Bucket>>> fetched = new ArrayDeque<>();
+
+            @Override
+            public boolean hasNext() {
+                while (!bucket.hasNext() && bucketPos < header.numBuckets)
+                    bucket = nextChain().stream().flatMap(Bucket::entries).iterator();
+
+                return bucket.hasNext();
+            }
+
+            @Override
+            public Pair<BaseSequence, BaseSequence> next() {
+                if (!hasNext())
+                    throw new NoSuchElementException("Iterator exhausted! No more elements to return.");
+
+                return bucket.next();
+            }
+
+            private List<Bucket> nextChain() {
+                if (readAhead <= 0)
+                    return readChain(container, header.bucketStartId + bucketPos++);
+
+                // the current bucket and the next readAhead buckets are fetched
+                while (fetched.size() <= readAhead && fetchPos < header.numBuckets) {
+                    long id = header.bucketStartId + fetchPos++;
+                    fetched.add(ReadAhead.fetch(() -> readChain(container, id)));
+                }
+                bucketPos++;
+                return fetched.poll().join();
+            }
+        };
+    }
+
+    public static List<AddressedDNA> getMapOligos(DNAContainer container, long rootId) {
+        Header header = Header.of(container.get(rootId));
+        if (header == null)
+            return Collections.emptyList();
+
+        List<AddressedDNA> oligos = new ArrayList<>(Arrays.asList(container.getOligos(rootId)));
+        for (int b = 0; b < header.numBuckets; b++)
+            for (Bucket bucket : readChain(container, header.bucketStartId + b))
+                oligos.addAll(Arrays.asList(container.getOligos(bucket.id)));
+
+        return oligos;
+    }
+
+    public static <K, V> ContainerMap<K, V> putMap(DNAContainer container, Coder<K, BaseSequence> keyCoder, Coder<V, BaseSequence> valueCoder, Map<K, V> map) {
+        return putMap(container, keyCoder, valueCoder, container.registerId(), map, false);
+    }
+
+    public static <K, V> ContainerMap<K, V> putMap(DNAContainer container, Coder<K, BaseSequence> keyCoder, Coder<V, BaseSequence> valueCoder, long rootId, Map<K, V> map, boolean parallel) {
+        int size = map == null ? 0 : map.size();
+        return putMap(container, keyCoder, valueCoder, rootId, map, numBucketsFor(size, DEFAULT_BUCKET_CAPACITY), DEFAULT_BUCKET_CAPACITY, parallel);
+    }
+
+    /**
+     * Puts a map.
+     * @param container the container.
+     * @param keyCoder the coder of the keys.
+     * @param valueCoder the coder of the values.
+     * @param rootId the id of the map.
+     * @param map the entries.
+     * @param numBuckets the number of buckets.
+     * @param bucketCapacity the maximum number of entries per bucket object.
+     * @param parallel true to write the buckets in parallel.
+     * @return the map.
+     */
+    public static <K, V> ContainerMap<K, V> putMap(DNAContainer container, Coder<K, BaseSequence> keyCoder, Coder<V, BaseSequence> valueCoder, long rootId, Map<K, V> map, int numBuckets, int bucketCapacity, boolean parallel) {
+        if (numBuckets <= 0 || bucketCapacity <= 0)
+            throw new RuntimeException("numBuckets and bucketCapacity must be > 0");
+
+        List<Pair<BaseSequence, BaseSequence>> entries = map == null ? Collections.emptyList() : map.entrySet().stream().map(e -> new Pair<>(keyCoder.encode(e.getKey()), valueCoder.encode(e.getValue()))).toList();
+        Header header = putBuckets(container, entries, numBuckets, bucketCapacity, parallel);
+        container.put(rootId, header.toSeq());
+        return new ContainerMap<>(container, new IDNASketch.ContainerIdSketch(rootId, container), keyCoder, valueCoder);
+    }
+
+    public static <K, V> ContainerMap<K, V> putEmptyMap(DNAContainer container, Coder<K, BaseSequence> keyCoder, Coder<V, BaseSequence> valueCoder, long rootId) {
+        return putMap(container, keyCoder, valueCoder, rootId, null, false);
+    }
+
+    @Override
+    public String toString() {
+        return getMapOligos(sketch().container(), sketch.id()).toString();
+    }
+
+    private static <K, V> Map<K, V> decodeMap(Stream<Pair<BaseSequence, BaseSequence>> entries, Coder<K, BaseSequence> keyCoder, Coder<V, BaseSequence> valueCoder) {
+        Map<K, V> map = new HashMap<>();
+        entries.forEach(e -> map.put(keyCoder.decode(e.getT1()), valueCoder.decode(e.getT2())));
+        return map;
+    }
+
+    private static int numBucketsFor(int size, int bucketCapacity) {
+        return Math.max(1, (int) Math.ceil(size / (bucketCapacity * DEFAULT_LOAD_FACTOR)));
+    }
+
+    /**
+     * Registers numBuckets contiguous ids and writes the non-empty buckets with their overflow objects. A bucket without entries is not written.
+     * @return the header of the buckets, which is not written.
+     */
+    private static Header putBuckets(DNAContainer container, List<Pair<BaseSequence, BaseSequence>> entries, int numBuckets, int bucketCapacity, boolean parallel) {
+        long bucketStartId = container.registerIds(numBuckets)[0];
+        Header header = new Header(numBuckets, bucketCapacity, entries.size(), bucketStartId);
+        List<List<Pair<BaseSequence, BaseSequence>>> buckets = new ArrayList<>(numBuckets);
+        for (int b = 0; b < numBuckets; b++)
+            buckets.add(new ArrayList<>());
+        entries.forEach(e -> buckets.get((int) (header.bucketId(e.getT1()) - bucketStartId)).add(e));
+
+        FuncUtils.stream(IntStream.range(0, numBuckets), parallel).filter(b -> !buckets.get(b).isEmpty()).forEach(b -> {
+            List<Pair<BaseSequence, BaseSequence>> bucket = buckets.get(b);
+            int numObjects = (bucket.size() + bucketCapacity - 1) / bucketCapacity;
+            long[] ids = new long[numObjects];
+            ids[0] = bucketStartId + b;
+            if (numObjects > 1)
+                System.arraycopy(container.registerIds(numObjects - 1), 0, ids, 1, numObjects - 1);
+
+            for (int i = 0; i < numObjects; i++) {
+                Bucket object = new Bucket(ids[i], i + 1 < numObjects ? ids[i + 1] : -1L);
+                bucket.subList(i * bucketCapacity, Math.min(bucket.size(), (i + 1) * bucketCapacity)).forEach(e -> object.add(e.getT1(), e.getT2()));
+                container.put(object.id, object.toSeq());
+            }
+        });
+        return header;
+    }
+
+    /**
+     * Replaces the values of the keys that are in the bucket, adds the remaining keys to free slots of the bucket objects, and adds an overflow object for the keys that do not fit. Only the modified bucket objects are written.
+     * @return the number of added keys.
+     */
+    private static int upsert(DNAContainer container, Header header, long bucketId, Map<BaseSequence, BaseSequence> entries) {
+        Map<BaseSequence, BaseSequence> remaining = new LinkedHashMap<>(entries);
+        List<Bucket> chain = readChain(container, bucketId);
+        Set<Bucket> modified = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Bucket bucket : chain) {
+            for (int i = 0; i < bucket.size() && !remaining.isEmpty(); i++) {
+                BaseSequence value = remaining.remove(bucket.keys.get(i));
+                if (value != null) {
+                    bucket.values.set(i, value);
+                    modified.add(bucket);
+                }
+            }
+        }
+        int added = remaining.size();
+        Iterator<Map.Entry<BaseSequence, BaseSequence>> it = remaining.entrySet().iterator();
+        for (Bucket bucket : chain) {
+            while (it.hasNext() && bucket.size() < header.bucketCapacity) {
+                var e = it.next();
+                bucket.add(e.getKey(), e.getValue());
+                modified.add(bucket);
+            }
+        }
+        Bucket last = chain.isEmpty() ? null : chain.get(chain.size() - 1);
+        while (it.hasNext()) {
+            Bucket overflow = new Bucket(last == null ? bucketId : container.registerId(), -1L);
+            if (last != null) {
+                last.overflowId = overflow.id;
+                modified.add(last);
+            }
+            while (it.hasNext() && overflow.size() < header.bucketCapacity) {
+                var e = it.next();
+                overflow.add(e.getKey(), e.getValue());
+            }
+            chain.add(overflow);
+            modified.add(overflow);
+            last = overflow;
+        }
+
+        chain.stream().filter(modified::contains).forEach(bucket -> container.put(bucket.id, bucket.toSeq()));
+        return added;
+    }
+
+    /**
+     * @return the bucket object with the given id and its overflow objects, or an empty list if the bucket was never written.
+     */
+    private static List<Bucket> readChain(DNAContainer container, long bucketId) {
+        List<Bucket> chain = new ArrayList<>(1);
+        long id = bucketId;
+        while (id >= 0L) {
+            Bucket bucket = Bucket.of(id, container.get(id));
+            if (bucket == null)
+                break;
+            chain.add(bucket);
+            id = bucket.overflowId;
+        }
+        return chain;
+    }
+
+    /**
+     * The root of the map, i.e., the number of buckets, the number of entries per bucket object, the number of entries, and the id of the first bucket.
+     */
+    private static final class Header {
+        private final int numBuckets;
+        private final int bucketCapacity;
+        private int size;
+        private final long bucketStartId;
+
+        Header(int numBuckets, int bucketCapacity, int size, long bucketStartId) {
+            this.numBuckets = numBuckets;
+            this.bucketCapacity = bucketCapacity;
+            this.size = size;
+            this.bucketStartId = bucketStartId;
+        }
+
+        static Header of(BaseSequence seq) {
+            if (seq == null)
+                return null;
+
+            Number[] unpacked = DNAPacker.unpack(seq, 4, false);
+            return new Header(unpacked[0].intValue(), unpacked[1].intValue(), unpacked[2].intValue(), unpacked[3].longValue());
+        }
+
+        BaseSequence toSeq() {
+            return DNAPacker.packUnsigned(List.of((long) numBuckets, (long) bucketCapacity, (long) size, bucketStartId));
+        }
+
+        /**
+         * Hashes the string of the encoded key, which, unlike BaseSequence.hashCode(), does not change between JVMs.
+         */
+        long bucketId(BaseSequence encodedKey) {
+            int h = encodedKey.toString().hashCode();
+            return bucketStartId + Math.floorMod(h ^ (h >>> 16), numBuckets);
+        }
+    }
+
+    /**
+     * A bucket object, i.e., the packed id of its overflow object plus 1 (0 if there is none), the number of entries and the lengths of the keys and values, followed by the keys and values.
+     */
+    private static final class Bucket {
+        private final long id;
+        private long overflowId;
+        private final List<BaseSequence> keys;
+        private final List<BaseSequence> values;
+
+        Bucket(long id, long overflowId) {
+            this.id = id;
+            this.overflowId = overflowId;
+            this.keys = new ArrayList<>();
+            this.values = new ArrayList<>();
+        }
+
+        static Bucket of(long id, BaseSequence seq) {
+            if (seq == null)
+                return null;
+
+            Number[] counts = DNAPacker.unpack(seq, 2, false);
+            int count = counts[1].intValue();
+            Number[] header = DNAPacker.unpack(seq, 2 + 2 * count, false);
+            int offset = DNAPacker.getPackedSize(seq, 2 + 2 * count);
+            Bucket bucket = new Bucket(id, header[0].longValue() - 1L);
+            for (int i = 0; i < count; i++) {
+                int keyLength = header[2 + 2 * i].intValue();
+                int valueLength = header[3 + 2 * i].intValue();
+                bucket.add(seq.window(offset, offset + keyLength), seq.window(offset + keyLength, offset + keyLength + valueLength));
+                offset += keyLength + valueLength;
+            }
+            return bucket;
+        }
+
+        BaseSequence toSeq() {
+            List<Long> header = new ArrayList<>(2 + 2 * keys.size());
+            header.add(overflowId + 1L);
+            header.add((long) keys.size());
+            for (int i = 0; i < keys.size(); i++) {
+                header.add((long) keys.get(i).length());
+                header.add((long) values.get(i).length());
+            }
+            BaseSequence seq = DNAPacker.packUnsigned(header);
+            for (int i = 0; i < keys.size(); i++) {
+                seq.append(keys.get(i));
+                seq.append(values.get(i));
+            }
+            return seq;
+        }
+
+        int size() {
+            return keys.size();
+        }
+
+        int indexOf(BaseSequence key) {
+            return keys.indexOf(key);
+        }
+
+        void add(BaseSequence key, BaseSequence value) {
+            keys.add(key);
+            values.add(value);
+        }
+
+        Stream<Pair<BaseSequence, BaseSequence>> entries() {
+            return IntStream.range(0, keys.size()).mapToObj(i -> new Pair<>(keys.get(i), values.get(i)));
+        }
+    }
+}
@@ -0,0 +1,462 @@
+package datastructures.container.types;
+
+import core.BaseSequence;
+import datastructures.container.DNAContainer;
+import datastructures.reference.IDNAFedReference;
+import datastructures.reference.IDNASketch;
+import utils.*;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+
+/**
+ * A list that stores up to nodeCapacity elements per node (an unrolled linked list) with a two-level index of its nodes.
+ * The root object contains the number of elements, the capacities, and the id and the number of elements of each page. A page contains the id and the number of elements of up to pageCapacity nodes in list order.
+ * Hence, size() reads the root, get(i) reads the root, one page, and one node, and append reads the root, the last page, and the last node, instead of walking the list element by element like ContainerList.
+ * A modification rewrites the modified node and page, and the root, which grows by one entry per nodeCapacity * pageCapacity elements. insert splits a full node, and a full page, into two halves.
+ */
+public class ContainerUnrolledList<T> extends IDNAFedReference.DNAFedReference<List<T>, IDNASketch.ContainerIdSketch> implements Streamable<T> {
+    public static final int DEFAULT_NODE_CAPACITY = 8;
+    public static final int DEFAULT_PAGE_CAPACITY = 32;
+    public static final int DEFAULT_READ_AHEAD = ReadAhead.DEFAULT_READ_AHEAD;
+
+    private final Coder<T, BaseSequence> coder;
+
+    public ContainerUnrolledList(DNAContainer container, IDNASketch.ContainerIdSketch sketch, Coder<T, BaseSequence> coder) {
+        super(
+                sketch,
+                s -> getUnrolledListOligos(container, s.id()).stream().map(AddressedDNA::payload).toArray(BaseSequence[]::new),
+                s -> FuncUtils.stream(() -> getUnrolledListIterator(container, sketch.id(), DEFAULT_READ_AHEAD)).map(coder::decode).toList()
+        );
+        this.coder = coder;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return stream().iterator();
+    }
+
+    @Override
+    public Stream<T> stream() {
+        return encodedObjectsStream().map(coder::decode);
+    }
+
+    public Stream<BaseSequence> encodedObjectsStream() {
+        return FuncUtils.stream(() -> getUnrolledListIterator(sketch.container(), sketch.id(), DEFAULT_READ_AHEAD));
+    }
+
+    @Override
+    public List<T> decode() {
+        return stream().toList();
+    }
+
+    /**
+     * Returns the element at position i by reading the root, the page, and the node that contain the element.
+     * @param i the position.
+     * @return the element, or null if i is not a position of the list.
+     */
+    public T get(int i) {
+        DNAContainer container = sketch.container();
+        Root root = Root.of(container.get(sketch.id()));
+        if (root == null || i < 0 || i >= root.size)
+            return null;
+
+        int[] pageAndOffset = root.pages.locate(i);
+        Directory page = Directory.of(container.get(root.pages.ids.get(pageAndOffset[0])));
+        int[] nodeAndOffset = page.locate(pageAndOffset[1]);
+        return coder.decode(decodeNode(container.get(page.ids.get(nodeAndOffset[0]))).get(nodeAndOffset[1]));
+    }
+
+    /**
+     * @return the number of elements, which is read from the root.
+     */
+    @Override
+    public int size() {
+        Root root = Root.of(sketch.container().get(sketch.id()));
+        return root == null ? 0 : root.size;
+    }
+
+    @Override
+    public BaseSequence[] addresses() {
+        return getUnrolledListOligos(sketch.container(), sketch.id()).stream().map(AddressedDNA::address).toArray(BaseSequence[]::new);
+    }
+
+    public boolean append(T element) {
+        return append(Collections.singletonList(element));
+    }
+
+    /**
+     * Appends the elements by filling up the last node and putting the remaining elements into new nodes.
+     * @param elements the elements.
+     * @return true if the elements were appended, and false if there are no elements or the list does not exist.
+     */
+    public boolean append(List<T> elements) {
+        if (elements == null || elements.isEmpty())
+            return false;
+
+        DNAContainer container = sketch.container();
+        Root root = Root.of(container.get(sketch.id()));
+        if (root == null)
+            return false;
+
+        appendEncoded(container, root, elements.stream().map(coder::encode).toList());
+        container.put(sketch.id(), root.toSeq());
+        return true;
+    }
+
+    /**
+     * Inserts an element at position pos by rewriting the node that contains pos and its page. A full node is split into two halves, and so is a full page.
+     * @param pos the position.
+     * @param element the element.
+     * @return true if the element was inserted, and false if pos is negative or the list does not exist.
+     */
+    public boolean insert(int pos, T element) {
+        if (pos < 0)
+            return false;
+
+        DNAContainer container = sketch.container();
+        Root root = Root.of(container.get(sketch.id()));
+        if (root == null)
+            return false;
+        if (pos >= root.size)
+            return append(element);
+
+        int[] pageAndOffset = root.pages.locate(pos);
+        int pagePos = pageAndOffset[0];
+        long pageId = root.pages.ids.get(pagePos);
+        Directory page = Directory.of(container.get(pageId));
+        int[] nodeAndOffset = page.locate(pageAndOffset[1]);
+        int nodePos = nodeAndOffset[0];
+        long nodeId = page.ids.get(nodePos);
+
+        List<BaseSequence> node = new ArrayList<>(decodeNode(container.get(nodeId)));
+        node.add(nodeAndOffset[1], coder.encode(element));
+        if (node.size() > root.nodeCapacity) {
+            int half = node.size() / 2;
+            long splitId = container.registerId();
+            container.put(splitId, encodeNode(node.subList(half, node.size())));
+            container.put(nodeId, encodeNode(node.subList(0, half)));
+            page.counts.set(nodePos, half);
+            page.add(nodePos + 1, splitId, node.size() - half);
+        }
+        else {
+            container.put(nodeId, encodeNode(node));
+            page.counts.set(nodePos, node.size());
+        }
+
+        if (page.size() > root.pageCapacity) {
+            Directory splitPage = page.split();
+            long splitPageId = container.registerId();
+            container.put(splitPageId, splitPage.toSeq());
+            root.pages.add(pagePos + 1, splitPageId, splitPage.total());
+        }
+        container.put(pageId, page.toSeq());
+        root.pages.counts.set(pagePos, page.total());
+        root.size++;
+        container.put(sketch.id(), root.toSeq());
+        return true;
+    }
+
+    /**
+     * Returns an iterator over the encoded elements that fetches the next readAhead nodes asynchronously while the elements of the current node are decoded.
+     * The pages are read first, so that the nodes are fetched independently of each other.
+     * @param container the container.
+     * @param rootId the id of the list.
+     * @param readAhead the number of nodes fetched ahead. 0 fetches each node when its first element is requested.
+     * @return the iterator.
+     */
+    public static Iterator<BaseSequence> getUnrolledListIterator(DNAContainer container, long rootId, int readAhead) {
+        Root root = Root.of(container.get(rootId));
+        if (root == null)
+            return Collections.emptyIterator();
+
+        List<Long> nodeIds = readNodeIds(container, root);
+        return new Iterator<>() {
+            int nodePos = 0;
+            int fetchPos = 0;
+            Iterator<BaseSequence> node = Collections.emptyIterator();
+            final Deque<CompletableFuture<BaseSequence>> fetched = new ArrayDeque<>();
+
+            @Override
+            public boolean hasNext() {
+                return node.hasNext() || nodePos < nodeIds.size();
+            }
+
+            @Override
+            public BaseSequence next() {
+                while (!node.hasNext()) {
+                    if (nodePos >= nodeIds.size())
+                        throw new NoSuchElementException("Iterator exhausted! No more elements to return.");
+
+                    node = decodeNode(nextNode()).iterator();
+                }
+                return node.next();
+            }
+
+            private BaseSequence nextNode() {
+                if (readAhead <= 0)
+                    return container.get(nodeIds.get(nodePos++));
+
+                // the current node and the next readAhead nodes are fetched
+                while (fetched.size() <= readAhead && fetchPos < nodeIds.size()) {
+                    long id = nodeIds.get(fetchPos++);
+                    fetched.add(ReadAhead.fetch(() -> container.get(id)));
+                }
+                nodePos++;
+                return fetched.poll().join();
+            }
+        };
+    }
+
+    public static List<AddressedDNA> getUnrolledListOligos(DNAContainer container, long rootId) {
+        Root root = Root.of(container.get(rootId));
+        if (root == null)
+            return Collections.emptyList();
+
+        List<AddressedDNA> oligos = new ArrayList<>(Arrays.asList(container.getOligos(rootId)));
+        for (long pageId : root.pages.ids)
+            oligos.addAll(Arrays.asList(container.getOligos(pageId)));
+        for (long nodeId : readNodeIds(container, root))
+            oligos.addAll(Arrays.asList(container.getOligos(nodeId)));
+
+        return oligos;
+    }
+
+    public static <T> ContainerUnrolledList<T> putUnrolledList(DNAContainer container, Coder<T, BaseSequence> coder, List<T> list) {
+        return putUnrolledList(container, coder, container.registerId(), list, DEFAULT_NODE_CAPACITY, DEFAULT_PAGE_CAPACITY);
+    }
+
+    public static <T> ContainerUnrolledList<T> putUnrolledList(DNAContainer container, Coder<T, BaseSequence> coder, long rootId, List<T> list, int nodeCapacity) {
+        return putUnrolledList(container, coder, rootId, list, nodeCapacity, DEFAULT_PAGE_CAPACITY);
+    }
+
+    /**
+     * Puts a list.
+     * @param container the container.
+     * @param coder the coder of the elements.
+     * @param rootId the id of the list.
+     * @param list the elements.
+     * @param nodeCapacity the maximum number of elements per node.
+     * @param pageCapacity the maximum number of nodes per page.
+     * @return the list.
+     */
+    public static <T> ContainerUnrolledList<T> putUnrolledList(DNAContainer container, Coder<T, BaseSequence> coder, long rootId, List<T> list, int nodeCapacity, int pageCapacity) {
+        if (nodeCapacity <= 0 || pageCapacity <= 1)
+            throw new RuntimeException("nodeCapacity must be > 0 and pageCapacity must be > 1");
+
+        Root root = new Root(0, nodeCapacity, pageCapacity, new Directory());
+        if (list != null && !list.isEmpty())
+            appendEncoded(container, root, list.stream().map(coder::encode).toList());
+
+        container.put(rootId, root.toSeq());
+        return new ContainerUnrolledList<>(container, new IDNASketch.ContainerIdSketch(rootId, container), coder);
+    }
+
+    public static <T> ContainerUnrolledList<T> putEmptyUnrolledList(DNAContainer container, Coder<T, BaseSequence> coder, long rootId) {
+        return putUnrolledList(container, coder, rootId, null, DEFAULT_NODE_CAPACITY, DEFAULT_PAGE_CAPACITY);
+    }
+
+    @Override
+    public String toString() {
+        return getUnrolledListOligos(sketch().container(), sketch.id()).toString();
+    }
+
+    /**
+     * Appends encoded elements by filling up the last node, and putting the remaining elements into new nodes that are added to the last page and to new pages.
+     * The modified nodes and pages are written, and root is updated but not written.
+     */
+    private static void appendEncoded(DNAContainer container, Root root, List<BaseSequence> elements) {
+        Map<Integer, Directory> modifiedPages = new LinkedHashMap<>();
+        int pagePos = root.pages.size() - 1;
+        Directory page = pagePos < 0 ? null : Directory.of(container.get(root.pages.ids.get(pagePos)));
+        int from = 0;
+        if (page != null && page.counts.get(page.size() - 1) < root.nodeCapacity) {
+            int nodePos = page.size() - 1;
+            long nodeId = page.ids.get(nodePos);
+            List<BaseSequence> node = new ArrayList<>(decodeNode(container.get(nodeId)));
+            from = Math.min(elements.size(), root.nodeCapacity - node.size());
+            node.addAll(elements.subList(0, from));
+            container.put(nodeId, encodeNode(node));
+            page.counts.set(nodePos, node.size());
+            modifiedPages.put(pagePos, page);
+        }
+
+        int numNodes = (elements.size() - from + root.nodeCapacity - 1) / root.nodeCapacity;
+        long[] nodeIds = numNodes == 0 ? new long[0] : container.registerIds(numNodes);
+        for (int i = 0; i < numNodes; i++) {
+            List<BaseSequence> node = elements.subList(from + i * root.nodeCapacity, Math.min(elements.size(), from + (i + 1) * root.nodeCapacity));
+            container.put(nodeIds[i], encodeNode(node));
+            if (page == null || page.size() >= root.pageCapacity) {
+                page = new Directory();
+                pagePos = root.pages.size();
+                root.pages.add(pagePos, container.registerId(), 0);
+            }
+            page.add(page.size(), nodeIds[i], node.size());
+            modifiedPages.put(pagePos, page);
+        }
+
+        modifiedPages.forEach((pos, modified) -> {
+            container.put(root.pages.ids.get(pos), modified.toSeq());
+            root.pages.counts.set(pos, modified.total());
+        });
+        root.size += elements.size();
+    }
+
+    private static List<Long> readNodeIds(DNAContainer container, Root root) {
+        List<CompletableFuture<BaseSequence>> pages = root.pages.ids.stream().map(id -> ReadAhead.fetch(() -> container.get(id))).toList();
+        List<Long> nodeIds = new ArrayList<>();
+        pages.forEach(page -> nodeIds.addAll(Directory.of(page.join()).ids));
+        return nodeIds;
+    }
+
+    /**
+     * Encodes a node as the packed number of its elements and their lengths, followed by the elements.
+     */
+    private static BaseSequence encodeNode(List<BaseSequence> elements) {
+        List<Integer> header = new ArrayList<>(elements.size() + 1);
+        header.add(elements.size());
+        elements.forEach(e -> header.add(e.length()));
+        BaseSequence node = DNAPacker.packUnsigned(header);
+        elements.forEach(node::append);
+        return node;
+    }
+
+    private static List<BaseSequence> decodeNode(BaseSequence node) {
+        if (node == null)
+            throw new RuntimeException("node of unrolled list is missing");
+
+        int count = DNAPacker.unpack(node, false).intValue();
+        Number[] header = DNAPacker.unpack(node, count + 1, false);
+        int offset = DNAPacker.getPackedSize(node, count + 1);
+        List<BaseSequence> elements = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            int length = header[i].intValue();
+            elements.add(node.window(offset, offset + length));
+            offset += length;
+        }
+        return elements;
+    }
+
+    /**
+     * The root of the list, i.e., the number of elements, the capacities, and the directory of the pages.
+     */
+    private static final class Root {
+        private int size;
+        private final int nodeCapacity;
+        private final int pageCapacity;
+        private final Directory pages;
+
+        Root(int size, int nodeCapacity, int pageCapacity, Directory pages) {
+            this.size = size;
+            this.nodeCapacity = nodeCapacity;
+            this.pageCapacity = pageCapacity;
+            this.pages = pages;
+        }
+
+        static Root of(BaseSequence seq) {
+            if (seq == null)
+                return null;
+
+            List<Number> unpacked = DNAPacker.unpackAll(seq, false);
+            return new Root(unpacked.get(0).intValue(), unpacked.get(1).intValue(), unpacked.get(2).intValue(), Directory.of(unpacked, 3));
+        }
+
+        BaseSequence toSeq() {
+            List<Long> values = new ArrayList<>();
+            values.add((long) size);
+            values.add((long) nodeCapacity);
+            values.add((long) pageCapacity);
+            pages.packTo(values);
+            return DNAPacker.packUnsigned(values);
+        }
+    }
+
+    /**
+     * The ids of pages or nodes in list order and their numbers of elements.
+     */
+    private static final class Directory {
+        private final List<Long> ids;
+        private final List<Integer> counts;
+
+        Directory() {
+            this.ids = new ArrayList<>();
+            this.counts = new ArrayList<>();
+        }
+
+        static Directory of(BaseSequence seq) {
+            if (seq == null)
+                throw new RuntimeException("page of unrolled list is missing");
+
+            return of(DNAPacker.unpackAll(seq, false), 0);
+        }
+
+        static Directory of(List<Number> unpacked, int from) {
+            Directory directory = new Directory();
+            int n = unpacked.get(from).intValue();
+            for (int i = 0; i < n; i++)
+                directory.add(i, unpacked.get(from + 1 + 2 * i).longValue(), unpacked.get(from + 2 + 2 * i).intValue());
+
+            return directory;
+        }
+
+        void packTo(List<Long> values) {
+            values.add((long) ids.size());
+            for (int i = 0; i < ids.size(); i++) {
+                values.add(ids.get(i));
+                values.add((long) counts.get(i));
+            }
+        }
+
+        BaseSequence toSeq() {
+            List<Long> values = new ArrayList<>(1 + 2 * ids.size());
+            packTo(values);
+            return DNAPacker.packUnsigned(values);
+        }
+
+        int size() {
+            return ids.size();
+        }
+
+        int total() {
+            return counts.stream().mapToInt(Integer::intValue).sum();
+        }
+
+        void add(int pos, long id, int count) {
+            ids.add(pos, id);
+            counts.add(pos, count);
+        }
+
+        /**
+         * Moves the second half of the entries to a new directory.
+         * @return the new directory.
+         */
+        Directory split() {
+            int half = ids.size() / 2;
+            Directory second = new Directory();
+            second.ids.addAll(ids.subList(half, ids.size()));
+            second.counts.addAll(counts.subList(half, counts.size()));
+            ids.subList(half, ids.size()).clear();
+            counts.subList(half, counts.size()).clear();
+            return second;
+        }
+
+        /**
+         * Finds the entry of a position with a binary search over the cumulated numbers of elements of the entries.
+         * @param pos the position.
+         * @return the position of the entry and the position of the element in the entry.
+         */
+        int[] locate(int pos) {
+            int[] ends = new int[counts.size()];
+            int end = 0;
+            for (int i = 0; i < ends.length; i++) {
+                end += counts.get(i);
+                ends[i] = end;
+            }
+            int entry = Arrays.binarySearch(ends, pos + 1);
+            if (entry < 0)
+                entry = -entry - 1;
+
+            return new int[] {entry, pos - (entry == 0 ? 0 : ends[entry - 1])};
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package datastructures.container.types;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Fetches the next elements of an iterator asynchronously, so that they are read from the container while the current element is decoded.
+ * The fetches run on a shared pool of daemon threads, so that an abandoned iterator does not prevent the JVM from exiting.
+ */
+final class ReadAhead {
+    static final int DEFAULT_READ_AHEAD = 4;
+
+    private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "DNAContainer-read-ahead");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private ReadAhead() {
+    }
+
+    static <T> CompletableFuture<T> fetch(Supplier<T> supplier) {
+        return CompletableFuture.supplyAsync(supplier, EXECUTOR);
+    }
+
+    static <T, R> CompletableFuture<R> fetchAfter(CompletableFuture<T> previous, Function<T, R> fetcher) {
+        return previous.thenApplyAsync(fetcher, EXECUTOR);
+    }
+}
@@ -65,6 +65,29 @@ public class BloomFilter<T> {
         return numBits;
     }
 
+    /**
+     * @return the fraction of bits that are set in this Bloom filter.
+     */
+    public double fillRatio() {
+        return (double) bitSet.cardinality() / numBits;
+    }
+
+    /**
+     * Estimates the current false positive probability from the fraction of set bits.
+     * @return the estimated false positive probability.
+     */
+    public double estimatedFalsePositiveProb() {
+        return Math.pow(fillRatio(), hashFunctions.size());
+    }
+
+    /**
+     * Estimates the number of inserted elements from the fraction of set bits.
+     * @return the estimated number of inserted elements.
+     */
+    public double estimatedNumElements() {
+        return -((double) numBits / hashFunctions.size()) * Math.log(1d - fillRatio());
+    }
+
     public static long numBits(double fpp, double nElements) {
         return (long) Math.ceil(-nElements * Math.log(fpp) / LN_2_SQUARED);
     }
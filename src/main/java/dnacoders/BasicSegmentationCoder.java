@@ -56,4 +56,9 @@ public class BasicSegmentationCoder implements SegmentationCoder {
     public int numSegments(int len) {
         return (int) Math.ceil((double) len / splitLen);
     }
+
+    @Override
+    public int splitLength() {
+        return splitLen;
+    }
 }
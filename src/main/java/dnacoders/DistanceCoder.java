@@ -5,6 +5,7 @@ import core.dnarules.DNARule;
 import dnacoders.headercoders.PermutationCoder;
 import utils.FuncUtils;
 import utils.lsh.LSH;
+import utils.lsh.LSHMetrics;
 import utils.lsh.minhash.MinHashLSH;
 import java.util.BitSet;
 import java.util.HashSet;
@@ -120,7 +121,8 @@ public class DistanceCoder extends PermutationCoder {
                     distFunc = can -> jaccardDistanceHighK(kmers, can.kmers(k));
                 }
 
-                return FuncUtils.stream(hits.stream(), hits.size() > PARALLEL_SIZE_TRIGGER).filter(filter).map(distFunc).min(Float::compare).orElse(1.0f);
+                LSHMetrics metrics = deep.getMetrics();
+                return FuncUtils.stream(hits.stream(), hits.size() > PARALLEL_SIZE_TRIGGER).filter(filter).peek(__ -> metrics.recordVerifications(1L)).map(distFunc).min(Float::compare).orElse(1.0f);
             }
         }
 
@@ -6,4 +6,9 @@ import utils.Coder;
 public interface SegmentationCoder extends Coder<BaseSequence, BaseSequence[]> {
 
     int numSegments(int len);
+
+    /**
+     * @return the number of bases of the input that are encoded into each segment, i.e., segment i encodes the bases [i * splitLength(), (i + 1) * splitLength()) of the input.
+     */
+    int splitLength();
 }
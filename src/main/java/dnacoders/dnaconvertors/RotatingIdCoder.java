@@ -0,0 +1,155 @@
+package dnacoders.dnaconvertors;
+
+import core.Base;
+import core.BaseSequence;
+import utils.Coder;
+import java.util.ArrayList;
+import java.util.List;
+import static core.Base.*;
+
+/**
+ * Maps ids directly to fixed-length DNA sequences with integer arithmetic. The id is scrambled by a bijective 64-bit mixer so that consecutive ids yield dissimilar sequences.
+ * The mixed id is written as base-3 digits that are rotated against the previous base, as in RotatingTre. The remaining bases are derived from the mixed id and steer the GC content towards the target.
+ * The resulting sequences are free of homopolymers.
+ */
+public class RotatingIdCoder implements Coder<Long, BaseSequence> {
+
+    /**
+     * The number of base-3 digits needed to represent any 64-bit value.
+     */
+    public static final int ID_DIGITS = 41;
+    public static final double DEFAULT_TARGET_GC_CONTENT = 0.5d;
+
+    private static final Base[][] ROTATIONS = new Base[Base.values().length][];
+    static {
+        ROTATIONS[A.ordinal()] = new Base[] {C, G, T};
+        ROTATIONS[T.ordinal()] = new Base[] {A, C, G};
+        ROTATIONS[C.ordinal()] = new Base[] {G, T, A};
+        ROTATIONS[G.ordinal()] = new Base[] {T, A, C};
+    }
+
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+    private static final long MIX_1 = 0xbf58476d1ce4e5b9L;
+    private static final long MIX_2 = 0x94d049bb133111ebL;
+    private static final long MIX_1_INV = inverse(MIX_1);
+    private static final long MIX_2_INV = inverse(MIX_2);
+
+    private final int length;
+    private final int idDigits;
+    private final int targetGcCount;
+
+    /**
+     * Creates an instance of RotatingIdCoder that maps ids to DNA sequences of the given length with a target GC content of 50%.
+     * @param length the length of the DNA sequences.
+     */
+    public RotatingIdCoder(int length) {
+        this(length, DEFAULT_TARGET_GC_CONTENT);
+    }
+
+    /**
+     * Creates an instance of RotatingIdCoder that maps ids to DNA sequences of the given length.
+     * Ids are only guaranteed to map to unique sequences, and to be decodable, if length >= ID_DIGITS. The GC content can only be steered by the length - ID_DIGITS trailing bases.
+     * @param length the length of the DNA sequences.
+     * @param targetGcContent the target GC content.
+     */
+    public RotatingIdCoder(int length, double targetGcContent) {
+        if (length <= 0)
+            throw new RuntimeException("length must be > 0");
+        if (targetGcContent < 0d || targetGcContent > 1d)
+            throw new RuntimeException("targetGcContent must be in [0, 1]");
+
+        this.length = length;
+        this.idDigits = Math.min(ID_DIGITS, length);
+        this.targetGcCount = (int) Math.round(length * targetGcContent);
+    }
+
+    @Override
+    public BaseSequence encode(Long id) {
+        long mixed = mix(id + GOLDEN_GAMMA);
+        List<Base> bases = new ArrayList<>(length);
+        Base previous = A;
+        int gcCount = 0;
+
+        long digits = mixed;
+        for (int i = 0; i < idDigits; i++) {
+            previous = ROTATIONS[previous.ordinal()][(int) Long.remainderUnsigned(digits, 3L)];
+            digits = Long.divideUnsigned(digits, 3L);
+            bases.add(previous);
+            gcCount += isGC(previous) ? 1 : 0;
+        }
+
+        for (int i = idDigits; i < length; i++) {
+            long random = mix(mixed + i * GOLDEN_GAMMA);
+            int gcMissing = targetGcCount - gcCount;
+            boolean gc = gcMissing >= length - i || (gcMissing > 0 && (random & 1L) == 0L);
+            Base[] rotations = ROTATIONS[previous.ordinal()];
+            int digit = (int) Long.remainderUnsigned(random >>> 1, 3L);
+            while (isGC(rotations[digit]) != gc)
+                digit = (digit + 1) % 3;
+
+            previous = rotations[digit];
+            bases.add(previous);
+            gcCount += gc ? 1 : 0;
+        }
+
+        return new BaseSequence(bases);
+    }
+
+    @Override
+    public Long decode(BaseSequence seq) {
+        long mixed = 0L;
+        for (int i = idDigits - 1; i >= 0; i--)
+            mixed = mixed * 3L + digitOf(i > 0 ? seq.get(i - 1) : A, seq.get(i));
+
+        return unmix(mixed) - GOLDEN_GAMMA;
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    private static int digitOf(Base previous, Base current) {
+        Base[] rotations = ROTATIONS[previous.ordinal()];
+        for (int digit = 0; digit < rotations.length; digit++) {
+            if (rotations[digit] == current)
+                return digit;
+        }
+
+        throw new RuntimeException("no digit found for base=" + current + ", previous base=" + previous);
+    }
+
+    private static boolean isGC(Base b) {
+        return b == C || b == G;
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * MIX_1;
+        z = (z ^ (z >>> 27)) * MIX_2;
+        return z ^ (z >>> 31);
+    }
+
+    private static long unmix(long z) {
+        z = unXorShift(z, 31) * MIX_2_INV;
+        z = unXorShift(z, 27) * MIX_1_INV;
+        return unXorShift(z, 30);
+    }
+
+    private static long unXorShift(long y, int shift) {
+        long x = y;
+        for (long t = y >>> shift; t != 0L; t >>>= shift)
+            x ^= t;
+
+        return x;
+    }
+
+    /**
+     * @return the multiplicative inverse of an odd number modulo 2^64.
+     */
+    private static long inverse(long odd) {
+        long inv = odd;
+        for (int i = 0; i < 5; i++)
+            inv *= 2L - odd * inv;
+
+        return inv;
+    }
+}
@@ -19,6 +19,7 @@ import utils.lsh.minhash.MinHashLSH;
 import utils.lsh.storage.LSHStorage;
 import utils.rq.RQCoder;
 import utils.serializers.FixedSizeSerializer;
+import utils.serializers.PackedSeqSerializer;
 import java.nio.ByteBuffer;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicReference;
@@ -125,25 +126,7 @@ public class Application {
 
     private static Pair<Boolean, Container<Long, BaseSequence>> parseBarcodesContainer(JSONObject translationOptions, int addrSize) {
         if (translationOptions.getBoolean("persistBarcodes")) {
-            if (addrSize % 4 != 0)
-                throw new RuntimeException("address size must be divisible by 4 when using persistent storage for the translated barcodes! You used address size: " + addrSize);
-
-            return new Pair<>(true, new PersistentContainer<>("barcodes.table", new FixedSizeSerializer<>() {
-                @Override
-                public int serializedSize() {
-                    return 2 + addrSize / 4;
-                }
-
-                @Override
-                public byte[] serialize(BaseSequence seq) {
-                    return Packer.withBytePadding(SeqBitStringConverter.transform(seq)).toBytes();
-                }
-
-                @Override
-                public BaseSequence deserialize(byte[] bs) {
-                    return SeqBitStringConverter.transform(Packer.withoutBytePadding(new BitString(bs)));
-                }
-            }));
+            return new Pair<>(true, new PersistentContainer<>("barcodes.table", new PackedSeqSerializer(addrSize)));
         }
 
         return new Pair<>(false, Container.discardingContainer());
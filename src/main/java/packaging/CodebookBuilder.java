@@ -0,0 +1,55 @@
+package packaging;
+
+import datastructures.container.impl.BarcodeCodebook;
+import datastructures.container.translation.DNAAddrManager;
+import org.json.JSONObject;
+import utils.FuncUtils;
+import utils.lsh.minhash.MinHashLSH;
+import utils.lsh.storage.LSHStorage;
+
+/**
+ * Builds a barcode codebook offline, which can then be served by a CodebookAddrManager. Barcodes are generated in parallel on the common ForkJoinPool.
+ */
+public class CodebookBuilder {
+
+    public static void main(String[] args) {
+        perform(FuncUtils.loadConfigFile(args[0]));
+    }
+
+    static void perform(JSONObject config) {
+        String path = config.getString("path");
+        long count = config.getLong("count");
+        int addrSize = config.getInt("addrSize");
+        double minDist = config.getDouble("minDist");
+        int permutations = config.getInt("permutations");
+        boolean numericBarcodes = config.getBoolean("numericBarcodes");
+        JSONObject lshParams = config.getJSONObject("lsh");
+        int k = lshParams.getInt("k");
+        int r = lshParams.getInt("r");
+        int b = lshParams.getInt("b");
+
+        System.out.println("path: " + path);
+        System.out.println("count: " + count);
+        System.out.println("addressSize: " + addrSize + ", permutations: " + permutations + ", minDist: " + minDist + ", numericBarcodes: " + numericBarcodes);
+
+        DNAAddrManager.Builder builder = DNAAddrManager
+                .builder()
+                .setLsh(MinHashLSH.newSeqAmpLSHTraditional(k, r, b, LSHStorage.AmplifiedLSHStorage.Amplification.OR))
+                .setAddrSize(addrSize)
+                .setMinDist(minDist)
+                .setNumericBarcodes(numericBarcodes);
+
+        // numeric barcodes are not permuted
+        if (!numericBarcodes)
+            builder.setNumPermutations(permutations);
+
+        DNAAddrManager atm = builder.build();
+
+        long t1 = System.currentTimeMillis();
+        try (BarcodeCodebook codebook = BarcodeCodebook.build(path, atm, count)) {
+            double timeInSecs = (System.currentTimeMillis() - t1) / 1000d;
+            System.out.println("built codebook of " + codebook.size() + " barcodes in " + timeInSecs + " seconds -> " + count / timeInSecs + " barcodes/sec");
+            System.out.println("bad addresses: " + atm.badAddressesCount());
+        }
+    }
+}
@@ -82,6 +82,17 @@ public class BitSetXXL implements Streamable<Long> {
         return bitSets[bitSetIndex].get(whichBitInBitSet(bitIndex));
     }
 
+    /**
+     * @return the number of bits set to true.
+     */
+    public long cardinality() {
+        long cardinality = 0L;
+        for (BitSet bs : bitSets)
+            cardinality += bs.cardinality();
+
+        return cardinality;
+    }
+
     public LongStream streamAsLongStream() {
         return Arrays.stream(bitSets).flatMapToLong(bs -> bs.stream().mapToLong(__ -> __));
     }
@@ -162,6 +162,35 @@ public final class FuncUtils {
         return StreamSupport.stream(it.spliterator(), false);
     }
 
+    /**
+     * Creates a read-only collection whose elements are computed by a new stream on each traversal, i.e., without materializing them.
+     * @param streamSupplier the supplier of the streams.
+     * @return the collection. Its size() traverses a stream.
+     */
+    public static <T> Collection<T> lazyCollection(Supplier<Stream<T>> streamSupplier) {
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<T> iterator() {
+                return streamSupplier.get().iterator();
+            }
+
+            @Override
+            public Spliterator<T> spliterator() {
+                return streamSupplier.get().spliterator();
+            }
+
+            @Override
+            public Stream<T> stream() {
+                return streamSupplier.get();
+            }
+
+            @Override
+            public int size() {
+                return Math.toIntExact(streamSupplier.get().count());
+            }
+        };
+    }
+
     /**
      * @param s the stream.
      * @param parallel specifies whether this stream should be parallel.
@@ -15,6 +15,14 @@ public class SeqBitStringConverter {
         MAPPER = m.unmodifiableMap();
     }
 
+    // the mapping of MAPPER by the numeric value of the 2 bits, and its reverse by Base.ordinal()
+    private static final Base[] BYTE_MAPPER = {Base.A, Base.T, Base.C, Base.G};
+    private static final int[] BYTE_MAPPER_REVERSE = new int[Base.values().length];
+    static {
+        for (int i = 0; i < BYTE_MAPPER.length; i++)
+            BYTE_MAPPER_REVERSE[BYTE_MAPPER[i].ordinal()] = i;
+    }
+
     public static BaseSequence transform(String s) {
         if (s.length() % 2 != 0)
             throw new RuntimeException("string's length not even. Padding missing?");
@@ -40,6 +48,44 @@ public class SeqBitStringConverter {
         return bitString;
     }
 
+    /**
+     * Converts bytes to bases, i.e., 4 bases per byte with the most significant bits first.
+     * @param bytes the bytes.
+     * @param offset the index of the first byte.
+     * @param length the number of bytes.
+     * @return the bases.
+     */
+    public static BaseSequence transform(byte[] bytes, int offset, int length) {
+        Base[] bases = new Base[length << 2];
+        for (int i = 0; i < length; i++) {
+            int b = bytes[offset + i];
+            for (int j = 0; j < 4; j++)
+                bases[(i << 2) + j] = BYTE_MAPPER[(b >>> ((3 - j) << 1)) & 3];
+        }
+        return new BaseSequence(bases);
+    }
+
+    /**
+     * Converts bases to bytes, i.e., 4 bases per byte with the most significant bits first.
+     * @param seq the bases. Its length must be a multiple of 4.
+     * @param bytes the array to write the bytes to.
+     * @param offset the index of the first byte.
+     * @return the number of bytes written.
+     */
+    public static int transform(BaseSequence seq, byte[] bytes, int offset) {
+        int length = seq.length();
+        if ((length & 3) != 0)
+            throw new RuntimeException("seq's length not a multiple of 4");
+
+        for (int i = 0; i < length; i += 4) {
+            int b = 0;
+            for (int j = 0; j < 4; j++)
+                b = (b << 2) | BYTE_MAPPER_REVERSE[seq.get(i + j).ordinal()];
+            bytes[offset + (i >>> 2)] = (byte) b;
+        }
+        return length >>> 2;
+    }
+
     public static String transformToString(BaseSequence seq) {
         StringBuilder sb = new StringBuilder();
         for (Base b : seq)
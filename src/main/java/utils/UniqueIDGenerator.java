@@ -24,7 +24,7 @@ public class UniqueIDGenerator implements Supplier<Long> {
         get();
     }
 
-    public void sync(long lastId) {
+    public synchronized void sync(long lastId) {
         nextFreeId = Math.max(lastId + 1, nextFreeId);
     }
 
@@ -48,6 +48,17 @@ public class UniqueIDGenerator implements Supplier<Long> {
         return result;
     }
 
+    /**
+     * Reserves n contiguous ids without materializing them.
+     * @param n the number of ids.
+     * @return the first reserved id.
+     */
+    public synchronized long getRange(int n) {
+        long start = nextFreeId;
+        nextFreeId += n;
+        return start;
+    }
+
     public long getStart() {
         return start;
     }
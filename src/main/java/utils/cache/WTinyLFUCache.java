@@ -0,0 +1,410 @@
+package utils.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.ToLongFunction;
+
+/**
+ * A cache with long keys, a weight budget, and the W-TinyLFU policy.
+ * New values enter a small LRU window. Values evicted from the window are only admitted to the main segmented LRU if they are accessed more frequently than the main's victim, which is estimated by a count-min sketch with periodic aging.
+ * Reads are lock-free. They record their accesses in a lossy buffer that is replayed on the policy by whichever thread acquires the policy lock.
+ * To not cache values that were loaded before a concurrent invalidation, a value is only cached if no invalidation happened since the stamp() taken before loading it.
+ * @param <V> the type of values.
+ */
+public class WTinyLFUCache<V> {
+    public static final double DEFAULT_WINDOW_RATIO = 0.01d;
+    public static final double DEFAULT_PROTECTED_RATIO = 0.8d;
+    private static final int READ_BUFFER_SIZE = 128;
+    private static final int READ_BUFFER_MASK = READ_BUFFER_SIZE - 1;
+
+    private final ConcurrentHashMap<Long, Node<V>> data;
+    private final ToLongFunction<V> weigher;
+    private final FrequencySketch sketch;
+    private final ReentrantLock policyLock;
+    private final AtomicReferenceArray<Node<V>> readBuffer;
+    private final AtomicLong readBufferWrites;
+    private final AtomicLong invalidations;
+    private long readBufferReads;
+
+    private final LinkedHashMap<Long, Node<V>> window;
+    private final LinkedHashMap<Long, Node<V>> probation;
+    private final LinkedHashMap<Long, Node<V>> protectedSegment;
+    private final long maxWeight;
+    private final long maxWindowWeight;
+    private final long maxProtectedWeight;
+    private long windowWeight;
+    private long probationWeight;
+    private long protectedWeight;
+
+    private final LongAdder hits;
+    private final LongAdder misses;
+    private final LongAdder evictions;
+
+    /**
+     * Creates a cache with the default window and protected ratios.
+     * @param maxWeight the maximum total weight of the cached values.
+     * @param weigher the function that returns the weight of a value.
+     * @param expectedEntries the expected number of cached values, which sizes the frequency sketch.
+     */
+    public WTinyLFUCache(long maxWeight, ToLongFunction<V> weigher, long expectedEntries) {
+        this(maxWeight, weigher, expectedEntries, DEFAULT_WINDOW_RATIO, DEFAULT_PROTECTED_RATIO);
+    }
+
+    /**
+     * Creates a cache.
+     * @param maxWeight the maximum total weight of the cached values.
+     * @param weigher the function that returns the weight of a value.
+     * @param expectedEntries the expected number of cached values, which sizes the frequency sketch.
+     * @param windowRatio the fraction of maxWeight for the LRU window that admits new values.
+     * @param protectedRatio the fraction of the main weight for values that were accessed again after their admission.
+     */
+    public WTinyLFUCache(long maxWeight, ToLongFunction<V> weigher, long expectedEntries, double windowRatio, double protectedRatio) {
+        if (maxWeight <= 0L)
+            throw new RuntimeException("maxWeight must be > 0");
+        if (windowRatio < 0d || windowRatio > 1d || protectedRatio < 0d || protectedRatio > 1d)
+            throw new RuntimeException("windowRatio and protectedRatio must be in [0, 1]");
+
+        this.maxWeight = maxWeight;
+        this.maxWindowWeight = (long) (maxWeight * windowRatio);
+        this.maxProtectedWeight = (long) ((maxWeight - maxWindowWeight) * protectedRatio);
+        this.weigher = weigher;
+        this.data = new ConcurrentHashMap<>();
+        this.sketch = new FrequencySketch(expectedEntries);
+        this.policyLock = new ReentrantLock();
+        this.readBuffer = new AtomicReferenceArray<>(READ_BUFFER_SIZE);
+        this.readBufferWrites = new AtomicLong();
+        this.invalidations = new AtomicLong();
+        this.window = new LinkedHashMap<>();
+        this.probation = new LinkedHashMap<>();
+        this.protectedSegment = new LinkedHashMap<>();
+        this.hits = new LongAdder();
+        this.misses = new LongAdder();
+        this.evictions = new LongAdder();
+    }
+
+    /**
+     * Returns the cached value of key and records the access as a hit or a miss.
+     * @param key the key.
+     * @return the cached value, or null.
+     */
+    public V get(long key) {
+        Node<V> node = data.get(key);
+        if (node == null) {
+            misses.increment();
+            return null;
+        }
+
+        hits.increment();
+        recordRead(node);
+        return node.value;
+    }
+
+    /**
+     * @return the stamp to pass to put(key, value, stamp) for a value that is loaded after this call.
+     */
+    public long stamp() {
+        return invalidations.get();
+    }
+
+    /**
+     * Offers the value of key to the cache. It is not cached if an invalidation happened since stamp was taken, or if its weight exceeds the maximum weight.
+     * @param key the key.
+     * @param value the value.
+     * @param stamp the stamp taken before value was loaded.
+     */
+    public void put(long key, V value, long stamp) {
+        long weight = weigher.applyAsLong(value);
+        if (weight > maxWeight)
+            return;
+
+        policyLock.lock();
+        try {
+            if (invalidations.get() != stamp)
+                return;
+
+            drainReadBuffer();
+            sketch.increment(key);
+            Node<V> node = new Node<>(key, value, weight);
+            if (data.putIfAbsent(key, node) != null)
+                return;
+
+            window.put(key, node);
+            windowWeight += weight;
+            evict();
+        }
+        finally {
+            policyLock.unlock();
+        }
+    }
+
+    /**
+     * Removes the value of key from the cache.
+     * @param key the key.
+     */
+    public void invalidate(long key) {
+        policyLock.lock();
+        try {
+            invalidations.incrementAndGet();
+            Node<V> node = data.remove(key);
+            if (node != null)
+                unlink(node);
+        }
+        finally {
+            policyLock.unlock();
+        }
+    }
+
+    /**
+     * Removes all values from the cache.
+     */
+    public void invalidateAll() {
+        policyLock.lock();
+        try {
+            invalidations.incrementAndGet();
+            drainReadBuffer();
+            data.clear();
+            window.clear();
+            probation.clear();
+            protectedSegment.clear();
+            windowWeight = probationWeight = protectedWeight = 0L;
+        }
+        finally {
+            policyLock.unlock();
+        }
+    }
+
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    public long missCount() {
+        return misses.sum();
+    }
+
+    public long evictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * @return the fraction of reads that were served from the cache, or 0 if nothing was read.
+     */
+    public double hitRatio() {
+        long h = hits.sum();
+        long total = h + misses.sum();
+        return total == 0L ? 0d : (double) h / total;
+    }
+
+    /**
+     * @return the total weight of the cached values.
+     */
+    public long weightedSize() {
+        policyLock.lock();
+        try {
+            return windowWeight + probationWeight + protectedWeight;
+        }
+        finally {
+            policyLock.unlock();
+        }
+    }
+
+    public long getMaxWeight() {
+        return maxWeight;
+    }
+
+    @Override
+    public String toString() {
+        return "WTinyLFUCache{hits=" + hitCount() + ", misses=" + missCount() + ", evictions=" + evictionCount() + ", hitRatio=" + hitRatio() + "}";
+    }
+
+    private void recordRead(Node<V> node) {
+        long index = readBufferWrites.getAndIncrement();
+        // the buffer is lossy, i.e., an access that overwrites an unreplayed access is dropped
+        readBuffer.lazySet((int) (index & READ_BUFFER_MASK), node);
+        if ((index & READ_BUFFER_MASK) == READ_BUFFER_MASK && policyLock.tryLock()) {
+            try {
+                drainReadBuffer();
+            }
+            finally {
+                policyLock.unlock();
+            }
+        }
+    }
+
+    private void drainReadBuffer() {
+        long writes = readBufferWrites.get();
+        long start = Math.max(readBufferReads, writes - READ_BUFFER_SIZE);
+        for (long i = start; i < writes; i++) {
+            Node<V> node = readBuffer.getAndSet((int) (i & READ_BUFFER_MASK), null);
+            if (node != null)
+                onAccess(node);
+        }
+        readBufferReads = writes;
+    }
+
+    private void onAccess(Node<V> node) {
+        sketch.increment(node.key);
+        switch (node.segment) {
+            case WINDOW -> {
+                window.remove(node.key);
+                window.put(node.key, node);
+            }
+            case PROBATION -> {
+                probation.remove(node.key);
+                probationWeight -= node.weight;
+                node.segment = Segment.PROTECTED;
+                protectedSegment.put(node.key, node);
+                protectedWeight += node.weight;
+                demoteProtected();
+            }
+            case PROTECTED -> {
+                protectedSegment.remove(node.key);
+                protectedSegment.put(node.key, node);
+            }
+            case REMOVED -> {}
+        }
+    }
+
+    private void unlink(Node<V> node) {
+        switch (node.segment) {
+            case WINDOW -> {
+                window.remove(node.key);
+                windowWeight -= node.weight;
+            }
+            case PROBATION -> {
+                probation.remove(node.key);
+                probationWeight -= node.weight;
+            }
+            case PROTECTED -> {
+                protectedSegment.remove(node.key);
+                protectedWeight -= node.weight;
+            }
+            case REMOVED -> {}
+        }
+        node.segment = Segment.REMOVED;
+    }
+
+    private void demoteProtected() {
+        while (protectedWeight > maxProtectedWeight && !protectedSegment.isEmpty()) {
+            Node<V> demoted = pollFirst(protectedSegment);
+            protectedWeight -= demoted.weight;
+            demoted.segment = Segment.PROBATION;
+            probation.put(demoted.key, demoted);
+            probationWeight += demoted.weight;
+        }
+    }
+
+    private void evict() {
+        // values that leave the window become candidates for the main segments
+        while (windowWeight > maxWindowWeight && !window.isEmpty()) {
+            Node<V> candidate = pollFirst(window);
+            windowWeight -= candidate.weight;
+            candidate.segment = Segment.PROBATION;
+            probation.put(candidate.key, candidate);
+            probationWeight += candidate.weight;
+
+            while (windowWeight + probationWeight + protectedWeight > maxWeight && candidate.segment == Segment.PROBATION) {
+                Node<V> victim = probation.values().iterator().next();
+                if (victim != candidate && sketch.frequency(candidate.key) > sketch.frequency(victim.key))
+                    evict(victim);
+                else
+                    evict(candidate);
+            }
+        }
+
+        while (windowWeight + probationWeight + protectedWeight > maxWeight) {
+            LinkedHashMap<Long, Node<V>> segment = !probation.isEmpty() ? probation : !protectedSegment.isEmpty() ? protectedSegment : window;
+            evict(segment.values().iterator().next());
+        }
+    }
+
+    private void evict(Node<V> node) {
+        data.remove(node.key, node);
+        unlink(node);
+        evictions.increment();
+    }
+
+    private static <V> Node<V> pollFirst(LinkedHashMap<Long, Node<V>> segment) {
+        Iterator<Node<V>> it = segment.values().iterator();
+        Node<V> first = it.next();
+        it.remove();
+        return first;
+    }
+
+    private enum Segment {
+        WINDOW, PROBATION, PROTECTED, REMOVED
+    }
+
+    private static class Node<V> {
+        final long key;
+        final V value;
+        final long weight;
+        Segment segment;
+
+        Node(long key, V value, long weight) {
+            this.key = key;
+            this.value = value;
+            this.weight = weight;
+            this.segment = Segment.WINDOW;
+        }
+    }
+
+    /**
+     * A count-min sketch with 4 rows of 4-bit counters. All counters are halved after a sample of 10 increments per counter of a row, so that the sketch forgets old accesses.
+     * It is only accessed while holding the policy lock.
+     */
+    private static class FrequencySketch {
+        private static final int DEPTH = 4;
+        private static final long[] SEEDS = {0x97cb3127L, 0xc3a5c85cL, 0x9ae16a3bL, 0xb492b66fL};
+
+        private final byte[][] counters;
+        private final int mask;
+        private final int sampleSize;
+        private int additions;
+
+        FrequencySketch(long expectedEntries) {
+            int width = Integer.highestOneBit((int) Math.min(1 << 24, Math.max(64L, expectedEntries)) - 1) << 1;
+            this.counters = new byte[DEPTH][width];
+            this.mask = width - 1;
+            this.sampleSize = 10 * width;
+        }
+
+        void increment(long key) {
+            boolean added = false;
+            for (int i = 0; i < DEPTH; i++) {
+                int index = index(key, i);
+                if (counters[i][index] < 15) {
+                    counters[i][index]++;
+                    added = true;
+                }
+            }
+            if (added && ++additions >= sampleSize)
+                reset();
+        }
+
+        int frequency(long key) {
+            int min = Integer.MAX_VALUE;
+            for (int i = 0; i < DEPTH; i++)
+                min = Math.min(min, counters[i][index(key, i)]);
+
+            return min;
+        }
+
+        private int index(long key, int row) {
+            long h = (key + SEEDS[row]) * 0x9e3779b97f4a7c15L;
+            return (int) (h ^ (h >>> 32)) & mask;
+        }
+
+        private void reset() {
+            for (byte[] row : counters)
+                for (int i = 0; i < row.length; i++)
+                    row[i] >>>= 1;
+
+            additions >>>= 1;
+        }
+    }
+}
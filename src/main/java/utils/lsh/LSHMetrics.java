@@ -0,0 +1,237 @@
+package utils.lsh;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects counters and latency histograms of an LSH instance. All recording methods are thread-safe and lock-free.
+ */
+public class LSHMetrics {
+    private final LongAdder inserts;
+    private final LongAdder removes;
+    private final LongAdder queries;
+    private final LongAdder candidateQueries;
+    private final LongAdder candidates;
+    private final LongAdder verifications;
+    private final Histogram insertLatencyNanos;
+    private final Histogram queryLatencyNanos;
+
+    public LSHMetrics() {
+        this.inserts = new LongAdder();
+        this.removes = new LongAdder();
+        this.queries = new LongAdder();
+        this.candidateQueries = new LongAdder();
+        this.candidates = new LongAdder();
+        this.verifications = new LongAdder();
+        this.insertLatencyNanos = new Histogram();
+        this.queryLatencyNanos = new Histogram();
+    }
+
+    /**
+     * Records a finished insert call.
+     * @param startNanos the value of System.nanoTime() when the call started.
+     */
+    public void recordInsert(long startNanos) {
+        inserts.increment();
+        insertLatencyNanos.add(System.nanoTime() - startNanos);
+    }
+
+    public void recordRemove() {
+        removes.increment();
+    }
+
+    /**
+     * Records a finished query call.
+     * @param startNanos the value of System.nanoTime() when the call started.
+     */
+    public void recordQuery(long startNanos) {
+        queries.increment();
+        queryLatencyNanos.add(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Records the size of a candidate set returned by a query.
+     * @param n the number of candidates.
+     */
+    public void recordCandidates(int n) {
+        candidateQueries.increment();
+        candidates.add(n);
+    }
+
+    /**
+     * Records the number of candidates that were verified by an exact distance computation.
+     * @param n the number of verified candidates.
+     */
+    public void recordVerifications(long n) {
+        verifications.add(n);
+    }
+
+    public void reset() {
+        inserts.reset();
+        removes.reset();
+        queries.reset();
+        candidateQueries.reset();
+        candidates.reset();
+        verifications.reset();
+        insertLatencyNanos.reset();
+        queryLatencyNanos.reset();
+    }
+
+    /**
+     * Creates a consistent-enough snapshot of the current counters.
+     * @param bands the statistics of the storage of each band.
+     * @return the snapshot.
+     */
+    public Snapshot snapshot(List<StorageStats> bands) {
+        long candidateQueriesCount = candidateQueries.sum();
+        return new Snapshot(
+                System.currentTimeMillis(),
+                inserts.sum(),
+                removes.sum(),
+                queries.sum(),
+                candidateQueriesCount,
+                candidateQueriesCount == 0L ? 0d : (double) candidates.sum() / candidateQueriesCount,
+                verifications.sum(),
+                insertLatencyNanos.snapshot(),
+                queryLatencyNanos.snapshot(),
+                bands
+        );
+    }
+
+    /**
+     * A histogram with power-of-two buckets. Bucket i counts the values in [2^(i-1), 2^i), and bucket 0 counts the values <= 0.
+     */
+    public static class Histogram {
+        public static final int NUM_BUCKETS = Long.SIZE;
+
+        private final AtomicLongArray buckets;
+        private final LongAdder count;
+        private final LongAdder sum;
+
+        public Histogram() {
+            this.buckets = new AtomicLongArray(NUM_BUCKETS);
+            this.count = new LongAdder();
+            this.sum = new LongAdder();
+        }
+
+        public static int bucketOf(long value) {
+            return value <= 0L ? 0 : Long.SIZE - Long.numberOfLeadingZeros(value);
+        }
+
+        public void add(long value) {
+            buckets.incrementAndGet(bucketOf(value));
+            count.increment();
+            sum.add(value);
+        }
+
+        public void reset() {
+            for (int i = 0; i < NUM_BUCKETS; i++)
+                buckets.set(i, 0L);
+            count.reset();
+            sum.reset();
+        }
+
+        public HistogramSnapshot snapshot() {
+            long[] bs = new long[NUM_BUCKETS];
+            for (int i = 0; i < NUM_BUCKETS; i++)
+                bs[i] = buckets.get(i);
+
+            return new HistogramSnapshot(count.sum(), sum.sum(), bs);
+        }
+    }
+
+    public record HistogramSnapshot(long count, long sum, long[] buckets) {
+
+        public static HistogramSnapshot of(long[] values) {
+            Histogram h = new Histogram();
+            Arrays.stream(values).forEach(h::add);
+            return h.snapshot();
+        }
+
+        public double mean() {
+            return count == 0L ? 0d : (double) sum / count;
+        }
+
+        /**
+         * Returns an upper bound of the given percentile.
+         * @param p the percentile in [0, 1].
+         * @return the exclusive upper bound of the bucket that contains the given percentile.
+         */
+        public long percentile(double p) {
+            if (count == 0L)
+                return 0L;
+
+            long rank = (long) Math.ceil(p * count);
+            long seen = 0L;
+            for (int i = 0; i < buckets.length; i++) {
+                seen += buckets[i];
+                if (seen >= rank)
+                    return upperBound(i);
+            }
+
+            return Long.MAX_VALUE;
+        }
+
+        public long max() {
+            for (int i = buckets.length - 1; i >= 0; i--) {
+                if (buckets[i] > 0L)
+                    return upperBound(i);
+            }
+
+            return 0L;
+        }
+
+        private static long upperBound(int bucket) {
+            return bucket == 0 ? 0L : (bucket >= Long.SIZE - 1 ? Long.MAX_VALUE : 1L << bucket);
+        }
+    }
+
+    /**
+     * The statistics of a single band's storage.
+     * @param buckets the number of distinct hash values (buckets).
+     * @param entries the number of entries over all buckets.
+     * @param maxBucketSize the size of the largest bucket.
+     * @param bucketSizes the power-of-two histogram of the bucket sizes.
+     * @param fillRatio the fraction of set bits for Bloom filter storages, and NaN otherwise.
+     * @param estimatedFpp the estimated false positive probability for Bloom filter storages, and NaN otherwise.
+     */
+    public record StorageStats(long buckets, long entries, long maxBucketSize, HistogramSnapshot bucketSizes, double fillRatio, double estimatedFpp) {
+
+        public static StorageStats ofBuckets(long[] bucketSizes) {
+            return new StorageStats(
+                    bucketSizes.length,
+                    Arrays.stream(bucketSizes).sum(),
+                    Arrays.stream(bucketSizes).max().orElse(0L),
+                    HistogramSnapshot.of(bucketSizes),
+                    Double.NaN,
+                    Double.NaN
+            );
+        }
+
+        public static StorageStats ofBloomFilter(double fillRatio, double estimatedFpp) {
+            return new StorageStats(-1L, -1L, -1L, HistogramSnapshot.of(new long[0]), fillRatio, estimatedFpp);
+        }
+
+        public double meanBucketSize() {
+            return buckets <= 0L ? 0d : (double) entries / buckets;
+        }
+    }
+
+    /**
+     * A point-in-time view of the metrics of an LSH instance. Latencies are given in nanoseconds.
+     */
+    public record Snapshot(
+            long timestampMillis,
+            long inserts,
+            long removes,
+            long queries,
+            long candidateQueries,
+            double avgCandidates,
+            long verifications,
+            HistogramSnapshot insertLatency,
+            HistogramSnapshot queryLatency,
+            List<StorageStats> bands) {
+    }
+}
@@ -0,0 +1,105 @@
+package utils.lsh;
+
+import utils.csv.BufferedCsvWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Periodically appends snapshots of LSH metrics as lines to a CSV file. Latencies are written in nanoseconds.
+ */
+public final class LSHMetricsDumper implements AutoCloseable {
+    private static final String[] HEADER = {
+            "timestamp_ms", "inserts", "removes", "queries", "candidate_queries", "avg_candidates", "verifications",
+            "insert_mean_ns", "insert_p50_ns", "insert_p99_ns", "query_mean_ns", "query_p50_ns", "query_p99_ns"
+    };
+    private static final String[] BAND_HEADER = {
+            "buckets", "entries", "mean_bucket_size", "max_bucket_size", "p99_bucket_size", "bloom_fill_ratio", "bloom_estimated_fpp"
+    };
+
+    private final Supplier<LSHMetrics.Snapshot> snapshots;
+    private final BufferedCsvWriter writer;
+    private final ScheduledExecutorService scheduler;
+    private boolean closed;
+
+    /**
+     * Creates a dumper that writes a snapshot to the given CSV file every period.
+     * @param snapshots the supplier of the snapshots.
+     * @param csvPath the path of the CSV file. Lines are appended if the file exists already.
+     * @param period the period between two snapshots.
+     * @param unit the time unit of period.
+     */
+    public LSHMetricsDumper(Supplier<LSHMetrics.Snapshot> snapshots, String csvPath, long period, TimeUnit unit) {
+        this.snapshots = snapshots;
+        this.writer = new BufferedCsvWriter(csvPath);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "lsh-metrics-dumper");
+            t.setDaemon(true);
+            return t;
+        });
+        this.scheduler.scheduleAtFixedRate(this::dump, period, period, unit);
+    }
+
+    /**
+     * Writes a single snapshot immediately.
+     */
+    public synchronized void dump() {
+        if (closed)
+            return;
+
+        LSHMetrics.Snapshot s = snapshots.get();
+        if (writer.isEmpty())
+            writer.appendNewLine(header(s.bands().size()));
+
+        List<String> line = new ArrayList<>(List.of(
+                String.valueOf(s.timestampMillis()),
+                String.valueOf(s.inserts()),
+                String.valueOf(s.removes()),
+                String.valueOf(s.queries()),
+                String.valueOf(s.candidateQueries()),
+                String.valueOf(s.avgCandidates()),
+                String.valueOf(s.verifications()),
+                String.valueOf(s.insertLatency().mean()),
+                String.valueOf(s.insertLatency().percentile(0.5d)),
+                String.valueOf(s.insertLatency().percentile(0.99d)),
+                String.valueOf(s.queryLatency().mean()),
+                String.valueOf(s.queryLatency().percentile(0.5d)),
+                String.valueOf(s.queryLatency().percentile(0.99d))
+        ));
+        for (LSHMetrics.StorageStats band : s.bands()) {
+            line.add(String.valueOf(band.buckets()));
+            line.add(String.valueOf(band.entries()));
+            line.add(String.valueOf(band.meanBucketSize()));
+            line.add(String.valueOf(band.maxBucketSize()));
+            line.add(String.valueOf(band.bucketSizes().percentile(0.99d)));
+            line.add(String.valueOf(band.fillRatio()));
+            line.add(String.valueOf(band.estimatedFpp()));
+        }
+
+        writer.appendNewLine(line.toArray(String[]::new));
+        writer.flush();
+    }
+
+    private static String[] header(int numBands) {
+        List<String> header = new ArrayList<>(List.of(HEADER));
+        for (int i = 0; i < numBands; i++) {
+            for (String col : BAND_HEADER)
+                header.add("band" + i + "_" + col);
+        }
+
+        return header.toArray(String[]::new);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (closed)
+            return;
+
+        closed = true;
+        scheduler.shutdownNow();
+        writer.close();
+    }
+}
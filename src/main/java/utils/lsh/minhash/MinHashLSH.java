@@ -2,6 +2,8 @@ package utils.lsh.minhash;
 
 import core.BaseSequence;
 import utils.lsh.LSH;
+import utils.lsh.LSHMetrics;
+import utils.lsh.LSHMetricsDumper;
 import utils.lsh.PseudoPermutation;
 import utils.lsh.storage.LSHStorage;
 import utils.lsh.storage.minhash.AmplifiedMinHashStorage;
@@ -12,6 +14,7 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
@@ -27,6 +30,7 @@ public class MinHashLSH<T, S extends LSHStorage<Long>> implements LSH<T> {
     protected final int bandSize;
     protected final PseudoPermutation[] permutations;
     protected final Function<T, long[]> kmerFunc;
+    protected final LSHMetrics metrics;
 
 
     public MinHashLSH(int k, int r, int b, Function<T, long[]> kmerFunc, AmplifiedMinHashStorage<S> minHashStorage) {
@@ -44,6 +48,7 @@ public class MinHashLSH<T, S extends LSHStorage<Long>> implements LSH<T> {
         long kMers = (long) Math.pow(4, k);
         this.kmerFunc = kmerFunc;
         this.permutations = Stream.iterate(new PseudoPermutation(kMers, kMers), p -> new PseudoPermutation(kMers, p.getP())).limit(r).toArray(PseudoPermutation[]::new);
+        this.metrics = new LSHMetrics();
     }
 
     public MinHashLSH(int k, int r, int b, Function<T, long[]> kmerFunc, S minHashStorage) {
@@ -61,6 +66,7 @@ public class MinHashLSH<T, S extends LSHStorage<Long>> implements LSH<T> {
         long kMers = (long) Math.pow(4, k);
         this.kmerFunc = kmerFunc;
         this.permutations = Stream.iterate(new PseudoPermutation(kMers, kMers), p -> new PseudoPermutation(kMers, p.getP())).limit(r).toArray(PseudoPermutation[]::new);
+        this.metrics = new LSHMetrics();
     }
 
     @Override
@@ -72,6 +78,32 @@ public class MinHashLSH<T, S extends LSHStorage<Long>> implements LSH<T> {
         return storage.bands().get(bandId);
     }
 
+    /**
+     * @return the live metrics of this LSH instance.
+     */
+    public LSHMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Creates a snapshot of this instance's metrics including the bucket statistics of every band.
+     * @return the snapshot.
+     */
+    public LSHMetrics.Snapshot metricsSnapshot() {
+        return metrics.snapshot(storage.bands().stream().map(LSHStorage::stats).toList());
+    }
+
+    /**
+     * Starts appending a snapshot of this instance's metrics to a CSV file periodically.
+     * @param csvPath the path of the CSV file.
+     * @param period the period between two snapshots.
+     * @param unit the time unit of period.
+     * @return the dumper that must be closed to stop dumping.
+     */
+    public LSHMetricsDumper dumpMetricsPeriodically(String csvPath, long period, TimeUnit unit) {
+        return new LSHMetricsDumper(this::metricsSnapshot, csvPath, period, unit);
+    }
+
     public static Traditional<BaseSequence> newSeqAmpLSHTraditional(int k, int r, int b, LSHStorage.AmplifiedLSHStorage.Amplification amp) {
         return new Traditional<>(
                 k,
@@ -143,12 +175,15 @@ public class MinHashLSH<T, S extends LSHStorage<Long>> implements LSH<T> {
      */
     @Override
     public void insert(T t) {
+        long start = System.nanoTime();
         storage.store(hashedSignatures(t));
+        metrics.recordInsert(start);
     }
 
     @Override
     public void remove(T t) {
         storage.remove(hashedSignatures(t));
+        metrics.recordRemove();
     }
 
 
@@ -245,14 +280,16 @@ public class MinHashLSH<T, S extends LSHStorage<Long>> implements LSH<T> {
 
 
     public boolean query(T t, LSHStorage.AmplifiedLSHStorage.Amplification amp) {
+        long start = System.nanoTime();
         long[] sigs = hashedSignatures(t);
-        return storage.query(sigs, amp);
+        boolean result = storage.query(sigs, amp);
+        metrics.recordQuery(start);
+        return result;
     }
 
     @Override
     public boolean query(T t) {
-        long[] sigs = hashedSignatures(t);
-        return storage.query(sigs, storage.amplification());
+        return query(t, storage.amplification());
     }
 
     public static class Traditional<O> extends MinHashLSH<O, TraditionalHashStorage<Long, O>> {
@@ -268,10 +305,11 @@ public class MinHashLSH<T, S extends LSHStorage<Long>> implements LSH<T> {
 
         @Override
         public void insert(O o) {
+            long start = System.nanoTime();
             var bands = storage.bands();
             var sigs = hashedSignatures(o);
             IntStream.range(0, b).forEach(i -> bands.get(i).store(sigs[i], o));
-
+            metrics.recordInsert(start);
         }
 
         public boolean queryExact(O o) {
@@ -283,10 +321,17 @@ public class MinHashLSH<T, S extends LSHStorage<Long>> implements LSH<T> {
             var bands = storage.bands();
             var sigs = hashedSignatures(o);
             IntStream.range(0, b).forEach(i -> bands.get(i).remove(sigs[i], o));
+            metrics.recordRemove();
         }
 
         public Set<O> candidates(O o) {
-            return IntStream.range(0, b).mapToObj(i -> candidates(o, i)).flatMap(Collection::stream).collect(Collectors.toSet());
+            long start = System.nanoTime();
+            var bands = storage.bands();
+            var sigs = hashedSignatures(o);
+            Set<O> candidates = IntStream.range(0, b).mapToObj(i -> bands.get(i).candidates(sigs[i])).flatMap(Collection::stream).collect(Collectors.toSet());
+            metrics.recordQuery(start);
+            metrics.recordCandidates(candidates.size());
+            return candidates;
         }
 
         public Set<O> candidates(O o, int bandId) {
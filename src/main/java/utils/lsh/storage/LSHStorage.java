@@ -1,5 +1,6 @@
 package utils.lsh.storage;
 
+import utils.lsh.LSHMetrics;
 import java.util.List;
 import java.util.function.Supplier;
 import java.util.stream.IntStream;
@@ -10,6 +11,13 @@ public interface LSHStorage<H> {
     void remove(H hash);
     boolean query(H hash);
 
+    /**
+     * @return the statistics of this storage, e.g., the number and sizes of the buckets.
+     */
+    default LSHMetrics.StorageStats stats() {
+        return LSHMetrics.StorageStats.ofBuckets(new long[0]);
+    }
+
     class AmplifiedLSHStorage<H, S extends LSHStorage<H>> implements LSHStorage<H[]> {
         public enum Amplification {
             AND, OR
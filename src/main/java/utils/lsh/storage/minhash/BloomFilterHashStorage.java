@@ -1,6 +1,7 @@
 package utils.lsh.storage.minhash;
 
 import datastructures.hashtable.BloomFilter;
+import utils.lsh.LSHMetrics;
 import utils.lsh.storage.LSHStorage;
 import java.util.function.Function;
 
@@ -25,4 +26,13 @@ public class BloomFilterHashStorage<H> implements LSHStorage<H> {
     public boolean query(H hash) {
         return this.bf.mightContain(hash);
     }
+
+    @Override
+    public LSHMetrics.StorageStats stats() {
+        return LSHMetrics.StorageStats.ofBloomFilter(bf.fillRatio(), bf.estimatedFalsePositiveProb());
+    }
+
+    public BloomFilter<H> getBloomFilter() {
+        return bf;
+    }
 }
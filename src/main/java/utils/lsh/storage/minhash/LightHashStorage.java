@@ -1,6 +1,8 @@
 package utils.lsh.storage.minhash;
 
+import utils.lsh.LSHMetrics;
 import utils.lsh.storage.LSHStorage;
+import java.util.Arrays;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -27,6 +29,13 @@ public class LightHashStorage<H> implements LSHStorage<H> {
         return hashes.contains(hash);
     }
 
+    @Override
+    public LSHMetrics.StorageStats stats() {
+        long[] bucketSizes = new long[hashes.size()];
+        Arrays.fill(bucketSizes, 1L);
+        return LSHMetrics.StorageStats.ofBuckets(bucketSizes);
+    }
+
     public Set<H> hashSet() {
         return hashes;
     }
@@ -1,5 +1,6 @@
 package utils.lsh.storage.minhash;
 
+import utils.lsh.LSHMetrics;
 import utils.lsh.storage.LSHStorage;
 import java.util.Collections;
 import java.util.Map;
@@ -50,6 +51,11 @@ public class TraditionalHashStorage<H, O> implements LSHStorage<H> {
         return candidates(hash).contains(object);
     }
 
+    @Override
+    public LSHMetrics.StorageStats stats() {
+        return LSHMetrics.StorageStats.ofBuckets(mappings.values().stream().mapToLong(Set::size).toArray());
+    }
+
     public Set<O> candidates(H hash) {
         Set<O> candidates = this.mappings.get(hash);
         return candidates != null ? candidates : Collections.emptySet();
@@ -27,6 +27,28 @@ public interface FixedSizeSerializer<T> extends Serializer<T> {
         return FuncUtils.safeCall(() -> deserialize(bf.array()));
     }
 
+    /**
+     * Deserializes an item from buffer without changing its position. Implementations can override this to read directly from the buffer, e.g., a memory-mapped file.
+     * @param buffer the buffer.
+     * @param pos the absolute position of the serialized item in buffer.
+     * @return the deserialized item.
+     */
+    default T deserialize(ByteBuffer buffer, int pos) {
+        byte[] bs = new byte[serializedSize()];
+        buffer.get(pos, bs);
+        return deserialize(bs);
+    }
+
+    /**
+     * Serializes an item into buffer without changing its position. Implementations can override this to write directly into the buffer, e.g., a memory-mapped file.
+     * @param item the item.
+     * @param buffer the buffer.
+     * @param pos the absolute position in buffer.
+     */
+    default void serialize(T item, ByteBuffer buffer, int pos) {
+        buffer.put(pos, serialize(item));
+    }
+
 
     static <T> FixedSizeSerializer<T> of(Function<T, byte[]> serializer, Function<byte[], T> deserializer, int serializedSize) {
         return of(Coder.of(serializer, deserializer), serializedSize);
@@ -0,0 +1,155 @@
+package utils.serializers;
+
+import core.Base;
+import core.BaseSequence;
+import utils.AddressedDNA;
+import java.nio.ByteBuffer;
+
+/**
+ * A FixedSizeSerializer for BaseSequences of a fixed length that packs 4 bases per byte, i.e., 2 bits per base in the order of Base.ordinal().
+ * The bases are packed into and read from the bytes directly, without intermediate String, BitString, or BitSet objects.
+ */
+public class PackedSeqSerializer implements FixedSizeSerializer<BaseSequence> {
+    private static final Base[] BASES = Base.values();
+
+    private final int length;
+    private final int serializedSize;
+
+    /**
+     * Creates a serializer for BaseSequences of the given length.
+     * @param length the length of the serialized sequences.
+     */
+    public PackedSeqSerializer(int length) {
+        if (length < 0)
+            throw new RuntimeException("length must be >= 0");
+
+        this.length = length;
+        this.serializedSize = packedSize(length);
+    }
+
+    /**
+     * Creates a serializer for AddressedDNA that packs the address and the payload back to back.
+     * @param addrSize the size of the address.
+     * @param payloadSize the size of the payload.
+     * @return the serializer.
+     */
+    public static FixedSizeSerializer<AddressedDNA> addressed(int addrSize, int payloadSize) {
+        return new FixedSizeSerializer<>() {
+            final int length = addrSize + payloadSize;
+            final int serializedSize = packedSize(length);
+
+            @Override
+            public int serializedSize() {
+                return serializedSize;
+            }
+
+            @Override
+            public byte[] serialize(AddressedDNA oligo) {
+                byte[] bs = new byte[serializedSize];
+                serialize(oligo, ByteBuffer.wrap(bs), 0);
+                return bs;
+            }
+
+            @Override
+            public void serialize(AddressedDNA oligo, ByteBuffer buffer, int pos) {
+                if (oligo.address().length() != addrSize || oligo.payload().length() != payloadSize)
+                    throw new RuntimeException("oligo cannot be serialized. Reason: address or payload size differs from this serializer");
+
+                BaseSequence address = oligo.address();
+                BaseSequence payload = oligo.payload();
+                int b = 0;
+                for (int i = 0; i < length; i++) {
+                    Base base = i < addrSize ? address.get(i) : payload.get(i - addrSize);
+                    b = (b << 2) | base.ordinal();
+                    if ((i & 3) == 3) {
+                        buffer.put(pos + (i >>> 2), (byte) b);
+                        b = 0;
+                    }
+                }
+                if ((length & 3) != 0)
+                    buffer.put(pos + (length >>> 2), (byte) (b << ((4 - (length & 3)) << 1)));
+            }
+
+            @Override
+            public AddressedDNA deserialize(byte[] bs) {
+                return deserialize(ByteBuffer.wrap(bs), 0);
+            }
+
+            @Override
+            public AddressedDNA deserialize(ByteBuffer buffer, int pos) {
+                return new AddressedDNA(unpack(buffer, pos, 0, addrSize), unpack(buffer, pos, addrSize, payloadSize));
+            }
+        };
+    }
+
+    /**
+     * @param length the number of bases.
+     * @return the number of bytes of length packed bases.
+     */
+    public static int packedSize(int length) {
+        return (length + 3) >>> 2;
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    @Override
+    public int serializedSize() {
+        return serializedSize;
+    }
+
+    @Override
+    public byte[] serialize(BaseSequence seq) {
+        byte[] bs = new byte[serializedSize];
+        serialize(seq, ByteBuffer.wrap(bs), 0);
+        return bs;
+    }
+
+    @Override
+    public void serialize(BaseSequence seq, ByteBuffer buffer, int pos) {
+        if (seq.length() != length)
+            throw new RuntimeException("seq cannot be serialized. Reason: seq.length() = " + seq.length() + " != " + length);
+
+        int b = 0;
+        for (int i = 0; i < length; i++) {
+            b = (b << 2) | seq.get(i).ordinal();
+            if ((i & 3) == 3) {
+                buffer.put(pos + (i >>> 2), (byte) b);
+                b = 0;
+            }
+        }
+        if ((length & 3) != 0)
+            buffer.put(pos + (length >>> 2), (byte) (b << ((4 - (length & 3)) << 1)));
+    }
+
+    @Override
+    public BaseSequence deserialize(byte[] bs) {
+        if (bs.length != serializedSize)
+            throw new RuntimeException("bytes do not correspond to this instance of Serializer");
+
+        return deserialize(ByteBuffer.wrap(bs), 0);
+    }
+
+    @Override
+    public BaseSequence deserialize(ByteBuffer buffer, int pos) {
+        return unpack(buffer, pos, 0, length);
+    }
+
+    /**
+     * Reads count packed bases starting at the base with index from.
+     * @param buffer the buffer.
+     * @param pos the absolute position of the first packed byte in buffer.
+     * @param from the index of the first base to read.
+     * @param count the number of bases to read.
+     * @return the bases.
+     */
+    private static BaseSequence unpack(ByteBuffer buffer, int pos, int from, int count) {
+        Base[] bases = new Base[count];
+        for (int i = 0; i < count; i++) {
+            int index = from + i;
+            bases[i] = BASES[(buffer.get(pos + (index >>> 2)) >>> ((3 - (index & 3)) << 1)) & 3];
+        }
+        return new BaseSequence(bases);
+    }
+}
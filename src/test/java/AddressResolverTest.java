@@ -0,0 +1,103 @@
+import core.Base;
+import core.BaseSequence;
+import datastructures.container.translation.AddressResolver;
+import datastructures.container.translation.DNAAddrManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+public class AddressResolverTest {
+
+    public static void main(String... args) {
+        Random rnd = new Random(11);
+
+        // the banded edit distance agrees with the full edit distance to the best prefix of the read
+        for (int i = 0; i < 2000; i++) {
+            BaseSequence barcode = BaseSequence.random(20 + rnd.nextInt(20));
+            BaseSequence read = BaseSequence.join(mutate(barcode, rnd.nextInt(6), rnd), BaseSequence.random(rnd.nextInt(10)));
+            int maxDistance = rnd.nextInt(5);
+            int expected = Math.min(prefixEditDistance(barcode, read), maxDistance + 1);
+            int distance = AddressResolver.bandedEditDistance(barcode, read, maxDistance);
+            if (distance != expected)
+                throw new RuntimeException("failed: banded edit distance " + distance + " != " + expected + " of " + barcode + " and " + read + " with maxDistance " + maxDistance);
+        }
+        System.out.println("ok: the banded edit distance matches the full edit distance");
+
+        DNAAddrManager atm = TestUtils.addressManager();
+        int n = 300;
+        List<BaseSequence> barcodes = LongStream.range(0L, n).mapToObj(id -> atm.routeAndTranslate(id).translated()).toList();
+        AddressResolver resolver = new AddressResolver(atm, 3);
+
+        TestUtils.check(IntStream.range(0, n).allMatch(id -> {
+            AddressResolver.Match match = resolver.resolve(BaseSequence.join(barcodes.get(id), BaseSequence.random(40)));
+            return match != null && match.id() == id && match.distance() == 0;
+        }), "exact reads resolve with distance 0");
+
+        // reads with 1 or 2 substitutions, insertions or deletions in the barcode, followed by a payload
+        List<BaseSequence> reads = new ArrayList<>();
+        List<Integer> edits = new ArrayList<>();
+        for (int id = 0; id < n; id++) {
+            int e = 1 + rnd.nextInt(2);
+            reads.add(BaseSequence.join(mutate(barcodes.get(id), e, rnd), BaseSequence.random(40)));
+            edits.add(e);
+        }
+        List<AddressResolver.Match> matches = resolver.resolveAll(reads);
+        TestUtils.check(IntStream.range(0, n).allMatch(id -> matches.get(id) == null || matches.get(id).id() == id), "noisy reads never resolve to another barcode");
+        TestUtils.check(IntStream.range(0, n).allMatch(id -> matches.get(id) == null || matches.get(id).distance() <= edits.get(id)), "the distance of a match is at most the number of edits");
+        long resolved = matches.stream().filter(m -> m != null).count();
+        TestUtils.check(resolved >= n * 0.98d, resolved + " of " + n + " reads with 1-2 edits are resolved");
+
+        // reads beyond maxDistance and unrelated reads are not resolved
+        TestUtils.check(IntStream.range(0, 50).allMatch(__ -> resolver.resolve(BaseSequence.random(120)) == null), "random reads are not resolved");
+        TestUtils.check(new AddressResolver(atm, 0).resolve(mutate(barcodes.get(0), 1, rnd)) == null, "a read beyond maxDistance is not resolved");
+
+        // barcodes assigned after creating the resolver are found once indexed
+        BaseSequence late = atm.routeAndTranslate((long) n).translated();
+        BaseSequence lateRead = mutate(late, 2, rnd);
+        resolver.index(late);
+        AddressResolver.Match lateMatch = resolver.resolve(lateRead);
+        TestUtils.check(lateMatch != null && lateMatch.id() == n, "an indexed barcode is resolved");
+        atm.close();
+    }
+
+    private static BaseSequence mutate(BaseSequence seq, int edits, Random rnd) {
+        List<Base> bases = new ArrayList<>(seq.length());
+        for (int i = 0; i < seq.length(); i++)
+            bases.add(seq.get(i));
+        for (int e = 0; e < edits; e++) {
+            int pos = 1 + rnd.nextInt(bases.size() - 2);
+            switch (rnd.nextInt(3)) {
+                case 0 -> bases.set(pos, other(bases.get(pos), rnd));
+                case 1 -> bases.add(pos, Base.values()[rnd.nextInt(4)]);
+                default -> bases.remove(pos);
+            }
+        }
+
+        return new BaseSequence(bases);
+    }
+
+    private static Base other(Base b, Random rnd) {
+        Base o;
+        do {
+            o = Base.values()[rnd.nextInt(4)];
+        } while (o == b);
+
+        return o;
+    }
+
+    private static int prefixEditDistance(BaseSequence a, BaseSequence b) {
+        int[][] d = new int[a.length() + 1][b.length() + 1];
+        for (int i = 0; i <= a.length(); i++)
+            d[i][0] = i;
+        for (int j = 0; j <= b.length(); j++)
+            d[0][j] = j;
+        for (int i = 1; i <= a.length(); i++) {
+            for (int j = 1; j <= b.length(); j++)
+                d[i][j] = Math.min(d[i - 1][j - 1] + (a.get(i - 1) == b.get(j - 1) ? 0 : 1), Math.min(d[i - 1][j], d[i][j - 1]) + 1);
+        }
+
+        return IntStream.rangeClosed(0, b.length()).map(j -> d[a.length()][j]).min().orElseThrow();
+    }
+}
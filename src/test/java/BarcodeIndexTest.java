@@ -0,0 +1,51 @@
+import core.BaseSequence;
+import datastructures.container.impl.BarcodeIndex;
+import datastructures.container.translation.AddressManager;
+import datastructures.container.translation.DNAAddrManager;
+import utils.FuncUtils;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.IntStream;
+
+public class BarcodeIndexTest {
+
+    public static void main(String... args) {
+        int addrSize = 60;
+        // more barcodes than half the default capacity, so that the persistent index grows
+        List<BaseSequence> barcodes = IntStream.range(0, 40_000).mapToObj(__ -> BaseSequence.random(addrSize)).distinct().toList();
+        String filePath = FuncUtils.safeCall(() -> Files.createTempDirectory("barcodeindex")).resolve("barcodes.index").toString();
+
+        for (BarcodeIndex index : List.of(new BarcodeIndex.InMemory(addrSize), BarcodeIndex.Persistent.create(filePath, addrSize))) {
+            String name = index.getClass().getSimpleName();
+            IntStream.range(0, barcodes.size()).parallel().forEach(i -> index.put(barcodes.get(i), (long) i));
+            TestUtils.check(index.size() == barcodes.size(), name + ": size " + index.size() + " after concurrent puts");
+            TestUtils.check(IntStream.range(0, barcodes.size()).parallel().allMatch(i -> index.get(barcodes.get(i)) == i), name + ": every barcode maps to its id");
+
+            index.put(barcodes.get(0), 1000_000L);
+            TestUtils.check(index.get(barcodes.get(0)) == 1000_000L && index.size() == barcodes.size(), name + ": put overwrites the id of a barcode");
+            TestUtils.check(index.remove(barcodes.get(1)) && !index.remove(barcodes.get(1)) && index.get(barcodes.get(1)) == null, name + ": remove reports whether the barcode was present");
+            TestUtils.check(index.get(BaseSequence.random(addrSize + 4)) == null && !index.remove(BaseSequence.random(addrSize - 4)), name + ": barcodes of another length are absent");
+            TestUtils.check(index.keys().contains(barcodes.get(2)) && !index.keys().contains(barcodes.get(1)) && index.values().size() == barcodes.size() - 1, name + ": keys and values list the entries");
+            if (index instanceof BarcodeIndex.Persistent persistent)
+                persistent.close();
+        }
+
+        // the persistent index is restored after reopening, and create starts empty
+        try (BarcodeIndex.Persistent reopened = BarcodeIndex.Persistent.open(filePath, addrSize)) {
+            TestUtils.check(reopened.size() == barcodes.size() - 1 && reopened.get(barcodes.get(0)) == 1000_000L && reopened.get(barcodes.get(1)) == null && reopened.get(barcodes.get(3)) == 3L, "the persistent index is restored after reopening");
+        }
+        try (BarcodeIndex.Persistent created = BarcodeIndex.Persistent.create(filePath, addrSize)) {
+            TestUtils.check(created.size() == 0L && created.get(barcodes.get(3)) == null, "create starts empty");
+        }
+
+        // DNAAddrManager.resolve follows the routes of the ids
+        DNAAddrManager atm = TestUtils.addressManager();
+        AddressManager.ManagedAddress<Long, BaseSequence> managed = atm.routeAndTranslate(5L);
+        TestUtils.check(atm.resolve(managed.translated()).original() == 5L, "resolve finds the id of a barcode");
+        TestUtils.check(atm.resolve(BaseSequence.random(80)) == null, "resolve of an unknown barcode is null");
+        atm.remove(managed.routedAddress());
+        TestUtils.check(atm.resolve(managed.translated()) == null, "resolve of a removed route is null");
+        atm.close();
+    }
+}
@@ -0,0 +1,70 @@
+import core.BaseSequence;
+import datastructures.container.translation.DNAAddrManager;
+import dnacoders.dnaconvertors.RotatingTre;
+import utils.Coder;
+import utils.FuncUtils;
+import utils.lsh.minhash.MinHashLSH;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+import java.util.stream.LongStream;
+
+public class BarcodePoolTest {
+
+    public static void main(String... args) {
+        // the pool fills up in the background, and concurrent callers get distinct barcodes that resolve to their ids
+        DNAAddrManager atm = DNAAddrManager.builder().setLsh(MinHashLSH.newSeqLSHTraditional(5, 5)).setAddrSize(80).setNumPermutations(8).setBarcodePoolSize(32).setBarcodePoolProducers(2).build();
+        TestUtils.check(await(() -> atm.pooledBarcodesCount() == 32), "the pool fills up to its size");
+        Set<BaseSequence> barcodes = ConcurrentHashMap.newKeySet();
+        LongStream.range(0L, 200L).parallel().forEach(id -> barcodes.add(atm.routeAndTranslate(id).translated()));
+        TestUtils.check(barcodes.size() == 200, "concurrent callers get distinct barcodes");
+        TestUtils.check(LongStream.range(0L, 200L).allMatch(id -> atm.resolve(atm.routeAndTranslate(id).translated()).original() == id), "pooled barcodes resolve to their ids");
+
+        // closing stops the producers, and barcodes are then generated inline
+        atm.close();
+        int pooled = atm.pooledBarcodesCount();
+        FuncUtils.safeRun(() -> Thread.sleep(200L));
+        TestUtils.check(atm.pooledBarcodesCount() == pooled, "closing stops the producers");
+        TestUtils.check(LongStream.range(200L, 300L).mapToObj(id -> atm.routeAndTranslate(id).translated()).distinct().count() == 100L, "barcodes are generated after closing");
+
+        // a failing producer surfaces its exception on the caller's thread and is restarted
+        AtomicBoolean failing = new AtomicBoolean();
+        Coder<String, BaseSequence> coder = Coder.of(s -> {
+            if (failing.get())
+                throw new RuntimeException("coder failure");
+            return RotatingTre.INSTANCE.encode(s);
+        }, RotatingTre.INSTANCE::decode);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        DNAAddrManager failingAtm = DNAAddrManager.builder().setLsh(MinHashLSH.newSeqLSHTraditional(5, 5)).setAddrSize(80).setNumPermutations(8).setStringCoder(coder).setBarcodePoolSize(4).setBarcodePoolExecutor(executor).build();
+        TestUtils.check(await(() -> failingAtm.pooledBarcodesCount() == 4), "the pool runs on the given executor");
+        failing.set(true);
+        long[] id = {0L};
+        TestUtils.check(await(() -> {
+            try {
+                failingAtm.routeAndTranslate(id[0]++);
+                return false;
+            }
+            catch (RuntimeException e) {
+                return "barcode pool producer failed".equals(e.getMessage());
+            }
+        }), "the producer's failure is thrown by the pool");
+        failing.set(false);
+        TestUtils.check(await(() -> failingAtm.pooledBarcodesCount() == 4), "the producer is restarted");
+        failingAtm.close();
+        TestUtils.check(!executor.isShutdown(), "closing does not shut down a given executor");
+        executor.shutdownNow();
+    }
+
+    private static boolean await(BooleanSupplier condition) {
+        for (int i = 0; i < 1000; i++) {
+            if (condition.getAsBoolean())
+                return true;
+            FuncUtils.safeRun(() -> Thread.sleep(10L));
+        }
+
+        return false;
+    }
+}
@@ -0,0 +1,76 @@
+import core.Base;
+import core.BaseSequence;
+import datastructures.container.impl.CachedDNAStorage;
+import datastructures.container.impl.DNAStorageMap;
+import datastructures.container.translation.DNAAddrManager;
+import utils.AddressedDNA;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+public class CachedDNAStorageTest {
+
+    public static void main(String... args) throws InterruptedException {
+        DNAAddrManager atm = TestUtils.addressManager();
+        int payloadSize = 60;
+        int n = 100;
+        CachedDNAStorage cached = new CachedDNAStorage(new DNAStorageMap(atm), 1L << 20, payloadSize);
+        AddressedDNA[] oligos = new AddressedDNA[n];
+        for (int id = 0; id < n; id++) {
+            oligos[id] = oligo(atm, id, payloadSize);
+            cached.put(id, oligos[id]);
+        }
+
+        TestUtils.check(IntStream.range(0, n).allMatch(id -> cached.get(id).equals(oligos[id])), "get reads the stored oligos");
+        long hits = cached.hitCount();
+        TestUtils.check(IntStream.range(0, n).allMatch(id -> cached.get(id).equals(oligos[id])) && cached.hitCount() == hits + n, "a second read is served from the cache");
+
+        // writes invalidate the cached oligos
+        for (int id = 0; id < n; id += 2) {
+            oligos[id] = oligo(atm, id, payloadSize);
+            cached.put(id, oligos[id]);
+        }
+        for (int id = 1; id < n; id += 4) {
+            oligos[id] = null;
+            cached.remove(id);
+        }
+        TestUtils.check(IntStream.range(0, n).allMatch(id -> oligos[id] == null ? cached.get(id) == null : cached.get(id).equals(oligos[id])), "get reads no stale oligo after put or remove");
+        AddressedDNA[] all = cached.getAll(0L, n);
+        TestUtils.check(IntStream.range(0, n).allMatch(id -> oligos[id] == null ? all[id] == null : all[id].equals(oligos[id])), "getAll reads no stale oligo after put or remove");
+        var managed = atm.routeAndTranslate(2L);
+        oligos[2] = oligo(atm, 2L, payloadSize);
+        cached.put(managed, oligos[2]);
+        TestUtils.check(cached.get(2L).equals(oligos[2]) && cached.get(managed).equals(oligos[2]), "a put by managed address invalidates the oligo");
+
+        // returned oligos are copies, so that changing them does not change the cache
+        for (int i = 0; i < 3; i++) {
+            AddressedDNA read = i == 0 ? cached.get(0L) : i == 1 ? cached.get(atm.routeAndTranslate(0L)) : cached.getAll(0L, 1)[0];
+            read.payload().set(0, read.payload().get(0) == Base.A ? Base.C : Base.A);
+            read.address().append(Base.T);
+        }
+        TestUtils.check(cached.get(0L).equals(oligos[0]) && cached.getAll(0L, 1)[0].equals(oligos[0]), "changing a returned oligo does not change the cached one");
+
+        // a reader that races with writers never caches an oligo that was replaced before it is cached
+        long id = 3L;
+        AtomicBoolean stop = new AtomicBoolean();
+        Thread reader = new Thread(() -> {
+            while (!stop.get())
+                cached.get(id);
+        });
+        reader.start();
+        AddressedDNA last = null;
+        for (int i = 0; i < 2000; i++) {
+            last = oligo(atm, id, payloadSize);
+            cached.put(id, last);
+        }
+        stop.set(true);
+        reader.join();
+        TestUtils.check(cached.get(id).equals(last), "concurrent reads do not cache a replaced oligo");
+        TestUtils.check(LongStream.range(0L, n).filter(k -> oligos[(int) k] != null).count() == cached.size(), "size is the size of the store");
+        atm.close();
+    }
+
+    private static AddressedDNA oligo(DNAAddrManager atm, long id, int payloadSize) {
+        return new AddressedDNA(atm.routeAndTranslate(id).translated(), BaseSequence.random(payloadSize));
+    }
+}
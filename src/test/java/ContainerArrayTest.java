@@ -0,0 +1,43 @@
+import datastructures.container.impl.RichDNAContainer;
+import datastructures.container.translation.DNAAddrManager;
+import datastructures.container.types.ContainerArray;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.stream.IntStream;
+
+public class ContainerArrayTest {
+
+    public static void main(String... args) {
+        DNAAddrManager atm = TestUtils.addressManager();
+        RichDNAContainer<String> container = TestUtils.richContainer(atm);
+        String[] elements = IntStream.range(0, 20).mapToObj(i -> "element " + i).toArray(String[]::new);
+        ContainerArray<String> array = container.putArray(elements);
+
+        for (int readAhead : new int[] {0, 1, 4, 64}) {
+            Iterator<String> it = ContainerArray.getArrayIterator(array.sketch(), container.getCoder(), readAhead);
+            List<String> read = new ArrayList<>();
+            it.forEachRemaining(read::add);
+            TestUtils.check(read.equals(List.of(elements)), "the iterator reads the elements with readAhead=" + readAhead);
+            TestUtils.check(throwsNoSuchElement(it), "next() after the last element throws NoSuchElementException with readAhead=" + readAhead);
+        }
+
+        Iterator<String> reverse = array.getFromPosReverseIterator(elements.length - 1);
+        List<String> reversed = new ArrayList<>();
+        reverse.forEachRemaining(reversed::add);
+        TestUtils.check(reversed.equals(IntStream.range(0, elements.length).mapToObj(i -> elements[elements.length - 1 - i]).toList()), "the reverse iterator reads the elements backwards");
+        TestUtils.check(throwsNoSuchElement(reverse), "next() after the first element throws NoSuchElementException");
+        atm.close();
+    }
+
+    private static boolean throwsNoSuchElement(Iterator<String> it) {
+        try {
+            it.next();
+            return false;
+        }
+        catch (NoSuchElementException e) {
+            return true;
+        }
+    }
+}
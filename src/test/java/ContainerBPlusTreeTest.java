@@ -0,0 +1,71 @@
+import datastructures.container.impl.RichDNAContainer;
+import datastructures.container.translation.DNAAddrManager;
+import datastructures.container.types.ContainerBPlusTree;
+import utils.Pair;
+import java.util.*;
+
+public class ContainerBPlusTreeTest {
+
+    public static void main(String... args) {
+        DNAAddrManager atm = TestUtils.addressManager();
+        RichDNAContainer<String> container = TestUtils.richContainer(atm);
+
+        // negative keys and the extremes of long, bulk loaded with a small order so that the tree has several levels
+        TreeMap<Long, String> expected = new TreeMap<>();
+        for (long k = -20L; k < 30L; k += 2L)
+            expected.put(k * 1000003L, "v" + k);
+        expected.put(Long.MIN_VALUE, "min");
+        expected.put(Long.MAX_VALUE, "max");
+        List<Pair<Long, String>> sorted = expected.entrySet().stream().map(e -> new Pair<>(e.getKey(), e.getValue())).toList();
+        ContainerBPlusTree<String> tree = ContainerBPlusTree.putBPlusTree(container.getContainer(), container.getCoder(), container.registerId(), sorted, 3, true);
+        TestUtils.check(tree.decode().equals(expected) && tree.size() == expected.size(), "putBPlusTree round-trips " + expected.size() + " entries");
+        TestUtils.check(tree.height() > 1, "the tree has height " + tree.height());
+
+        Random rnd = new Random(5);
+        for (int i = 0; i < 50; i++) {
+            long key = (rnd.nextInt(70) - 30) * 1000003L / (rnd.nextBoolean() ? 1 : 2);
+            if (rnd.nextInt(3) < 2) {
+                String value = "w" + i;
+                tree.put(key, value);
+                expected.put(key, value);
+            }
+            else {
+                TestUtils.check(tree.remove(key) == (expected.remove(key) != null), "remove of " + key + " reports whether it was present");
+            }
+        }
+        TestUtils.check(tree.size() == expected.size() && tree.decode().equals(expected), "puts and removes keep the entries");
+        TestUtils.check(expected.keySet().stream().allMatch(k -> expected.get(k).equals(tree.get(k)) && tree.containsKey(k)), "get finds every key");
+        TestUtils.check(tree.get(7L) == null && !tree.containsKey(7L), "get of an absent key is null");
+
+        // ranges across negative and positive keys, with and without read ahead
+        for (int i = 0; i < 15; i++) {
+            long from = (rnd.nextInt(70) - 35) * 1000003L;
+            long to = from + rnd.nextInt(30) * 1000003L;
+            List<Pair<Long, String>> range = expected.subMap(from, true, to, true).entrySet().stream().map(e -> new Pair<>(e.getKey(), e.getValue())).toList();
+            TestUtils.check(tree.range(from, to).toList().equals(range), "range [" + from + ", " + to + "] has " + range.size() + " entries");
+            List<Long> keys = new ArrayList<>();
+            ContainerBPlusTree.getRangeIterator(container.getContainer(), tree.sketch().id(), from, to, 0).forEachRemaining(p -> keys.add(p.getT1()));
+            TestUtils.check(keys.equals(range.stream().map(Pair::getT1).toList()), "the range iterator without read ahead reads the same keys");
+        }
+        TestUtils.check(tree.range(Long.MIN_VALUE, Long.MAX_VALUE).count() == expected.size(), "the full range includes the extremes of long");
+        TestUtils.check(tree.range(5L, 4L).toList().isEmpty(), "an inverted range is empty");
+
+        tree.rebuild();
+        TestUtils.check(tree.decode().equals(expected) && tree.size() == expected.size(), "rebuild keeps the entries");
+
+        // a second instance reads the same tree
+        TestUtils.check(container.getBPlusTree(tree.sketch().id()).decode().equals(expected), "a second instance reads the same tree");
+
+        // an empty tree grows by descending inserts
+        ContainerBPlusTree<String> empty = container.putEmptyBPlusTree(container.registerId());
+        TestUtils.check(empty.size() == 0 && empty.decode().isEmpty() && empty.get(1L) == null && empty.height() == 0, "an empty tree has no entries");
+        TreeMap<Long, String> descending = new TreeMap<>();
+        for (long k = 30L; k > -10L; k--) {
+            empty.put(k, "x" + k);
+            descending.put(k, "x" + k);
+        }
+        TestUtils.check(empty.decode().equals(descending) && empty.size() == descending.size(), "an empty tree grows by inserts");
+
+        atm.close();
+    }
+}
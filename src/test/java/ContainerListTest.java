@@ -0,0 +1,94 @@
+import core.BaseSequence;
+import datastructures.container.ScanOptions;
+import datastructures.container.impl.RichDNAContainer;
+import datastructures.container.translation.DNAAddrManager;
+import datastructures.container.types.ContainerList;
+import utils.AddressedDNA;
+import utils.DNAPacker;
+import utils.Pair;
+import java.util.*;
+import java.util.stream.Stream;
+
+public class ContainerListTest {
+
+    public static void main(String... args) {
+        DNAAddrManager atm = TestUtils.addressManager();
+        RichDNAContainer<String> container = TestUtils.richContainer(atm);
+
+        // appends and inserts, also at and beyond the end, on an empty list, a single element list and a longer list
+        Random rnd = new Random(3);
+        List<ContainerList<String>> lists = new ArrayList<>();
+        for (int start : new int[] {0, 1, 5}) {
+            List<String> expected = new ArrayList<>();
+            for (int i = 0; i < start; i++)
+                expected.add("s" + i);
+            ContainerList<String> list = start == 0 ? container.putEmptyList(container.registerId()) : container.putList(expected);
+            for (int i = 0; i < 12; i++) {
+                String element = "v" + i;
+                switch (rnd.nextInt(3)) {
+                    case 0 -> {
+                        list.append(element);
+                        expected.add(element);
+                    }
+                    case 1 -> {
+                        int pos = rnd.nextInt(expected.size() + 2);
+                        list.insert(pos, element);
+                        if (pos >= expected.size())
+                            expected.add(element);
+                        else
+                            expected.add(pos, element);
+                    }
+                    default -> {
+                        list.append(List.of(element, element + "b"));
+                        expected.add(element);
+                        expected.add(element + "b");
+                    }
+                }
+                // the tail is read from the container, so a second instance appends behind the same element
+                if (!container.getList(list.sketch().id()).decode().equals(expected))
+                    throw new RuntimeException("failed: list " + container.getList(list.sketch().id()).decode() + " instead of " + expected);
+            }
+            TestUtils.check(list.size() == expected.size() && list.get(expected.size() - 1).equals(expected.get(expected.size() - 1)), "appends and inserts on a list starting with " + start + " elements");
+
+            ContainerList<String> other = container.getList(list.sketch().id());
+            other.append("o");
+            list.append("l");
+            expected.add("o");
+            expected.add("l");
+            TestUtils.check(list.decode().equals(expected), "appends of two instances are kept");
+
+            List<Long> ids = new ArrayList<>();
+            ContainerList.getRichListIterator(list.sketch()).forEachRemaining(e -> ids.add(e.id()));
+            TestUtils.check(new HashSet<>(ids).size() == ids.size(), "the elements have distinct ids");
+            List<AddressedDNA> oligos = ContainerList.getListOligos(list.sketch());
+            TestUtils.check(oligos.stream().map(AddressedDNA::address).distinct().count() == oligos.size(), "the oligos of the list are distinct");
+            lists.add(list);
+        }
+
+        // a scan returns each object of the lists once, including the tail
+        Map<Long, Integer> scanned = new HashMap<>();
+        try (Stream<Pair<Long, BaseSequence>> objects = container.getContainer().scan(ScanOptions.defaults())) {
+            objects.forEach(p -> scanned.merge(p.getT1(), 1, Integer::sum));
+        }
+        TestUtils.check(scanned.values().stream().allMatch(count -> count == 1), "a scan returns no duplicates");
+        TestUtils.check(lists.stream().allMatch(l -> scanned.containsKey(l.sketch().id())), "a scan returns the roots of the lists");
+
+        // legacy lists without a tail: the root is the first element, or a pointer to it
+        long[] ids = container.registerIds(3);
+        long root = container.registerId();
+        container.put(root, BaseSequence.join(DNAPacker.pack(ids[0], DNAPacker.LengthBase.INT_64), container.getCoder().encode("x0")));
+        container.put(ids[0], BaseSequence.join(DNAPacker.pack(ids[1], DNAPacker.LengthBase.INT_64), container.getCoder().encode("x1")));
+        ContainerList<String> legacy = container.getList(root);
+        legacy.append("x2");
+        legacy.insert(1, "y");
+        TestUtils.check(legacy.decode().equals(List.of("x0", "y", "x1", "x2")), "a legacy list is appended to");
+        long pointer = container.registerId();
+        container.put(pointer, DNAPacker.pack(ids[2], DNAPacker.LengthBase.INT_64));
+        ContainerList<String> legacyEmpty = container.getList(pointer);
+        legacyEmpty.append("p0");
+        legacyEmpty.append("p1");
+        TestUtils.check(legacyEmpty.decode().equals(List.of("p0", "p1")), "an empty legacy list is appended to");
+
+        atm.close();
+    }
+}
@@ -0,0 +1,78 @@
+import core.BaseSequence;
+import datastructures.container.impl.RichDNAContainer;
+import datastructures.container.translation.DNAAddrManager;
+import datastructures.container.types.ContainerMap;
+import dnacoders.dnaconvertors.RotatingTre;
+import utils.AddressedDNA;
+import utils.Coder;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+public class ContainerMapTest {
+
+    public static void main(String... args) {
+        DNAAddrManager atm = TestUtils.addressManager();
+        RichDNAContainer<String> container = TestUtils.richContainer(atm);
+
+        // few small buckets, so that the buckets overflow into chains
+        Map<String, String> expected = new HashMap<>();
+        for (int i = 0; i < 30; i++)
+            expected.put("k" + i, "v" + i);
+        ContainerMap<String, String> map = ContainerMap.putMap(container.getContainer(), RotatingTre.INSTANCE, RotatingTre.INSTANCE, container.registerId(), expected, 3, 2, true);
+        TestUtils.check(map.decode().equals(expected) && map.size() == expected.size(), "putMap round-trips " + expected.size() + " entries");
+
+        Random rnd = new Random(3);
+        for (int i = 0; i < 40; i++) {
+            String key = "k" + rnd.nextInt(50);
+            String value = "w" + i + "x".repeat(rnd.nextInt(20));
+            switch (rnd.nextInt(3)) {
+                case 0 -> {
+                    map.put(key, value);
+                    expected.put(key, value);
+                }
+                case 1 -> TestUtils.check(map.remove(key) == (expected.remove(key) != null), "remove of " + key + " reports whether it was present");
+                default -> {
+                    Map<String, String> batch = new HashMap<>();
+                    for (int j = 0; j < 4; j++)
+                        batch.put("k" + rnd.nextInt(60), value + j);
+                    map.putAll(batch);
+                    expected.putAll(batch);
+                }
+            }
+        }
+        TestUtils.check(map.size() == expected.size() && map.decode().equals(expected), "puts, putAlls and removes keep the entries");
+        TestUtils.check(IntStream.range(0, 60).allMatch(i -> Objects.equals(map.get("k" + i), expected.get("k" + i))), "get finds present and absent keys");
+        TestUtils.check(IntStream.range(0, 60).allMatch(i -> map.containsKey("k" + i) == expected.containsKey("k" + i)), "containsKey matches the entries");
+        AtomicInteger decodedValues = new AtomicInteger();
+        Coder<String, BaseSequence> countingCoder = Coder.of(RotatingTre.INSTANCE::encode, seq -> {
+            decodedValues.incrementAndGet();
+            return RotatingTre.INSTANCE.decode(seq);
+        });
+        ContainerMap<String, String> counted = new ContainerMap<>(container.getContainer(), map.sketch(), RotatingTre.INSTANCE, countingCoder);
+        TestUtils.check(IntStream.range(0, 60).allMatch(i -> counted.containsKey("k" + i) == expected.containsKey("k" + i)) && decodedValues.get() == 0, "containsKey does not decode values");
+
+        map.rebuild();
+        TestUtils.check(map.numBuckets() > 3 && map.decode().equals(expected), "rebuild grows to " + map.numBuckets() + " buckets");
+        TestUtils.check(IntStream.range(0, 60).allMatch(i -> Objects.equals(map.get("k" + i), expected.get("k" + i))), "get finds the keys after rebuilding");
+
+        // a second instance reads the same map
+        TestUtils.check(container.getMap(RotatingTre.INSTANCE, map.sketch().id()).decode().equals(expected), "a second instance reads the same map");
+        List<BaseSequence> addresses = Arrays.asList(map.addresses());
+        TestUtils.check(Arrays.stream(container.getContainer().getOligos(map.sketch().id())).map(AddressedDNA::address).allMatch(addresses::contains), "the addresses include the root");
+
+        // an empty map
+        ContainerMap<String, String> empty = container.putEmptyMap(RotatingTre.INSTANCE, container.registerId());
+        TestUtils.check(empty.size() == 0 && empty.decode().isEmpty() && empty.get("a") == null, "an empty map has no entries");
+        empty.put("a", "1");
+        empty.put("a", "2");
+        TestUtils.check(empty.decode().equals(Map.of("a", "2")) && empty.size() == 1, "put overwrites the value of a key");
+
+        atm.close();
+    }
+}
@@ -0,0 +1,113 @@
+import core.BaseSequence;
+import datastructures.container.ScanOptions;
+import datastructures.container.impl.DNAStorageMap;
+import datastructures.container.impl.RichDNAContainer;
+import datastructures.container.impl.SizedDNAContainer;
+import datastructures.container.translation.DNAAddrManager;
+import dnacoders.dnaconvertors.RotatingTre;
+import utils.FuncUtils;
+import utils.Pair;
+import java.io.ByteArrayInputStream;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.stream.Stream;
+
+public class ContainerScanTest {
+
+    public static void main(String... args) {
+        DNAAddrManager atm = TestUtils.addressManager();
+        SizedDNAContainer container = TestUtils.container(atm);
+        Random rnd = new Random(7);
+        Map<Long, BaseSequence> expected = new TreeMap<>();
+
+        // roots that are registered long before they are put, so that their segments lie after later objects
+        List<Long> early = new ArrayList<>();
+        for (int i = 0; i < 10; i++)
+            early.add(container.registerId());
+        for (int i = 0; i < 80; i++)
+            expected.put(container.registerId(), BaseSequence.random(20 + rnd.nextInt(rnd.nextInt(10) == 0 ? 2000 : 300)));
+        expected.forEach(container::put);
+        for (long id : early) {
+            BaseSequence seq = BaseSequence.random(500 + rnd.nextInt(500));
+            container.put(id, seq);
+            expected.put(id, seq);
+        }
+
+        // objects written by the pipeline and as streams
+        Map<Long, BaseSequence> pipelined = new LinkedHashMap<>();
+        for (int i = 0; i < 20; i++)
+            pipelined.put(container.registerId(), BaseSequence.random(20 + rnd.nextInt(600)));
+        container.putAll(pipelined);
+        expected.putAll(pipelined);
+        for (int i = 0; i < 3; i++) {
+            long id = container.registerId();
+            byte[] bytes = new byte[100 + rnd.nextInt(300)];
+            rnd.nextBytes(bytes);
+            container.putStream(id, new ByteArrayInputStream(bytes), bytes.length);
+            expected.put(id, container.get(id));
+        }
+
+        // overwritten and removed objects leave orphaned segments behind
+        List<Long> ids = new ArrayList<>(expected.keySet());
+        for (int i = 0; i < 15; i++) {
+            long id = ids.get(rnd.nextInt(ids.size()));
+            BaseSequence seq = BaseSequence.random(20 + rnd.nextInt(600));
+            container.put(id, seq);
+            expected.put(id, seq);
+        }
+        for (int i = 0; i < 15; i++) {
+            long id = ids.get(rnd.nextInt(ids.size()));
+            if (expected.remove(id) != null)
+                container.remove(id);
+        }
+
+        // a list with an insert, which re-routes an element to an oligo written later
+        RichDNAContainer<String> rich = container.toRichContainer(RotatingTre.INSTANCE);
+        rich.putList(List.of("a", "b", "c")).insert(1, "x");
+
+        for (int rangeSize : new int[] {1, 7, 64, 1024}) {
+            for (boolean ordered : new boolean[] {true, false}) {
+                ScanOptions options = ScanOptions.builder().setRangeSize(rangeSize).setOrdered(ordered).setParallelism(3).build();
+                List<Pair<Long, BaseSequence>> scanned;
+                try (Stream<Pair<Long, BaseSequence>> objects = container.scan(options)) {
+                    scanned = objects.toList();
+                }
+                Map<Long, BaseSequence> found = new HashMap<>();
+                for (Pair<Long, BaseSequence> p : scanned) {
+                    if (found.put(p.getT1(), p.getT2()) != null)
+                        throw new RuntimeException("failed: id " + p.getT1() + " was scanned twice");
+                }
+                String scan = "rangeSize=" + rangeSize + ", ordered=" + ordered;
+                TestUtils.check(expected.entrySet().stream().allMatch(e -> e.getValue().equals(found.get(e.getKey()))), "all objects are scanned with " + scan);
+                // the only other objects are those of the list, which are read like any object
+                TestUtils.check(found.entrySet().stream().filter(e -> !expected.containsKey(e.getKey())).allMatch(e -> e.getValue().equals(container.get(e.getKey()))), "no segment is scanned as an object with " + scan);
+                if (ordered)
+                    TestUtils.check(scanned.stream().map(Pair::getT1).sorted().toList().equals(scanned.stream().map(Pair::getT1).toList()), "the objects are ordered by their ids");
+            }
+        }
+
+        // a sub-range of ids
+        List<Long> part = container.scan(ScanOptions.builder().setIdRange(100L, 300L).setRangeSize(50).build()).map(Pair::getT1).toList();
+        TestUtils.check(part.containsAll(expected.keySet().stream().filter(id -> id >= 100L && id < 300L).toList()), "a sub-range scans its objects");
+        atm.close();
+
+        // a container rebuilt on the store of another container loads its segment ids
+        DNAAddrManager reloadAtm = TestUtils.addressManager();
+        DNAStorageMap store = new DNAStorageMap(reloadAtm);
+        String segmentIdsPath = FuncUtils.safeCall(() -> Files.createTempDirectory("containerscan")).resolve("segments").toString();
+        SizedDNAContainer written = TestUtils.containerBuilder(reloadAtm).setStore(store).setSegmentIdsPath(segmentIdsPath).build();
+        Map<Long, BaseSequence> stored = new TreeMap<>();
+        for (int i = 0; i < 30; i++)
+            stored.put(written.registerId(), BaseSequence.random(20 + rnd.nextInt(1000)));
+        stored.forEach(written::put);
+        SizedDNAContainer reloaded = TestUtils.containerBuilder(reloadAtm).setStore(store).setSegmentIdsPath(segmentIdsPath).build();
+        Map<Long, BaseSequence> rescanned = new TreeMap<>();
+        try (Stream<Pair<Long, BaseSequence>> objects = reloaded.scan(ScanOptions.builder().setRangeSize(16).build())) {
+            objects.forEach(p -> rescanned.put(p.getT1(), p.getT2()));
+        }
+        TestUtils.check(rescanned.equals(stored), "a rebuilt container scans the objects and no segments");
+        long next = reloaded.registerId();
+        TestUtils.check(stored.keySet().stream().allMatch(id -> id < next) && !rescanned.containsKey(next), "a rebuilt container registers ids after the stored ones");
+        reloadAtm.close();
+    }
+}
@@ -0,0 +1,56 @@
+import core.BaseSequence;
+import datastructures.container.impl.SizedDNAContainer;
+import datastructures.container.translation.DNAAddrManager;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.Random;
+
+public class ContainerStreamTest {
+
+    public static void main(String... args) {
+        DNAAddrManager atm = TestUtils.addressManager();
+        SizedDNAContainer container = TestUtils.container(atm);
+        Random rnd = new Random(5);
+
+        // objects of a single oligo, of a few segments, and of more segments than a batch of getStream
+        for (int numBytes : new int[] {0, 1, 7, 40, 300, 1023, 6000}) {
+            byte[] bytes = new byte[numBytes];
+            rnd.nextBytes(bytes);
+            long streamed = container.registerId();
+            container.putStream(streamed, new ByteArrayInputStream(bytes), bytes.length);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            TestUtils.check(container.getStream(streamed, out) == numBytes && Arrays.equals(out.toByteArray(), bytes), "getStream returns the " + numBytes + " bytes of putStream");
+
+            // the same object put as a sequence has the same oligo layout
+            BaseSequence seq = container.get(streamed);
+            TestUtils.check(seq.length() == 4 * numBytes, "get returns 4 bases per byte of " + numBytes + " bytes");
+            long put = container.registerId();
+            container.put(put, seq);
+            ByteArrayOutputStream outOfPut = new ByteArrayOutputStream();
+            TestUtils.check(container.getStream(put, outOfPut) == numBytes && Arrays.equals(outOfPut.toByteArray(), bytes), "getStream of put(id, seq) matches get for " + numBytes + " bytes");
+            TestUtils.check(container.getOligos(put).length == container.getOligos(streamed).length, "put and putStream write the same number of oligos for " + numBytes + " bytes");
+        }
+
+        // a stream of unknown length
+        byte[] bytes = new byte[2500];
+        rnd.nextBytes(bytes);
+        long id = container.registerId();
+        container.putStream(id, new ByteArrayInputStream(bytes));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        TestUtils.check(container.getStream(id, out) == bytes.length && Arrays.equals(out.toByteArray(), bytes), "putStream without a length reads the whole stream");
+
+        TestUtils.check(container.getStream(container.registerId(), new ByteArrayOutputStream()) == -1L, "getStream of an absent id returns -1");
+        long odd = container.registerId();
+        container.put(odd, BaseSequence.random(4 * 500 + 3));
+        boolean failed = false;
+        try {
+            container.getStream(odd, new ByteArrayOutputStream());
+        }
+        catch (RuntimeException e) {
+            failed = true;
+        }
+        TestUtils.check(failed, "getStream of an object whose length is not a multiple of 4 fails");
+        atm.close();
+    }
+}
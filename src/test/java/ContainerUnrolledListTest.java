@@ -0,0 +1,62 @@
+import core.BaseSequence;
+import datastructures.container.impl.RichDNAContainer;
+import datastructures.container.translation.DNAAddrManager;
+import datastructures.container.types.ContainerUnrolledList;
+import utils.AddressedDNA;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+public class ContainerUnrolledListTest {
+
+    public static void main(String... args) {
+        DNAAddrManager atm = TestUtils.addressManager();
+        RichDNAContainer<String> container = TestUtils.richContainer(atm);
+
+        // small nodes and pages, so that inserts split both
+        List<String> expected = new ArrayList<>(IntStream.range(0, 10).mapToObj(i -> "e" + i).toList());
+        ContainerUnrolledList<String> list = ContainerUnrolledList.putUnrolledList(container.getContainer(), container.getCoder(), container.registerId(), expected, 3, 2);
+        TestUtils.check(list.decode().equals(expected), "putUnrolledList round-trips " + expected.size() + " elements");
+
+        Random rnd = new Random(5);
+        for (int i = 0; i < 12; i++) {
+            String element = "v" + i;
+            int pos = rnd.nextInt(expected.size() + 2);
+            list.insert(pos, element);
+            if (pos >= expected.size())
+                expected.add(element);
+            else
+                expected.add(pos, element);
+        }
+        list.append(List.of("a0", "a1", "a2", "a3"));
+        expected.addAll(List.of("a0", "a1", "a2", "a3"));
+        TestUtils.check(list.decode().equals(expected), "inserts and appends keep the order");
+        TestUtils.check(list.size() == expected.size(), "size " + list.size());
+        TestUtils.check(IntStream.range(0, expected.size()).allMatch(i -> expected.get(i).equals(list.get(i))), "get finds every position");
+        TestUtils.check(list.get(-1) == null && list.get(expected.size()) == null, "get outside the list is null");
+        TestUtils.check(!list.insert(-1, "x") && !list.append(List.of()), "invalid inserts and appends are rejected");
+
+        // a second instance reads the same list, also node by node
+        ContainerUnrolledList<String> other = container.getUnrolledList(list.sketch().id());
+        TestUtils.check(other.decode().equals(expected), "a second instance reads the same list");
+        for (int readAhead : new int[] {0, 1, 4}) {
+            List<String> read = new ArrayList<>();
+            ContainerUnrolledList.getUnrolledListIterator(container.getContainer(), list.sketch().id(), readAhead).forEachRemaining(seq -> read.add(container.getCoder().decode(seq)));
+            TestUtils.check(read.equals(expected), "the iterator reads the list with readAhead=" + readAhead);
+        }
+        List<BaseSequence> addresses = Arrays.asList(list.addresses());
+        TestUtils.check(Arrays.stream(container.getContainer().getOligos(list.sketch().id())).map(AddressedDNA::address).allMatch(addresses::contains), "the addresses include the root");
+
+        // an empty list grows by appends and inserts
+        ContainerUnrolledList<String> empty = container.putEmptyUnrolledList(container.registerId());
+        TestUtils.check(empty.size() == 0 && empty.decode().isEmpty(), "an empty list has no elements");
+        empty.insert(0, "b");
+        empty.insert(0, "a");
+        empty.append("c");
+        TestUtils.check(empty.decode().equals(List.of("a", "b", "c")), "an empty list grows");
+
+        atm.close();
+    }
+}
@@ -0,0 +1,94 @@
+import core.Base;
+import core.BaseSequence;
+import datastructures.container.impl.DNAStorageDisk;
+import datastructures.container.impl.LongHashTable;
+import datastructures.container.translation.DNAAddrManager;
+import utils.AddressedDNA;
+import utils.FuncUtils;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class DNAStorageDiskTest {
+
+    public static void main(String... args) throws InterruptedException {
+        Path dir = FuncUtils.safeCall(() -> Files.createTempDirectory("dnastoragedisk"));
+        int payloadSize = 24;
+        int n = 2000;
+        DNAAddrManager atm = DNAAddrManager.builder().setAddrSize(44).setNumericBarcodes(true).setMinDist(0.01d).build();
+        DNAStorageDisk store = new DNAStorageDisk(atm, LongHashTable.create(dir.resolve("routing").toString()), payloadSize, dir.resolve("store").toString());
+
+        Random rnd = new Random(1);
+        Map<Long, AddressedDNA> expected = new ConcurrentHashMap<>();
+        for (long id = 0L; id < n; id++) {
+            AddressedDNA oligo = oligo(atm, id, payloadSize, rnd);
+            store.put(id, oligo);
+            expected.put(id, oligo);
+        }
+        TestUtils.check(store.size() == n, "size " + store.size());
+
+        // the first half is never changed, so a concurrent reader always finds it, also while it is moved by compactions
+        AtomicBoolean stop = new AtomicBoolean();
+        AtomicLong badReads = new AtomicLong();
+        Thread reader = new Thread(() -> {
+            Random r = new Random(2);
+            while (!stop.get()) {
+                long id = r.nextInt(n / 2);
+                AddressedDNA oligo = store.get(id);
+                if (oligo == null || !oligo.join().equals(expected.get(id).join()))
+                    badReads.incrementAndGet();
+            }
+        });
+        Thread writer = new Thread(() -> {
+            Random r = new Random(3);
+            for (int i = 0; i < 5000; i++) {
+                long id = n / 2 + r.nextInt(n / 2);
+                if (r.nextBoolean()) {
+                    AddressedDNA oligo = oligo(atm, id, payloadSize, r);
+                    store.put(id, oligo);
+                    expected.put(id, oligo);
+                }
+                else {
+                    store.remove(id);
+                    expected.remove(id);
+                }
+            }
+        });
+        reader.start();
+        writer.start();
+        int compactions = 0;
+        while (writer.isAlive()) {
+            store.compact();
+            compactions++;
+        }
+        writer.join();
+        store.compact();
+        stop.set(true);
+        reader.join();
+
+        TestUtils.check(badReads.get() == 0L, "no bad reads during " + compactions + " compactions");
+        TestUtils.check(store.garbageRatio() == 0d, "compaction reclaims all garbage");
+        TestUtils.check(store.size() == expected.size(), "size " + store.size() + " after compactions");
+        for (long id = 0L; id < n; id++) {
+            AddressedDNA e = expected.get(id);
+            AddressedDNA oligo = store.get(id);
+            if (e == null ? oligo != null : oligo == null || !oligo.join().equals(e.join()))
+                throw new RuntimeException("failed: id " + id + " has oligo " + oligo + " instead of " + e);
+        }
+        System.out.println("ok: all oligos are found after compactions");
+        store.close();
+        atm.close();
+    }
+
+    private static AddressedDNA oligo(DNAAddrManager atm, long id, int payloadSize, Random rnd) {
+        Base[] bases = new Base[payloadSize];
+        for (int i = 0; i < payloadSize; i++)
+            bases[i] = Base.values()[rnd.nextInt(4)];
+
+        return new AddressedDNA(atm.routeAndTranslate(id).translated(), new BaseSequence(bases));
+    }
+}
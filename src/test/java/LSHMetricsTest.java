@@ -0,0 +1,51 @@
+import core.BaseSequence;
+import utils.FuncUtils;
+import utils.lsh.LSHMetrics;
+import utils.lsh.LSHMetricsDumper;
+import utils.lsh.minhash.MinHashLSH;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+public class LSHMetricsTest {
+
+    public static void main(String... args) {
+        // power-of-two buckets: bucket i counts [2^(i-1), 2^i)
+        LSHMetrics.HistogramSnapshot histogram = LSHMetrics.HistogramSnapshot.of(new long[] {0L, 1L, 2L, 3L, 4L, 100L});
+        TestUtils.check(LSHMetrics.Histogram.bucketOf(0L) == 0 && LSHMetrics.Histogram.bucketOf(1L) == 1 && LSHMetrics.Histogram.bucketOf(3L) == 2 && LSHMetrics.Histogram.bucketOf(4L) == 3, "values are assigned to their power-of-two buckets");
+        TestUtils.check(histogram.count() == 6L && histogram.sum() == 110L && histogram.mean() == 110d / 6d, "the histogram counts and sums the values");
+        TestUtils.check(histogram.percentile(0.5d) == 4L && histogram.max() == 128L, "percentile and max are bucket upper bounds");
+        TestUtils.check(LSHMetrics.HistogramSnapshot.of(new long[0]).percentile(0.99d) == 0L, "an empty histogram has percentile 0");
+
+        // inserts, removes and queries of an LSH are counted
+        MinHashLSH.Traditional<BaseSequence> lsh = MinHashLSH.newSeqLSHTraditional(5, 5);
+        List<BaseSequence> seqs = IntStream.range(0, 100).mapToObj(__ -> BaseSequence.random(80)).toList();
+        seqs.forEach(lsh::insert);
+        seqs.subList(0, 10).forEach(lsh::remove);
+        seqs.subList(10, 30).forEach(lsh::candidates);
+        LSHMetrics.Snapshot snapshot = lsh.metricsSnapshot();
+        TestUtils.check(snapshot.inserts() == 100L && snapshot.removes() == 10L && snapshot.queries() == 20L && snapshot.candidateQueries() == 20L, "inserts, removes and queries are counted");
+        TestUtils.check(snapshot.avgCandidates() >= 1d, "queries of stored sequences find at least themselves " + snapshot.avgCandidates());
+        TestUtils.check(snapshot.insertLatency().count() == 100L && snapshot.queryLatency().count() == 20L, "latencies are recorded per call");
+        TestUtils.check(snapshot.bands().size() == 1 && snapshot.bands().get(0).entries() == 90L, "the band stores the 90 remaining sequences");
+
+        lsh.getMetrics().reset();
+        LSHMetrics.Snapshot reset = lsh.metricsSnapshot();
+        TestUtils.check(reset.inserts() == 0L && reset.queries() == 0L && reset.insertLatency().count() == 0L && reset.bands().get(0).entries() == 90L, "reset clears the counters but not the band statistics");
+
+        // the dumper writes a header and one line per snapshot, and nothing after closing
+        Path csv = FuncUtils.safeCall(() -> Files.createTempDirectory("lshmetrics")).resolve("metrics.csv");
+        LSHMetricsDumper dumper = lsh.dumpMetricsPeriodically(csv.toString(), 1L, TimeUnit.HOURS);
+        dumper.dump();
+        lsh.insert(BaseSequence.random(80));
+        dumper.dump();
+        dumper.close();
+        dumper.dump();
+        List<String> lines = FuncUtils.safeCall(() -> Files.readAllLines(csv));
+        TestUtils.check(lines.size() == 3, "the CSV has a header and 2 lines");
+        TestUtils.check(lines.stream().allMatch(line -> line.split(",").length == 13 + 7), "every line has a column per counter and per band statistic");
+        TestUtils.check(lines.get(0).startsWith("timestamp_ms,inserts") && lines.get(1).split(",")[1].equals("0") && lines.get(2).split(",")[1].equals("1"), "the lines hold the snapshots in order");
+    }
+}
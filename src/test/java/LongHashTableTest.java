@@ -0,0 +1,65 @@
+import datastructures.container.impl.LongHashTable;
+import utils.FuncUtils;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.LongStream;
+
+public class LongHashTableTest {
+
+    public static void main(String... args) {
+        Path dir = FuncUtils.safeCall(() -> Files.createTempDirectory("longhashtable"));
+        String dirPath = dir.resolve("table").toString();
+
+        // round trip with segment growth: a single segment starts with 4096 slots and is rehashed several times
+        int n = 100_000;
+        Map<Long, Long> reference = new HashMap<>();
+        Random rnd = new Random(7);
+        try (LongHashTable table = LongHashTable.create(dirPath, 1)) {
+            for (int i = 0; i < n; i++) {
+                long key = rnd.nextLong() & Long.MAX_VALUE;
+                table.put(key, (long) i);
+                reference.put(key, (long) i);
+            }
+            TestUtils.check(table.size() == reference.size(), "size " + table.size() + " after growing");
+            TestUtils.check(reference.entrySet().stream().allMatch(e -> e.getValue().equals(table.get(e.getKey()))), "all values are found after growing");
+
+            // removals shift later slots of a probe sequence back, so that the remaining keys are still found
+            List<Long> removed = reference.keySet().stream().filter(k -> k % 3L == 0L).toList();
+            removed.forEach(k -> {
+                if (!table.remove(k))
+                    throw new RuntimeException("key " + k + " was not removed");
+                reference.remove(k);
+            });
+            TestUtils.check(table.size() == reference.size(), "size " + table.size() + " after removals");
+            TestUtils.check(reference.entrySet().stream().allMatch(e -> e.getValue().equals(table.get(e.getKey()))), "all remaining values are found after removals");
+            TestUtils.check(removed.stream().allMatch(k -> table.get(k) == null), "removed keys are absent");
+        }
+
+        // reopening recounts the sizes from the slots
+        try (LongHashTable reopened = LongHashTable.open(dirPath, 1)) {
+            TestUtils.check(reopened.size() == reference.size(), "size " + reopened.size() + " after reopening");
+            TestUtils.check(reference.entrySet().stream().allMatch(e -> e.getValue().equals(reopened.get(e.getKey()))), "all values are found after reopening");
+        }
+
+        // create deletes an existing table
+        try (LongHashTable created = LongHashTable.create(dirPath, 1)) {
+            TestUtils.check(created.size() == 0L, "create starts empty");
+        }
+
+        // concurrent puts and gets on multiple segments
+        try (LongHashTable table = LongHashTable.create(dir.resolve("concurrent").toString())) {
+            LongStream.range(0L, n).parallel().forEach(k -> {
+                table.put(k, k * 2L);
+                Long v = table.get(k);
+                if (v == null || v != k * 2L)
+                    throw new RuntimeException("key " + k + " has value " + v);
+            });
+            TestUtils.check(table.size() == n, "size " + table.size() + " after concurrent puts");
+            TestUtils.check(LongStream.range(0L, n).parallel().allMatch(k -> table.get(k) == k * 2L), "all values are found after concurrent puts");
+        }
+    }
+}
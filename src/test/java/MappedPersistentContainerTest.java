@@ -0,0 +1,109 @@
+import datastructures.container.impl.MappedPersistentContainer;
+import utils.FuncUtils;
+import utils.serializers.FixedSizeSerializer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+public class MappedPersistentContainerTest {
+
+    public static void main(String... args) {
+        Path dir = FuncUtils.safeCall(() -> Files.createTempDirectory("mappedcontainer"));
+        String filePath = dir.resolve("container").toString();
+        // small segments, so that the records span many mapped segments
+        long segmentSize = 8L * Long.BYTES;
+        int threads = 8;
+        int perThread = 5_000;
+
+        try (MappedPersistentContainer<Long> container = new MappedPersistentContainer<>(filePath, FixedSizeSerializer.LONG, MappedPersistentContainer.SyncPolicy.ON_CLOSE, segmentSize)) {
+            // concurrent appends of single values and batches of the values t * perThread, ..., (t + 1) * perThread - 1, while the published records are read
+            IntStream.range(0, threads).parallel().forEach(t -> {
+                for (int i = 0; i < perThread; i += 10) {
+                    long first = (long) t * perThread + i;
+                    List<Long> values = LongStream.range(first, first + 10L).boxed().toList();
+                    if (t % 2 == 0) {
+                        values.forEach(container::append);
+                    }
+                    else {
+                        long firstKey = container.appendAll(values);
+                        if (!container.getAll(firstKey, values.size()).equals(values))
+                            throw new RuntimeException("batch at " + firstKey + " is not contiguous");
+                    }
+                    long size = container.size();
+                    if (container.get(size - 1L) == null)
+                        throw new RuntimeException("published record " + (size - 1L) + " is missing");
+                }
+            });
+            long n = (long) threads * perThread;
+            TestUtils.check(container.size() == n, "size " + container.size() + " after concurrent appends");
+            TestUtils.check(LongStream.range(0L, n).map(container::get).sorted().boxed().toList().equals(LongStream.range(0L, n).boxed().toList()), "every appended value is stored once");
+            TestUtils.check(container.registerId() == n, "the id generator continues after the appended records");
+
+            container.putAll(0L, LongStream.range(0L, n).boxed().toList());
+            TestUtils.check(LongStream.range(0L, n).allMatch(k -> container.get(k) == k), "putAll overwrites the records");
+            TestUtils.check(container.getAll(5L, 20).equals(LongStream.range(5L, 25L).boxed().toList()), "getAll reads across segments");
+            boolean failed = false;
+            try {
+                container.putAll(n + 1L, List.of(1L));
+            }
+            catch (RuntimeException e) {
+                failed = "key > size".equals(e.getMessage());
+            }
+            TestUtils.check(failed, "putAll beyond the size fails");
+        }
+
+        // loading restores the records and their size from the header
+        try (MappedPersistentContainer<Long> loaded = MappedPersistentContainer.load(filePath, FixedSizeSerializer.LONG, MappedPersistentContainer.SyncPolicy.ON_CLOSE, segmentSize)) {
+            long n = (long) threads * perThread;
+            TestUtils.check(loaded.size() == n, "size " + loaded.size() + " after loading");
+            TestUtils.check(LongStream.range(0L, n).allMatch(k -> loaded.get(k) == k), "all records are found after loading");
+            loaded.put(n, -1L);
+            TestUtils.check(loaded.size() == n + 1L && loaded.get(n) == -1L, "put at the size appends");
+        }
+
+        // failed writes are published as removed records, and removals survive loading
+        FixedSizeSerializer<Long> failing = FixedSizeSerializer.of(l -> {
+            if (l < 0L)
+                throw new RuntimeException("negative value");
+            return FixedSizeSerializer.LONG.serialize(l);
+        }, FixedSizeSerializer.LONG::deserialize, Long.BYTES);
+        String failingPath = dir.resolve("failing").toString();
+        try (MappedPersistentContainer<Long> container = new MappedPersistentContainer<>(failingPath, failing, MappedPersistentContainer.SyncPolicy.ON_CLOSE, segmentSize)) {
+            container.appendAll(List.of(0L, 1L));
+            TestUtils.check(fails(() -> container.append(-2L)) && fails(() -> container.appendAll(List.of(3L, -4L, 5L))), "failed appends throw");
+            TestUtils.check(container.size() == 6L && IntStream.range(2, 6).allMatch(k -> container.get((long) k) == null), "failed appends are published as absent records");
+            TestUtils.check(container.append(6L) == 6L && container.get(6L) == 6L, "appends continue after a failed append");
+            TestUtils.check(fails(() -> container.put(1L, -1L)) && container.get(1L) == null, "a failed overwrite removes the record");
+            TestUtils.check(container.stream().map(p -> p.getT1()).toList().equals(List.of(0L, 6L)), "streams skip absent records");
+            TestUtils.check(container.getAll(0L, 3).equals(Arrays.asList(0L, null, null)), "getAll returns null for absent records");
+            TestUtils.check(container.remove(0L) && !container.remove(0L) && !container.remove(7L) && container.get(0L) == null, "remove reports whether the record was present");
+            container.put(3L, 3L);
+            TestUtils.check(container.get(3L) == 3L, "put restores a removed record");
+        }
+        try (MappedPersistentContainer<Long> loaded = MappedPersistentContainer.load(failingPath, failing, MappedPersistentContainer.SyncPolicy.ON_CLOSE, segmentSize)) {
+            TestUtils.check(loaded.size() == 7L && loaded.stream().map(p -> p.getT1()).toList().equals(List.of(3L, 6L)), "removed records stay removed after loading");
+        }
+        try (MappedPersistentContainer<Long> created = new MappedPersistentContainer<>(failingPath, failing)) {
+            created.append(0L);
+            TestUtils.check(created.get(0L) == 0L, "the constructor drops the removed records of the old file");
+        }
+
+        // the constructor truncates an existing file
+        try (MappedPersistentContainer<Long> created = new MappedPersistentContainer<>(filePath, FixedSizeSerializer.LONG)) {
+            TestUtils.check(created.size() == 0L && created.get(0L) == null, "the constructor starts empty");
+        }
+    }
+
+    private static boolean fails(Runnable r) {
+        try {
+            r.run();
+            return false;
+        }
+        catch (RuntimeException e) {
+            return true;
+        }
+    }
+}
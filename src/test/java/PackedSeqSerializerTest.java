@@ -0,0 +1,60 @@
+import core.BaseSequence;
+import utils.AddressedDNA;
+import utils.serializers.FixedSizeSerializer;
+import utils.serializers.PackedSeqSerializer;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+public class PackedSeqSerializerTest {
+
+    public static void main(String... args) {
+        // every length modulo 4, including sequences shorter than a byte
+        for (int length : IntStream.concat(IntStream.rangeClosed(0, 13), IntStream.of(61, 150, 251)).toArray()) {
+            PackedSeqSerializer serializer = new PackedSeqSerializer(length);
+            TestUtils.check(serializer.serializedSize() == (length + 3) / 4, "length " + length + " packs into " + serializer.serializedSize() + " bytes");
+            TestUtils.check(IntStream.range(0, 20).allMatch(__ -> {
+                BaseSequence seq = BaseSequence.random(length);
+                return serializer.deserialize(serializer.serialize(seq)).equals(seq) && roundTripsInBuffer(serializer, seq);
+            }), "length " + length + " round-trips through bytes and at an offset of a buffer");
+        }
+        TestUtils.check(fails(() -> new PackedSeqSerializer(10).serialize(BaseSequence.random(11))), "a sequence of another length is rejected");
+
+        // the address and the payload are packed back to back, so that the payload can start within a byte
+        for (int[] sizes : new int[][] {{5, 7}, {3, 1}, {13, 22}, {0, 9}, {80, 170}, {41, 150}}) {
+            int addrSize = sizes[0];
+            int payloadSize = sizes[1];
+            FixedSizeSerializer<AddressedDNA> serializer = PackedSeqSerializer.addressed(addrSize, payloadSize);
+            TestUtils.check(serializer.serializedSize() == (addrSize + payloadSize + 3) / 4, "addressed(" + addrSize + ", " + payloadSize + ") packs into " + serializer.serializedSize() + " bytes");
+            TestUtils.check(IntStream.range(0, 20).allMatch(__ -> {
+                AddressedDNA oligo = new AddressedDNA(BaseSequence.random(addrSize), BaseSequence.random(payloadSize));
+                return serializer.deserialize(serializer.serialize(oligo)).equals(oligo) && roundTripsInBuffer(serializer, oligo);
+            }), "addressed(" + addrSize + ", " + payloadSize + ") round-trips the address and the payload");
+            TestUtils.check(fails(() -> serializer.serialize(new AddressedDNA(BaseSequence.random(addrSize + 1), BaseSequence.random(payloadSize - 1)))), "addressed(" + addrSize + ", " + payloadSize + ") rejects another split of the oligo");
+        }
+    }
+
+    /**
+     * Serializes the value between two filled regions of a buffer, and checks that it is read back and that the regions are not changed.
+     */
+    private static <T> boolean roundTripsInBuffer(FixedSizeSerializer<T> serializer, T value) {
+        int pos = 3;
+        ByteBuffer buffer = ByteBuffer.allocate(pos + serializer.serializedSize() + 3);
+        Arrays.fill(buffer.array(), (byte) 0x5A);
+        serializer.serialize(value, buffer, pos);
+        byte[] bs = buffer.array();
+        return serializer.deserialize(buffer, pos).equals(value) && buffer.position() == 0
+                && IntStream.range(0, pos).allMatch(i -> bs[i] == 0x5A)
+                && IntStream.range(pos + serializer.serializedSize(), bs.length).allMatch(i -> bs[i] == 0x5A);
+    }
+
+    private static boolean fails(Runnable r) {
+        try {
+            r.run();
+            return false;
+        }
+        catch (RuntimeException e) {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+import core.BaseSequence;
+import datastructures.container.impl.PutAllPipeline;
+import datastructures.container.impl.SizedDNAContainer;
+import datastructures.container.translation.DNAAddrManager;
+import utils.Pair;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Stream;
+
+public class PutAllPipelineTest {
+
+    public static void main(String... args) {
+        DNAAddrManager atm = TestUtils.addressManager();
+        SizedDNAContainer container = TestUtils.container(atm);
+
+        // small queues and batches, so that the stages block on each other and batches are split
+        Random rnd = new Random(1);
+        Map<Long, BaseSequence> objects = new LinkedHashMap<>();
+        for (int i = 0; i < 60; i++)
+            objects.put(container.registerId(), BaseSequence.random(1 + rnd.nextInt(600)));
+
+        PutAllPipeline pipeline = new PutAllPipeline(container, 3, 4, 7, 16);
+        PutAllPipeline.Metrics metrics = pipeline.run(objects.entrySet().stream().map(e -> new Pair<>(e.getKey(), e.getValue())));
+        System.out.println(metrics);
+        TestUtils.check(metrics.objects() == objects.size(), "metrics count " + metrics.objects() + " objects");
+        TestUtils.check(metrics.oligos() == objects.keySet().stream().mapToLong(id -> container.getOligos(id).length).sum(), "metrics count " + metrics.oligos() + " oligos");
+        TestUtils.check(objects.entrySet().stream().allMatch(e -> e.getValue().equals(container.get(e.getKey()))), "all objects are found");
+
+        // a failing stage fails the run instead of blocking it
+        boolean failed = false;
+        try {
+            pipeline.run(Stream.of(new Pair<>(container.registerId() + 1000L, BaseSequence.random(10))));
+        }
+        catch (RuntimeException e) {
+            failed = true;
+        }
+        TestUtils.check(failed, "an unregistered id fails the run");
+
+        atm.close();
+    }
+}
@@ -0,0 +1,51 @@
+import core.BaseSequence;
+import core.dnarules.BasicDNARules;
+import datastructures.container.translation.DNAAddrManager;
+import dnacoders.dnaconvertors.RotatingIdCoder;
+import java.util.Random;
+import java.util.function.Supplier;
+import java.util.stream.LongStream;
+
+public class RotatingIdCoderTest {
+
+    public static void main(String... args) {
+        Random rnd = new Random(1);
+        long[] ids = LongStream.concat(LongStream.of(0L, 1L, -1L, Long.MIN_VALUE, Long.MAX_VALUE), LongStream.concat(LongStream.range(2L, 2000L), rnd.longs(2000L))).toArray();
+        for (int length : new int[] {RotatingIdCoder.ID_DIGITS, 60, 80}) {
+            RotatingIdCoder coder = new RotatingIdCoder(length);
+            TestUtils.check(LongStream.of(ids).allMatch(id -> coder.decode(coder.encode(id)) == id), "ids round-trip with length " + length);
+            TestUtils.check(LongStream.of(ids).allMatch(id -> coder.encode(id).length() == length && coder.encode(id).longestHomopolymer() == 1), "sequences of length " + length + " have no homopolymers");
+            TestUtils.check(LongStream.of(ids).mapToObj(coder::encode).distinct().count() == ids.length, "ids map to distinct sequences with length " + length);
+        }
+
+        // the bases beyond ID_DIGITS steer the GC content towards the target
+        for (int length : new int[] {60, 80}) {
+            RotatingIdCoder coder = new RotatingIdCoder(length);
+            double tolerance = 1d / length;
+            TestUtils.check(LongStream.of(ids).mapToObj(coder::encode).allMatch(seq -> Math.abs(seq.gcContent() - 0.5d) <= tolerance + 1e-6d), "the GC content is 0.5 +- 1 base with length " + length);
+        }
+
+        // numeric barcodes through the address manager
+        DNAAddrManager atm = DNAAddrManager.builder().setAddrSize(48).setNumericBarcodes(true).setMinDist(0.01d).build();
+        TestUtils.check(LongStream.range(0L, 200L).allMatch(id -> {
+            BaseSequence barcode = atm.routeAndTranslate(id).translated();
+            return barcode.length() == 48 && barcode.longestHomopolymer() == 1 && atm.resolve(barcode).original() == id;
+        }), "numeric barcodes resolve to their ids");
+        atm.close();
+
+        TestUtils.check(fails(() -> DNAAddrManager.builder().setAddrSize(40).setNumericBarcodes(true).build()), "numeric barcodes shorter than ID_DIGITS are rejected");
+        TestUtils.check(fails(() -> DNAAddrManager.builder().setAddrSize(48).setAddressEccSize(2).setNumericBarcodes(true).build()), "the ecc overhead counts towards ID_DIGITS");
+        TestUtils.check(fails(() -> DNAAddrManager.builder().setAddrSize(80).setNumPermutations(8).setNumericBarcodes(true).build()), "numeric barcodes reject permutations");
+        TestUtils.check(fails(() -> DNAAddrManager.builder().setAddrSize(80).setDnaRules(BasicDNARules.INSTANCE).setNumericBarcodes(true).build()), "numeric barcodes reject dnaRules");
+    }
+
+    private static boolean fails(Supplier<DNAAddrManager> build) {
+        try {
+            build.get().close();
+            return false;
+        }
+        catch (RuntimeException e) {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+import core.BaseSequence;
+import datastructures.container.translation.AddressManager;
+import datastructures.container.translation.DNAAddrManager;
+import datastructures.hashtable.BloomFilter;
+import utils.lsh.minhash.MinHashLSH;
+import java.util.*;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+public class RouteAndTranslateAllTest {
+
+    public static void main(String... args) {
+        long nBits = BloomFilter.numBits(0.01d, 2000L);
+        long nHashFunctions = BloomFilter.numHashFunctions(0.01d);
+        Map<String, DNAAddrManager> managers = new LinkedHashMap<>();
+        managers.put("Traditional", DNAAddrManager.builder().setLsh(MinHashLSH.newSeqLSHTraditional(5, 5)).setAddrSize(80).setNumPermutations(8).build());
+        managers.put("Light", DNAAddrManager.builder().setDeepLSH(false).setAddrSize(80).setNumPermutations(8).build());
+        managers.put("Bloom", DNAAddrManager.builder().setLsh(MinHashLSH.newSeqLSHBloom(5, 5, nBits, nHashFunctions)).setAddrSize(80).setNumPermutations(8).build());
+
+        for (Map.Entry<String, DNAAddrManager> e : managers.entrySet()) {
+            String lsh = e.getKey();
+            DNAAddrManager atm = e.getValue();
+
+            // a batch of new ids, including a duplicate, in the order of the ids
+            long[] ids = LongStream.concat(LongStream.range(0L, 300L), LongStream.of(7L)).toArray();
+            List<AddressManager.ManagedAddress<Long, BaseSequence>> batch = atm.routeAndTranslateAll(ids);
+            TestUtils.check(IntStream.range(0, ids.length).allMatch(i -> batch.get(i).original() == ids[i]), lsh + ": the addresses are in the order of the ids");
+            TestUtils.check(batch.subList(0, 300).stream().map(AddressManager.ManagedAddress::translated).distinct().count() == 300L, lsh + ": the barcodes of a batch are distinct");
+            TestUtils.check(batch.get(300).translated().equals(batch.get(7).translated()), lsh + ": a duplicate id gets the same barcode");
+            TestUtils.check(LongStream.range(0L, 300L).allMatch(id -> atm.routeAndTranslate(id).translated().equals(batch.get((int) id).translated())), lsh + ": routeAndTranslate returns the batch's barcodes");
+            TestUtils.check(batch.subList(0, 300).stream().allMatch(m -> atm.resolve(m.translated()).original().equals(m.original())), lsh + ": the barcodes resolve to their ids");
+
+            // overlapping batches of known and new ids from several threads map each id to one barcode
+            Map<Long, Set<BaseSequence>> seen = new HashMap<>();
+            List<List<AddressManager.ManagedAddress<Long, BaseSequence>>> batches = IntStream.range(0, 8).parallel().mapToObj(t -> atm.routeAndTranslateAll(LongStream.range(250L + t * 20L, 350L + t * 20L).toArray())).toList();
+            batches.stream().flatMap(List::stream).forEach(m -> seen.computeIfAbsent(m.original(), __ -> new HashSet<>()).add(m.translated()));
+            TestUtils.check(seen.values().stream().allMatch(barcodes -> barcodes.size() == 1), lsh + ": concurrent batches agree on each id's barcode");
+            TestUtils.check(seen.values().stream().map(barcodes -> barcodes.iterator().next()).distinct().count() == seen.size(), lsh + ": concurrent batches assign distinct barcodes");
+            TestUtils.check(atm.size() == 250L + 8L * 20L + 80L, lsh + ": size " + atm.size());
+            atm.close();
+        }
+    }
+}
@@ -0,0 +1,54 @@
+import datastructures.container.DNAContainer;
+import datastructures.container.impl.RichDNAContainer;
+import datastructures.container.impl.SizedDNAContainer;
+import datastructures.container.translation.DNAAddrManager;
+import dnacoders.dnaconvertors.RotatingTre;
+import utils.lsh.minhash.MinHashLSH;
+
+public final class TestUtils {
+    private TestUtils() {
+    }
+
+    /**
+     * Throws if the condition does not hold, and prints the description otherwise.
+     * @param condition the checked condition.
+     * @param description the description of the condition.
+     */
+    public static void check(boolean condition, String description) {
+        if (!condition)
+            throw new RuntimeException("failed: " + description);
+
+        System.out.println("ok: " + description);
+    }
+
+    /**
+     * @return an address manager with a small LSH, as used by the container tests.
+     */
+    public static DNAAddrManager addressManager() {
+        return DNAAddrManager.builder().setLsh(MinHashLSH.newSeqLSHTraditional(5, 5)).setAddrSize(80).setNumPermutations(8).build();
+    }
+
+    /**
+     * @param addressManager the address manager.
+     * @return a container on top of the given address manager.
+     */
+    public static SizedDNAContainer container(DNAAddrManager addressManager) {
+        return containerBuilder(addressManager).build();
+    }
+
+    /**
+     * @param addressManager the address manager.
+     * @return a container of strings on top of the given address manager.
+     */
+    public static RichDNAContainer<String> richContainer(DNAAddrManager addressManager) {
+        return containerBuilder(addressManager).buildToRichContainer(RotatingTre.INSTANCE);
+    }
+
+    /**
+     * @param addressManager the address manager.
+     * @return a builder of the containers above.
+     */
+    public static SizedDNAContainer.Builder containerBuilder(DNAAddrManager addressManager) {
+        return DNAContainer.builder().setAddressManager(addressManager).setPayloadSize(170).setNumPayloadPermutations(8);
+    }
+}
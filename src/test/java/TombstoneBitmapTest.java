@@ -0,0 +1,50 @@
+import datastructures.container.impl.PersistentContainer;
+import datastructures.container.impl.TombstoneBitmap;
+import utils.FuncUtils;
+import utils.serializers.FixedSizeSerializer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.LongStream;
+
+public class TombstoneBitmapTest {
+
+    public static void main(String... args) {
+        Path dir = FuncUtils.safeCall(() -> Files.createTempDirectory("tombstones"));
+        String bitmapPath = dir.resolve("bitmap.tombstones").toString();
+
+        // set and clear, beyond the initial size of the file
+        try (TombstoneBitmap bitmap = TombstoneBitmap.open(bitmapPath)) {
+            TestUtils.check(bitmap.set(3L) && !bitmap.set(3L), "set reports whether the bit was newly set");
+            TestUtils.check(bitmap.set(1_000_000L) && bitmap.isSet(1_000_000L), "set grows the bitmap");
+            TestUtils.check(bitmap.clear(3L) && !bitmap.clear(3L) && !bitmap.isSet(3L), "clear reports whether the bit was set");
+            TestUtils.check(!bitmap.clear(5_000_000L), "clear beyond the bitmap is a no-op");
+            TestUtils.check(bitmap.count() == 1L, "count " + bitmap.count());
+
+            // concurrent sets of disjoint bits, while the bitmap grows
+            LongStream.range(0L, 200_000L).parallel().forEach(i -> bitmap.set(2_000_000L + i * 7L));
+            TestUtils.check(bitmap.count() == 200_001L, "count " + bitmap.count() + " after concurrent sets");
+        }
+
+        // the bits and their count are restored on opening
+        try (TombstoneBitmap reopened = TombstoneBitmap.open(bitmapPath)) {
+            TestUtils.check(reopened.count() == 200_001L && reopened.isSet(1_000_000L) && reopened.isSet(2_000_007L) && !reopened.isSet(2_000_008L), "bits are restored after reopening");
+        }
+
+        // PersistentContainer marks removed records in its tombstones, and put and putAll revive them
+        String containerPath = dir.resolve("container").toString();
+        try (PersistentContainer<Long> container = new PersistentContainer<>(containerPath, FixedSizeSerializer.LONG)) {
+            container.putAll(0L, List.of(10L, 11L, 12L, 13L));
+            TestUtils.check(container.remove(1L) && container.remove(2L) && !container.remove(2L), "remove reports whether the record was present");
+            TestUtils.check(container.get(1L) == null && container.get(2L) == null && container.get(3L) == 13L, "removed records are absent");
+            TestUtils.check(container.keyStream().boxed().toList().equals(List.of(0L, 3L)), "keyStream skips removed records");
+            container.put(1L, 21L);
+            container.putAll(2L, List.of(22L));
+            TestUtils.check(container.get(1L) == 21L && container.get(2L) == 22L, "put and putAll revive removed records");
+            container.remove(3L);
+        }
+        PersistentContainer<Long> loaded = PersistentContainer.load(containerPath, FixedSizeSerializer.LONG);
+        TestUtils.check(loaded.size() == 4L && loaded.get(3L) == null && loaded.get(2L) == 22L, "tombstones are restored after loading");
+        loaded.close();
+    }
+}
@@ -0,0 +1,55 @@
+import utils.cache.WTinyLFUCache;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+public class WTinyLFUCacheTest {
+
+    public static void main(String... args) {
+        // round trip and invalidation
+        WTinyLFUCache<String> cache = new WTinyLFUCache<>(100L, s -> 1L, 100L);
+        cache.put(1L, "a", cache.stamp());
+        TestUtils.check("a".equals(cache.get(1L)), "get returns the cached value");
+        cache.invalidate(1L);
+        TestUtils.check(cache.get(1L) == null, "invalidate removes the value");
+
+        // a value loaded before an invalidation is not cached
+        long stamp = cache.stamp();
+        cache.invalidate(2L);
+        cache.put(2L, "stale", stamp);
+        TestUtils.check(cache.get(2L) == null, "a stale stamp is rejected");
+
+        // the weight budget is never exceeded, and values heavier than the budget are not cached
+        WTinyLFUCache<String> weighted = new WTinyLFUCache<>(50L, s -> s.length(), 20L);
+        for (long i = 0L; i < 200L; i++)
+            weighted.put(i, "x".repeat((int) (i % 7) + 1), weighted.stamp());
+        weighted.put(1000L, "x".repeat(51), weighted.stamp());
+        TestUtils.check(weighted.weightedSize() <= weighted.getMaxWeight(), "weighted size " + weighted.weightedSize() + " <= " + weighted.getMaxWeight());
+        TestUtils.check(weighted.get(1000L) == null, "a value heavier than the budget is not cached");
+        TestUtils.check(weighted.evictionCount() > 0L, "values were evicted");
+
+        // a frequently read value survives a scan of values that are read once
+        WTinyLFUCache<Long> lfu = new WTinyLFUCache<>(20L, v -> 1L, 20L);
+        lfu.put(-1L, -1L, lfu.stamp());
+        for (long i = 0L; i < 1000L; i++) {
+            if (lfu.get(-1L) == null)
+                lfu.put(-1L, -1L, lfu.stamp());
+            lfu.put(i, i, lfu.stamp());
+        }
+        TestUtils.check(lfu.get(-1L) != null, "the hot value survives the scan");
+
+        // concurrent reads and writes
+        WTinyLFUCache<Long> concurrent = new WTinyLFUCache<>(1000L, v -> 1L, 1000L);
+        IntStream.range(0, 8).parallel().forEach(t -> LongStream.range(0L, 20_000L).forEach(i -> {
+            long key = (i * 31L + t) % 5000L;
+            Long value = concurrent.get(key);
+            if (value == null)
+                concurrent.put(key, key, concurrent.stamp());
+            else if (value != key)
+                throw new RuntimeException("key " + key + " has value " + value);
+            if (i % 1000L == 0L)
+                concurrent.invalidate(key);
+        }));
+        TestUtils.check(concurrent.weightedSize() <= concurrent.getMaxWeight(), "concurrent weighted size " + concurrent.weightedSize() + " <= " + concurrent.getMaxWeight());
+        System.out.println(concurrent);
+    }
+}